@@ -119,6 +119,10 @@ public class Beans {
    * @param qualifiers the bean qualifiers that use to resolve
    */
   public static <T> Optional<T> find(Class<T> instanceClass, Annotation... qualifiers) {
+    T resolved = ResolvedBeanReferences.get(instanceClass, qualifiers);
+    if (resolved != null) {
+      return Optional.of(resolved);
+    }
     Instance<T> inst = select(instanceClass, qualifiers);
     if (inst.isResolvable()) {
       return Optional.of(inst.get());
@@ -277,6 +281,16 @@ public class Beans {
     return false;
   }
 
+  /**
+   * Discard the cached client proxies and instances of the normal scoped beans that were resolved
+   * through {@link #resolve(Class, Annotation...)}, {@link #find(Class, Annotation...)} or
+   * {@link #select(Class, Annotation...)}. The cache is also discarded automatically when the CDI
+   * container is shutting down or started.
+   */
+  public static void invalidateResolutionCache() {
+    ResolvedBeanReferences.invalidate();
+  }
+
   /**
    * Test the given annotation type with CDI current bean manager to determine if it is a scope
    * type.
@@ -348,12 +362,20 @@ public class Beans {
    * <p>
    * Use with care, there may be a memory leak.
    * </p>
+   * <p>
+   * Note: If the resolved bean is a normal scoped bean, the client proxy will be cached and
+   * returned directly for the subsequent calls with the same instance class and qualifiers.
+   * </p>
    *
    * @param <T> the instance type to be resolved
    * @param instanceClass the bean instance class to be resolved
    * @param qualifiers the bean qualifiers that use to resolve
    */
   public static <T> T resolve(Class<T> instanceClass, Annotation... qualifiers) {
+    T resolved = ResolvedBeanReferences.get(instanceClass, qualifiers);
+    if (resolved != null) {
+      return resolved;
+    }
     return select(instanceClass, qualifiers).get();
   }
 
@@ -464,7 +486,11 @@ public class Beans {
     if (!CDIs.isEnabled()) {
       throw new IllegalStateException("Unable to access CDI, the CDI container may be closed.");
     }
-    return CDI.current().select(shouldNotNull(instanceClass), qualifiers);
+    Instance<T> cached = ResolvedBeanReferences.select(shouldNotNull(instanceClass), qualifiers);
+    if (cached != null) {
+      return cached;
+    }
+    return CDI.current().select(instanceClass, qualifiers);
   }
 
   /**
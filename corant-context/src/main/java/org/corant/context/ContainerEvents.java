@@ -15,6 +15,7 @@ package org.corant.context;
 
 import java.util.logging.Logger;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
 import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
@@ -36,7 +37,17 @@ public class ContainerEvents {
   protected Event<ContainerEvent> events;
 
   protected void onContainerBeforeShutdown(@Observes ContainerBeforeShutdown e) {
-    events.fire(new PreContainerStopEvent(e.getContainerId()));
+    try {
+      events.fire(new PreContainerStopEvent(e.getContainerId()));
+    } finally {
+      ResolvedBeanReferences.shutdown();
+    }
+  }
+
+  protected void onApplicationInitialized(
+      @Observes @Initialized(ApplicationScoped.class) Object e) {
+    // discard the resolution cache that may be populated before the container was started
+    ResolvedBeanReferences.restart();
   }
 
   protected void onContainerInitialized(@Observes ContainerInitialized e) {
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.enterprise.inject.AmbiguousResolutionException;
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.CDI;
+import org.corant.config.Configs;
+
+/**
+ * corant-context
+ *
+ * <p>
+ * A resolution cache used by {@link Beans} that holds the client proxies of the normal scoped
+ * beans keyed by the bean type and qualifiers. Since the client proxy of a normal scoped bean is
+ * bound to the container rather than to the contextual instance, it can be returned directly for
+ * the subsequent resolutions without performing the typesafe resolution again. The beans of pseudo
+ * scopes (for example {@code Dependent} or {@code Singleton}) are never cached, they are still
+ * resolved through {@link CDI#select(Class, Annotation...)}.
+ *
+ * <p>
+ * The cache also holds the {@link CDI} instance and its {@link BeanManager} it was populated from,
+ * so that the cached lookups don't invoke {@link CDI#current()}, and the {@link Instance} selected
+ * for a normal scoped bean, the selection of the other beans is not cached since the dependent
+ * objects obtained from an {@link Instance} live as long as the {@link Instance}. The cache is
+ * discarded by {@link #shutdown()} when the container is shutting down and isn't populated again
+ * until {@link #restart()} is invoked when a container is started, so that it's never populated
+ * from a dying container. The cache can be disabled by setting
+ * {@code corant.context.beans.resolution-cache.enabled} to false.
+ *
+ * @author bingo 下午3:10:27
+ *
+ */
+final class ResolvedBeanReferences {
+
+  static final boolean ENABLED = Configs.getValue("corant.context.beans.resolution-cache.enabled",
+      Boolean.class, Boolean.TRUE);
+
+  static final Object UNCACHEABLE = new Object();
+
+  static volatile Snapshot snapshot; // NOSONAR
+
+  static volatile boolean shuttingDown; // NOSONAR
+
+  private ResolvedBeanReferences() {}
+
+  /**
+   * Returns the cached client proxy of the normal scoped bean that matches the given type and
+   * qualifiers or null if the bean is not a normal scoped bean or can't be resolved or the CDI
+   * container is not available.
+   *
+   * @param <T> the bean type
+   * @param type the bean class
+   * @param qualifiers the bean qualifiers
+   */
+  static <T> T get(Class<T> type, Annotation... qualifiers) {
+    if (!ENABLED || type == null) {
+      return null;
+    }
+    final Snapshot current = current();
+    if (current == null) {
+      return null;
+    }
+    Key key = new Key(type, qualifiers);
+    Object reference = current.references.get(key);
+    if (reference == null) {
+      reference = lookup(current.beanManager, type, qualifiers);
+      if (reference == null) {
+        return null; // not ready yet, don't cache it
+      }
+      Object exists = current.references.putIfAbsent(key, reference);
+      if (exists != null) {
+        reference = exists;
+      }
+    }
+    return reference == UNCACHEABLE ? null : type.cast(reference);
+  }
+
+  /**
+   * Returns the instance that matches the given type and qualifiers selected from the cached CDI
+   * instance or null if the CDI container is not available. The instance of a normal scoped bean
+   * is cached, the other instances are selected every time.
+   *
+   * @param <T> the bean type
+   * @param type the bean class
+   * @param qualifiers the bean qualifiers
+   */
+  @SuppressWarnings("unchecked")
+  static <T> Instance<T> select(Class<T> type, Annotation... qualifiers) {
+    if (!ENABLED || type == null) {
+      return null;
+    }
+    final Snapshot current = current();
+    if (current == null) {
+      return null;
+    }
+    Key key = new Key(type, qualifiers);
+    Instance<?> instance = current.instances.get(key);
+    if (instance == null) {
+      instance = current.cdi.select(type, qualifiers);
+      Object reference = current.references.get(key);
+      if (reference == null) {
+        reference = lookup(current.beanManager, type, qualifiers);
+        if (reference != null) {
+          current.references.putIfAbsent(key, reference);
+        }
+      }
+      if (reference != null && reference != UNCACHEABLE) {
+        Instance<?> exists = current.instances.putIfAbsent(key, instance);
+        if (exists != null) {
+          instance = exists;
+        }
+      }
+    }
+    return (Instance<T>) instance;
+  }
+
+  /**
+   * Returns the current snapshot, creates it from {@link CDI#current()} if there is no snapshot and
+   * the container is not shutting down.
+   */
+  static Snapshot current() {
+    Snapshot current = snapshot;
+    if (current == null) {
+      synchronized (ResolvedBeanReferences.class) {
+        if ((current = snapshot) == null) {
+          if (shuttingDown) {
+            return null;
+          }
+          final CDI<Object> cdi;
+          try {
+            cdi = CDI.current();
+          } catch (IllegalStateException e) {
+            return null;
+          }
+          if (cdi == null) {
+            return null;
+          }
+          snapshot = current = new Snapshot(cdi);
+        }
+      }
+    }
+    return current;
+  }
+
+  static void invalidate() {
+    synchronized (ResolvedBeanReferences.class) {
+      Snapshot current = snapshot;
+      if (current != null) {
+        current.references.clear();
+        current.instances.clear();
+      }
+      snapshot = null;
+    }
+  }
+
+  /**
+   * Discard the snapshot and allow it to be populated from the started container.
+   */
+  static void restart() {
+    synchronized (ResolvedBeanReferences.class) {
+      invalidate();
+      shuttingDown = false;
+    }
+  }
+
+  /**
+   * Discard the snapshot and refuse to populate it until {@link #restart()}.
+   */
+  static void shutdown() {
+    synchronized (ResolvedBeanReferences.class) {
+      shuttingDown = true;
+      invalidate();
+    }
+  }
+
+  static Object lookup(BeanManager bm, Class<?> type, Annotation... qualifiers) {
+    try {
+      Set<Bean<?>> beans = bm.getBeans(type, qualifiers);
+      if (beans.isEmpty()) {
+        return UNCACHEABLE;
+      }
+      Bean<?> bean = bm.resolve(beans);
+      if (bean == null || !bm.isNormalScope(bean.getScope())) {
+        return UNCACHEABLE;
+      }
+      return bm.getReference(bean, type, bm.createCreationalContext(bean));
+    } catch (AmbiguousResolutionException | IllegalArgumentException e) {
+      // let the caller report the resolution problems
+      return UNCACHEABLE;
+    } catch (IllegalStateException e) {
+      // the container is initializing or shutting down
+      return null;
+    }
+  }
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午3:10:27
+   *
+   */
+  static final class Key {
+    final Class<?> type;
+    final Annotation[] qualifiers;
+    final int hash;
+
+    Key(Class<?> type, Annotation[] qualifiers) {
+      this.type = type;
+      this.qualifiers = qualifiers == null ? new Annotation[0] : qualifiers.clone();
+      hash = 31 * type.hashCode() + Arrays.hashCode(this.qualifiers);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return type == other.type && Arrays.equals(qualifiers, other.qualifiers);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午3:10:27
+   *
+   */
+  static final class Snapshot {
+    final CDI<Object> cdi;
+    final BeanManager beanManager;
+    final Map<Key, Object> references = new ConcurrentHashMap<>();
+    final Map<Key, Instance<?>> instances = new ConcurrentHashMap<>();
+
+    Snapshot(CDI<Object> cdi) {
+      this.cdi = cdi;
+      beanManager = cdi.getBeanManager();
+    }
+  }
+}
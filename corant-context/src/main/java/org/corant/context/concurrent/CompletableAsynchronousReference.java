@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * corant-context
+ *
+ * <p>
+ * A {@link CompletableFuture} based {@link AsynchronousReference}, used as the result of the
+ * asynchronous methods whose return type is {@link AsynchronousReference}.
+ *
+ * <p>
+ * Note: According to the {@link AsynchronousReference} contract the {@link #get()} of this class
+ * does not wait for completion, it returns the result or {@code null} if not completed or completed
+ * exceptionally, use {@link #join()} or {@link #toCompletableFuture()} to wait for the result. The
+ * dependent stages of this class are plain {@link CompletableFuture}.
+ *
+ * @author bingo 下午2:58:40
+ *
+ */
+public class CompletableAsynchronousReference<T> extends CompletableFuture<T>
+    implements AsynchronousReference<T> {
+
+  @Override
+  public Throwable cause() {
+    if (!isCompletedExceptionally()) {
+      return null;
+    }
+    try {
+      join();
+      return null;
+    } catch (CompletionException e) {
+      return e.getCause() != null ? e.getCause() : e;
+    } catch (RuntimeException e) {
+      return e;
+    }
+  }
+
+  @Override
+  public T get() {
+    return isDone() && !isCompletedExceptionally() ? getNow(null) : null;
+  }
+
+  @Override
+  public <U> CompletableFuture<U> newIncompleteFuture() {
+    return new CompletableFuture<>();
+  }
+
+  /**
+   * Returns a plain {@link CompletableFuture} that completes with the same result of this
+   * reference, cancelling the returned future also cancels this reference.
+   */
+  @Override
+  public CompletableFuture<T> toCompletableFuture() {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    whenComplete((r, t) -> {
+      if (t != null) {
+        future.completeExceptionally(t);
+      } else {
+        future.complete(r);
+      }
+    });
+    future.whenComplete((r, t) -> {
+      if (future.isCancelled()) {
+        cancel(true);
+      }
+    });
+    return future;
+  }
+
+  @Override
+  public String toString() {
+    return "CompletableAsynchronousReference [" + super.toString() + "]";
+  }
+}
@@ -24,6 +24,8 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -57,6 +59,7 @@ import org.corant.context.concurrent.executor.DefaultManagedExecutorService;
 import org.corant.context.concurrent.executor.DefaultManagedScheduledExecutorService;
 import org.corant.context.concurrent.executor.DefaultManagedThreadFactory;
 import org.corant.context.concurrent.executor.ExecutorServiceManager;
+import org.corant.context.concurrent.executor.VirtualThreadManagedExecutorService;
 import org.corant.context.concurrent.provider.BlockingQueueProvider;
 import org.corant.context.concurrent.provider.ContextSetupProviderImpl;
 import org.corant.context.concurrent.provider.TransactionSetupProviderImpl;
@@ -66,6 +69,7 @@ import org.corant.context.qualifier.Qualifiers.NamedQualifierObjectManager;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.normal.Names.JndiNames;
 import org.corant.shared.normal.Priorities;
+import org.corant.shared.util.Threads;
 import org.glassfish.enterprise.concurrent.ContextServiceImpl;
 import org.glassfish.enterprise.concurrent.ManagedExecutorServiceAdapter;
 import org.glassfish.enterprise.concurrent.ManagedScheduledExecutorServiceAdapter;
@@ -92,6 +96,8 @@ public class ConcurrentExtension implements Extension {
       "corant.concurrent.enable-execute-runnable-logger";
   public static final String ENABLE_CONCURRENT_THROTTLE_INTERCEPTOR_CFG =
       "corant.concurrent.enable-concurrent-throttle-interceptor";
+  public static final String ENABLE_CONCURRENT_THROTTLE_JMX_CFG =
+      "corant.concurrent.enable-concurrent-throttle-jmx";
   public static final String ENABLE_ASYNC_INTERCEPTOR_CFG =
       "corant.concurrent.enable-concurrent-asynchronous-interceptor";
   public static final String JNDI_SUBCTX_NAME = JndiNames.JNDI_COMP_NME + "/concurrent";
@@ -110,6 +116,8 @@ public class ConcurrentExtension implements Extension {
       Configs.<Boolean>getValue(ENABLE_EXE_RUNNABLE_LOGGER_CFG, Boolean.class, Boolean.TRUE);
   public static final boolean ENABLE_CONCURRENT_THROTTLE_INTERCEPTOR = Configs
       .<Boolean>getValue(ENABLE_CONCURRENT_THROTTLE_INTERCEPTOR_CFG, Boolean.class, Boolean.FALSE);
+  public static final boolean ENABLE_CONCURRENT_THROTTLE_JMX =
+      Configs.<Boolean>getValue(ENABLE_CONCURRENT_THROTTLE_JMX_CFG, Boolean.class, Boolean.FALSE);
   public static final boolean ENABLE_ASYNC_INTERCEPTOR =
       Configs.<Boolean>getValue(ENABLE_ASYNC_INTERCEPTOR_CFG, Boolean.class, Boolean.FALSE);
 
@@ -145,6 +153,19 @@ public class ConcurrentExtension implements Extension {
     // ScheduledExecutorService extends ExecutorService
     if (event != null) {
       executorConfigs.getAllWithQualifiers().forEach((cfg, esn) -> {
+        if (isVirtualThreadsAvailable(cfg)) {
+          event.<ManagedExecutorService>addBean().addQualifiers(esn)
+              .addType(ManagedExecutorService.class).addType(ExecutorService.class)
+              .beanClass(VirtualThreadManagedExecutorService.class)
+              .scope(ApplicationScoped.class)
+              .produceWith(beans -> register(beans, produceVirtual(beans, cfg), cfg));
+          logger.info(() -> String.format("Resolved virtual thread managed executor %s %s",
+              cfg.getName(), cfg));
+          if (cfg.isEnableJndi() && isNotBlank(cfg.getName())) {
+            registerJndi(cfg.getName(), ManagedExecutorService.class, esn);
+          }
+          return;
+        }
         event.<ManagedExecutorService>addBean().addQualifiers(esn)
             .addType(ManagedExecutorService.class).addType(ExecutorService.class)
             .beanClass(ManagedExecutorServiceAdapter.class).scope(ApplicationScoped.class)
@@ -314,6 +335,35 @@ public class ConcurrentExtension implements Extension {
         contextService, cfg.getRejectPolicy(), cfg.getRetryDelay());
   }
 
+  /**
+   * Returns whether the given managed executor configuration uses the virtual threads and the
+   * current JVM supports them, if the current JVM doesn't support them the managed executor falls
+   * back to the platform thread pool.
+   *
+   * @param cfg the managed executor configuration
+   */
+  protected boolean isVirtualThreadsAvailable(ManagedExecutorConfig cfg) {
+    if (!cfg.isVirtualThreads()) {
+      return false;
+    }
+    if (!Threads.isVirtualThreadSupported()) {
+      logger.warning(() -> String.format(
+          "The virtual threads are not supported in the current JVM, the managed executor %s falls back to the platform thread pool.",
+          cfg.getName()));
+      return false;
+    }
+    return true;
+  }
+
+  protected VirtualThreadManagedExecutorService produceVirtual(Instance<Object> instance,
+      ManagedExecutorConfig cfg) {
+    logger.fine(() -> String.format("Create virtual thread managed executor service %s with %s.",
+        cfg.getName(), cfg));
+    return new VirtualThreadManagedExecutorService(cfg.getThreadName(), cfg.getHungTaskThreshold(),
+        cfg.isLongRunningTasks(), cfg.getAwaitTermination(),
+        createContextService(cfg.getName(), instance, cfg.getContextInfos()));
+  }
+
   protected DefaultManagedThreadFactory produce(Instance<Object> instance,
       ManagedThreadFactoryConfig cfg) throws NamingException {
     ContextServiceImpl contextService = null;// FIXME use context service interface
@@ -328,16 +378,37 @@ public class ConcurrentExtension implements Extension {
 
   protected ManagedExecutorServiceAdapter register(Instance<Object> instance,
       DefaultManagedExecutorService service, ManagedExecutorConfig cfg) {
+    if (cfg.isEnableMetrics()) {
+      service.getInstrumentation().enable(cfg.isEnableSubmissionSiteMetrics());
+    }
     instance.select(ExecutorServiceManager.class).get().register(service);
     return service.getAdapter();
   }
 
   protected ManagedScheduledExecutorServiceAdapter register(Instance<Object> instance,
       DefaultManagedScheduledExecutorService service, ManagedScheduledExecutorConfig cfg) {
+    if (cfg.isEnableMetrics()) {
+      service.getInstrumentation().enable(cfg.isEnableSubmissionSiteMetrics());
+    }
     instance.select(ExecutorServiceManager.class).get().register(service);
     return service.getAdapter();
   }
 
+  protected VirtualThreadManagedExecutorService register(Instance<Object> instance,
+      VirtualThreadManagedExecutorService service, ManagedExecutorConfig cfg) {
+    if (cfg.isEnableMetrics()) {
+      service.getInstrumentation().enable(cfg.isEnableSubmissionSiteMetrics());
+    }
+    instance.select(ExecutorServiceManager.class).get().register(service);
+    return service;
+  }
+
+  protected boolean isAsynchronousReturnType(Class<?> returnType) {
+    return returnType.equals(Void.TYPE) || Future.class.equals(returnType)
+        || CompletionStage.class.equals(returnType) || CompletableFuture.class.equals(returnType)
+        || AsynchronousReference.class.equals(returnType);
+  }
+
   protected void validate(@Observes AfterDeploymentValidation adv, BeanManager bm) {
     if (ENABLE_ASYNC_INTERCEPTOR && !asyncBeanClass.isEmpty()) {
       for (Class<?> clazz : asyncBeanClass) {
@@ -347,9 +418,9 @@ public class ConcurrentExtension implements Extension {
             Asynchronous methodAsync =
                 defaultObject(m.getAnnotation(Asynchronous.class), clazzAsync);
             if (methodAsync != null) {
-              if (!m.getReturnType().equals(Void.TYPE) && !Future.class.equals(m.getReturnType())) {
+              if (!isAsynchronousReturnType(m.getReturnType())) {
                 adv.addDeploymentProblem(new CorantRuntimeException(
-                    "The asynchronous method %s return type must be java.util.concurrent.Future or void!",
+                    "The asynchronous method %s return type must be java.util.concurrent.Future, java.util.concurrent.CompletionStage, java.util.concurrent.CompletableFuture, AsynchronousReference or void!",
                     m.getName()));
               } else if (!executorConfigs.getAllNames().contains(methodAsync.executor())) {
                 adv.addDeploymentProblem(new CorantRuntimeException(
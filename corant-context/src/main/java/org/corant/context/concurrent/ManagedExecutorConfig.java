@@ -57,6 +57,9 @@ public class ManagedExecutorConfig extends AbstractNamedObject implements Declar
   protected int queueCapacity = Integer.MAX_VALUE;
   protected ContextInfo[] contextInfos = ContextInfo.values();
   protected boolean enableJndi = false;
+  protected boolean virtualThreads = false;
+  protected boolean enableMetrics = false;
+  protected boolean enableSubmissionSiteMetrics = false;
 
   public ManagedExecutorConfig() {}
 
@@ -124,10 +127,40 @@ public class ManagedExecutorConfig extends AbstractNamedObject implements Declar
     return enableJndi;
   }
 
+  /**
+   * Returns whether to record the task timing metrics and export the executor metrics to JMX.
+   *
+   * @return the enableMetrics
+   */
+  public boolean isEnableMetrics() {
+    return enableMetrics;
+  }
+
+  /**
+   * Returns whether to break down the task timing metrics per submission site, it takes effect
+   * only when the metrics are enabled, since the submission site is resolved by walking the stack
+   * of the submitting thread it's expensive.
+   *
+   * @return the enableSubmissionSiteMetrics
+   */
+  public boolean isEnableSubmissionSiteMetrics() {
+    return enableSubmissionSiteMetrics;
+  }
+
   public boolean isLongRunningTasks() {
     return longRunningTasks;
   }
 
+  /**
+   * Returns whether to use a virtual thread per task executor instead of the platform thread pool,
+   * only available on JDK 21+, on the older JDKs the platform thread pool is used.
+   *
+   * @return the virtualThreads
+   */
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
   @Override
   public void onPostConstruct(Config config, String key) {
     setName(key);
@@ -140,7 +173,9 @@ public class ManagedExecutorConfig extends AbstractNamedObject implements Declar
         + keepAliveTime + ", threadLifeTime=" + threadLifeTime + ", awaitTermination="
         + awaitTermination + ", rejectPolicy=" + rejectPolicy + ", threadPriority=" + threadPriority
         + ", threadName=" + threadName + ", queueCapacity=" + queueCapacity + ", contextInfos="
-        + Arrays.toString(contextInfos) + ", enableJndi=" + enableJndi + "]";
+        + Arrays.toString(contextInfos) + ", enableJndi=" + enableJndi + ", virtualThreads="
+        + virtualThreads + ", enableMetrics=" + enableMetrics + ", enableSubmissionSiteMetrics="
+        + enableSubmissionSiteMetrics + "]";
   }
 
   protected void setAwaitTermination(Duration awaitTermination) {
@@ -159,6 +194,14 @@ public class ManagedExecutorConfig extends AbstractNamedObject implements Declar
     this.enableJndi = enableJndi;
   }
 
+  protected void setEnableMetrics(boolean enableMetrics) {
+    this.enableMetrics = enableMetrics;
+  }
+
+  protected void setEnableSubmissionSiteMetrics(boolean enableSubmissionSiteMetrics) {
+    this.enableSubmissionSiteMetrics = enableSubmissionSiteMetrics;
+  }
+
   protected void setHungTaskThreshold(long hungTaskThreshold) {
     this.hungTaskThreshold = hungTaskThreshold;
   }
@@ -195,4 +238,8 @@ public class ManagedExecutorConfig extends AbstractNamedObject implements Declar
     this.threadPriority = threadPriority;
   }
 
+  protected void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
 }
@@ -25,6 +25,16 @@ import javax.interceptor.InterceptorBinding;
 /**
  * corant-context
  *
+ * <p>
+ * Limits the number of concurrent invocations of the annotated methods. By default, each method
+ * has its own throttle with a fixed limit {@link #max()} and the invocations that can't be admitted
+ * wait until a permit is available. One can use {@link #strategy()} to choose an adaptive limit
+ * algorithm which adjusts the limit between {@link #min()} and {@link #max()} according to the
+ * observed latency, use {@link #maxWaitMillis()} to reject the invocations fast with
+ * {@link org.corant.context.concurrent.throttle.ConcurrencyThrottleRejectedException} and use
+ * {@link #name()} with {@link #priority()} to share a throttle among several methods with priority
+ * lanes.
+ *
  * @author bingo 上午9:50:15
  *
  */
@@ -36,10 +46,84 @@ public @interface ConcurrencyThrottle {
 
   int DFLT_THRON = 1;
 
+  /**
+   * The exception types that are regarded as the dropped signal of the adaptive limit algorithms,
+   * default is {@link Exception}.
+   */
+  @Nonbinding
+  Class<? extends Throwable>[] dropOn() default Exception.class;
+
   @Nonbinding
   boolean fair() default true;
 
+  /**
+   * The initial limit of the adaptive limit algorithms, the value is bounded by {@link #min()} and
+   * {@link #max()}, a non-positive value means the midpoint of {@link #min()} and {@link #max()}.
+   * Default is 0.
+   */
+  @Nonbinding
+  int initial() default 0;
+
   @Nonbinding
   int max() default DFLT_THRON;
 
+  /**
+   * The maximum time in milliseconds to wait for a permit, a negative value means wait until a
+   * permit is available, zero means reject immediately if there is no permit available. Default is
+   * -1.
+   */
+  @Nonbinding
+  long maxWaitMillis() default -1;
+
+  /**
+   * The minimum limit of the adaptive limit algorithms, default is 1.
+   */
+  @Nonbinding
+  int min() default DFLT_THRON;
+
+  /**
+   * The throttle name, the methods with the same throttle name share the same throttle, the
+   * configuration of the throttle is determined by the first invoked method. Default is empty,
+   * means that each method has its own throttle.
+   */
+  @Nonbinding
+  String name() default "";
+
+  /**
+   * The priority lane of the annotated method in the throttle, when a permit is available, the
+   * waiting invocation with the highest priority will be admitted first. Default is 0.
+   */
+  @Nonbinding
+  int priority() default 0;
+
+  /**
+   * The limit algorithm, default is {@link LimitStrategy#FIXED}.
+   */
+  @Nonbinding
+  LimitStrategy strategy() default LimitStrategy.FIXED;
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午4:12:30
+   *
+   */
+  enum LimitStrategy {
+    /**
+     * Use a fixed limit {@link ConcurrencyThrottle#max()}.
+     */
+    FIXED,
+
+    /**
+     * Additive increase multiplicative decrease, the limit is increased by one when the throttle
+     * is saturated and decreased by a ratio when an invocation is dropped.
+     */
+    AIMD,
+
+    /**
+     * Gradient (Vegas-style) algorithm, the limit is adjusted according to the gradient between
+     * the minimum observed latency and the current latency.
+     */
+    GRADIENT
+  }
 }
@@ -29,9 +29,15 @@ public class AbortHandler implements RejectedExecutionHandler {
   static final Logger logger = Logger.getLogger(AbortHandler.class.getName());
 
   final String name;
+  final ExecutorServiceInstrumentation instrumentation;
 
   public AbortHandler(String name) {
+    this(name, null);
+  }
+
+  public AbortHandler(String name, ExecutorServiceInstrumentation instrumentation) {
     this.name = name;
+    this.instrumentation = instrumentation;
   }
 
   @Override
@@ -39,6 +45,9 @@ public class AbortHandler implements RejectedExecutionHandler {
     String msg = "The task " + r.toString() + " was rejected from the executor "
         + executor.toString() + " in the executor service " + name;
     logger.warning(msg);
+    if (instrumentation != null) {
+      instrumentation.onRejected();
+    }
     throw new RejectedExecutionException(msg);
   }
 
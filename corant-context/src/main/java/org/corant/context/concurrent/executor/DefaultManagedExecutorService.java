@@ -16,6 +16,8 @@ package org.corant.context.concurrent.executor;
 import static org.corant.shared.util.Throwables.rethrow;
 import java.time.Duration;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -35,6 +37,7 @@ public class DefaultManagedExecutorService extends ManagedExecutorServiceImpl {
   static final Logger logger = Logger.getLogger(DefaultManagedExecutorService.class.getName());
 
   final Duration awaitTermination;
+  final ExecutorServiceInstrumentation instrumentation;
 
   public DefaultManagedExecutorService(String name, ManagedThreadFactoryImpl managedThreadFactory,
       long hungTaskThreshold, boolean longRunningTasks, int corePoolSize, int maxPoolSize,
@@ -45,12 +48,13 @@ public class DefaultManagedExecutorService extends ManagedExecutorServiceImpl {
         maxPoolSize, keepAliveTime, keepAliveTimeUnit, threadLifeTime, contextService, rejectPolicy,
         queue);
     this.awaitTermination = awaitTermination;
+    instrumentation = new ExecutorServiceInstrumentation(name, threadPoolExecutor);
     if (rejectPolicy == RejectPolicy.RETRY_ABORT) {
-      threadPoolExecutor.setRejectedExecutionHandler(new RetryAbortHandler(name, retryDelay));
+      threadPoolExecutor.setRejectedExecutionHandler(
+          new RetryAbortHandler(name, retryDelay, instrumentation));
     } else {
-      threadPoolExecutor.setRejectedExecutionHandler(new AbortHandler(name));
+      threadPoolExecutor.setRejectedExecutionHandler(new AbortHandler(name, instrumentation));
     }
-    // TODO Auto-generated constructor stub
   }
 
   public DefaultManagedExecutorService(String name, ManagedThreadFactoryImpl managedThreadFactory,
@@ -62,10 +66,12 @@ public class DefaultManagedExecutorService extends ManagedExecutorServiceImpl {
         maxPoolSize, keepAliveTime, keepAliveTimeUnit, threadLifeTime, queueCapacity,
         contextService, rejectPolicy);
     this.awaitTermination = awaitTermination;
+    instrumentation = new ExecutorServiceInstrumentation(name, threadPoolExecutor);
     if (rejectPolicy == RejectPolicy.RETRY_ABORT) {
-      threadPoolExecutor.setRejectedExecutionHandler(new RetryAbortHandler(name, retryDelay));
+      threadPoolExecutor.setRejectedExecutionHandler(
+          new RetryAbortHandler(name, retryDelay, instrumentation));
     } else {
-      threadPoolExecutor.setRejectedExecutionHandler(new AbortHandler(name));
+      threadPoolExecutor.setRejectedExecutionHandler(new AbortHandler(name, instrumentation));
     }
   }
 
@@ -82,7 +88,26 @@ public class DefaultManagedExecutorService extends ManagedExecutorServiceImpl {
         rethrow(t);
       }
     } : command;
-    super.execute(useCommand);
+    super.execute(instrumentation.wrap(useCommand));
+  }
+
+  public ExecutorServiceInstrumentation getInstrumentation() {
+    return instrumentation;
+  }
+
+  @Override
+  public <T> Future<T> submit(Callable<T> task) {
+    return super.submit(instrumentation.wrap(task));
+  }
+
+  @Override
+  public Future<?> submit(Runnable task) {
+    return super.submit(instrumentation.wrap(task));
+  }
+
+  @Override
+  public <T> Future<T> submit(Runnable task, T result) {
+    return super.submit(instrumentation.wrap(task), result);
   }
 
   void stop() {
@@ -15,10 +15,16 @@ package org.corant.context.concurrent.executor;
 
 import static org.corant.shared.util.Throwables.rethrow;
 import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.corant.context.concurrent.ConcurrentExtension;
+import org.corant.context.concurrent.executor.ScheduledThreadPoolExecutorx.DynamicDelayRunnable;
 import org.glassfish.enterprise.concurrent.ContextServiceImpl;
 import org.glassfish.enterprise.concurrent.ManagedScheduledExecutorServiceImpl;
 import org.glassfish.enterprise.concurrent.ManagedThreadFactoryImpl;
@@ -26,6 +32,11 @@ import org.glassfish.enterprise.concurrent.ManagedThreadFactoryImpl;
 /**
  * corant-context
  *
+ * <p>
+ * The scheduled tasks, including the ones scheduled with dynamic delay, are run through
+ * {@link ExecutorServiceInstrumentation#wrapScheduled}, so that their schedule drift is recorded
+ * once the metrics of the service are enabled by the configuration.
+ *
  * @author bingo 上午10:23:58
  *
  */
@@ -35,6 +46,7 @@ public class DefaultManagedScheduledExecutorService extends ManagedScheduledExec
       Logger.getLogger(DefaultManagedScheduledExecutorService.class.getName());
 
   final Duration awaitTermination;
+  final ExecutorServiceInstrumentation instrumentation;
 
   public DefaultManagedScheduledExecutorService(String name,
       ManagedThreadFactoryImpl managedThreadFactory, long hungTaskThreshold,
@@ -44,10 +56,12 @@ public class DefaultManagedScheduledExecutorService extends ManagedScheduledExec
     super(name, managedThreadFactory, hungTaskThreshold, longRunningTasks, corePoolSize,
         keepAliveTime, keepAliveTimeUnit, threadLifeTime, contextService, rejectPolicy);
     this.awaitTermination = awaitTermination;
+    instrumentation = new ExecutorServiceInstrumentation(name, threadPoolExecutor);
     if (rejectPolicy == RejectPolicy.RETRY_ABORT) {
-      threadPoolExecutor.setRejectedExecutionHandler(new RetryAbortHandler(name, retryDelay));
+      threadPoolExecutor.setRejectedExecutionHandler(
+          new RetryAbortHandler(name, retryDelay, instrumentation));
     } else {
-      threadPoolExecutor.setRejectedExecutionHandler(new AbortHandler(name));
+      threadPoolExecutor.setRejectedExecutionHandler(new AbortHandler(name, instrumentation));
     }
   }
 
@@ -64,7 +78,72 @@ public class DefaultManagedScheduledExecutorService extends ManagedScheduledExec
         rethrow(t);
       }
     } : command;
-    super.execute(useCommand);
+    super.execute(instrumentation.wrap(useCommand));
+  }
+
+  public ExecutorServiceInstrumentation getInstrumentation() {
+    return instrumentation;
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    return super.schedule(instrumentation.wrapScheduled(callable, delay, unit), delay, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+    return super.schedule(instrumentation.wrapScheduled(command, delay, 0, unit), delay, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+      TimeUnit unit) {
+    return super.scheduleAtFixedRate(
+        instrumentation.wrapScheduled(command, initialDelay, period, unit), initialDelay, period,
+        unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay,
+      long delay, TimeUnit unit) {
+    return super.scheduleWithFixedDelay(
+        instrumentation.wrapScheduled(command, initialDelay, -delay, unit), initialDelay, delay,
+        unit);
+  }
+
+  /**
+   * Schedule the given runnable to run after the delay it returns, and reschedule it after each
+   * run with the delay it returns again until the delay is not positive or the returned future is
+   * cancelled.
+   *
+   * @param runnable the task to run
+   * @return a future that can be used to cancel the task, or null if this service is shutdown
+   *
+   * @see ScheduledThreadPoolExecutorx#scheduleWithDynamicDelay(DynamicDelayRunnable)
+   */
+  public Future<?> scheduleWithDynamicDelay(DynamicDelayRunnable runnable) {
+    if (runnable == null) {
+      throw new NullPointerException("The runnable can't null!");
+    }
+    if (isShutdown()) {
+      return null;
+    }
+    return new DynamicDelayTask(runnable).doSchedule();
+  }
+
+  @Override
+  public <T> Future<T> submit(Callable<T> task) {
+    return super.submit(instrumentation.wrap(task));
+  }
+
+  @Override
+  public Future<?> submit(Runnable task) {
+    return super.submit(instrumentation.wrap(task));
+  }
+
+  @Override
+  public <T> Future<T> submit(Runnable task, T result) {
+    return super.submit(instrumentation.wrap(task), result);
   }
 
   void stop() {
@@ -87,4 +166,78 @@ public class DefaultManagedScheduledExecutorService extends ManagedScheduledExec
     }
   }
 
+  /**
+   * corant-context
+   *
+   * @author bingo 上午10:23:58
+   *
+   */
+  protected class DynamicDelayTask implements Runnable, Future<Object> {
+    final DynamicDelayRunnable task;
+    volatile Future<?> future;
+    volatile boolean cancelled = false;
+
+    protected DynamicDelayTask(DynamicDelayRunnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean retval = !isDone();
+      cancelled = true;
+      if (future != null) {
+        future.cancel(mayInterruptIfRunning);
+      }
+      return retval;
+    }
+
+    @Override
+    public Object get() throws InterruptedException, ExecutionException {
+      return null;
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      return null;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+      return cancelled || future == null || future.isDone();
+    }
+
+    @Override
+    public void run() {
+      if (cancelled) {
+        return;
+      }
+      try {
+        task.run();
+      } catch (Throwable t) {
+        logger.log(Level.SEVERE, t, () -> String.format("Failed running task %s", task));
+      }
+      if (!cancelled && !isShutdown()) {
+        doSchedule();
+      }
+    }
+
+    DynamicDelayTask doSchedule() {
+      long delay = task.getDelay();
+      if (delay <= 0) {
+        logger.finer(() -> String.format("Task will not get rescheduled as delay is %s", delay));
+      } else {
+        future = schedule(this, delay, TimeUnit.MILLISECONDS);
+        if (cancelled) {
+          future.cancel(true);
+        }
+      }
+      return this;
+    }
+  }
 }
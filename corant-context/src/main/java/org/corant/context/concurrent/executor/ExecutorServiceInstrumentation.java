@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.executor;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+import javax.enterprise.concurrent.ManagedTask;
+import javax.enterprise.concurrent.ManagedTaskListener;
+import org.corant.shared.ubiquity.TimeHistogram;
+import org.corant.shared.util.Sets;
+
+/**
+ * corant-context
+ *
+ * <p>
+ * The instrumentation of a managed executor service, it records the pool sizes, the task queue
+ * wait time and run time histograms, the rejection counts and optionally the statistics of the
+ * task submission sites, for the scheduled executor services it also records the schedule drift,
+ * the lateness of the actual start time of a scheduled task compared to its expected start time.
+ * The rejection counts are always recorded, the task timing is only recorded when the
+ * instrumentation is enabled since it wraps every submitted task.
+ *
+ * @author bingo 下午4:10:27
+ *
+ */
+public class ExecutorServiceInstrumentation {
+
+  static final Set<String> SITE_SKIP_PACKAGES = Sets.immutableSetOf("java.", "javax.", "jdk.",
+      "sun.", "org.glassfish.enterprise.concurrent.", "org.corant.context.concurrent.");
+
+  protected final String name;
+  protected final ThreadPoolExecutor executor;
+  protected final IntSupplier activeCounter;
+  protected final TimeHistogram queueWait = new TimeHistogram();
+  protected final TimeHistogram runTime = new TimeHistogram();
+  protected final TimeHistogram scheduleDrift = new TimeHistogram();
+  protected final LongAdder rejected = new LongAdder();
+  protected final LongAdder retried = new LongAdder();
+  protected final LongAdder retryFailed = new LongAdder();
+  protected final LongAdder failed = new LongAdder();
+  protected final Map<String, SiteStatistics> sites = new ConcurrentHashMap<>();
+
+  protected volatile boolean enabled;
+  protected volatile boolean trackSubmissionSites;
+
+  public ExecutorServiceInstrumentation(String name, IntSupplier activeCounter) {
+    this.name = name;
+    executor = null;
+    this.activeCounter = activeCounter;
+  }
+
+  public ExecutorServiceInstrumentation(String name, ThreadPoolExecutor executor) {
+    this.name = name;
+    this.executor = executor;
+    activeCounter = executor::getActiveCount;
+  }
+
+  static String resolveSubmissionSite() {
+    return StackWalker.getInstance().walk(frames -> frames
+        .filter(f -> SITE_SKIP_PACKAGES.stream().noneMatch(f.getClassName()::startsWith))
+        .findFirst().map(f -> f.getClassName() + "#" + f.getMethodName() + ":" + f.getLineNumber())
+        .orElse("unknown"));
+  }
+
+  /**
+   * Enable the task timing and optionally the submission site statistics
+   *
+   * @param trackSubmissionSites whether to record the statistics per submission site, the site is
+   *        resolved by walking the stack of the submitting thread so it's expensive.
+   */
+  public void enable(boolean trackSubmissionSites) {
+    this.trackSubmissionSites = trackSubmissionSites;
+    enabled = true;
+  }
+
+  public int getActiveCount() {
+    return activeCounter.getAsInt();
+  }
+
+  public long getCompletedTaskCount() {
+    return executor == null ? runTime.getCount() : executor.getCompletedTaskCount();
+  }
+
+  public int getCorePoolSize() {
+    return executor == null ? -1 : executor.getCorePoolSize();
+  }
+
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
+  public int getLargestPoolSize() {
+    return executor == null ? -1 : executor.getLargestPoolSize();
+  }
+
+  public int getMaximumPoolSize() {
+    return executor == null ? -1 : executor.getMaximumPoolSize();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getPoolSize() {
+    return executor == null ? activeCounter.getAsInt() : executor.getPoolSize();
+  }
+
+  public int getQueueRemainingCapacity() {
+    return executor == null ? -1 : executor.getQueue().remainingCapacity();
+  }
+
+  public int getQueueSize() {
+    return executor == null ? 0 : executor.getQueue().size();
+  }
+
+  public TimeHistogram getQueueWait() {
+    return queueWait;
+  }
+
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  public long getRetriedCount() {
+    return retried.sum();
+  }
+
+  public long getRetryFailedCount() {
+    return retryFailed.sum();
+  }
+
+  public TimeHistogram getRunTime() {
+    return runTime;
+  }
+
+  public TimeHistogram getScheduleDrift() {
+    return scheduleDrift;
+  }
+
+  /**
+   * Returns the statistics of the submission sites sorted by site.
+   */
+  public Map<String, SiteStatistics> getSubmissionSites() {
+    return new TreeMap<>(sites);
+  }
+
+  public long getTaskCount() {
+    return executor == null ? queueWait.getCount() : executor.getTaskCount();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns whether the instrumented executor is a scheduled executor, the schedule drift is only
+   * recorded for the scheduled executors.
+   */
+  public boolean isScheduled() {
+    return executor instanceof ScheduledThreadPoolExecutor;
+  }
+
+  public void onRejected() {
+    rejected.increment();
+  }
+
+  public void onRetried(boolean success) {
+    retried.increment();
+    if (!success) {
+      retryFailed.increment();
+    }
+  }
+
+  public void onScheduleDrift(long nanos) {
+    scheduleDrift.record(Math.max(0, nanos));
+  }
+
+  @Override
+  public String toString() {
+    return "ExecutorServiceInstrumentation [name=" + name + ", active=" + getActiveCount()
+        + ", pool=" + getPoolSize() + ", queue=" + getQueueSize() + ", rejected="
+        + getRejectedCount() + ", queueWait={" + queueWait + "}, runTime={" + runTime + "}"
+        + (sites.isEmpty() ? "" : ", sites=" + sites.entrySet().stream()
+            .map(e -> e.getKey() + "={" + e.getValue() + "}").collect(Collectors.joining(", ")))
+        + "]";
+  }
+
+  /**
+   * Wrap the given callable to record the queue wait time and run time if the instrumentation is
+   * enabled, the {@link ManagedTask} attributes of the given callable are retained.
+   *
+   * @param <T> the result type
+   * @param task the task to wrap
+   */
+  public <T> Callable<T> wrap(Callable<T> task) {
+    if (!enabled || task == null) {
+      return task;
+    }
+    final InstrumentedTask timer = new InstrumentedTask(task);
+    final Callable<T> wrapped = () -> {
+      timer.starting();
+      boolean success = false;
+      try {
+        T result = task.call();
+        success = true;
+        return result;
+      } finally {
+        timer.done(success);
+      }
+    };
+    if (task instanceof ManagedTask) {
+      return new ManagedCallable<>(wrapped, (ManagedTask) task);
+    }
+    return wrapped;
+  }
+
+  /**
+   * Wrap the given runnable to record the queue wait time and run time if the instrumentation is
+   * enabled, the {@link ManagedTask} attributes of the given runnable are retained.
+   *
+   * @param task the task to wrap
+   */
+  public Runnable wrap(Runnable task) {
+    if (!enabled || task == null) {
+      return task;
+    }
+    final InstrumentedTask timer = new InstrumentedTask(task);
+    final Runnable wrapped = () -> {
+      timer.starting();
+      boolean success = false;
+      try {
+        task.run();
+        success = true;
+      } finally {
+        timer.done(success);
+      }
+    };
+    if (task instanceof ManagedTask) {
+      return new ManagedRunnable(wrapped, (ManagedTask) task);
+    }
+    return wrapped;
+  }
+
+  /**
+   * Wrap the given callable that is scheduled to run after the given delay to record the schedule
+   * drift if the instrumentation is enabled, the {@link ManagedTask} attributes of the given
+   * callable are retained.
+   *
+   * @param <T> the result type
+   * @param task the task to wrap
+   * @param delay the delay of the task
+   * @param unit the time unit of the delay
+   */
+  public <T> Callable<T> wrapScheduled(Callable<T> task, long delay, TimeUnit unit) {
+    if (!enabled || task == null || unit == null) {
+      return task;
+    }
+    final ScheduledTask timer = new ScheduledTask(delay, 0, unit);
+    final Callable<T> wrapped = () -> {
+      timer.starting();
+      return task.call();
+    };
+    if (task instanceof ManagedTask) {
+      return new ManagedCallable<>(wrapped, (ManagedTask) task);
+    }
+    return wrapped;
+  }
+
+  /**
+   * Wrap the given runnable that is scheduled to run after the given initial delay and optionally
+   * periodically to record the schedule drift if the instrumentation is enabled, the
+   * {@link ManagedTask} attributes of the given runnable are retained.
+   *
+   * @param task the task to wrap
+   * @param initialDelay the delay of the first run
+   * @param period the period between the starts of the successive runs if it's positive, the
+   *        delay between the end of a run and the start of the next run if it's negative, zero
+   *        means the task runs only once.
+   * @param unit the time unit of the initial delay and the period
+   */
+  public Runnable wrapScheduled(Runnable task, long initialDelay, long period, TimeUnit unit) {
+    if (!enabled || task == null || unit == null) {
+      return task;
+    }
+    final ScheduledTask timer = new ScheduledTask(initialDelay, period, unit);
+    final Runnable wrapped = () -> {
+      timer.starting();
+      try {
+        task.run();
+      } finally {
+        timer.done();
+      }
+    };
+    if (task instanceof ManagedTask) {
+      return new ManagedRunnable(wrapped, (ManagedTask) task);
+    }
+    return wrapped;
+  }
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午4:10:27
+   *
+   */
+  public static class SiteStatistics {
+    final TimeHistogram queueWait = new TimeHistogram();
+    final TimeHistogram runTime = new TimeHistogram();
+    final LongAdder failed = new LongAdder();
+
+    public long getFailedCount() {
+      return failed.sum();
+    }
+
+    public TimeHistogram getQueueWait() {
+      return queueWait;
+    }
+
+    public TimeHistogram getRunTime() {
+      return runTime;
+    }
+
+    @Override
+    public String toString() {
+      return "queueWait={" + queueWait + "}, runTime={" + runTime + "}, failed=" + failed.sum();
+    }
+  }
+
+  class InstrumentedTask {
+    final Object task;
+    final long submittedNanos = System.nanoTime();
+    final SiteStatistics site;
+    long startedNanos;
+
+    InstrumentedTask(Object task) {
+      this.task = task;
+      site = trackSubmissionSites
+          ? sites.computeIfAbsent(resolveSubmissionSite(), k -> new SiteStatistics())
+          : null;
+    }
+
+    void done(boolean success) {
+      long elapsed = System.nanoTime() - startedNanos;
+      runTime.record(elapsed);
+      if (!success) {
+        failed.increment();
+      }
+      if (site != null) {
+        site.runTime.record(elapsed);
+        if (!success) {
+          site.failed.increment();
+        }
+      }
+    }
+
+    void starting() {
+      startedNanos = System.nanoTime();
+      long waited = startedNanos - submittedNanos;
+      queueWait.record(waited);
+      if (site != null) {
+        site.queueWait.record(waited);
+      }
+    }
+  }
+
+  /**
+   * Tracks the expected start time of a scheduled task, the successive runs of a periodic task
+   * never overlap so the expected start time needs no synchronization.
+   */
+  class ScheduledTask {
+    final long period;
+    volatile long expectedNanos;
+
+    ScheduledTask(long initialDelay, long period, TimeUnit unit) {
+      this.period = unit.toNanos(period);
+      expectedNanos = System.nanoTime() + unit.toNanos(Math.max(0, initialDelay));
+    }
+
+    void done() {
+      if (period < 0) {
+        expectedNanos = System.nanoTime() - period;
+      }
+    }
+
+    void starting() {
+      onScheduleDrift(System.nanoTime() - expectedNanos);
+      if (period > 0) {
+        expectedNanos += period;
+      }
+    }
+  }
+
+  static class ManagedCallable<T> implements Callable<T>, ManagedTask {
+    final Callable<T> delegate;
+    final ManagedTask managedTask;
+
+    ManagedCallable(Callable<T> delegate, ManagedTask managedTask) {
+      this.delegate = delegate;
+      this.managedTask = managedTask;
+    }
+
+    @Override
+    public T call() throws Exception {
+      return delegate.call();
+    }
+
+    @Override
+    public Map<String, String> getExecutionProperties() {
+      return managedTask.getExecutionProperties();
+    }
+
+    @Override
+    public ManagedTaskListener getManagedTaskListener() {
+      return managedTask.getManagedTaskListener();
+    }
+  }
+
+  static class ManagedRunnable implements Runnable, ManagedTask {
+    final Runnable delegate;
+    final ManagedTask managedTask;
+
+    ManagedRunnable(Runnable delegate, ManagedTask managedTask) {
+      this.delegate = delegate;
+      this.managedTask = managedTask;
+    }
+
+    @Override
+    public Map<String, String> getExecutionProperties() {
+      return managedTask.getExecutionProperties();
+    }
+
+    @Override
+    public ManagedTaskListener getManagedTaskListener() {
+      return managedTask.getManagedTaskListener();
+    }
+
+    @Override
+    public void run() {
+      delegate.run();
+    }
+  }
+}
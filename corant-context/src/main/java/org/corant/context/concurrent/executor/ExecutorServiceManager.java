@@ -13,23 +13,31 @@
  */
 package org.corant.context.concurrent.executor;
 
+import static org.corant.shared.normal.Names.applicationName;
 import static org.corant.shared.util.Empties.isNotEmpty;
+import static org.corant.shared.util.MBeans.deregisterFromMBean;
+import static org.corant.shared.util.MBeans.registerToMBean;
 import static org.corant.shared.util.Objects.areEqual;
 import static org.corant.shared.util.Objects.max;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.management.ObjectName;
 import org.corant.context.ContainerEvents.PreContainerStopEvent;
 import org.corant.context.concurrent.ConcurrentExtension;
 import org.corant.context.concurrent.ManagedExecutorConfig;
+import org.corant.context.concurrent.jmx.ExecutorServiceMetrics;
+import org.corant.context.concurrent.executor.VirtualThreadManagedExecutorService.RunningTask;
 import org.corant.shared.util.Objects;
 import org.corant.shared.util.Strings;
 import org.glassfish.enterprise.concurrent.AbstractManagedExecutorService;
@@ -50,6 +58,14 @@ public class ExecutorServiceManager {
       new CopyOnWriteArrayList<>();
   protected final List<DefaultManagedScheduledExecutorService> scheduledExecutorService =
       new CopyOnWriteArrayList<>();
+  protected final List<VirtualThreadManagedExecutorService> virtualThreadExecutorService =
+      new CopyOnWriteArrayList<>();
+
+  protected final List<ExecutorServiceInstrumentation> instrumentations =
+      new CopyOnWriteArrayList<>();
+  protected final List<String> metricsMBeanNames = new CopyOnWriteArrayList<>();
+  protected final List<Consumer<ExecutorServiceInstrumentation>> listeners =
+      new CopyOnWriteArrayList<>();
 
   protected final Object monitor = new Object();
 
@@ -60,16 +76,54 @@ public class ExecutorServiceManager {
   @Inject
   protected ConcurrentExtension extension;
 
+  /**
+   * Add a listener that is notified with the instrumentations of the registered managed executor
+   * services that the metrics are enabled and the ones registered afterwards.
+   *
+   * @param listener the listener
+   */
+  public void addListener(Consumer<ExecutorServiceInstrumentation> listener) {
+    synchronized (listeners) {
+      listeners.add(listener);
+      instrumentations.forEach(listener);
+    }
+  }
+
   public void register(DefaultManagedExecutorService service) {
     executorService.add(service);
+    registerMetricsIfNecessary(service.getInstrumentation());
     initializeHungLoggerIfNecessary();
   }
 
   public void register(DefaultManagedScheduledExecutorService service) {
     scheduledExecutorService.add(service);
+    registerMetricsIfNecessary(service.getInstrumentation());
+    initializeHungLoggerIfNecessary();
+  }
+
+  public void register(VirtualThreadManagedExecutorService service) {
+    virtualThreadExecutorService.add(service);
+    registerMetricsIfNecessary(service.getInstrumentation());
     initializeHungLoggerIfNecessary();
   }
 
+  /**
+   * Returns the instrumentations of the registered managed executor services that the metrics are
+   * enabled.
+   */
+  public List<ExecutorServiceInstrumentation> getInstrumentations() {
+    return Collections.unmodifiableList(instrumentations);
+  }
+
+  /**
+   * Remove the given listener.
+   *
+   * @param listener the listener to remove
+   */
+  public void removeListener(Consumer<ExecutorServiceInstrumentation> listener) {
+    listeners.remove(listener);
+  }
+
   protected List<DefaultManagedExecutorService> getExecutorService() {
     return executorService;
   }
@@ -78,6 +132,10 @@ public class ExecutorServiceManager {
     return scheduledExecutorService;
   }
 
+  protected List<VirtualThreadManagedExecutorService> getVirtualThreadExecutorService() {
+    return virtualThreadExecutorService;
+  }
+
   protected void initializeHungLoggerIfNecessary() {
     synchronized (monitor) {
       if (logger.getLevel() == Level.OFF || !ConcurrentExtension.ENABLE_HUNG_TASK_LOGGER
@@ -117,8 +175,37 @@ public class ExecutorServiceManager {
           service.getName()));
       service.stop();
     }
+    for (VirtualThreadManagedExecutorService service : virtualThreadExecutorService) {
+      logger.info(() -> String.format(
+          "The virtual thread managed executor service %s will be shutdown!", service.getName()));
+      service.stop();
+    }
+    if (!metricsMBeanNames.isEmpty()) {
+      deregisterFromMBean(metricsMBeanNames.toArray(String[]::new));
+      metricsMBeanNames.clear();
+    }
+    synchronized (listeners) {
+      listeners.clear();
+      instrumentations.clear();
+    }
     executorService.clear();
     scheduledExecutorService.clear();
+    virtualThreadExecutorService.clear();
+  }
+
+  protected void registerMetricsIfNecessary(ExecutorServiceInstrumentation instrumentation) {
+    if (instrumentation.isEnabled()) {
+      synchronized (listeners) {
+        instrumentations.add(instrumentation);
+        listeners.forEach(l -> l.accept(instrumentation));
+      }
+      String name = applicationName().concat(":type=concurrent,subtype=executor,name=")
+          .concat(ObjectName.quote(instrumentation.getName()));
+      logger.fine(() -> String.format("Register managed executor service %s metrics to jmx.",
+          instrumentation.getName()));
+      registerToMBean(name, new ExecutorServiceMetrics(instrumentation));
+      metricsMBeanNames.add(name);
+    }
   }
 
   protected void releaseHungLoggerIfNecessary() {
@@ -187,6 +274,15 @@ public class ExecutorServiceManager {
               log(es);
             }
           }
+          if (!manager.getVirtualThreadExecutorService().isEmpty() && manager.isRunning()) {
+            for (VirtualThreadManagedExecutorService es : manager
+                .getVirtualThreadExecutorService()) {
+              if (!manager.isRunning()) {
+                break;
+              }
+              log(es);
+            }
+          }
         }
       } catch (InterruptedException e) {
         // Noop, here sleeping is forcibly interrupted, that OK!
@@ -203,6 +299,15 @@ public class ExecutorServiceManager {
       }
     }
 
+    void log(VirtualThreadManagedExecutorService es) {
+      if (!es.isTerminated() && !es.isShutdown()) {
+        final long now = System.currentTimeMillis();
+        for (RunningTask task : es.getHungTasks(now)) {
+          log(es.getName(), task, now);
+        }
+      }
+    }
+
     void log(AbstractManagedExecutorService es) {
       if (!es.isTerminated() && !es.isShutdown()) {
         final long now = System.currentTimeMillis();
@@ -215,6 +320,24 @@ public class ExecutorServiceManager {
       }
     }
 
+    void log(String esname, RunningTask t, long now) {
+      Thread thread = t.getThread();
+      if (dumpStack) {
+        logger.info(() -> String.format(
+            "The virtual thread [%s] id [%s] %s in managed executor service %s may suspected of being hung, started at %s, run time %sms, the stack:%n\t%s.",
+            thread.getName(), thread.getId(), t.getTask(), esname,
+            Instant.ofEpochMilli(t.getStartTime()), now - t.getStartTime(),
+            String.join(Strings.NEWLINE.concat(Strings.TAB),
+                Arrays.stream(thread.getStackTrace()).map(Objects::asString)
+                    .toArray(String[]::new))));
+      } else {
+        logger.info(() -> String.format(
+            "The virtual thread [%s] id [%s] %s in managed executor service %s may suspected of being hung, started at %s, run time %sms.",
+            thread.getName(), thread.getId(), t.getTask(), esname,
+            Instant.ofEpochMilli(t.getStartTime()), now - t.getStartTime()));
+      }
+    }
+
     void log(String esname, AbstractManagedThread t, long now) {
       if (dumpStack) {
         logger.info(() -> String.format(
@@ -33,10 +33,17 @@ public class RetryAbortHandler implements RejectedExecutionHandler {
 
   final String name;
   final Duration retryDelay;
+  final ExecutorServiceInstrumentation instrumentation;
 
   public RetryAbortHandler(String name, Duration retryDelay) {
+    this(name, retryDelay, null);
+  }
+
+  public RetryAbortHandler(String name, Duration retryDelay,
+      ExecutorServiceInstrumentation instrumentation) {
     this.name = name;
     this.retryDelay = defaultObject(retryDelay, () -> Duration.ofSeconds(4L));
+    this.instrumentation = instrumentation;
   }
 
   @Override
@@ -46,8 +53,16 @@ public class RetryAbortHandler implements RejectedExecutionHandler {
       logger.info(() -> String.format(
           "The task %s was rejected from the executor %s in the executor service %s for the first time and needs to be tried once after %s.",
           r.toString(), executor.toString(), name, retryDelay));
+      if (instrumentation != null) {
+        instrumentation.onRejected();
+      }
       Threads.runInDaemonx(() -> {
-        if (executor.getQueue().offer(r, retryDelay.toMillis(), TimeUnit.MILLISECONDS)) {
+        boolean success =
+            executor.getQueue().offer(r, retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+        if (instrumentation != null) {
+          instrumentation.onRetried(success);
+        }
+        if (success) {
           logger.info(() -> String.format(
               "Succeeded in adding the task %s back to the queue of the executor %s in the executor service %s",
               r.toString(), executor.toString(), name));
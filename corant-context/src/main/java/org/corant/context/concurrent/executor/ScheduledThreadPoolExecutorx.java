@@ -13,9 +13,12 @@
  */
 package org.corant.context.concurrent.executor;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -31,6 +34,8 @@ import java.util.logging.Logger;
  */
 public class ScheduledThreadPoolExecutorx extends ScheduledThreadPoolExecutor {
 
+  protected volatile ExecutorServiceInstrumentation instrumentation;
+
   /**
    * @see ScheduledThreadPoolExecutor#ScheduledThreadPoolExecutor(int)
    */
@@ -61,6 +66,22 @@ public class ScheduledThreadPoolExecutorx extends ScheduledThreadPoolExecutor {
     super(corePoolSize, threadFactory, handler);
   }
 
+  public ExecutorServiceInstrumentation getInstrumentation() {
+    return instrumentation;
+  }
+
+  /**
+   * Set the instrumentation that receives the schedule drift of the tasks run by this executor,
+   * the drift is only recorded when the instrumentation is enabled. This is meant for the
+   * executors that are built outside of the container, the managed scheduled executor services
+   * record the drift of their tasks by themselves once their metrics are enabled.
+   *
+   * @param instrumentation the instrumentation
+   */
+  public void setInstrumentation(ExecutorServiceInstrumentation instrumentation) {
+    this.instrumentation = instrumentation;
+  }
+
   public Future<?> scheduleWithDynamicDelay(DynamicDelayRunnable runnable) {
     if (runnable == null) {
       throw new NullPointerException();
@@ -71,6 +92,26 @@ public class ScheduledThreadPoolExecutorx extends ScheduledThreadPoolExecutor {
     return new DynamicDelayRunnableWrapper<>(runnable).doSchedule();
   }
 
+  @Override
+  protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable,
+      RunnableScheduledFuture<V> task) {
+    return decorateTask(task);
+  }
+
+  @Override
+  protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable,
+      RunnableScheduledFuture<V> task) {
+    return decorateTask(task);
+  }
+
+  protected <V> RunnableScheduledFuture<V> decorateTask(RunnableScheduledFuture<V> task) {
+    final ExecutorServiceInstrumentation useInstrumentation = instrumentation;
+    if (useInstrumentation == null || !useInstrumentation.isEnabled()) {
+      return task;
+    }
+    return new DriftRecordingFuture<>(task, useInstrumentation);
+  }
+
   public interface DynamicDelayRunnable extends Runnable {
     long getDelay();
   }
@@ -163,4 +204,69 @@ public class ScheduledThreadPoolExecutorx extends ScheduledThreadPoolExecutor {
 
   }
 
+  /**
+   * Records the schedule drift when the decorated task starts running, the remaining delay of a
+   * scheduled task is negative when it starts late, the decorated task is re-queued by the
+   * executor for the periodic runs so each run is recorded.
+   */
+  protected static class DriftRecordingFuture<V> implements RunnableScheduledFuture<V> {
+    final RunnableScheduledFuture<V> delegate;
+    final ExecutorServiceInstrumentation instrumentation;
+
+    protected DriftRecordingFuture(RunnableScheduledFuture<V> delegate,
+        ExecutorServiceInstrumentation instrumentation) {
+      this.delegate = delegate;
+      this.instrumentation = instrumentation;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return delegate.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+      return delegate.compareTo(o);
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+      return delegate.get();
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      return delegate.get(timeout, unit);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return delegate.getDelay(unit);
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return delegate.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+      return delegate.isDone();
+    }
+
+    @Override
+    public boolean isPeriodic() {
+      return delegate.isPeriodic();
+    }
+
+    @Override
+    public void run() {
+      if (!delegate.isCancelled()) {
+        instrumentation.onScheduleDrift(-delegate.getDelay(TimeUnit.NANOSECONDS));
+      }
+      delegate.run();
+    }
+  }
+
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.executor;
+
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import static org.corant.shared.util.Throwables.rethrow;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import org.corant.context.concurrent.ConcurrentExtension;
+import org.corant.shared.util.Threads;
+import org.glassfish.enterprise.concurrent.ContextServiceImpl;
+import org.glassfish.enterprise.concurrent.spi.ContextHandle;
+import org.glassfish.enterprise.concurrent.spi.ContextSetupProvider;
+
+/**
+ * corant-context
+ *
+ * <p>
+ * A managed executor service that starts a new virtual thread for each task, it is only available
+ * on JDK 21+, see {@link Threads#isVirtualThreadSupported()}. The context of the submitting thread
+ * is captured when the task is submitted and is set up in the virtual thread before the task is
+ * run through the {@link ContextSetupProvider} of the given context service, the running tasks are
+ * tracked for the hung task monitoring of the {@link ExecutorServiceManager}.
+ *
+ * <p>
+ * Note: Since there is no pool, the pool size and queue configurations are ignored, the blocking
+ * I/O-heavy tasks are suitable for this executor service, the CPU-bound tasks should still use the
+ * platform thread pools. The lifecycle of the executor service is managed by the container, like
+ * the other managed executor services, the lifecycle methods of {@link ExecutorService} throw
+ * {@link IllegalStateException}.
+ *
+ * @author bingo 下午5:06:21
+ *
+ */
+public class VirtualThreadManagedExecutorService extends AbstractExecutorService
+    implements ManagedExecutorService {
+
+  static final Logger logger =
+      Logger.getLogger(VirtualThreadManagedExecutorService.class.getName());
+  static final String LIFECYCLE_ERROR =
+      "The lifecycle of the managed executor service is managed by the container!";
+
+  protected final String name;
+  protected final ExecutorService executor;
+  protected final ContextServiceImpl contextService;
+  protected final long hungTaskThreshold;
+  protected final boolean longRunningTasks;
+  protected final Duration awaitTermination;
+  protected final Map<Thread, RunningTask> runningTasks = new ConcurrentHashMap<>();
+  protected final ExecutorServiceInstrumentation instrumentation;
+
+  public VirtualThreadManagedExecutorService(String name, long hungTaskThreshold,
+      boolean longRunningTasks, Duration awaitTermination, ContextServiceImpl contextService) {
+    this(name, hungTaskThreshold, longRunningTasks, awaitTermination, contextService,
+        Threads.newVirtualThreadPerTaskExecutor(name));
+  }
+
+  VirtualThreadManagedExecutorService(String name, long hungTaskThreshold,
+      boolean longRunningTasks, Duration awaitTermination, ContextServiceImpl contextService,
+      ExecutorService executor) {
+    this.name = name;
+    this.hungTaskThreshold = hungTaskThreshold;
+    this.longRunningTasks = longRunningTasks;
+    this.awaitTermination = awaitTermination;
+    this.contextService = contextService;
+    this.executor = executor;
+    instrumentation = new ExecutorServiceInstrumentation(name, runningTasks::size);
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    throw new IllegalStateException(LIFECYCLE_ERROR);
+  }
+
+  @Override
+  public void execute(Runnable runnable) {
+    shouldNotNull(runnable, "The runnable can't null!");
+    final Runnable command = instrumentation.wrap(runnable);
+    final ContextSetupProvider provider =
+        contextService != null ? contextService.getContextSetupProvider() : null;
+    final ContextHandle saved = provider != null ? provider.saveContext(contextService) : null;
+    executor.execute(() -> {
+      final Thread thread = Thread.currentThread();
+      runningTasks.put(thread, new RunningTask(thread, command, System.currentTimeMillis()));
+      ContextHandle reset = null;
+      try {
+        if (saved != null) {
+          reset = provider.setup(saved);
+        }
+        command.run();
+      } catch (Throwable t) {
+        if (ConcurrentExtension.ENABLE_EXE_RUNNABLE_LOGGER) {
+          logger.log(Level.SEVERE, "Execute runnable occurred error!", t);
+        }
+        rethrow(t);
+      } finally {
+        try {
+          if (reset != null) {
+            provider.reset(reset);
+          }
+        } finally {
+          runningTasks.remove(thread);
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the tasks that have been running longer than the hung task threshold, if the executor
+   * service is used for long-running tasks returns an empty collection.
+   *
+   * @param now the current time in milliseconds
+   */
+  Collection<RunningTask> getHungTasks(long now) {
+    if (longRunningTasks || hungTaskThreshold <= 0) {
+      return Collections.emptyList();
+    }
+    List<RunningTask> hungTasks = new ArrayList<>();
+    for (RunningTask task : runningTasks.values()) {
+      if (now - task.getStartTime() > hungTaskThreshold) {
+        hungTasks.add(task);
+      }
+    }
+    return hungTasks;
+  }
+
+  public ExecutorServiceInstrumentation getInstrumentation() {
+    return instrumentation;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    throw new IllegalStateException(LIFECYCLE_ERROR);
+  }
+
+  @Override
+  public boolean isTerminated() {
+    throw new IllegalStateException(LIFECYCLE_ERROR);
+  }
+
+  @Override
+  public void shutdown() {
+    throw new IllegalStateException(LIFECYCLE_ERROR);
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    throw new IllegalStateException(LIFECYCLE_ERROR);
+  }
+
+  @Override
+  public String toString() {
+    return "VirtualThreadManagedExecutorService [name=" + name + ", running="
+        + runningTasks.size() + "]";
+  }
+
+  int getRunningTaskCount() {
+    return runningTasks.size();
+  }
+
+  void stop() {
+    try {
+      executor.shutdown();
+      if (awaitTermination != null
+          && !executor.awaitTermination(awaitTermination.toMillis(), TimeUnit.MILLISECONDS)) {
+        executor.shutdownNow();
+        if (!executor.awaitTermination(awaitTermination.toMillis(), TimeUnit.MILLISECONDS)) {
+          logger.log(Level.WARNING,
+              () -> String.format("Shutdown managed executor service %s timeout!", name));
+        }
+      }
+    } catch (InterruptedException e) {
+      logger.log(Level.WARNING, e,
+          () -> String.format("Shutdown managed executor service %s occurred error!", name));
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午5:06:21
+   *
+   */
+  public static class RunningTask {
+    final Thread thread;
+    final Runnable task;
+    final long startTime;
+
+    RunningTask(Thread thread, Runnable task, long startTime) {
+      this.thread = thread;
+      this.task = task;
+      this.startTime = startTime;
+    }
+
+    public long getStartTime() {
+      return startTime;
+    }
+
+    public Runnable getTask() {
+      return task;
+    }
+
+    public Thread getThread() {
+      return thread;
+    }
+  }
+}
@@ -16,7 +16,10 @@ package org.corant.context.concurrent.interceptor;
 import static org.corant.context.Beans.findNamed;
 import static org.corant.context.concurrent.ConcurrentExtension.ENABLE_ASYNC_INTERCEPTOR_CFG;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Priority;
@@ -28,6 +31,8 @@ import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
 import org.corant.context.AbstractInterceptor;
 import org.corant.context.concurrent.AsynchronousConfig;
+import org.corant.context.concurrent.AsynchronousReference;
+import org.corant.context.concurrent.CompletableAsynchronousReference;
 import org.corant.context.concurrent.ConcurrentExtension;
 import org.corant.context.concurrent.annotation.Asynchronous;
 import org.corant.shared.retry.AsynchronousRetryer;
@@ -37,6 +42,15 @@ import org.corant.shared.service.RequiredConfiguration.ValuePredicate;
 /**
  * corant-context
  *
+ * <p>
+ * For the methods whose return type is {@link CompletionStage}, {@link CompletableFuture} or
+ * {@link AsynchronousReference}, the invocation is submitted to the executor and a dependent stage
+ * is returned, the dependent stage is completed from the stage returned by the method without
+ * blocking any executor thread, cancelling the dependent stage cancels the stage returned by the
+ * method. If retry is configured, the retries are scheduled by
+ * {@link AsynchronousRetryer#executeStage(Callable)} after the previous stage completed
+ * exceptionally.
+ *
  * @author bingo 上午9:50:43
  *
  */
@@ -80,9 +94,45 @@ public class AsynchronousInterceptor extends AbstractInterceptor {
     };
   }
 
+  protected void cancel(CompletionStage<?> stage) {
+    if (stage != null) {
+      try {
+        stage.toCompletableFuture().cancel(true);
+      } catch (UnsupportedOperationException e) {
+        // the stage doesn't support cancellation
+      }
+    }
+  }
+
   protected Object execute(Callable<Object> task, ManagedExecutorService executor,
       Class<?> returnType) {
-    if (Future.class.isAssignableFrom(returnType)) {
+    if (CompletionStage.class.isAssignableFrom(returnType)) {
+      final CompletableFuture<Object> result = newResult(returnType);
+      final AtomicReference<CompletionStage<?>> inner = new AtomicReference<>();
+      final Future<?> submitted = executor.submit(() -> {
+        try {
+          CompletionStage<?> stage = (CompletionStage<?>) task.call();
+          if (stage == null) {
+            result.complete(null);
+          } else {
+            inner.set(stage);
+            relay(stage, result);
+            if (result.isCancelled()) {
+              cancel(inner.getAndSet(null));
+            }
+          }
+        } catch (Throwable t) {
+          result.completeExceptionally(t);
+        }
+      });
+      result.whenComplete((r, t) -> {
+        if (result.isCancelled()) {
+          submitted.cancel(true);
+          cancel(inner.getAndSet(null));
+        }
+      });
+      return result;
+    } else if (Future.class.isAssignableFrom(returnType)) {
       return executor.submit(() -> ((Future<?>) task.call()).get());
     } else {
       executor.submit(task);
@@ -92,7 +142,23 @@ public class AsynchronousInterceptor extends AbstractInterceptor {
 
   protected Object execute(Callable<Object> task, ManagedScheduledExecutorService executor,
       AsynchronousConfig config, Class<?> returnType) {
-    if (Future.class.isAssignableFrom(returnType)) {
+    if (CompletionStage.class.isAssignableFrom(returnType)) {
+      final CompletableFuture<Object> result = newResult(returnType);
+      final CompletableFuture<Object> retrying =
+          new AsynchronousRetryer(executor).retryStrategy(config.getRetryStrategy())
+              .backoffStrategy(config.getBackoffStrategy()).executeStage(() -> {
+                @SuppressWarnings("unchecked")
+                CompletionStage<Object> stage = (CompletionStage<Object>) task.call();
+                return stage;
+              });
+      relay(retrying, result);
+      result.whenComplete((r, t) -> {
+        if (result.isCancelled()) {
+          retrying.cancel(true);
+        }
+      });
+      return result;
+    } else if (Future.class.isAssignableFrom(returnType)) {
       return new AsynchronousRetryer(executor).retryStrategy(config.getRetryStrategy())
           .backoffStrategy(config.getBackoffStrategy())
           .execute((Callable<?>) () -> ((Future<?>) task.call()).get());
@@ -102,4 +168,21 @@ public class AsynchronousInterceptor extends AbstractInterceptor {
       return null;
     }
   }
+
+  protected CompletableFuture<Object> newResult(Class<?> returnType) {
+    if (AsynchronousReference.class.isAssignableFrom(returnType)) {
+      return new CompletableAsynchronousReference<>();
+    }
+    return new CompletableFuture<>();
+  }
+
+  protected void relay(CompletionStage<?> stage, CompletableFuture<Object> result) {
+    stage.whenComplete((r, t) -> {
+      if (t != null) {
+        result.completeExceptionally(t);
+      } else {
+        result.complete(r);
+      }
+    });
+  }
 }
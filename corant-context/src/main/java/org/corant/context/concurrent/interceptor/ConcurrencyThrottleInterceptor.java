@@ -14,16 +14,27 @@
 package org.corant.context.concurrent.interceptor;
 
 import static org.corant.context.concurrent.ConcurrentExtension.ENABLE_CONCURRENT_THROTTLE_INTERCEPTOR_CFG;
+import static org.corant.context.concurrent.ConcurrentExtension.ENABLE_CONCURRENT_THROTTLE_JMX;
+import static org.corant.shared.normal.Names.applicationName;
+import static org.corant.shared.util.MBeans.registerToMBean;
+import static org.corant.shared.util.Strings.isNotBlank;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 import javax.annotation.Priority;
 import javax.interceptor.AroundConstruct;
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
+import javax.management.ObjectName;
 import org.corant.context.AbstractInterceptor;
 import org.corant.context.concurrent.annotation.ConcurrencyThrottle;
+import org.corant.context.concurrent.jmx.ConcurrencyThrottleMetrics;
+import org.corant.context.concurrent.throttle.ConcurrencyLimit;
+import org.corant.context.concurrent.throttle.ConcurrencyLimiter;
+import org.corant.context.concurrent.throttle.ConcurrencyThrottleRejectedException;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.service.RequiredConfiguration;
 import org.corant.shared.service.RequiredConfiguration.ValuePredicate;
@@ -32,8 +43,15 @@ import org.corant.shared.util.Methods.MethodSignature;
 /**
  * corant-context
  *
+ * <p>
+ * The concurrency throttle interceptor, limits the concurrent invocations of the methods annotated
+ * with {@link ConcurrencyThrottle}, the throttles are keyed by the throttle name or the method
+ * signature.
+ *
  * @author bingo 上午9:50:43
  *
+ * @see ConcurrencyLimiter
+ * @see ConcurrencyThrottleRejectedException
  */
 @Interceptor
 @ConcurrencyThrottle
@@ -42,27 +60,79 @@ import org.corant.shared.util.Methods.MethodSignature;
     predicate = ValuePredicate.EQ, type = Boolean.class, value = "true")
 public class ConcurrencyThrottleInterceptor extends AbstractInterceptor {
 
-  static final Map<MethodSignature, Semaphore> THROTTLES = new ConcurrentHashMap<>();
+  static final Logger logger = Logger.getLogger(ConcurrencyThrottleInterceptor.class.getName());
+  static final Map<Object, ConcurrencyLimiter> THROTTLES = new ConcurrentHashMap<>();
+
+  public static Map<Object, ConcurrencyLimiter> getThrottles() {
+    return Collections.unmodifiableMap(THROTTLES);
+  }
+
+  static ConcurrencyLimiter createLimiter(Object key, ConcurrencyThrottle ann,
+      InvocationContext ctx) {
+    final int max = Integer.max(ann.max(), ConcurrencyThrottle.DFLT_THRON);
+    final int min = Integer.min(Integer.max(ann.min(), ConcurrencyThrottle.DFLT_THRON), max);
+    final String name = key instanceof String ? (String) key
+        : ctx.getMethod().getDeclaringClass().getName() + "#" + key;
+    return new ConcurrencyLimiter(name,
+        ConcurrencyLimit.of(ann.strategy(), min, max, ann.initial()), ann.fair());
+  }
+
+  static ConcurrencyLimiter getLimiter(Object key, ConcurrencyThrottle ann,
+      InvocationContext ctx) {
+    ConcurrencyLimiter limiter = THROTTLES.get(key);
+    if (limiter == null) {
+      final ConcurrencyLimiter created = createLimiter(key, ann, ctx);
+      limiter = THROTTLES.putIfAbsent(key, created);
+      if (limiter == null) {
+        limiter = created;
+        registerMetrics(created);
+      }
+    }
+    return limiter;
+  }
+
+  static boolean isDropped(ConcurrencyThrottle ann, Throwable ex) {
+    for (Class<? extends Throwable> cls : ann.dropOn()) {
+      if (cls.isInstance(ex)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static void registerMetrics(ConcurrencyLimiter limiter) {
+    if (ENABLE_CONCURRENT_THROTTLE_JMX) {
+      final String name = limiter.getName();
+      logger.fine(() -> String.format("Register concurrency throttle %s metrics to jmx.", name));
+      registerToMBean(
+          applicationName().concat(":type=concurrent,subtype=throttle,name=")
+              .concat(ObjectName.quote(name)),
+          new ConcurrencyThrottleMetrics(limiter));
+    }
+  }
 
   @AroundInvoke
   @AroundConstruct
   public Object concurrencyThrottleInvocation(final InvocationContext ctx) throws Exception {
-    ConcurrencyThrottle ann = getInterceptorAnnotation(ctx, ConcurrencyThrottle.class);
-    final int max = Integer.max(ann.max(), ConcurrencyThrottle.DFLT_THRON);
-    final boolean fair = ann.fair();
-    Semaphore counting = ConcurrencyThrottleInterceptor.THROTTLES
-        .computeIfAbsent(new MethodSignature(ctx.getMethod()), k -> new Semaphore(max, fair));
-    boolean acquireSuccess = false;
+    final ConcurrencyThrottle ann = getInterceptorAnnotation(ctx, ConcurrencyThrottle.class);
+    final Object key =
+        isNotBlank(ann.name()) ? ann.name() : new MethodSignature(ctx.getMethod());
+    final ConcurrencyLimiter limiter = getLimiter(key, ann, ctx);
+    final long admitted;
+    try {
+      admitted = limiter.acquire(ann.priority(), ann.maxWaitMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new CorantRuntimeException(ex);
+    }
+    boolean dropped = false;
     try {
-      counting.acquire();
-      acquireSuccess = true;
       return ctx.proceed();
     } catch (Exception ex) {
+      dropped = isDropped(ann, ex);
       throw new CorantRuntimeException(ex);
     } finally {
-      if (acquireSuccess) {
-        counting.release();
-      }
+      limiter.release(admitted, dropped);
     }
   }
 }
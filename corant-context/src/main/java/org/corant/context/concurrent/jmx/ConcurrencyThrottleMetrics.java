@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.jmx;
+
+import java.time.Instant;
+import java.util.Arrays;
+import org.corant.context.concurrent.throttle.ConcurrencyLimiter;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午4:12:30
+ *
+ */
+public class ConcurrencyThrottleMetrics implements ConcurrencyThrottleMetricsMBean {
+
+  final ConcurrencyLimiter limiter;
+
+  public ConcurrencyThrottleMetrics(ConcurrencyLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  @Override
+  public long getAdmittedCount() {
+    return limiter.getAdmittedCount();
+  }
+
+  @Override
+  public long getDroppedCount() {
+    return limiter.getDroppedCount();
+  }
+
+  @Override
+  public int getInflight() {
+    return limiter.getInflight();
+  }
+
+  @Override
+  public int getLimit() {
+    return limiter.getLimit();
+  }
+
+  @Override
+  public String[] getLimitHistory() {
+    return Arrays.stream(limiter.getLimitHistory())
+        .map(h -> Instant.ofEpochMilli(h[0]).toString() + " " + h[1]).toArray(String[]::new);
+  }
+
+  @Override
+  public int getQueued() {
+    return limiter.getQueued();
+  }
+
+  @Override
+  public long getRejectedCount() {
+    return limiter.getRejectedCount();
+  }
+
+}
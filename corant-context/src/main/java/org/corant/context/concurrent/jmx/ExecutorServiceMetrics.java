@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.jmx;
+
+import java.util.concurrent.TimeUnit;
+import org.corant.context.concurrent.executor.ExecutorServiceInstrumentation;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午4:10:27
+ *
+ */
+public class ExecutorServiceMetrics implements ExecutorServiceMetricsMBean {
+
+  final ExecutorServiceInstrumentation instrumentation;
+
+  public ExecutorServiceMetrics(ExecutorServiceInstrumentation instrumentation) {
+    this.instrumentation = instrumentation;
+  }
+
+  @Override
+  public int getActiveCount() {
+    return instrumentation.getActiveCount();
+  }
+
+  @Override
+  public long getCompletedTaskCount() {
+    return instrumentation.getCompletedTaskCount();
+  }
+
+  @Override
+  public int getCorePoolSize() {
+    return instrumentation.getCorePoolSize();
+  }
+
+  @Override
+  public long getFailedCount() {
+    return instrumentation.getFailedCount();
+  }
+
+  @Override
+  public int getLargestPoolSize() {
+    return instrumentation.getLargestPoolSize();
+  }
+
+  @Override
+  public int getMaximumPoolSize() {
+    return instrumentation.getMaximumPoolSize();
+  }
+
+  @Override
+  public int getPoolSize() {
+    return instrumentation.getPoolSize();
+  }
+
+  @Override
+  public int getQueueRemainingCapacity() {
+    return instrumentation.getQueueRemainingCapacity();
+  }
+
+  @Override
+  public int getQueueSize() {
+    return instrumentation.getQueueSize();
+  }
+
+  @Override
+  public double getQueueWaitMaxMillis() {
+    return instrumentation.getQueueWait().getMax(TimeUnit.MICROSECONDS) / 1000d;
+  }
+
+  @Override
+  public double getQueueWaitMeanMillis() {
+    return instrumentation.getQueueWait().getMeanMillis();
+  }
+
+  @Override
+  public double getQueueWaitP50Millis() {
+    return instrumentation.getQueueWait().getPercentileMillis(0.5);
+  }
+
+  @Override
+  public double getQueueWaitP99Millis() {
+    return instrumentation.getQueueWait().getPercentileMillis(0.99);
+  }
+
+  @Override
+  public long getRejectedCount() {
+    return instrumentation.getRejectedCount();
+  }
+
+  @Override
+  public long getRetriedCount() {
+    return instrumentation.getRetriedCount();
+  }
+
+  @Override
+  public long getRetryFailedCount() {
+    return instrumentation.getRetryFailedCount();
+  }
+
+  @Override
+  public double getRunTimeMaxMillis() {
+    return instrumentation.getRunTime().getMax(TimeUnit.MICROSECONDS) / 1000d;
+  }
+
+  @Override
+  public double getRunTimeMeanMillis() {
+    return instrumentation.getRunTime().getMeanMillis();
+  }
+
+  @Override
+  public double getRunTimeP50Millis() {
+    return instrumentation.getRunTime().getPercentileMillis(0.5);
+  }
+
+  @Override
+  public double getRunTimeP99Millis() {
+    return instrumentation.getRunTime().getPercentileMillis(0.99);
+  }
+
+  @Override
+  public double getScheduleDriftMaxMillis() {
+    return instrumentation.getScheduleDrift().getMax(TimeUnit.MICROSECONDS) / 1000d;
+  }
+
+  @Override
+  public double getScheduleDriftMeanMillis() {
+    return instrumentation.getScheduleDrift().getMeanMillis();
+  }
+
+  @Override
+  public double getScheduleDriftP50Millis() {
+    return instrumentation.getScheduleDrift().getPercentileMillis(0.5);
+  }
+
+  @Override
+  public double getScheduleDriftP99Millis() {
+    return instrumentation.getScheduleDrift().getPercentileMillis(0.99);
+  }
+
+  @Override
+  public String[] getSubmissionSites() {
+    return instrumentation.getSubmissionSites().entrySet().stream()
+        .map(e -> e.getKey() + " " + e.getValue()).toArray(String[]::new);
+  }
+
+  @Override
+  public long getTaskCount() {
+    return instrumentation.getTaskCount();
+  }
+
+  @Override
+  public void resetHistograms() {
+    instrumentation.getQueueWait().reset();
+    instrumentation.getRunTime().reset();
+    instrumentation.getScheduleDrift().reset();
+  }
+
+}
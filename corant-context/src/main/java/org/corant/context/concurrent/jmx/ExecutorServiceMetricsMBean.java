@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.jmx;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午4:10:27
+ *
+ */
+public interface ExecutorServiceMetricsMBean {
+
+  int getActiveCount();
+
+  long getCompletedTaskCount();
+
+  int getCorePoolSize();
+
+  long getFailedCount();
+
+  int getLargestPoolSize();
+
+  int getMaximumPoolSize();
+
+  int getPoolSize();
+
+  int getQueueRemainingCapacity();
+
+  int getQueueSize();
+
+  double getQueueWaitMaxMillis();
+
+  double getQueueWaitMeanMillis();
+
+  double getQueueWaitP50Millis();
+
+  double getQueueWaitP99Millis();
+
+  long getRejectedCount();
+
+  long getRetriedCount();
+
+  long getRetryFailedCount();
+
+  double getRunTimeMaxMillis();
+
+  double getRunTimeMeanMillis();
+
+  double getRunTimeP50Millis();
+
+  double getRunTimeP99Millis();
+
+  double getScheduleDriftMaxMillis();
+
+  double getScheduleDriftMeanMillis();
+
+  double getScheduleDriftP50Millis();
+
+  double getScheduleDriftP99Millis();
+
+  String[] getSubmissionSites();
+
+  long getTaskCount();
+
+  void resetHistograms();
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.throttle;
+
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import org.corant.context.concurrent.annotation.ConcurrencyThrottle.LimitStrategy;
+
+/**
+ * corant-context
+ *
+ * <p>
+ * The concurrency limit algorithm, the implementation receives the invocation samples and returns
+ * the new limit. The implementations are not thread safe, the caller should synchronize the
+ * invocations.
+ *
+ * @author bingo 下午4:12:30
+ *
+ */
+public interface ConcurrencyLimit {
+
+  static ConcurrencyLimit of(LimitStrategy strategy, int min, int max) {
+    return of(strategy, min, max, 0);
+  }
+
+  /**
+   * Returns a limit algorithm of the given strategy, the adaptive algorithms start with the given
+   * initial limit which is bounded by the given min and max, a non-positive initial limit means the
+   * midpoint of the given min and max.
+   *
+   * @param strategy the limit strategy
+   * @param min the minimum limit of the adaptive algorithms
+   * @param max the maximum limit
+   * @param initial the initial limit of the adaptive algorithms
+   */
+  static ConcurrencyLimit of(LimitStrategy strategy, int min, int max, int initial) {
+    shouldBeTrue(min > 0 && max >= min, "The concurrency limit min %s max %s are illegal!", min,
+        max);
+    final int init = initial > 0 ? Math.max(min, Math.min(max, initial)) : min + (max - min) / 2;
+    switch (strategy) {
+      case AIMD:
+        return new AimdLimit(min, max, init);
+      case GRADIENT:
+        return new GradientLimit(min, max, init);
+      default:
+        return new FixedLimit(max);
+    }
+  }
+
+  /**
+   * Returns the current limit
+   */
+  int getLimit();
+
+  /**
+   * Receives an invocation sample and returns the new limit.
+   *
+   * @param rttNanos the invocation elapsed time in nanoseconds
+   * @param inflight the number of in-flight invocations when the invocation was admitted
+   * @param dropped whether the invocation was dropped
+   * @return the new limit
+   */
+  int onSample(long rttNanos, int inflight, boolean dropped);
+
+  /**
+   * corant-context
+   *
+   * <p>
+   * Additive increase multiplicative decrease limit.
+   *
+   * @author bingo 下午4:12:30
+   *
+   */
+  class AimdLimit implements ConcurrencyLimit {
+
+    static final double BACKOFF_RATIO = 0.9;
+
+    final int min;
+    final int max;
+    int limit;
+
+    public AimdLimit(int min, int max) {
+      this(min, max, min);
+    }
+
+    public AimdLimit(int min, int max, int initial) {
+      this.min = min;
+      this.max = max;
+      limit = initial;
+    }
+
+    @Override
+    public int getLimit() {
+      return limit;
+    }
+
+    @Override
+    public int onSample(long rttNanos, int inflight, boolean dropped) {
+      if (dropped) {
+        limit = Math.max(min, (int) (limit * BACKOFF_RATIO));
+      } else if (inflight * 2 >= limit) {
+        limit = Math.min(max, limit + 1);
+      }
+      return limit;
+    }
+  }
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午4:12:30
+   *
+   */
+  class FixedLimit implements ConcurrencyLimit {
+
+    final int limit;
+
+    public FixedLimit(int limit) {
+      this.limit = limit;
+    }
+
+    @Override
+    public int getLimit() {
+      return limit;
+    }
+
+    @Override
+    public int onSample(long rttNanos, int inflight, boolean dropped) {
+      return limit;
+    }
+  }
+
+  /**
+   * corant-context
+   *
+   * <p>
+   * Gradient (Vegas-style) limit, the limit is adjusted with the gradient between the long term
+   * minimum latency and the smoothed short term latency, a queue allowance of square root of the
+   * current limit is added to allow the limit to grow when there is no queuing. The minimum latency
+   * is re-probed periodically to follow the downstream capacity changes.
+   *
+   * @author bingo 下午4:12:30
+   *
+   */
+  class GradientLimit implements ConcurrencyLimit {
+
+    static final double SMOOTHING = 0.2;
+    static final int PROBE_INTERVAL = 1000;
+
+    final int min;
+    final int max;
+    double limit;
+    long minRttNanos;
+    double shortRttNanos;
+    int samples;
+
+    public GradientLimit(int min, int max) {
+      this(min, max, min);
+    }
+
+    public GradientLimit(int min, int max, int initial) {
+      this.min = min;
+      this.max = max;
+      limit = initial;
+    }
+
+    @Override
+    public int getLimit() {
+      return (int) limit;
+    }
+
+    @Override
+    public int onSample(long rttNanos, int inflight, boolean dropped) {
+      if (++samples >= PROBE_INTERVAL) {
+        samples = 0;
+        minRttNanos = 0; // re-probe the no load latency
+      }
+      if (dropped) {
+        limit = Math.max(min, limit * 0.5);
+        return (int) limit;
+      }
+      if (rttNanos <= 0) {
+        return (int) limit;
+      }
+      if (minRttNanos == 0 || rttNanos < minRttNanos) {
+        minRttNanos = rttNanos;
+      }
+      shortRttNanos =
+          shortRttNanos == 0 ? rttNanos : shortRttNanos * (1 - SMOOTHING) + rttNanos * SMOOTHING;
+      if (inflight * 2 < limit) {
+        // the limit is not the bottleneck, the sample cannot be used to grow the limit
+        return (int) limit;
+      }
+      double gradient = Math.max(0.5, Math.min(1.0, minRttNanos / shortRttNanos));
+      double newLimit = limit * gradient + Math.sqrt(limit);
+      limit = Math.max(min, Math.min(max, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+      return (int) limit;
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.throttle;
+
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * corant-context
+ *
+ * <p>
+ * A concurrency limiter with priority lanes, the limit is determined by a {@link ConcurrencyLimit}
+ * algorithm. The invocations that can't be admitted immediately are queued in the lane of their
+ * priority, when a permit is released or the limit is increased, the head of the highest priority
+ * lane is admitted first.
+ *
+ * @author bingo 下午4:12:30
+ *
+ */
+public class ConcurrencyLimiter {
+
+  static final int LIMIT_HISTORY_SIZE = 64;
+
+  protected final String name;
+  protected final ConcurrencyLimit algorithm;
+  protected final boolean fair;
+  protected final ReentrantLock lock = new ReentrantLock();
+  protected final TreeMap<Integer, ArrayDeque<Waiter>> lanes =
+      new TreeMap<>(Comparator.reverseOrder());
+  protected final LongAdder admitted = new LongAdder();
+  protected final LongAdder rejected = new LongAdder();
+  protected final LongAdder dropped = new LongAdder();
+  protected final long[] limitHistory = new long[LIMIT_HISTORY_SIZE * 2];
+
+  protected volatile int limit;
+  protected volatile int inflight;
+  protected volatile int queued;
+  protected int limitHistoryIndex;
+
+  public ConcurrencyLimiter(String name, ConcurrencyLimit algorithm, boolean fair) {
+    this.name = name;
+    this.algorithm = shouldNotNull(algorithm);
+    this.fair = fair;
+    limit = algorithm.getLimit();
+    recordLimit(limit);
+  }
+
+  /**
+   * Acquire a permit, returns the admitted time in nanoseconds, the returned value must be passed
+   * to {@link #release(long, boolean)} when the invocation is completed.
+   *
+   * @param priority the priority lane
+   * @param maxWait the maximum time to wait, negative means wait until a permit is available
+   * @param unit the time unit of the max wait
+   * @return the admitted time in nanoseconds
+   * @throws InterruptedException if the current thread is interrupted while waiting
+   * @throws ConcurrencyThrottleRejectedException if the permit can't be acquired within the max
+   *         wait time
+   */
+  public long acquire(int priority, long maxWait, TimeUnit unit) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      if (inflight < limit && (!fair || queued == 0)) {
+        return admit();
+      }
+      if (maxWait == 0) {
+        throw reject();
+      }
+      Waiter waiter = new Waiter(lock.newCondition());
+      lanes.computeIfAbsent(priority, k -> new ArrayDeque<>()).addLast(waiter);
+      queued++;
+      long remaining = maxWait < 0 ? Long.MAX_VALUE : unit.toNanos(maxWait);
+      try {
+        while (!waiter.admitted) {
+          if (maxWait < 0) {
+            waiter.condition.await();
+          } else if (remaining <= 0) {
+            break;
+          } else {
+            remaining = waiter.condition.awaitNanos(remaining);
+          }
+        }
+      } catch (InterruptedException e) {
+        if (waiter.admitted) {
+          inflight--;
+          dispatch();
+        } else {
+          dequeue(priority, waiter);
+        }
+        throw e;
+      }
+      if (!waiter.admitted) {
+        dequeue(priority, waiter);
+        throw reject();
+      }
+      return waiter.admittedNanos;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getAdmittedCount() {
+    return admitted.sum();
+  }
+
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  public int getInflight() {
+    return inflight;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the recent limit changes, each element is an array of the epoch milliseconds and the
+   * limit.
+   */
+  public long[][] getLimitHistory() {
+    lock.lock();
+    try {
+      long[][] history = new long[LIMIT_HISTORY_SIZE][];
+      int size = 0;
+      for (int i = 0; i < LIMIT_HISTORY_SIZE; i++) {
+        int idx = (limitHistoryIndex + i) % LIMIT_HISTORY_SIZE;
+        if (limitHistory[idx * 2] > 0) {
+          history[size++] = new long[] {limitHistory[idx * 2], limitHistory[idx * 2 + 1]};
+        }
+      }
+      long[][] result = new long[size][];
+      System.arraycopy(history, 0, result, 0, size);
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getQueued() {
+    return queued;
+  }
+
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Release the permit and feed the invocation sample to the limit algorithm.
+   *
+   * @param admittedNanos the admitted time returned by {@link #acquire(int, long, TimeUnit)}
+   * @param drop whether the invocation was dropped
+   */
+  public void release(long admittedNanos, boolean drop) {
+    long rtt = System.nanoTime() - admittedNanos;
+    lock.lock();
+    try {
+      int sampleInflight = inflight;
+      inflight--;
+      if (drop) {
+        dropped.increment();
+      }
+      int newLimit = algorithm.onSample(rtt, sampleInflight, drop);
+      if (newLimit != limit) {
+        limit = newLimit;
+        recordLimit(newLimit);
+      }
+      dispatch();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrencyLimiter [name=" + name + ", limit=" + limit + ", inflight=" + inflight
+        + ", queued=" + queued + "]";
+  }
+
+  long admit() {
+    inflight++;
+    admitted.increment();
+    return System.nanoTime();
+  }
+
+  void dequeue(int priority, Waiter waiter) {
+    ArrayDeque<Waiter> lane = lanes.get(priority);
+    if (lane != null && lane.remove(waiter)) {
+      queued--;
+      if (lane.isEmpty()) {
+        lanes.remove(priority);
+      }
+    }
+  }
+
+  void dispatch() {
+    while (inflight < limit && queued > 0) {
+      Entry<Integer, ArrayDeque<Waiter>> lane = lanes.firstEntry();
+      Waiter waiter = lane.getValue().pollFirst();
+      if (lane.getValue().isEmpty()) {
+        lanes.remove(lane.getKey());
+      }
+      queued--;
+      waiter.admitted = true;
+      waiter.admittedNanos = admit();
+      waiter.condition.signal();
+    }
+  }
+
+  void recordLimit(int limit) {
+    limitHistory[limitHistoryIndex * 2] = System.currentTimeMillis();
+    limitHistory[limitHistoryIndex * 2 + 1] = limit;
+    limitHistoryIndex = (limitHistoryIndex + 1) % LIMIT_HISTORY_SIZE;
+  }
+
+  ConcurrencyThrottleRejectedException reject() {
+    rejected.increment();
+    return new ConcurrencyThrottleRejectedException(
+        "The concurrency throttle %s rejected the invocation, limit: %s, inflight: %s, queued: %s.",
+        name, limit, inflight, queued);
+  }
+
+  static class Waiter {
+    final Condition condition;
+    boolean admitted;
+    long admittedNanos;
+
+    Waiter(Condition condition) {
+      this.condition = condition;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.throttle;
+
+import org.corant.shared.exception.CorantRuntimeException;
+
+/**
+ * corant-context
+ *
+ * <p>
+ * Thrown when an invocation can't be admitted by a concurrency throttle within the max wait time.
+ *
+ * @author bingo 下午4:12:30
+ *
+ */
+public class ConcurrencyThrottleRejectedException extends CorantRuntimeException {
+
+  private static final long serialVersionUID = -2482415381839563925L;
+
+  public ConcurrencyThrottleRejectedException(String msgOrFormat, Object... args) {
+    super(msgOrFormat, args);
+  }
+
+}
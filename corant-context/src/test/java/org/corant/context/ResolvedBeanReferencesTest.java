@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.CDI;
+import javax.enterprise.util.TypeLiteral;
+import org.corant.context.ResolvedBeanReferences.Snapshot;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午3:10:27
+ *
+ */
+public class ResolvedBeanReferencesTest extends TestCase {
+
+  @Override
+  protected void tearDown() throws Exception {
+    ResolvedBeanReferences.restart();
+  }
+
+  @Test
+  public void testDependentNotCached() {
+    StubCDI cdi = new StubCDI(Dependent.class);
+    ResolvedBeanReferences.snapshot = new Snapshot(cdi);
+    assertNull(ResolvedBeanReferences.get(String.class));
+    Instance<String> first = ResolvedBeanReferences.select(String.class);
+    Instance<String> second = ResolvedBeanReferences.select(String.class);
+    assertNotSame(first, second);
+    assertEquals(2, cdi.selects.get());
+  }
+
+  @Test
+  public void testInvalidate() {
+    StubCDI cdi = new StubCDI(ApplicationScoped.class);
+    ResolvedBeanReferences.snapshot = new Snapshot(cdi);
+    Object reference = ResolvedBeanReferences.get(String.class);
+    Instance<String> instance = ResolvedBeanReferences.select(String.class);
+    Snapshot old = ResolvedBeanReferences.snapshot;
+    ResolvedBeanReferences.invalidate();
+    assertNull(ResolvedBeanReferences.snapshot);
+    assertTrue(old.references.isEmpty());
+    assertTrue(old.instances.isEmpty());
+    // without container
+    assertNull(ResolvedBeanReferences.get(String.class));
+    assertNull(ResolvedBeanReferences.select(String.class));
+    // restarted container
+    StubCDI restarted = new StubCDI(ApplicationScoped.class);
+    ResolvedBeanReferences.snapshot = new Snapshot(restarted);
+    assertNotSame(reference, ResolvedBeanReferences.get(String.class));
+    assertNotSame(instance, ResolvedBeanReferences.select(String.class));
+    assertEquals(1, restarted.references.get());
+    assertEquals(1, restarted.selects.get());
+  }
+
+  @Test
+  public void testNormalScopedCached() {
+    StubCDI cdi = new StubCDI(ApplicationScoped.class);
+    ResolvedBeanReferences.snapshot = new Snapshot(cdi);
+    Object reference = ResolvedBeanReferences.get(String.class);
+    assertNotNull(reference);
+    assertSame(reference, ResolvedBeanReferences.get(String.class));
+    Instance<String> instance = ResolvedBeanReferences.select(String.class);
+    assertSame(instance, ResolvedBeanReferences.select(String.class));
+    assertEquals(1, cdi.references.get());
+    assertEquals(1, cdi.selects.get());
+  }
+
+  @Test
+  public void testShutdownAndRestart() {
+    StubCDI cdi = new StubCDI(ApplicationScoped.class);
+    ResolvedBeanReferences.snapshot = new Snapshot(cdi);
+    assertNotNull(ResolvedBeanReferences.get(String.class));
+    ResolvedBeanReferences.shutdown();
+    assertNull(ResolvedBeanReferences.snapshot);
+    // the dying container is not snapshotted again
+    assertNull(ResolvedBeanReferences.current());
+    assertNull(ResolvedBeanReferences.get(String.class));
+    assertNull(ResolvedBeanReferences.select(String.class));
+    assertNull(ResolvedBeanReferences.snapshot);
+    // the snapshot populated before the container was started is discarded
+    ResolvedBeanReferences.shuttingDown = false;
+    ResolvedBeanReferences.snapshot = new Snapshot(cdi);
+    ResolvedBeanReferences.restart();
+    assertNull(ResolvedBeanReferences.snapshot);
+    assertFalse(ResolvedBeanReferences.shuttingDown);
+    StubCDI restarted = new StubCDI(ApplicationScoped.class);
+    ResolvedBeanReferences.snapshot = new Snapshot(restarted);
+    assertNotNull(ResolvedBeanReferences.get(String.class));
+    assertEquals(1, restarted.references.get());
+  }
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午3:10:27
+   *
+   */
+  static class StubCDI extends CDI<Object> {
+
+    final AtomicInteger selects = new AtomicInteger();
+    final AtomicInteger references = new AtomicInteger();
+    final BeanManager beanManager;
+
+    StubCDI(Class<? extends Annotation> scope) {
+      final Bean<?> bean = (Bean<?>) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class[] {Bean.class}, (p, m, a) -> "getScope".equals(m.getName()) ? scope : null);
+      beanManager = (BeanManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class[] {BeanManager.class}, (p, m, a) -> {
+            switch (m.getName()) {
+              case "getBeans":
+                return Collections.singleton(bean);
+              case "resolve":
+                return bean;
+              case "isNormalScope":
+                return a[0] == ApplicationScoped.class;
+              case "getReference":
+                references.incrementAndGet();
+                return new String("reference");
+              default:
+                return null;
+            }
+          });
+    }
+
+    @Override
+    public void destroy(Object instance) {}
+
+    @Override
+    public Object get() {
+      return null;
+    }
+
+    @Override
+    public BeanManager getBeanManager() {
+      return beanManager;
+    }
+
+    @Override
+    public boolean isAmbiguous() {
+      return false;
+    }
+
+    @Override
+    public boolean isUnsatisfied() {
+      return false;
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+      return Collections.emptyIterator();
+    }
+
+    @Override
+    public Instance<Object> select(Annotation... qualifiers) {
+      return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <U> Instance<U> select(Class<U> subtype, Annotation... qualifiers) {
+      selects.incrementAndGet();
+      return (Instance<U>) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class[] {Instance.class}, (p, m, a) -> null);
+    }
+
+    @Override
+    public <U> Instance<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.executor;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.corant.context.concurrent.executor.ScheduledThreadPoolExecutorx.DynamicDelayRunnable;
+import org.glassfish.enterprise.concurrent.AbstractManagedExecutorService.RejectPolicy;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午5:02:16
+ *
+ */
+public class ScheduleDriftTest extends TestCase {
+
+  @Test
+  public void testDisabledNotRecorded() throws Exception {
+    ScheduledThreadPoolExecutorx executor = new ScheduledThreadPoolExecutorx(1);
+    ExecutorServiceInstrumentation instrumentation =
+        new ExecutorServiceInstrumentation("test", executor);
+    executor.setInstrumentation(instrumentation);
+    try {
+      executor.schedule(() -> {
+      }, 1, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+      assertEquals(0, instrumentation.getScheduleDrift().getCount());
+      Runnable task = () -> {
+      };
+      assertSame(task, instrumentation.wrapScheduled(task, 1, 0, TimeUnit.MILLISECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testExecutorRecordsPeriodicDrift() throws Exception {
+    ScheduledThreadPoolExecutorx executor = new ScheduledThreadPoolExecutorx(1);
+    ExecutorServiceInstrumentation instrumentation =
+        new ExecutorServiceInstrumentation("test", executor);
+    instrumentation.enable(false);
+    executor.setInstrumentation(instrumentation);
+    assertTrue(instrumentation.isScheduled());
+    try {
+      CountDownLatch latch = new CountDownLatch(3);
+      Future<?> future =
+          executor.scheduleAtFixedRate(latch::countDown, 1, 5, TimeUnit.MILLISECONDS);
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      future.cancel(false);
+      assertTrue(instrumentation.getScheduleDrift().getCount() >= 3);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testManagedDynamicDelayRecordsDrift() throws Exception {
+    DefaultManagedScheduledExecutorService service = createManagedService();
+    service.getInstrumentation().enable(false);
+    try {
+      CountDownLatch latch = new CountDownLatch(3);
+      AtomicInteger runs = new AtomicInteger();
+      Future<?> future = service.scheduleWithDynamicDelay(new DynamicDelayRunnable() {
+        @Override
+        public long getDelay() {
+          return runs.get() < 3 ? runs.get() + 1L : 0L;
+        }
+
+        @Override
+        public void run() {
+          runs.incrementAndGet();
+          latch.countDown();
+        }
+      });
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      assertEquals(3, service.getInstrumentation().getScheduleDrift().getCount());
+      assertFalse(future.isCancelled());
+    } finally {
+      service.stop();
+    }
+  }
+
+  @Test
+  public void testManagedDynamicDelayStopsOnCancel() throws Exception {
+    DefaultManagedScheduledExecutorService service = createManagedService();
+    try {
+      AtomicInteger runs = new AtomicInteger();
+      CountDownLatch latch = new CountDownLatch(1);
+      Future<?> future = service.scheduleWithDynamicDelay(new DynamicDelayRunnable() {
+        @Override
+        public long getDelay() {
+          return 1L;
+        }
+
+        @Override
+        public void run() {
+          runs.incrementAndGet();
+          latch.countDown();
+        }
+      });
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      assertTrue(future.cancel(false));
+      Thread.sleep(20);
+      int cancelledRuns = runs.get();
+      Thread.sleep(50);
+      assertEquals(cancelledRuns, runs.get());
+      assertTrue(future.isDone());
+      // the metrics are disabled, nothing is recorded
+      assertEquals(0, service.getInstrumentation().getScheduleDrift().getCount());
+    } finally {
+      service.stop();
+    }
+  }
+
+  @Test
+  public void testWrappedTaskRecordsLateness() throws Exception {
+    ScheduledThreadPoolExecutorx executor = new ScheduledThreadPoolExecutorx(1);
+    ExecutorServiceInstrumentation instrumentation =
+        new ExecutorServiceInstrumentation("test", executor);
+    instrumentation.enable(false);
+    try {
+      // occupy the only thread so that the scheduled task starts late
+      CountDownLatch blocker = new CountDownLatch(1);
+      executor.execute(() -> {
+        try {
+          blocker.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      Runnable task = instrumentation.wrapScheduled(() -> {
+      }, 1, 0, TimeUnit.MILLISECONDS);
+      Future<?> future = executor.schedule(task, 1, TimeUnit.MILLISECONDS);
+      Thread.sleep(50);
+      blocker.countDown();
+      future.get(5, TimeUnit.SECONDS);
+      assertEquals(1, instrumentation.getScheduleDrift().getCount());
+      assertTrue(instrumentation.getScheduleDrift().getMax(TimeUnit.MILLISECONDS) >= 40);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  DefaultManagedScheduledExecutorService createManagedService() {
+    return new DefaultManagedScheduledExecutorService("test",
+        new DefaultManagedThreadFactory("test"), 0, false, 1, 0, TimeUnit.MILLISECONDS, 0,
+        Duration.ofSeconds(1), null, RejectPolicy.ABORT, null);
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.executor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.corant.context.concurrent.ConcurrentExtension;
+import org.corant.context.concurrent.ManagedExecutorConfig;
+import org.corant.context.concurrent.executor.VirtualThreadManagedExecutorService.RunningTask;
+import org.corant.shared.exception.NotSupportedException;
+import org.corant.shared.util.Threads;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午4:38:05
+ *
+ */
+public class VirtualThreadManagedExecutorServiceTest extends TestCase {
+
+  @Test
+  public void testCreation() throws Exception {
+    if (!Threads.isVirtualThreadSupported()) {
+      try {
+        new VirtualThreadManagedExecutorService("vt", 0, false, null, null);
+        fail();
+      } catch (NotSupportedException e) {
+        // expected on JDK 11 to 20
+      }
+      return;
+    }
+    VirtualThreadManagedExecutorService service =
+        new VirtualThreadManagedExecutorService("vt", 0, false, Duration.ofSeconds(1), null);
+    try {
+      AtomicReference<Thread> thread = new AtomicReference<>();
+      service.submit(() -> thread.set(Thread.currentThread())).get(5, TimeUnit.SECONDS);
+      assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread.get()));
+      assertTrue(thread.get().getName().startsWith("vt-"));
+    } finally {
+      service.stop();
+    }
+  }
+
+  @Test
+  public void testExecution() throws Exception {
+    VirtualThreadManagedExecutorService service = createService(10, false);
+    try {
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      Future<?> future = service.submit(() -> {
+        started.countDown();
+        release.await();
+        return null;
+      });
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      assertEquals(1, service.getRunningTaskCount());
+      Collection<RunningTask> hungTasks =
+          service.getHungTasks(System.currentTimeMillis() + 1000);
+      assertEquals(1, hungTasks.size());
+      assertNotSame(Thread.currentThread(), hungTasks.iterator().next().getThread());
+      assertTrue(service.getHungTasks(System.currentTimeMillis() - 1000).isEmpty());
+      release.countDown();
+      future.get(5, TimeUnit.SECONDS);
+      // the task is untracked right after the future is completed
+      for (int i = 0; i < 100 && service.getRunningTaskCount() > 0; i++) {
+        Thread.sleep(10);
+      }
+      assertEquals(0, service.getRunningTaskCount());
+      assertEquals("vt", service.getInstrumentation().getName());
+      // the long-running tasks are never hung
+      assertTrue(createService(10, true).getHungTasks(Long.MAX_VALUE).isEmpty());
+    } finally {
+      service.stop();
+    }
+  }
+
+  @Test
+  public void testPlatformFallback() {
+    TestExtension extension = new TestExtension();
+    assertFalse(extension.isVirtualThreadsAvailable(new TestConfig(false)));
+    // falls back to the platform thread pool on JDK 11 to 20
+    assertEquals(Threads.isVirtualThreadSupported(),
+        extension.isVirtualThreadsAvailable(new TestConfig(true)));
+    if (!Threads.isVirtualThreadSupported()) {
+      try {
+        Threads.newVirtualThreadPerTaskExecutor("vt");
+        fail();
+      } catch (NotSupportedException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testShutdown() throws Exception {
+    VirtualThreadManagedExecutorService service = createService(0, false);
+    // the lifecycle is managed by the container
+    try {
+      service.shutdown();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    try {
+      service.shutdownNow();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    try {
+      service.isShutdown();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    try {
+      service.isTerminated();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    try {
+      service.awaitTermination(1, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicReference<Boolean> interrupted = new AtomicReference<>(false);
+    service.execute(() -> {
+      started.countDown();
+      try {
+        Thread.sleep(60000);
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+      }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    // the running task is interrupted once the await termination is timeout
+    service.stop();
+    assertTrue(service.executor.isTerminated());
+    assertTrue(interrupted.get());
+    try {
+      service.execute(() -> {
+      });
+      fail();
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+  }
+
+  VirtualThreadManagedExecutorService createService(long hungTaskThreshold,
+      boolean longRunningTasks) {
+    // use the platform threads in place of the virtual threads, since they may not be supported
+    return new VirtualThreadManagedExecutorService("vt", hungTaskThreshold, longRunningTasks,
+        Duration.ofMillis(100), null, Executors.newCachedThreadPool());
+  }
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午4:38:05
+   *
+   */
+  static class TestConfig extends ManagedExecutorConfig {
+
+    private static final long serialVersionUID = 2794412233571604419L;
+
+    TestConfig(boolean virtualThreads) {
+      setVirtualThreads(virtualThreads);
+    }
+  }
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午4:38:05
+   *
+   */
+  static class TestExtension extends ConcurrentExtension {
+
+    @Override
+    protected boolean isVirtualThreadsAvailable(ManagedExecutorConfig cfg) {
+      return super.isVirtualThreadsAvailable(cfg);
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.interceptor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.concurrent.Trigger;
+import org.corant.context.concurrent.AsynchronousConfig;
+import org.corant.context.concurrent.AsynchronousReference;
+import org.corant.context.concurrent.CompletableAsynchronousReference;
+import org.corant.context.concurrent.annotation.Asynchronous;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午5:12:44
+ *
+ */
+public class AsynchronousInterceptorTest extends TestCase {
+
+  AsynchronousInterceptor interceptor;
+  TestExecutor executor;
+
+  @Test
+  public void testCancellation() throws Exception {
+    CompletableFuture<Object> inner = new CompletableFuture<>();
+    CompletableFuture<?> result = execute(() -> inner, CompletionStage.class);
+    awaitRelayed(inner);
+    assertTrue(result.cancel(true));
+    assertTrue(inner.isCancelled());
+    // the stage returned by the running method after the cancellation is cancelled as well
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicBoolean release = new AtomicBoolean();
+    CompletableFuture<Object> late = new CompletableFuture<>();
+    CompletableFuture<?> cancelled = execute(() -> {
+      started.countDown();
+      while (!release.get()) {
+        Thread.onSpinWait();
+      }
+      return late;
+    }, CompletableFuture.class);
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    assertTrue(cancelled.cancel(true));
+    release.set(true);
+    for (int i = 0; i < 500 && !late.isDone(); i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(late.isCancelled());
+    // the method that is not yet started is never invoked
+    CountDownLatch blocked = new CountDownLatch(executor.getCorePoolSize());
+    CountDownLatch blocker = new CountDownLatch(1);
+    for (int i = 0; i < executor.getCorePoolSize(); i++) {
+      executor.execute(() -> {
+        blocked.countDown();
+        try {
+          blocker.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    AtomicInteger calls = new AtomicInteger();
+    CompletableFuture<?> unstarted = execute(() -> {
+      calls.incrementAndGet();
+      return new CompletableFuture<>();
+    }, CompletionStage.class);
+    assertTrue(unstarted.cancel(true));
+    blocker.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void testCompletion() throws Exception {
+    executor.setCorePoolSize(1);
+    CompletableFuture<Object> inner = new CompletableFuture<>();
+    CompletableFuture<?> result = execute(() -> inner, CompletionStage.class);
+    awaitRelayed(inner);
+    // the only executor thread is not blocked by the incomplete inner stage
+    assertEquals("free", executor.submit(() -> "free").get(5, TimeUnit.SECONDS));
+    assertFalse(result.isDone());
+    inner.complete("done");
+    assertEquals("done", result.get(5, TimeUnit.SECONDS));
+    // the method returns null
+    assertNull(execute(() -> null, CompletableFuture.class).get(5, TimeUnit.SECONDS));
+    // the asynchronous reference
+    CompletableFuture<?> reference =
+        execute(() -> CompletableFuture.completedFuture("ref"), AsynchronousReference.class);
+    assertTrue(reference instanceof CompletableAsynchronousReference);
+    assertEquals("ref", reference.join());
+    assertEquals("ref", ((AsynchronousReference<?>) reference).get());
+  }
+
+  @Test
+  public void testExceptionalCompletion() throws Exception {
+    IllegalStateException error = new IllegalStateException("inner");
+    CompletableFuture<Object> inner = new CompletableFuture<>();
+    CompletableFuture<?> result = execute(() -> inner, CompletionStage.class);
+    awaitRelayed(inner);
+    inner.completeExceptionally(error);
+    assertSame(error, causeOf(result));
+    // the method throws
+    IllegalArgumentException thrown = new IllegalArgumentException("thrown");
+    assertSame(thrown, causeOf(execute(() -> {
+      throw thrown;
+    }, CompletionStage.class)));
+    // the asynchronous reference
+    CompletableFuture<?> reference =
+        execute(() -> CompletableFuture.failedFuture(error), AsynchronousReference.class);
+    assertSame(error, causeOf(reference));
+    assertSame(error, ((AsynchronousReference<?>) reference).cause());
+    assertNull(((AsynchronousReference<?>) reference).get());
+  }
+
+  @Test
+  public void testRetry() throws Exception {
+    AsynchronousConfig config = new AsynchronousConfig(
+        getClass().getDeclaredMethod("retried").getAnnotation(Asynchronous.class));
+    assertTrue(config.isRetry());
+    AtomicInteger attempts = new AtomicInteger();
+    Object retried = interceptor.execute(() -> attempts.incrementAndGet() < 2
+        ? CompletableFuture.failedFuture(new IllegalStateException("retry"))
+        : CompletableFuture.completedFuture("retried"), executor, config,
+        CompletionStage.class);
+    assertEquals("retried", ((CompletableFuture<?>) retried).get(5, TimeUnit.SECONDS));
+    assertEquals(2, attempts.get());
+    // exhausted
+    IllegalStateException error = new IllegalStateException("always");
+    Object failed = interceptor.execute(() -> CompletableFuture.failedFuture(error), executor,
+        config, CompletionStage.class);
+    assertSame(error, causeOf((CompletableFuture<?>) failed));
+    // cancellation
+    CompletableFuture<Object> inner = new CompletableFuture<>();
+    Object cancelled =
+        interceptor.execute(() -> inner, executor, config, CompletableFuture.class);
+    awaitRelayed(inner);
+    assertTrue(((CompletableFuture<?>) cancelled).cancel(true));
+    assertTrue(inner.isCancelled());
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    interceptor = new AsynchronousInterceptor();
+    executor = new TestExecutor();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    super.tearDown();
+  }
+
+  void awaitRelayed(CompletableFuture<?> inner) throws InterruptedException {
+    for (int i = 0; i < 500 && inner.getNumberOfDependents() == 0; i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(inner.getNumberOfDependents() > 0);
+  }
+
+  Throwable causeOf(CompletableFuture<?> future) throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail();
+      return null;
+    } catch (ExecutionException e) {
+      return e.getCause();
+    } catch (CancellationException e) {
+      return e;
+    }
+  }
+
+  CompletableFuture<?> execute(Callable<Object> task, Class<?> returnType) {
+    return (CompletableFuture<?>) interceptor.execute(task, executor, returnType);
+  }
+
+  @Asynchronous(maxAttempts = "2")
+  void retried() {}
+
+  /**
+   * corant-context
+   *
+   * @author bingo 下午5:12:44
+   *
+   */
+  static class TestExecutor extends ScheduledThreadPoolExecutor
+      implements ManagedScheduledExecutorService {
+
+    TestExecutor() {
+      super(2);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, Trigger trigger) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, Trigger trigger) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
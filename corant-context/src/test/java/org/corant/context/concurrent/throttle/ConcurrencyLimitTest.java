@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.context.concurrent.throttle;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.corant.context.concurrent.annotation.ConcurrencyThrottle.LimitStrategy;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-context
+ *
+ * @author bingo 下午4:12:30
+ *
+ */
+public class ConcurrencyLimitTest extends TestCase {
+
+  static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testAimdLimit() {
+    ConcurrencyLimit limit = ConcurrencyLimit.of(LimitStrategy.AIMD, 2, 10, 4);
+    assertEquals(4, limit.getLimit());
+    // not saturated, no growth
+    assertEquals(4, limit.onSample(MS, 1, false));
+    // saturated, additive increase up to max
+    for (int i = 0; i < 20; i++) {
+      limit.onSample(MS, limit.getLimit(), false);
+    }
+    assertEquals(10, limit.getLimit());
+    // multiplicative decrease down to min
+    assertEquals(9, limit.onSample(MS, 10, true));
+    for (int i = 0; i < 50; i++) {
+      limit.onSample(MS, 1, true);
+    }
+    assertEquals(2, limit.getLimit());
+  }
+
+  @Test
+  public void testFixedLimit() {
+    ConcurrencyLimit limit = ConcurrencyLimit.of(LimitStrategy.FIXED, 1, 8, 2);
+    assertEquals(8, limit.getLimit());
+    assertEquals(8, limit.onSample(MS, 8, true));
+  }
+
+  @Test
+  public void testGradientLimit() {
+    ConcurrencyLimit limit = ConcurrencyLimit.of(LimitStrategy.GRADIENT, 1, 100, 10);
+    assertEquals(10, limit.getLimit());
+    // steady latency, grows with the queue allowance
+    for (int i = 0; i < 50; i++) {
+      limit.onSample(MS, limit.getLimit(), false);
+    }
+    int grown = limit.getLimit();
+    assertTrue(grown > 10);
+    // latency rises, the limit shrinks
+    for (int i = 0; i < 50; i++) {
+      limit.onSample(20 * MS, limit.getLimit(), false);
+    }
+    int shrunk = limit.getLimit();
+    assertTrue(shrunk < grown);
+    // drop halves the limit
+    assertEquals(Math.max(1, shrunk / 2), limit.onSample(MS, shrunk, true), 1);
+  }
+
+  @Test
+  public void testInitialLimit() {
+    assertEquals(5, ConcurrencyLimit.of(LimitStrategy.AIMD, 1, 10, 0).getLimit());
+    assertEquals(5, ConcurrencyLimit.of(LimitStrategy.GRADIENT, 1, 10, -1).getLimit());
+    assertEquals(3, ConcurrencyLimit.of(LimitStrategy.AIMD, 3, 10, 1).getLimit());
+    assertEquals(10, ConcurrencyLimit.of(LimitStrategy.GRADIENT, 1, 10, 20).getLimit());
+  }
+
+  @Test
+  public void testLimiterPriority() throws Exception {
+    ConcurrencyLimiter limiter =
+        new ConcurrencyLimiter("test", ConcurrencyLimit.of(LimitStrategy.FIXED, 1, 1), true);
+    long admitted = limiter.acquire(0, -1, TimeUnit.MILLISECONDS);
+    try {
+      limiter.acquire(0, 0, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (ConcurrencyThrottleRejectedException e) {
+      assertEquals(1, limiter.getRejectedCount());
+    }
+    List<Integer> order = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(2);
+    Thread low = waiter(limiter, 0, order, done);
+    low.start();
+    while (limiter.getQueued() < 1) {
+      Thread.sleep(1);
+    }
+    Thread high = waiter(limiter, 9, order, done);
+    high.start();
+    while (limiter.getQueued() < 2) {
+      Thread.sleep(1);
+    }
+    limiter.release(admitted, false);
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(9, order.get(0).intValue());
+    assertEquals(0, order.get(1).intValue());
+    assertEquals(0, limiter.getInflight());
+    assertEquals(3, limiter.getAdmittedCount());
+  }
+
+  Thread waiter(ConcurrencyLimiter limiter, int priority, List<Integer> order,
+      CountDownLatch done) {
+    return new Thread(() -> {
+      try {
+        long admitted = limiter.acquire(priority, -1, TimeUnit.MILLISECONDS);
+        order.add(priority);
+        limiter.release(admitted, false);
+        done.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+  }
+}
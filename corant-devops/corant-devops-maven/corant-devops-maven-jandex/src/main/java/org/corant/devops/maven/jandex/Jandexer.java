@@ -17,6 +17,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -31,15 +36,30 @@ import org.jboss.jandex.Indexer;
 /**
  * corant-devops-maven-jandex
  *
+ * <p>
+ * Build the jandex index of the classes and the resource manifest
+ * {@code META-INF/corant-resources.idx} of the artifact. The manifest header records the number
+ * and the order independent hash of the predicted jar entry names, the files and directories (end
+ * with '/') of the output directory plus the entries appended by the maven jar plugin, and the
+ * manifest lists the sorted file names. The class path resource scanner uses the manifest only if
+ * the header matches the central directory of the jar, see
+ * {@code org.corant.shared.resource.ClassPathResourceIndex}.
+ *
  * @author bingo 下午3:55:35
  *
  */
 @Mojo(name = "jandex", defaultPhase = LifecyclePhase.PREPARE_PACKAGE, threadSafe = true)
 public class Jandexer extends AbstractMojo {
 
+  public static final String RESOURCE_INDEX = "META-INF/corant-resources.idx";
+  public static final String RESOURCE_INDEX_HEADER = "#corant-resources-2";
+
   @Parameter(defaultValue = "${project}", readonly = true)
   protected MavenProject project;
 
+  @Parameter(defaultValue = "true", property = "corant.jandex.resource-index")
+  protected boolean resourceIndex;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
     getLog().debug("(corant)--------------------------[index classes]--------------------------");
@@ -77,6 +97,67 @@ public class Jandexer extends AbstractMojo {
     } catch (IOException e) {
       getLog().warn(e);
     }
+    if (resourceIndex) {
+      buildResourceIndex(clsDir);
+    }
+  }
+
+  protected void buildResourceIndex(File clsDir) {
+    File idxFile = new File(clsDir, RESOURCE_INDEX);
+    final DirectoryScanner scanner = new DirectoryScanner();
+    scanner.setBasedir(clsDir);
+    scanner.scan();
+    Set<String> names = new TreeSet<>();
+    for (String file : scanner.getIncludedFiles()) {
+      names.add(file.replace(File.separatorChar, '/'));
+    }
+    for (String dir : scanner.getIncludedDirectories()) {
+      if (!dir.isEmpty()) {
+        names.add(dir.replace(File.separatorChar, '/') + '/');
+      }
+    }
+    // the entries appended by the maven jar plugin
+    String mavenDir =
+        "META-INF/maven/" + project.getGroupId() + "/" + project.getArtifactId() + "/";
+    names.add("META-INF/");
+    names.add("META-INF/MANIFEST.MF");
+    names.add("META-INF/maven/");
+    names.add("META-INF/maven/" + project.getGroupId() + "/");
+    names.add(mavenDir);
+    names.add(mavenDir + "pom.xml");
+    names.add(mavenDir + "pom.properties");
+    names.add(RESOURCE_INDEX);
+    long hash = 0;
+    for (String name : names) {
+      hash += hash(name);
+    }
+    getLog().info("(corant) building resource index file: " + idxFile.getPath());
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(idxFile),
+        StandardCharsets.UTF_8)) {
+      writer.write(RESOURCE_INDEX_HEADER + " " + names.size() + " " + Long.toHexString(hash));
+      writer.write('\n');
+      for (String name : names) {
+        if (!name.endsWith("/")) {
+          writer.write(name);
+          writer.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      getLog().warn(e);
+    }
+  }
+
+  /**
+   * The 64-bit FNV-1a hash of the entry name, must be the same as the one of the class path
+   * resource index.
+   */
+  static long hash(String name) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < name.length(); i++) {
+      hash ^= name.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
   }
 
 }
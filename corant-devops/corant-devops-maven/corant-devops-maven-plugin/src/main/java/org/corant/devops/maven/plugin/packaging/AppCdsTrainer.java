@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.devops.maven.plugin.packaging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.corant.devops.maven.plugin.archive.Archive.Entry;
+import org.corant.devops.maven.plugin.archive.FileEntry;
+import org.corant.devops.maven.plugin.packaging.DistPackager.ScriptEntry;
+
+/**
+ * corant-devops-maven-plugin
+ *
+ * <p>
+ * Performs a training run of the dist application to generate a dynamic AppCDS archive. The dist
+ * layout (lib, app and cfg) is staged into a working directory, the application is launched with
+ * the explicit relative class path and {@code -XX:ArchiveClassesAtExit} and the kernel argument
+ * {@code -exit_after_started}, so that the application exits after the {@code PostCorantReadyEvent}
+ * was emitted and the JVM dumps the loaded classes into the archive.
+ *
+ * <p>
+ * The archive and the class path list are bundled into the {@link #CDS_DIR} of the dist, the
+ * launch scripts use them when the archive exists. The JVM validates the archive against the JDK
+ * and the class path (the jar paths, sizes and modification times) and falls back to the normal
+ * class loading if it doesn't match, so the staged jars are given the modification times
+ * that the dist archive format can preserve.
+ *
+ * @author bingo 上午10:26:31
+ *
+ */
+public class AppCdsTrainer {
+
+  public static final String CDS_DIR = "cds";
+  public static final String CDS_ARCHIVE = "app.jsa";
+  public static final String CDS_CLASSPATH = "classpath";
+  public static final String EXIT_AFTER_STARTED_CMD = "-exit_after_started";
+
+  private final PackageMojo mojo;
+  private final Log log;
+
+  AppCdsTrainer(PackageMojo mojo) {
+    this.mojo = mojo;
+    log = mojo.getLog();
+  }
+
+  static List<String> splitArgs(String args) {
+    if (args == null || args.isBlank()) {
+      return new ArrayList<>();
+    }
+    return Arrays.stream(args.trim().split("\\s+")).collect(Collectors.toList());
+  }
+
+  /**
+   * Run the training and returns the entries that should be bundled into the {@link #CDS_DIR} of
+   * the dist, returns an empty list if the training failed.
+   *
+   * @param libs the library jars
+   * @param apps the application jars
+   * @param configs the configuration entries
+   */
+  public List<Entry> train(List<Entry> libs, List<Entry> apps, List<Entry> configs)
+      throws IOException {
+    Path workDir = Paths.get(mojo.getProject().getBuild().getDirectory())
+        .resolve(mojo.getFinalName().concat("-appcds"));
+    if (Files.exists(workDir)) {
+      FileUtils.deleteDirectory(workDir.toFile());
+    }
+    Files.createDirectories(workDir.resolve(CDS_DIR));
+    log.info(String.format("(corant) staging AppCDS training run in %s.", workDir));
+    List<String> classpath = new ArrayList<>();
+    classpath.addAll(stage(workDir, Packager.LIB_DIR, libs));
+    classpath.addAll(stage(workDir, Packager.APP_DIR, apps));
+    stage(workDir, Packager.CFG_DIR, configs);
+    Path archive = workDir.resolve(CDS_DIR).resolve(CDS_ARCHIVE);
+    Path trainingLog = workDir.resolve(CDS_DIR).resolve("training.log");
+    List<String> command = resolveCommand(workDir, classpath);
+    log.info(
+        String.format("(corant) start AppCDS training run, the log file is %s.", trainingLog));
+    log.debug(String.format("(corant) AppCDS training command: %s.", String.join(" ", command)));
+    Process process = new ProcessBuilder(command).directory(workDir.toFile())
+        .redirectErrorStream(true).redirectOutput(trainingLog.toFile()).start();
+    try {
+      if (!process.waitFor(mojo.getAppCdsTrainingTimeout(), TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+        log.warn(String.format(
+            "(corant) AppCDS training run didn't complete in %s seconds, skip the archive.",
+            mojo.getAppCdsTrainingTimeout()));
+        return new ArrayList<>();
+      }
+    } catch (InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      return new ArrayList<>();
+    }
+    if (process.exitValue() != 0 || !Files.isRegularFile(archive)) {
+      log.warn(String.format(
+          "(corant) AppCDS training run exited with %s and no archive was generated, see %s.",
+          process.exitValue(), trainingLog));
+      return new ArrayList<>();
+    }
+    log.info(String.format("(corant) AppCDS archive %s was generated, size %s bytes.", archive,
+        Files.size(archive)));
+    List<Entry> entries = new ArrayList<>();
+    entries.add(FileEntry.of(archive.toFile()));
+    entries.add(new ScriptEntry(CDS_CLASSPATH, String.join("\n", classpath).concat("\n")));
+    return entries;
+  }
+
+  List<String> resolveCommand(Path workDir, List<String> classpath) {
+    List<String> command = new ArrayList<>();
+    command.add(mojo.getAppCdsJava());
+    command.add("-XX:ArchiveClassesAtExit=" + CDS_DIR + "/" + CDS_ARCHIVE);
+    command.add("-cp");
+    command.add(String.join(File.pathSeparator, classpath));
+    command.addAll(splitArgs(mojo.getVmArgs()));
+    String configLocation = mojo.getUsedConfigLocation();
+    command.add("-Dcorant.config.location=" + (configLocation.isEmpty()
+        ? "filesystem:" + workDir.resolve(Packager.CFG_DIR).toAbsolutePath()
+        : configLocation));
+    if (!mojo.getUsedConfigProfile().isEmpty()) {
+      command.add("-Dcorant.config.profile=" + mojo.getUsedConfigProfile());
+    }
+    command.add("-Dcorant.application-name=" + mojo.getFinalName());
+    command.addAll(splitArgs(mojo.getMiArgs()));
+    command.add(mojo.getMainClass());
+    command.addAll(splitArgs(mojo.getAppArgs()));
+    command.addAll(splitArgs(mojo.getAppCdsTrainingArgs()));
+    command.add(EXIT_AFTER_STARTED_CMD);
+    return command;
+  }
+
+  /**
+   * Copy the entries to the given directory of the working directory and returns the relative
+   * paths, the modification times of the copies are truncated to seconds, the precision of the
+   * tar entries and of the UTC modification time of the zip entries, since the JVM validates the
+   * jar modification times of the AppCDS archive, see {@link DistPackager}.
+   */
+  List<String> stage(Path workDir, String dir, List<Entry> entries) throws IOException {
+    List<String> paths = new ArrayList<>();
+    Path target = Files.createDirectories(workDir.resolve(dir));
+    final long precision = 1000L;
+    for (Entry entry : entries) {
+      Path file = target.resolve(entry.getName());
+      try (InputStream is = entry.getInputStream()) {
+        Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      long lastModified = entry.getLastModifiedTime().toMillis();
+      file.toFile().setLastModified(lastModified - lastModified % precision);
+      paths.add(dir + "/" + entry.getName());
+    }
+    return paths;
+  }
+}
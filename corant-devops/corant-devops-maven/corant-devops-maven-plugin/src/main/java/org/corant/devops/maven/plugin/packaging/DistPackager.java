@@ -23,14 +23,18 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.zip.X5455_ExtendedTimestamp;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.logging.Log;
@@ -124,10 +128,10 @@ public class DistPackager implements Packager {
     Archive root = DefaultArchive.root();
     // LICENE README NOTICE
     resolveRootResources().forEach(root::addEntry);
+    List<Entry> libs = new ArrayList<>();
+    List<Entry> apps = new ArrayList<>();
     if (getMojo().isGroupApp()) {
       final String appGroupId = getMojo().getProject().getArtifact().getGroupId();
-      List<Entry> libs = new ArrayList<>();
-      List<Entry> apps = new ArrayList<>();
       apps.add(FileEntry.of(getMojo().getProject().getArtifact().getFile()));
       getMojo().getProject().getArtifacts().stream().forEach(a -> {
         if (Objects.equals(a.getGroupId(), appGroupId)) {
@@ -139,13 +143,21 @@ public class DistPackager implements Packager {
       DefaultArchive.of(APP_DIR, root).addEntries(apps);
       DefaultArchive.of(LIB_DIR, root).addEntries(libs);
     } else {
-      DefaultArchive.of(LIB_DIR, root).addEntries(getMojo().getProject().getArtifacts().stream()
-          .map(Artifact::getFile).map(FileEntry::of).collect(Collectors.toList()));
-      DefaultArchive.of(APP_DIR, root)
-          .addEntry(FileEntry.of(getMojo().getProject().getArtifact().getFile()));
+      libs.addAll(getMojo().getProject().getArtifacts().stream().map(Artifact::getFile)
+          .map(FileEntry::of).collect(Collectors.toList()));
+      apps.add(FileEntry.of(getMojo().getProject().getArtifact().getFile()));
+      DefaultArchive.of(LIB_DIR, root).addEntries(libs);
+      DefaultArchive.of(APP_DIR, root).addEntries(apps);
     }
-    DefaultArchive.of(CFG_DIR, root).addEntries(resolveConfigFiles());
+    List<Entry> configs = resolveConfigFiles();
+    DefaultArchive.of(CFG_DIR, root).addEntries(configs);
     DefaultArchive.of(BIN_DIR, root).addEntries(resolveBinFiles());
+    if (getMojo().isWithAppCds()) {
+      List<Entry> cds = new AppCdsTrainer(getMojo()).train(libs, apps, configs);
+      if (!cds.isEmpty()) {
+        DefaultArchive.of(AppCdsTrainer.CDS_DIR, root).addEntries(cds);
+      }
+    }
     log.debug(
         String.format("(corant) built archive %s for packaging.", root.getEntries(null).size()));
     return root;
@@ -268,7 +280,15 @@ public class DistPackager implements Packager {
       }
       file.deleteOnExit();
     }
-    aos.putArchiveEntry(aos.createArchiveEntry(file, entryName));
+    ArchiveEntry archiveEntry = aos.createArchiveEntry(file, entryName);
+    if (archiveEntry instanceof ZipArchiveEntry) {
+      // the zip DOS time is a local time, add the UTC modification time so that the extracted
+      // files keep the same modification time in any time zone, the AppCDS archive validates it.
+      X5455_ExtendedTimestamp timestamp = new X5455_ExtendedTimestamp();
+      timestamp.setModifyJavaTime(new Date(file.lastModified()));
+      ((ZipArchiveEntry) archiveEntry).addExtraField(timestamp);
+    }
+    aos.putArchiveEntry(archiveEntry);
     try (InputStream fis = new FileInputStream(file)) {
       IOUtils.copy(fis, aos);
     }
@@ -13,6 +13,7 @@
  */
 package org.corant.devops.maven.plugin.packaging;
 
+import java.nio.file.Paths;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -101,6 +102,18 @@ public class PackageMojo extends AbstractMojo {
   @Parameter(defaultValue = "", property = "corant.maven-mojo.used-config-profile")
   protected String usedConfigProfile;
 
+  @Parameter(defaultValue = "false", property = "corant.maven-mojo.with-app-cds")
+  protected boolean withAppCds;
+
+  @Parameter(property = "corant.maven-mojo.app-cds-java")
+  protected String appCdsJava;
+
+  @Parameter
+  protected String appCdsTrainingArgs;
+
+  @Parameter(defaultValue = "600", property = "corant.maven-mojo.app-cds-training-timeout")
+  protected int appCdsTrainingTimeout;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
     if (isJar()) {
@@ -129,6 +142,23 @@ public class PackageMojo extends AbstractMojo {
     return appArgs != null && !appArgs.isEmpty() ? appArgs.trim() : "";
   }
 
+  /**
+   * Returns the java executable used for the AppCDS training run, the default is the java of the
+   * current JDK, the launch JDK must be the same as the training JDK.
+   */
+  public String getAppCdsJava() {
+    return appCdsJava != null && !appCdsJava.isBlank() ? appCdsJava.trim()
+        : Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+  }
+
+  public String getAppCdsTrainingArgs() {
+    return appCdsTrainingArgs != null ? appCdsTrainingArgs.trim() : "";
+  }
+
+  public int getAppCdsTrainingTimeout() {
+    return appCdsTrainingTimeout > 0 ? appCdsTrainingTimeout : 600;
+  }
+
   public String getClassifier() {
     return classifier;
   }
@@ -197,6 +227,10 @@ public class PackageMojo extends AbstractMojo {
     return "war".equals(project.getPackaging());
   }
 
+  public boolean isWithAppCds() {
+    return withAppCds;
+  }
+
   public boolean isWithAttach() {
     return withAttach;
   }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.devops.maven.plugin.query;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.corant.modules.query.mapping.Query;
+import org.corant.modules.query.mapping.QueryMapping;
+import org.corant.modules.query.mapping.QueryMappingIndex;
+import org.corant.modules.query.mapping.QueryMappingIndex.Stamp;
+import org.corant.modules.query.mapping.QueryParser;
+import org.corant.shared.resource.FileSystemResource;
+
+/**
+ * corant-devops-maven-plugin
+ *
+ * <p>
+ * Parse and validate the query mapping files of the project at build time and write them to a
+ * precompiled index {@link QueryMappingIndex#INDEX_RESOURCE} in the output directory, at runtime
+ * the unchanged mapping files are resolved from the index instead of parsing.
+ *
+ * @author bingo 下午4:02:51
+ *
+ */
+@Mojo(name = "query-index", defaultPhase = LifecyclePhase.PREPARE_PACKAGE, threadSafe = true,
+    requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
+public class QueryIndexMojo extends AbstractMojo {
+
+  @Parameter(defaultValue = "${project}", readonly = true)
+  protected MavenProject project;
+
+  @Parameter(defaultValue = "META-INF/**/*Query.xml",
+      property = "corant.maven-mojo.query-mapping-includes")
+  protected String includes;
+
+  @Parameter(defaultValue = "true", property = "corant.maven-mojo.query-index-fail-on-error")
+  protected boolean failOnError;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    getLog().debug("(corant)--------------------------[index queries]--------------------------");
+    if (!project.getPackaging().equals("jar") && !project.getPackaging().equals("war")) {
+      getLog().debug("(corant) skip query index, only support jar or war");
+      return;
+    }
+    final File clsDir = new File(project.getBuild().getOutputDirectory());
+    if (!clsDir.exists()) {
+      getLog().warn("(corant) can not find file dir, the directory is " + clsDir.getPath());
+      return;
+    }
+    final DirectoryScanner scanner = new DirectoryScanner();
+    scanner.setBasedir(clsDir);
+    scanner.setIncludes(includes.split(","));
+    scanner.scan();
+    final Map<String, FileSystemResource> resources = new LinkedHashMap<>();
+    final Map<String, Stamp> stamps = new HashMap<>();
+    for (String file : scanner.getIncludedFiles()) {
+      File mappingFile = new File(clsDir, file);
+      String path = file.replace(File.separatorChar, '/');
+      try {
+        stamps.put(path, Stamp.of(mappingFile));
+      } catch (IOException e) {
+        throw new MojoExecutionException("Can't read query mapping file " + file, e);
+      }
+      resources.put(path, new FileSystemResource(mappingFile));
+    }
+    if (resources.isEmpty()) {
+      getLog().debug("(corant) skip query index, no query mapping files found");
+      return;
+    }
+    final List<QueryMapping> mappings = parse(resources);
+    List<String> brokens = validate(mappings);
+    if (!brokens.isEmpty()) {
+      brokens.forEach(getLog()::error);
+      if (failOnError) {
+        throw new MojoFailureException("Query mapping files validation failed!");
+      }
+      getLog().warn("(corant) skip query index, some query mapping files are invalid.");
+      return;
+    }
+    File idxFile = new File(clsDir, QueryMappingIndex.INDEX_RESOURCE);
+    idxFile.getParentFile().mkdirs();
+    getLog().info("(corant) building query index file: " + idxFile.getPath() + " with "
+        + mappings.size() + " query mapping files.");
+    try (OutputStream out = new FileOutputStream(idxFile)) {
+      QueryMappingIndex.write(out, mappings, stamps);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Can't write query index file " + idxFile.getPath(), e);
+    }
+  }
+
+  protected ClassLoader createProjectClassLoader() throws MojoExecutionException {
+    try {
+      List<URL> urls = new ArrayList<>();
+      for (String element : project.getRuntimeClasspathElements()) {
+        urls.add(new File(element).toURI().toURL());
+      }
+      return new URLClassLoader(urls.toArray(URL[]::new), getClass().getClassLoader());
+    } catch (DependencyResolutionRequiredException | MalformedURLException e) {
+      throw new MojoExecutionException("Can't resolve project class path!", e);
+    }
+  }
+
+  /**
+   * Parse the query mapping files with the project class loader, since the classes referenced by
+   * the query mapping files must be resolved.
+   */
+  protected List<QueryMapping> parse(Map<String, FileSystemResource> resources)
+      throws MojoExecutionException, MojoFailureException {
+    final Thread currentThread = Thread.currentThread();
+    final ClassLoader original = currentThread.getContextClassLoader();
+    try (URLClassLoader classLoader = (URLClassLoader) createProjectClassLoader()) {
+      currentThread.setContextClassLoader(classLoader);
+      return new QueryParser().parse(resources);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Can't close project class loader!", e);
+    } catch (RuntimeException e) {
+      if (failOnError) {
+        throw new MojoFailureException("Parse query mapping files error!", e);
+      }
+      getLog().warn(e);
+      return new ArrayList<>();
+    } finally {
+      currentThread.setContextClassLoader(original);
+    }
+  }
+
+  /**
+   * Validate the query mapping files, the fetch queries may refer to the queries of other
+   * artifacts, so only the circular references among the queries of this artifact are checked.
+   */
+  protected List<String> validate(List<QueryMapping> mappings) {
+    final List<String> brokens = new ArrayList<>();
+    final Map<String, Query> queries = new HashMap<>();
+    for (QueryMapping mapping : mappings) {
+      brokens.addAll(mapping.selfValidate());
+      for (Query query : mapping.getQueries()) {
+        Query repeat = queries.put(query.getVersionedName(), query);
+        if (repeat != null) {
+          brokens.add(String.format(
+              "The 'name' [%s] of query element in query file [%s] can not repeat, the previous query file [%s].",
+              query.getVersionedName(), mapping.getUrl(), repeat.getMappingFilePath()));
+        }
+      }
+    }
+    queries.forEach((name, query) -> {
+      List<String> refs = new LinkedList<>();
+      List<String> tmp = new LinkedList<>(query.getVersionedFetchQueryNames());
+      while (!tmp.isEmpty() && refs.size() <= queries.size()) {
+        String tq = tmp.remove(0);
+        refs.add(tq);
+        if (name.equals(tq)) {
+          brokens.add(String.format("The queries circular reference occurred on [%s -> %s]",
+              name, String.join(" -> ", refs)));
+          break;
+        }
+        Query fq = queries.get(tq);
+        if (fq == null) {
+          getLog().debug("(corant) the fetch query " + tq + " of query " + name
+              + " is not in this artifact");
+        } else {
+          tmp.addAll(fq.getVersionedFetchQueryNames());
+        }
+      }
+    });
+    return brokens;
+  }
+}
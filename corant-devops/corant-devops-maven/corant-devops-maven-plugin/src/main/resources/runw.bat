@@ -30,6 +30,19 @@ set LCF_URL=%CFG_DIR%\log4j2.xml
 
 set CLASS_PATH=%CFG_DIR%\*;%APP_DIR%\*;%LIB_DIR%\*
 
+rem run in the root directory, the AppCDS archive and the class path entries are relative to it
+cd /d "%ROOT_DIR%"
+
+rem use the AppCDS archive generated by the training run if exists, the archive requires the
+rem same class path as the training run, the JVM ignores the archive if the JDK doesn't match
+set CORANT_CDS_OPTS=
+if exist "%ROOT_DIR%\cds\app.jsa" if exist "%ROOT_DIR%\cds\classpath" (
+  set CLASS_PATH=
+  for /F "usebackq delims=" %%c in ("%ROOT_DIR%\cds\classpath") do set "CLASS_PATH=!CLASS_PATH!;%%c"
+  set "CLASS_PATH=!CLASS_PATH:~1!"
+  set CORANT_CDS_OPTS=-XX:SharedArchiveFile=cds\app.jsa -Xshare:auto
+)
+
 set _JAVACMD=%JAVACMD%
 
 if "%JAVA_HOME%" == "" goto NO_JAVA_HOME
@@ -65,7 +78,7 @@ if NOT "%APPLICATION_NAME%" == "" set CORANT_JVM_OPTS=%CORANT_JVM_OPTS% -Dcorant
 
 if exist "%LCF_URL%" set CORANT_JVM_OPTS=%CORANT_JVM_OPTS% -Dlog4j.configurationFile="%LCF_URL%"
 
-set CORANT_JVM_OPTS=%CORANT_JVM_OPTS% -Dcorant.application.root-dir=filesystem:"%ROOT_DIR%" -classpath "%CLASS_PATH%"
+set CORANT_JVM_OPTS=%CORANT_JVM_OPTS% -Dcorant.application.root-dir=filesystem:"%ROOT_DIR%" -classpath "%CLASS_PATH%" %CORANT_CDS_OPTS%
 
 if NOT "%DEBUG_ARGS%"=="" set CORANT_JVM_OPTS=%CORANT_JVM_OPTS% %DEBUG_ARGS%
 
@@ -10,9 +10,21 @@ ROOT_DIR=$(cd $BIN_DIR/.. && pwd)
 
 CLASSPATH="$ROOT_DIR/lib/*:$ROOT_DIR/app/*"
 
+# run in the root directory, the AppCDS archive and the class path entries are relative to it
+cd "$ROOT_DIR"
+
+# use the AppCDS archive generated by the training run if exists, the archive requires the same
+# class path as the training run, the JVM ignores the archive if the JDK doesn't match
+CORANT_CDS_OPTS=""
+if test -f "$ROOT_DIR/cds/app.jsa" && test -f "$ROOT_DIR/cds/classpath"
+then
+	CLASSPATH=$(paste -sd: "$ROOT_DIR/cds/classpath")
+	CORANT_CDS_OPTS="-XX:SharedArchiveFile=cds/app.jsa -Xshare:auto"
+fi
+
 JAVA="javaw "
 
-CORANT_JVM_OPTS="$ADDITIONAL_VM_ARGUMENTS -cp $CLASSPATH"
+CORANT_JVM_OPTS="$ADDITIONAL_VM_ARGUMENTS -cp $CLASSPATH $CORANT_CDS_OPTS"
 
 if test -n "$APPLICATION_NAME"
 then
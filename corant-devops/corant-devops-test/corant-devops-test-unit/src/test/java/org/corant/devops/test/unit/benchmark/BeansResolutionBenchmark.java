@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.devops.test.unit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
+import javax.enterprise.inject.spi.CDI;
+import org.corant.Corant;
+import org.corant.context.Beans;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-devops-test-unit
+ *
+ * <p>
+ * Micro-benchmarks of {@link Beans#resolve(Class, java.lang.annotation.Annotation...)} against the
+ * plain {@code CDI.current().select(...).get()}.
+ *
+ * @author bingo 下午3:42:18
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class BeansResolutionBenchmark {
+
+  Corant corant;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder().include(BeansResolutionBenchmark.class.getSimpleName()).build())
+            .run();
+  }
+
+  @Benchmark
+  public Object cdiSelectApplicationScoped() {
+    return CDI.current().select(ApplicationScopedBean.class).get();
+  }
+
+  @Benchmark
+  public Object resolveApplicationScoped() {
+    return Beans.resolve(ApplicationScopedBean.class);
+  }
+
+  @Benchmark
+  public Object resolveDependent() {
+    return Beans.resolve(DependentBean.class);
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    corant = Corant.startup(ApplicationScopedBean.class, DependentBean.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (corant != null) {
+      corant.stop();
+    }
+  }
+
+  @ApplicationScoped
+  public static class ApplicationScopedBean {
+  }
+
+  @Dependent
+  public static class DependentBean {
+  }
+}
@@ -13,6 +13,7 @@
  */
 package org.corant;
 
+import static java.util.stream.Collectors.toList;
 import static org.corant.shared.normal.Names.applicationName;
 import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Assertions.shouldNotNull;
@@ -21,9 +22,12 @@ import static org.corant.shared.util.MBeans.registerToMBean;
 import static org.corant.shared.util.Objects.max;
 import static org.corant.shared.util.Strings.EMPTY;
 import static org.corant.shared.util.Strings.NEWLINE;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 import java.util.function.Consumer;
@@ -45,12 +49,16 @@ import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.CDI;
 import javax.enterprise.inject.spi.Extension;
+import org.corant.kernel.boot.BootProfiler;
+import org.corant.kernel.boot.BootProfilerExtension;
+import org.corant.kernel.boot.StartupTasks;
 import org.corant.kernel.event.PostContainerReadyEvent;
 import org.corant.kernel.event.PostCorantReadyAsyncEvent;
 import org.corant.kernel.event.PostCorantReadyEvent;
 import org.corant.kernel.jmx.Power;
 import org.corant.kernel.logging.LoggerFactory;
 import org.corant.kernel.spi.CorantBootHandler;
+import org.corant.kernel.spi.StartupTask;
 import org.corant.kernel.util.CommandLine;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.normal.Defaults;
@@ -152,6 +160,8 @@ public class Corant implements AutoCloseable {
   public static final String DISABLE_AFTER_STARTED_HANDLER_CMD = "-disable_after_started_handler";
   public static final String DISABLE_AFTER_STOPPED_HANDLER_CMD = "-disable_after_stopped_handler";
   public static final String REGISTER_TO_MBEAN_CMD = "-register_to_mbean";
+  public static final String ENABLE_BOOT_PROFILE_CMD = "-enable_boot_profile";
+  public static final String EXIT_AFTER_STARTED_CMD = "-exit_after_started";
   public static final String APP_NAME = applicationName();
   public static final String POWER_MBEAN_NAME = APP_NAME + ":type=kernel,name=Power";
 
@@ -592,10 +602,25 @@ public class Corant implements AutoCloseable {
       return;
     }
     final StopWatch stopWatch = new StopWatch(APP_NAME);
+    final CommandLine profileCmd = CommandLine.parse(ENABLE_BOOT_PROFILE_CMD, arguments);
+    final BootProfiler profiler = profileCmd != null ? BootProfiler.startup() : null;
     Thread.currentThread().setContextClassLoader(classLoader);
-    doBeforeStart(stopWatch);
-    initializeContainer(preInitializer, stopWatch);
-    doAfterStarted(stopWatch);
+    try {
+      try (BootProfiler.Span span = BootProfiler.open("phase", "before-start")) {
+        doBeforeStart(stopWatch);
+      }
+      try (BootProfiler.Span span = BootProfiler.open("phase", "container-initialize")) {
+        initializeContainer(preInitializer, stopWatch);
+      }
+      doAfterStarted(stopWatch);
+    } finally {
+      if (profiler != null) {
+        completeBootProfile(profiler, profileCmd);
+      }
+    }
+    if (CommandLine.parse(EXIT_AFTER_STARTED_CMD, arguments) != null) {
+      exitAfterStarted();
+    }
   }
 
   /**
@@ -621,13 +646,20 @@ public class Corant implements AutoCloseable {
     try {
       // emit post container ready events
       stopWatch.start();
-      container.getBeanManager().getEvent().fire(new PostContainerReadyEvent(arguments));
+      try (BootProfiler.Span span = BootProfiler.open("phase", "post-container-ready")) {
+        container.getBeanManager().getEvent().fire(new PostContainerReadyEvent(arguments));
+      }
+      try (BootProfiler.Span span = BootProfiler.open("phase", "startup-tasks")) {
+        runStartupTasks();
+      }
       stopWatch
           .stop(t -> logInfo("All modules have been initialized, takes %s ms.", t.getTimeMillis()));
 
       // handle post started spi
       stopWatch.start();
-      invokeBootHandlerAfterStarted();
+      try (BootProfiler.Span span = BootProfiler.open("phase", "after-started")) {
+        invokeBootHandlerAfterStarted();
+      }
       stopWatch.stop((tk, sw) -> {
         logInfo("The post-started spi processing has completed, takes %s ms.", tk.getTimeMillis());
         double tt = sw.getTotalTimeSeconds();
@@ -646,7 +678,9 @@ public class Corant implements AutoCloseable {
 
       // emit post corant ready events
       stopWatch.start();
-      container.getBeanManager().getEvent().fire(new PostCorantReadyEvent(arguments));
+      try (BootProfiler.Span span = BootProfiler.open("phase", "post-corant-ready")) {
+        container.getBeanManager().getEvent().fire(new PostCorantReadyEvent(arguments));
+      }
       container.getBeanManager().getEvent().fireAsync(new PostCorantReadyAsyncEvent(arguments));
       stopWatch.destroy(sw -> logInfo("All preparations have been triggered, takes %s ms.%s",
           sw.getLastTaskInfo().getTimeMillis(), boostLine(".")));
@@ -675,6 +709,22 @@ public class Corant implements AutoCloseable {
     }
   }
 
+  /**
+   * Shutdown the application and exit the JVM after started, used for the training runs, for
+   * example to generate the AppCDS archive which is dumped when the JVM exits.
+   */
+  void exitAfterStarted() {
+    logInfo("The %s was started with %s, it will be shutdown and exit.", APP_NAME,
+        EXIT_AFTER_STARTED_CMD);
+    Threads.runInDaemon("corant-exit", () -> {
+      try {
+        shutdown();
+      } finally {
+        System.exit(0);
+      }
+    });
+  }
+
   synchronized void initializeContainer(Consumer<SeContainerInitializer> preInitializer,
       StopWatch stopWatch) {
     try {
@@ -683,6 +733,9 @@ public class Corant implements AutoCloseable {
       SeContainerInitializer initializer = SeContainerInitializer.newInstance();
       initializer.setClassLoader(classLoader);
       initializer.addExtensions(new CorantExtension());
+      if (BootProfiler.current() != null) {
+        initializer.addExtensions(new BootProfilerExtension());
+      }
       if (beanClasses != null) {
         initializer.addBeanClasses(beanClasses);
       }
@@ -701,6 +754,13 @@ public class Corant implements AutoCloseable {
     }
   }
 
+  void runStartupTasks() {
+    List<StartupTask> tasks = container.select(StartupTask.class).stream().collect(toList());
+    if (!tasks.isEmpty()) {
+      new StartupTasks(tasks).run(classLoader);
+    }
+  }
+
   void registerMBean() {
     if (CommandLine.parse(REGISTER_TO_MBEAN_CMD, arguments) == null) {
       return;
@@ -718,6 +778,21 @@ public class Corant implements AutoCloseable {
     }
   }
 
+  void completeBootProfile(BootProfiler profiler, CommandLine profileCmd) {
+    profiler.finish();
+    logInfo("The %s boot profile (top 50 by self time):%s%s", APP_NAME, NEWLINE,
+        profiler.toReport(50));
+    if (profileCmd.hasArguments()) {
+      String path = profileCmd.getArguments()[0];
+      try {
+        profiler.writeChromeTrace(Paths.get(path));
+        logInfo("The %s boot profile trace has been written to %s.", APP_NAME, path);
+      } catch (IOException e) {
+        log(Level.WARNING, e, "Can't write the %s boot profile trace to %s.", APP_NAME, path);
+      }
+    }
+  }
+
   private String boostLine(String separator) {
     if (CommandLine.parse(DISABLE_BOOST_LINE_CMD, arguments) == null) {
       return NEWLINE.concat(separator.repeat(100));
@@ -729,10 +804,12 @@ public class Corant implements AutoCloseable {
     CommandLine cmd = CommandLine.parse(DISABLE_AFTER_STARTED_HANDLER_CMD, arguments);
     if (cmd == null) {
       CorantBootHandler.load(classLoader)
-          .forEach(h -> h.handleAfterStarted(this, Arrays.copyOf(arguments, arguments.length)));
+          .forEach(h -> profile(h, () -> h.handleAfterStarted(this,
+              Arrays.copyOf(arguments, arguments.length))));
     } else if (cmd.hasArguments()) {
       CorantBootHandler.load(classLoader, cmd.getArguments())
-          .forEach(h -> h.handleAfterStarted(this, Arrays.copyOf(arguments, arguments.length)));
+          .forEach(h -> profile(h, () -> h.handleAfterStarted(this,
+              Arrays.copyOf(arguments, arguments.length))));
     } else {
       logInfo("The after start boot handlers are disabled!");
     }
@@ -754,16 +831,23 @@ public class Corant implements AutoCloseable {
   private void invokeBootHandlerBeforeStart() {
     CommandLine cmd = CommandLine.parse(DISABLE_BEFORE_START_HANDLER_CMD, arguments);
     if (cmd == null) {
-      CorantBootHandler.load(classLoader).forEach(
-          h -> h.handleBeforeStart(classLoader, Arrays.copyOf(arguments, arguments.length)));
+      CorantBootHandler.load(classLoader).forEach(h -> profile(h,
+          () -> h.handleBeforeStart(classLoader, Arrays.copyOf(arguments, arguments.length))));
     } else if (cmd.hasArguments()) {
-      CorantBootHandler.load(classLoader, cmd.getArguments()).forEach(
-          h -> h.handleBeforeStart(classLoader, Arrays.copyOf(arguments, arguments.length)));
+      CorantBootHandler.load(classLoader, cmd.getArguments()).forEach(h -> profile(h,
+          () -> h.handleBeforeStart(classLoader, Arrays.copyOf(arguments, arguments.length))));
     } else {
       logInfo("The before start boot handlers are disabled!");
     }
   }
 
+  private void profile(CorantBootHandler handler, Runnable runnable) {
+    try (BootProfiler.Span span =
+        BootProfiler.open("handler", handler.getClass().getName())) {
+      runnable.run();
+    }
+  }
+
   private Power power() {
     return power;
   }
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.kernel.boot;
+
+import static org.corant.shared.util.Strings.NEWLINE;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.corant.shared.util.Launches;
+
+/**
+ * corant-kernel
+ *
+ * <p>
+ * A simple boot profiler that records the durations of the boot phases, the boot handlers, the CDI
+ * container lifecycle phases and the observer methods invoked during the boot, the spans opened on
+ * the same thread are nested, the self time of a span is the duration of the span minus the
+ * durations of its direct children.
+ *
+ * <p>
+ * The profiler is opt-in, it is enabled by the application argument
+ * {@code -enable_boot_profile[=trace-file-path]}, when the boot is completed, a report sorted by
+ * the self time is logged and if the trace file path is given, a Chrome trace
+ * ({@code chrome://tracing}) JSON file is written, the last boot profile can also be obtained from
+ * the Power MBean.
+ *
+ * @author bingo 下午3:42:17
+ *
+ */
+public class BootProfiler {
+
+  private static volatile BootProfiler current; // NOSONAR
+  private static volatile BootProfiler last; // NOSONAR
+
+  protected final long startNanos = System.nanoTime();
+  protected final long startMillis = System.currentTimeMillis();
+  protected final List<Span> spans = Collections.synchronizedList(new ArrayList<>());
+  protected final ThreadLocal<Deque<Span>> stacks = ThreadLocal.withInitial(ArrayDeque::new);
+  protected volatile boolean finished;
+
+  /**
+   * Returns the current recording profiler or null if the profiler is not enabled or the boot has
+   * been completed.
+   */
+  public static BootProfiler current() {
+    return current;
+  }
+
+  /**
+   * Returns the profiler of the last boot or null if the last boot was not profiled.
+   */
+  public static BootProfiler last() {
+    return last;
+  }
+
+  /**
+   * Open a span on the current recording profiler, if the profiler is not recording returns null.
+   *
+   * @param category the span category
+   * @param name the span name
+   */
+  public static Span open(String category, String name) {
+    BootProfiler profiler = current;
+    return profiler == null ? null : profiler.start(category, name);
+  }
+
+  /**
+   * Start a new profiler as the current recording profiler.
+   */
+  public static synchronized BootProfiler startup() {
+    current = new BootProfiler();
+    return current;
+  }
+
+  static String escape(String string) {
+    StringBuilder sb = new StringBuilder(string.length() + 8);
+    for (char c : string.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Stop recording and make this profiler as the last profiler.
+   */
+  public synchronized void finish() {
+    if (!finished) {
+      finished = true;
+      synchronized (BootProfiler.class) {
+        if (current == this) {
+          current = null;
+        }
+        last = this;
+      }
+    }
+  }
+
+  /**
+   * Returns the completed spans in the start order.
+   */
+  public List<Span> getSpans() {
+    List<Span> completed = new ArrayList<>();
+    synchronized (spans) {
+      for (Span span : spans) {
+        if (span.durationNanos >= 0) {
+          completed.add(span);
+        }
+      }
+    }
+    return completed;
+  }
+
+  public long getStartMillis() {
+    return startMillis;
+  }
+
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Start a span, the returned span must be closed on the same thread.
+   *
+   * @param category the span category
+   * @param name the span name
+   */
+  public Span start(String category, String name) {
+    if (finished) {
+      return null;
+    }
+    Deque<Span> stack = stacks.get();
+    Span span = new Span(this, category, name, stack.size(), stack.peek());
+    stack.push(span);
+    spans.add(span);
+    return span;
+  }
+
+  /**
+   * Returns the Chrome trace event format JSON of the completed spans.
+   */
+  public String toChromeTrace() {
+    StringBuilder sb = new StringBuilder("{\"traceEvents\":[");
+    String pid = String.valueOf(Launches.getPid());
+    boolean first = true;
+    for (Span span : getSpans()) {
+      if (!first) {
+        sb.append(',');
+      }
+      first = false;
+      sb.append(NEWLINE).append("{\"name\":\"").append(escape(span.name)).append("\",\"cat\":\"")
+          .append(escape(span.category)).append("\",\"ph\":\"X\",\"ts\":")
+          .append(TimeUnit.NANOSECONDS.toMicros(span.startNanos - startNanos)).append(",\"dur\":")
+          .append(TimeUnit.NANOSECONDS.toMicros(span.durationNanos)).append(",\"pid\":\"")
+          .append(pid).append("\",\"tid\":\"").append(escape(span.thread)).append("\"}");
+    }
+    return sb.append(NEWLINE).append("],\"displayTimeUnit\":\"ms\"}").toString();
+  }
+
+  /**
+   * Returns the readable report of the top spans sorted by the self time.
+   *
+   * @param top the maximum number of spans in the report, non-positive means all
+   */
+  public String toReport(int top) {
+    List<Span> sorted = getSpans();
+    sorted.sort(Comparator.comparingLong(Span::getSelfNanos).reversed());
+    if (top > 0 && sorted.size() > top) {
+      sorted = sorted.subList(0, top);
+    }
+    StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "%12s %12s  %-10s %s",
+        "self(ms)", "total(ms)", "category", "name"));
+    for (Span span : sorted) {
+      sb.append(NEWLINE).append(String.format(Locale.ROOT, "%12.3f %12.3f  %-10s %s",
+          span.getSelfNanos() / 1e6, span.durationNanos / 1e6, span.category,
+          "  ".repeat(span.depth) + span.name));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Write the Chrome trace JSON to the given path.
+   *
+   * @param path the trace file path
+   * @throws IOException if an I/O error occurs
+   */
+  public void writeChromeTrace(Path path) throws IOException {
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.write(path, toChromeTrace().getBytes(StandardCharsets.UTF_8));
+  }
+
+  void end(Span span) {
+    Deque<Span> stack = stacks.get();
+    // pop the spans that were not closed properly
+    while (!stack.isEmpty() && stack.pop() != span) {
+      // Noop!
+    }
+    if (stack.isEmpty()) {
+      stacks.remove();
+    }
+  }
+
+  /**
+   * corant-kernel
+   *
+   * @author bingo 下午3:42:17
+   *
+   */
+  public static class Span implements AutoCloseable {
+
+    final BootProfiler profiler;
+    final String category;
+    final String name;
+    final int depth;
+    final Span parent;
+    final String thread = Thread.currentThread().getName();
+    final long startNanos = System.nanoTime();
+    volatile long durationNanos = -1;
+    volatile long childNanos;
+
+    Span(BootProfiler profiler, String category, String name, int depth, Span parent) {
+      this.profiler = profiler;
+      this.category = category;
+      this.name = name;
+      this.depth = depth;
+      this.parent = parent;
+    }
+
+    @Override
+    public void close() {
+      if (durationNanos < 0) {
+        durationNanos = System.nanoTime() - startNanos;
+        if (parent != null) {
+          parent.childNanos += durationNanos;
+        }
+        profiler.end(this);
+      }
+    }
+
+    public String getCategory() {
+      return category;
+    }
+
+    public int getDepth() {
+      return depth;
+    }
+
+    public long getDurationNanos() {
+      return durationNanos;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getSelfNanos() {
+      return Math.max(durationNanos - childNanos, 0);
+    }
+
+    public String getThread() {
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.kernel.boot;
+
+import javax.annotation.Priority;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.AfterTypeDiscovery;
+import javax.enterprise.inject.spi.AnnotatedMethod;
+import javax.enterprise.inject.spi.BeforeBeanDiscovery;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.ObserverMethod;
+import javax.enterprise.inject.spi.ProcessObserverMethod;
+
+/**
+ * corant-kernel
+ *
+ * <p>
+ * A CDI extension used by {@link BootProfiler} to record the durations of the container lifecycle
+ * phases and the observer methods of the beans. The container lifecycle phases are measured by the
+ * first and the last observers of the lifecycle events, all the observer methods of the beans are
+ * wrapped to record their durations until the boot is completed, after that the wrapped observer
+ * methods only delegate to the original observer methods.
+ *
+ * <p>
+ * Note: The observers of the container lifecycle events are not beans and can't be wrapped, so the
+ * durations of the extensions are reported per lifecycle phase rather than per extension.
+ *
+ * @author bingo 下午3:42:17
+ *
+ */
+public class BootProfilerExtension implements Extension {
+
+  protected BootProfiler.Span phase;
+
+  protected void afterPhase(String next) {
+    endPhase();
+    phase = BootProfiler.open("container", next);
+  }
+
+  protected void endPhase() {
+    if (phase != null) {
+      phase.close();
+      phase = null;
+    }
+  }
+
+  void onAfterBeanDiscovery(@Observes @Priority(Integer.MIN_VALUE) AfterBeanDiscovery event) {
+    afterPhase("after-bean-discovery");
+  }
+
+  void onAfterBeanDiscoveryCompleted(
+      @Observes @Priority(Integer.MAX_VALUE) AfterBeanDiscovery event) {
+    afterPhase("bean-validation");
+  }
+
+  void onAfterDeploymentValidation(
+      @Observes @Priority(Integer.MIN_VALUE) AfterDeploymentValidation event) {
+    afterPhase("after-deployment-validation");
+  }
+
+  void onAfterDeploymentValidationCompleted(
+      @Observes @Priority(Integer.MAX_VALUE) AfterDeploymentValidation event) {
+    endPhase();
+  }
+
+  void onAfterTypeDiscovery(@Observes @Priority(Integer.MIN_VALUE) AfterTypeDiscovery event) {
+    afterPhase("after-type-discovery");
+  }
+
+  void onAfterTypeDiscoveryCompleted(
+      @Observes @Priority(Integer.MAX_VALUE) AfterTypeDiscovery event) {
+    afterPhase("bean-discovery");
+  }
+
+  void onBeforeBeanDiscovery(@Observes @Priority(Integer.MIN_VALUE) BeforeBeanDiscovery event) {
+    afterPhase("before-bean-discovery");
+  }
+
+  void onBeforeBeanDiscoveryCompleted(
+      @Observes @Priority(Integer.MAX_VALUE) BeforeBeanDiscovery event) {
+    afterPhase("type-discovery");
+  }
+
+  <T, X> void onProcessObserverMethod(@Observes ProcessObserverMethod<T, X> event) {
+    final ObserverMethod<T> observer = event.getObserverMethod();
+    final AnnotatedMethod<X> method = event.getAnnotatedMethod();
+    final String name = observer.getBeanClass().getName()
+        + (method != null ? "#" + method.getJavaMember().getName() : "") + "("
+        + observer.getObservedType().getTypeName() + ")";
+    event.configureObserverMethod().notifyWith(context -> {
+      BootProfiler.Span span = BootProfiler.open("observer", name);
+      if (span == null) {
+        observer.notify(context);
+      } else {
+        try (span) {
+          observer.notify(context);
+        }
+      }
+    });
+  }
+}
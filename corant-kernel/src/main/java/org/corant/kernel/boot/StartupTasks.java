@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.kernel.boot;
+
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.corant.kernel.spi.StartupTask;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.util.Systems;
+import org.corant.shared.util.Threads;
+
+/**
+ * corant-kernel
+ *
+ * <p>
+ * Runs the given {@link StartupTask}s according to their dependencies, the independent tasks are
+ * run concurrently on a bounded pool whose size can be specified by the system property
+ * {@code corant.kernel.startup-task.threads}, the default is the number of the available
+ * processors but not less than 2 and not more than 8, if the size is 1 the tasks are run on the
+ * caller thread in the dependency order.
+ *
+ * @author bingo 下午4:12:36
+ *
+ */
+public class StartupTasks {
+
+  public static final String THREADS_PROPERTY = "corant.kernel.startup-task.threads";
+
+  static final Logger logger = Logger.getLogger(StartupTasks.class.getName());
+
+  protected final List<StartupTask> orderedTasks;
+  protected final Map<String, Throwable> failures = new LinkedHashMap<>();
+  protected final AtomicBoolean failed = new AtomicBoolean();
+
+  public StartupTasks(Collection<? extends StartupTask> tasks) {
+    orderedTasks = sort(tasks);
+  }
+
+  /**
+   * Returns the tasks sorted in the dependency order, the order of the given tasks is retained if
+   * possible.
+   *
+   * @param tasks the tasks to sort
+   * @throws CorantRuntimeException if the task names are duplicated or the dependencies can't be
+   *         resolved or there is a circular dependency
+   */
+  static List<StartupTask> sort(Collection<? extends StartupTask> tasks) {
+    Map<String, StartupTask> named = new LinkedHashMap<>();
+    for (StartupTask task : tasks) {
+      shouldBeTrue(named.put(task.getName(), task) == null, "The startup task %s is duplicated!",
+          task.getName());
+    }
+    Map<String, Integer> inDegrees = new LinkedHashMap<>();
+    Map<String, List<String>> dependents = new LinkedHashMap<>();
+    named.forEach((name, task) -> {
+      inDegrees.put(name, task.getDependencies().size());
+      for (String dependency : task.getDependencies()) {
+        shouldBeTrue(named.containsKey(dependency),
+            "The dependency %s of the startup task %s can't be found!", dependency, name);
+        dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(name);
+      }
+    });
+    Deque<String> ready = new ArrayDeque<>();
+    inDegrees.forEach((name, degree) -> {
+      if (degree == 0) {
+        ready.add(name);
+      }
+    });
+    List<StartupTask> sorted = new ArrayList<>(named.size());
+    while (!ready.isEmpty()) {
+      String name = ready.poll();
+      sorted.add(named.get(name));
+      for (String dependent : dependents.getOrDefault(name, List.of())) {
+        if (inDegrees.merge(dependent, -1, Integer::sum) == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    if (sorted.size() != named.size()) {
+      List<String> circular = new ArrayList<>();
+      inDegrees.forEach((name, degree) -> {
+        if (degree > 0) {
+          circular.add(name);
+        }
+      });
+      throw new CorantRuntimeException("The startup tasks %s have circular dependencies!",
+          String.join(",", circular));
+    }
+    return sorted;
+  }
+
+  static int resolveThreads(int tasks) {
+    // the initialization tasks are usually I/O bound
+    int threads = Math.min(Math.max(Runtime.getRuntime().availableProcessors(), 2), 8);
+    String value = Systems.getProperty(THREADS_PROPERTY);
+    if (value != null) {
+      try {
+        threads = Integer.parseInt(value.trim());
+      } catch (NumberFormatException e) {
+        final int useThreads = threads;
+        logger.warning(() -> String.format(
+            "The startup task threads %s is not a valid integer, use the default value %s.", value,
+            useThreads));
+      }
+    }
+    return Math.max(1, Math.min(threads, tasks));
+  }
+
+  public List<StartupTask> getOrderedTasks() {
+    return orderedTasks;
+  }
+
+  /**
+   * Run the tasks and wait for them to complete.
+   *
+   * @param classLoader the class loader used as the context class loader of the tasks
+   * @throws CorantRuntimeException if any task fails, the cause is the failure of the first failed
+   *         task in the dependency order, the failures of the other tasks are suppressed
+   */
+  public void run(ClassLoader classLoader) {
+    if (orderedTasks.isEmpty()) {
+      return;
+    }
+    int threads = resolveThreads(orderedTasks.size());
+    if (threads == 1) {
+      for (StartupTask task : orderedTasks) {
+        if (!execute(task)) {
+          break;
+        }
+      }
+    } else {
+      ExecutorService executor =
+          Executors.newFixedThreadPool(threads, Threads.daemonThreadFactory("corant-startup"));
+      try {
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        for (StartupTask task : orderedTasks) {
+          CompletableFuture<?>[] dependencies = task.getDependencies().stream()
+              .map(futures::get).toArray(CompletableFuture[]::new);
+          futures.put(task.getName(), CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            if (!execute(task)) {
+              throw new CompletionException(
+                  new CorantRuntimeException("The startup task %s failed!", task.getName()));
+            }
+          }, executor));
+        }
+        // the failed dependencies propagate to the dependents, the failures are collected in
+        // execute(), so here just wait for all the tasks to complete
+        CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+            .handle((r, t) -> null).join();
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    throwIfFailed();
+  }
+
+  /**
+   * Execute the given task and returns whether the task was completed successfully, the task is
+   * skipped if any task has failed.
+   */
+  protected boolean execute(StartupTask task) {
+    if (failed.get()) {
+      logger.fine(() -> String.format("Skip startup task %s since other task failed.",
+          task.getName()));
+      return false;
+    }
+    long start = System.currentTimeMillis();
+    try (BootProfiler.Span span = BootProfiler.open("task", task.getName())) {
+      task.run();
+      logger.fine(() -> String.format("The startup task %s has completed, takes %s ms.",
+          task.getName(), System.currentTimeMillis() - start));
+      return true;
+    } catch (Throwable t) {
+      failed.set(true);
+      synchronized (failures) {
+        failures.put(task.getName(), t);
+      }
+      logger.log(Level.SEVERE, t, () -> String.format("The startup task %s failed!",
+          task.getName()));
+      return false;
+    }
+  }
+
+  protected void throwIfFailed() {
+    synchronized (failures) {
+      if (failures.isEmpty()) {
+        return;
+      }
+      CorantRuntimeException ex = null;
+      for (StartupTask task : orderedTasks) {
+        Throwable t = failures.get(task.getName());
+        if (t == null) {
+          continue;
+        }
+        if (ex == null) {
+          ex = new CorantRuntimeException(t, "The startup task %s failed!", task.getName());
+        } else {
+          ex.addSuppressed(t);
+        }
+      }
+      throw ex;
+    }
+  }
+}
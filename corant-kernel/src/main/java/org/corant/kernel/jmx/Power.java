@@ -15,6 +15,7 @@ package org.corant.kernel.jmx;
 
 import java.util.Arrays;
 import org.corant.Corant;
+import org.corant.kernel.boot.BootProfiler;
 import org.corant.shared.util.Classes;
 import org.corant.shared.util.Functions;
 import org.corant.shared.util.Strings;
@@ -39,6 +40,18 @@ public class Power implements PowerMBean {
     }
   }
 
+  @Override
+  public String getLastBootProfile() {
+    BootProfiler profiler = BootProfiler.last();
+    return profiler == null ? null : profiler.toReport(0);
+  }
+
+  @Override
+  public String getLastBootProfileTrace() {
+    BootProfiler profiler = BootProfiler.last();
+    return profiler == null ? null : profiler.toChromeTrace();
+  }
+
   @Override
   public synchronized boolean isRunning() {
     try {
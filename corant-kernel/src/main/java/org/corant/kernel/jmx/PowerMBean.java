@@ -21,6 +21,18 @@ package org.corant.kernel.jmx;
  */
 public interface PowerMBean {
 
+  /**
+   * Returns the report of the last boot profile sorted by the self time, or null if the last boot
+   * was not profiled.
+   */
+  String getLastBootProfile();
+
+  /**
+   * Returns the Chrome trace JSON of the last boot profile, or null if the last boot was not
+   * profiled.
+   */
+  String getLastBootProfileTrace();
+
   boolean isRunning();
 
   void start();
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.kernel.spi;
+
+import static org.corant.shared.util.Classes.getUserClass;
+import java.util.Collections;
+import java.util.Set;
+import org.corant.kernel.event.PostContainerReadyEvent;
+import org.corant.kernel.event.PostCorantReadyEvent;
+
+/**
+ * corant-kernel
+ *
+ * <p>
+ * A module initialization task that runs during the boot, the implementations are CDI beans
+ * discovered from the container. All the tasks are run after the {@link PostContainerReadyEvent}
+ * was emitted and before the post-started boot handlers are invoked and the
+ * {@link PostCorantReadyEvent} is emitted.
+ *
+ * <p>
+ * The tasks that don't depend on each other are run concurrently on a bounded pool, a task is run
+ * only after all its dependencies are completed successfully. If a task fails, the tasks that have
+ * not yet started are skipped, the boot waits for the running tasks and then fails with the
+ * failure of the first failed task in the dependency order.
+ *
+ * @author bingo 下午4:12:36
+ *
+ */
+public interface StartupTask {
+
+  /**
+   * Returns the names of the tasks that this task depends on, the default is empty.
+   */
+  default Set<String> getDependencies() {
+    return Collections.emptySet();
+  }
+
+  /**
+   * Returns the unique name of this task, the default is the class name of the task (not the
+   * client proxy class name), the names are used to declare the dependencies.
+   */
+  default String getName() {
+    return getUserClass(this).getName();
+  }
+
+  /**
+   * Run the initialization, this method may be invoked on a thread other than the boot thread.
+   *
+   * @throws Exception if the initialization fails
+   */
+  void run() throws Exception;
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.kernel.boot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.corant.kernel.spi.StartupTask;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-kernel
+ *
+ * @author bingo 下午3:48:02
+ *
+ */
+public class StartupTasksTest extends TestCase {
+
+  static List<String> names(List<StartupTask> tasks) {
+    return tasks.stream().map(StartupTask::getName).collect(Collectors.toList());
+  }
+
+  static Task task(String name, String... dependencies) {
+    return new Task(name, () -> {
+    }, dependencies);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    System.clearProperty(StartupTasks.THREADS_PROPERTY);
+  }
+
+  @Test
+  public void testCircularDependencies() {
+    try {
+      StartupTasks.sort(Arrays.asList(task("a"), task("b", "c"), task("c", "d"), task("d", "b")));
+      fail();
+    } catch (CorantRuntimeException e) {
+      assertTrue(e.getMessage().contains("b,c,d"));
+    }
+    try {
+      StartupTasks.sort(Arrays.asList(task("a", "a")));
+      fail();
+    } catch (CorantRuntimeException e) {
+      assertTrue(e.getMessage().contains("a"));
+    }
+  }
+
+  @Test
+  public void testDependencyOrder() {
+    List<StartupTask> sorted = StartupTasks
+        .sort(Arrays.asList(task("a"), task("b", "c"), task("c"), task("d", "a", "b")));
+    assertEquals(Arrays.asList("a", "c", "b", "d"), names(sorted));
+    sorted = StartupTasks.sort(Arrays.asList(task("x"), task("y"), task("z")));
+    assertEquals(Arrays.asList("x", "y", "z"), names(sorted));
+  }
+
+  @Test
+  public void testDuplicatedAndUnknown() {
+    try {
+      StartupTasks.sort(Arrays.asList(task("a"), task("a")));
+      fail();
+    } catch (CorantRuntimeException e) {
+      assertTrue(e.getMessage().contains("duplicated"));
+    }
+    try {
+      StartupTasks.sort(Arrays.asList(task("a", "b")));
+      fail();
+    } catch (CorantRuntimeException e) {
+      assertTrue(e.getMessage().contains("b"));
+    }
+  }
+
+  @Test
+  public void testFirstFailureInDependencyOrder() {
+    System.setProperty(StartupTasks.THREADS_PROPERTY, "4");
+    CountDownLatch bothRunning = new CountDownLatch(2);
+    List<String> ran = new CopyOnWriteArrayList<>();
+    Exception first = new IllegalStateException("first");
+    Exception second = new IllegalStateException("second");
+    StartupTasks tasks = new StartupTasks(Arrays.asList(new Task("a", () -> {
+      bothRunning.countDown();
+      bothRunning.await(5, TimeUnit.SECONDS);
+      // fail after the other one
+      Thread.sleep(50);
+      throw first;
+    }), new Task("b", () -> {
+      bothRunning.countDown();
+      bothRunning.await(5, TimeUnit.SECONDS);
+      throw second;
+    }), new Task("c", () -> ran.add("c"), "b")));
+    try {
+      tasks.run(getClass().getClassLoader());
+      fail();
+    } catch (CorantRuntimeException e) {
+      assertSame(first, e.getCause());
+      assertEquals(1, e.getSuppressed().length);
+      assertSame(second, e.getSuppressed()[0]);
+    }
+    assertTrue(ran.isEmpty());
+  }
+
+  @Test
+  public void testInvalidThreads() {
+    System.setProperty(StartupTasks.THREADS_PROPERTY, "x");
+    int expected = Math.min(Math.max(Runtime.getRuntime().availableProcessors(), 2), 8);
+    assertEquals(Math.min(expected, 16), StartupTasks.resolveThreads(16));
+    System.setProperty(StartupTasks.THREADS_PROPERTY, " 3 ");
+    assertEquals(3, StartupTasks.resolveThreads(16));
+    assertEquals(2, StartupTasks.resolveThreads(2));
+    System.setProperty(StartupTasks.THREADS_PROPERTY, "0");
+    assertEquals(1, StartupTasks.resolveThreads(16));
+  }
+
+  @Test
+  public void testRunConcurrently() {
+    System.setProperty(StartupTasks.THREADS_PROPERTY, "4");
+    CountDownLatch independents = new CountDownLatch(2);
+    Map<String, Long> ends = new ConcurrentHashMap<>();
+    Map<String, Long> starts = new ConcurrentHashMap<>();
+    StartupTasks tasks = new StartupTasks(Arrays.asList(new Task("a", () -> {
+      // a and b only complete if they run at the same time
+      independents.countDown();
+      assertTrue(independents.await(5, TimeUnit.SECONDS));
+      ends.put("a", System.nanoTime());
+    }), new Task("b", () -> {
+      independents.countDown();
+      assertTrue(independents.await(5, TimeUnit.SECONDS));
+      ends.put("b", System.nanoTime());
+    }), new Task("c", () -> starts.put("c", System.nanoTime()), "a", "b")));
+    tasks.run(getClass().getClassLoader());
+    assertTrue(starts.get("c") >= ends.get("a"));
+    assertTrue(starts.get("c") >= ends.get("b"));
+  }
+
+  @Test
+  public void testSequentialSkipAfterFailure() {
+    System.setProperty(StartupTasks.THREADS_PROPERTY, "1");
+    List<String> ran = new CopyOnWriteArrayList<>();
+    StartupTasks tasks = new StartupTasks(Arrays.asList(new Task("a", () -> {
+      ran.add("a");
+      throw new IllegalStateException();
+    }), new Task("b", () -> ran.add("b"))));
+    try {
+      tasks.run(getClass().getClassLoader());
+      fail();
+    } catch (CorantRuntimeException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(Arrays.asList("a"), ran);
+  }
+
+  /**
+   * corant-kernel
+   *
+   * @author bingo 下午3:48:02
+   *
+   */
+  static class Task implements StartupTask {
+    final String name;
+    final Action action;
+    final Set<String> dependencies;
+
+    Task(String name, Action action, String... dependencies) {
+      this.name = name;
+      this.action = action;
+      this.dependencies = Set.of(dependencies);
+    }
+
+    @Override
+    public Set<String> getDependencies() {
+      return dependencies;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public void run() throws Exception {
+      action.run();
+    }
+  }
+
+  @FunctionalInterface
+  interface Action {
+    void run() throws Exception;
+  }
+}
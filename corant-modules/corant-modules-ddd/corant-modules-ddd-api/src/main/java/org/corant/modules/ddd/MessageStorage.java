@@ -13,6 +13,8 @@
  */
 package org.corant.modules.ddd;
 
+import static java.util.stream.Collectors.toList;
+import java.util.List;
 import java.util.function.UnaryOperator;
 import java.util.logging.Logger;
 import org.corant.modules.ddd.annotation.InfrastructureServices;
@@ -41,5 +43,16 @@ public interface MessageStorage extends UnaryOperator<Message> {
     return DUMMY_INST;
   }
 
+  /**
+   * Store the given messages of a unit of work and returns the stored messages in the same order,
+   * the implementations may override this method to store all the messages at once, the default
+   * implementation stores the messages one by one.
+   *
+   * @param messages the messages to store
+   */
+  default List<Message> applyAll(List<Message> messages) {
+    return messages.stream().map(this).collect(toList());
+  }
+
   default void prepare() {}
 }
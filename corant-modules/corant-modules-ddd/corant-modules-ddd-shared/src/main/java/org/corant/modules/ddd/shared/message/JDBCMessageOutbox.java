@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.message;
+
+import static org.corant.context.Beans.findNamed;
+import static org.corant.context.Beans.resolve;
+import static org.corant.shared.util.Strings.isNotBlank;
+import static org.corant.shared.util.Strings.left;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import org.corant.modules.ddd.AbstractAggregateMessage;
+import org.corant.modules.ddd.Message;
+import org.corant.modules.ddd.MessageStorage;
+import org.corant.modules.ddd.shared.model.SnowflakeIdentifierGenerator;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.service.RequiredConfiguration;
+import org.corant.shared.service.RequiredConfiguration.ValuePredicate;
+import org.corant.shared.util.Serializations;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * <p>
+ * The transactional outbox message storage, all the messages of a unit of work are inserted into
+ * the outbox table with one batched statement before the transaction is committed, the stored
+ * messages are published by the {@link MessageOutboxRelay} after the commit. The data source must
+ * be the JTA data source used by the persistence unit of the aggregates, so that the messages and
+ * the aggregate states are committed in the same transaction.
+ *
+ * <p>
+ * Each message is identified by a time ordered snowflake id, which is also used as the idempotency
+ * key of the published JMS message, see {@link #KEY_PROPERTY_NAME}. The messages of the same
+ * aggregate are stored in the same shard, so that they are published in order by one relay worker.
+ *
+ * <p>
+ * The attempts of a record that can't be resolved or published because of a non-transient failure
+ * are counted, the transient failures such as the broker outages are not counted. The record is
+ * moved to the dead-letter table when its attempts reach
+ * {@code corant.ddd.message.outbox.max-attempts}, so that a poison record doesn't block its shard,
+ * the dead-letter records can be inserted back into the outbox table to publish them again. The
+ * dispatched records are purged by the relay after the retention period. The tables are not
+ * created automatically, the DDL is like:
+ *
+ * <pre>
+ * CREATE TABLE DDD_MESSAGE_OUTBOX (
+ *   ID BIGINT NOT NULL PRIMARY KEY,
+ *   SHARD INT NOT NULL,
+ *   MESSAGE_TYPE VARCHAR(255) NOT NULL,
+ *   PAYLOAD BLOB NOT NULL,
+ *   CREATED_TIME TIMESTAMP NOT NULL,
+ *   DISPATCHED_TIME TIMESTAMP,
+ *   ATTEMPTS INT DEFAULT 0 NOT NULL,
+ *   LAST_ERROR VARCHAR(1024)
+ * );
+ * CREATE INDEX IX_DDD_MESSAGE_OUTBOX_SHARD ON DDD_MESSAGE_OUTBOX (SHARD, DISPATCHED_TIME, ID);
+ * CREATE INDEX IX_DDD_MESSAGE_OUTBOX_DISPATCHED ON DDD_MESSAGE_OUTBOX (DISPATCHED_TIME);
+ * CREATE TABLE DDD_MESSAGE_OUTBOX_DL (
+ *   ID BIGINT NOT NULL PRIMARY KEY,
+ *   SHARD INT NOT NULL,
+ *   MESSAGE_TYPE VARCHAR(255) NOT NULL,
+ *   PAYLOAD BLOB NOT NULL,
+ *   CREATED_TIME TIMESTAMP NOT NULL,
+ *   ATTEMPTS INT NOT NULL,
+ *   LAST_ERROR VARCHAR(1024)
+ * );
+ * </pre>
+ *
+ * @author bingo 下午4:12:37
+ *
+ */
+@ApplicationScoped
+@RequiredConfiguration(key = "corant.ddd.message.outbox.enable", predicate = ValuePredicate.EQ,
+    type = Boolean.class, value = "true")
+public class JDBCMessageOutbox implements MessageStorage {
+
+  public static final String KEY_PROPERTY_NAME = "__CORANT_DDD_OUTBOX_KEY__";
+  public static final int MAX_ERROR_LENGTH = 1024;
+
+  protected final Logger logger = Logger.getLogger(JDBCMessageOutbox.class.getName());
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.data-source", defaultValue = "")
+  protected String dataSourceName;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.table", defaultValue = "DDD_MESSAGE_OUTBOX")
+  protected String table;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.dead-letter-table",
+      defaultValue = "DDD_MESSAGE_OUTBOX_DL")
+  protected String deadLetterTable;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.shards", defaultValue = "4")
+  protected int shards;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.max-attempts", defaultValue = "16")
+  protected int maxAttempts;
+
+  @Inject
+  protected SnowflakeIdentifierGenerator identifierGenerator;
+
+  protected DataSource dataSource;
+  protected String insertSql;
+  protected String selectSql;
+  protected String updateSql;
+  protected String failSql;
+  protected String deadLetterSql;
+  protected String deleteSql;
+  protected String purgeSql;
+
+  @Override
+  public Message apply(Message message) {
+    return applyAll(Collections.singletonList(message)).get(0);
+  }
+
+  @Override
+  public List<Message> applyAll(List<Message> messages) {
+    final Timestamp now = new Timestamp(System.currentTimeMillis());
+    try (Connection conn = dataSource.getConnection();
+        PreparedStatement ps = conn.prepareStatement(insertSql)) {
+      for (Message message : messages) {
+        final long id = identifierGenerator.generate(null);
+        ps.setLong(1, id);
+        ps.setInt(2, resolveShard(message, id));
+        ps.setString(3, message.getClass().getName());
+        ps.setBytes(4, Serializations.serialize(message));
+        ps.setTimestamp(5, now);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      logger.fine(() -> String.format("Store %s messages to the outbox.", messages.size()));
+      return messages;
+    } catch (SQLException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns the number of the shards of the outbox
+   */
+  public int getShards() {
+    return shards;
+  }
+
+  /**
+   * Mark the given outbox records as dispatched, should be invoked in the transaction that
+   * publishes the messages.
+   *
+   * @param ids the outbox record ids
+   */
+  public void markDispatched(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    final Timestamp now = new Timestamp(System.currentTimeMillis());
+    try (Connection conn = dataSource.getConnection();
+        PreparedStatement ps = conn.prepareStatement(updateSql)) {
+      for (Long id : ids) {
+        ps.setTimestamp(1, now);
+        ps.setLong(2, id);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    } catch (SQLException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  /**
+   * Increase the attempts of the given outbox record that can't be resolved or published and move
+   * it to the dead-letter table if its attempts reach the max attempts, returns whether the record
+   * was moved. Should be invoked in a transaction.
+   *
+   * @param id the outbox record id
+   * @param error the error of the last attempt
+   */
+  public boolean markFailed(long id, Throwable error) {
+    try (Connection conn = dataSource.getConnection()) {
+      try (PreparedStatement ps = conn.prepareStatement(failSql)) {
+        ps.setString(1, left(String.valueOf(error), MAX_ERROR_LENGTH));
+        ps.setLong(2, id);
+        ps.executeUpdate();
+      }
+      try (PreparedStatement ps = conn.prepareStatement(deadLetterSql)) {
+        ps.setLong(1, id);
+        ps.setInt(2, Math.max(1, maxAttempts));
+        if (ps.executeUpdate() == 0) {
+          return false;
+        }
+      }
+      try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
+        ps.setLong(1, id);
+        ps.setInt(2, Math.max(1, maxAttempts));
+        ps.executeUpdate();
+      }
+      logger.warning(() -> String.format(
+          "The outbox message %s failed %s times, move it to the dead-letter table %s.", id,
+          maxAttempts, deadLetterTable));
+      return true;
+    } catch (SQLException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  /**
+   * Delete the outbox records that were dispatched before the given time, returns the number of
+   * the deleted records.
+   *
+   * @param before the dispatched time before which the records are deleted
+   */
+  public int purgeDispatched(Instant before) {
+    try (Connection conn = dataSource.getConnection();
+        PreparedStatement ps = conn.prepareStatement(purgeSql)) {
+      ps.setTimestamp(1, Timestamp.from(before));
+      final int purged = ps.executeUpdate();
+      logger.fine(() -> String.format("Purge %s dispatched outbox messages.", purged));
+      return purged;
+    } catch (SQLException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns at most the given limit undispatched outbox records of the given shard in storing
+   * order. The selection stops at the first record whose payload can't be deserialized, the record
+   * is returned with the failure, see {@link OutboxRecord#getFailure()}.
+   *
+   * @param shard the shard
+   * @param limit the max number of the records
+   */
+  public List<OutboxRecord> select(int shard, int limit) {
+    List<OutboxRecord> records = new ArrayList<>(limit);
+    try (Connection conn = dataSource.getConnection();
+        PreparedStatement ps = conn.prepareStatement(selectSql)) {
+      ps.setInt(1, shard);
+      ps.setMaxRows(limit);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next() && records.size() < limit) {
+          final long id = rs.getLong(1);
+          try {
+            records.add(new OutboxRecord(id, (Message) Serializations.deserialize(rs.getBytes(2))));
+          } catch (Exception e) {
+            logger.log(Level.SEVERE, e,
+                () -> String.format("Can't resolve the outbox message %s!", id));
+            // the subsequent records wait for it, to keep the storing order
+            records.add(new OutboxRecord(id, e));
+            break;
+          }
+        }
+      }
+    } catch (SQLException e) {
+      throw new CorantRuntimeException(e);
+    }
+    return records;
+  }
+
+  @PostConstruct
+  protected void onPostConstruct() {
+    dataSource = isNotBlank(dataSourceName)
+        ? findNamed(DataSource.class, dataSourceName).orElseThrow(
+            () -> new CorantRuntimeException("Can't find outbox data source %s.", dataSourceName))
+        : resolve(DataSource.class);
+    insertSql = "INSERT INTO " + table
+        + " (ID, SHARD, MESSAGE_TYPE, PAYLOAD, CREATED_TIME, ATTEMPTS) VALUES (?, ?, ?, ?, ?, 0)";
+    selectSql = "SELECT ID, PAYLOAD FROM " + table
+        + " WHERE SHARD = ? AND DISPATCHED_TIME IS NULL ORDER BY ID";
+    updateSql = "UPDATE " + table + " SET DISPATCHED_TIME = ? WHERE ID = ?";
+    failSql = "UPDATE " + table + " SET ATTEMPTS = ATTEMPTS + 1, LAST_ERROR = ? WHERE ID = ?";
+    deadLetterSql = "INSERT INTO " + deadLetterTable
+        + " (ID, SHARD, MESSAGE_TYPE, PAYLOAD, CREATED_TIME, ATTEMPTS, LAST_ERROR)"
+        + " SELECT ID, SHARD, MESSAGE_TYPE, PAYLOAD, CREATED_TIME, ATTEMPTS, LAST_ERROR FROM "
+        + table + " WHERE ID = ? AND ATTEMPTS >= ?";
+    deleteSql = "DELETE FROM " + table + " WHERE ID = ? AND ATTEMPTS >= ?";
+    purgeSql = "DELETE FROM " + table + " WHERE DISPATCHED_TIME < ?";
+  }
+
+  /**
+   * Returns the shard of the given message, the messages of the same aggregate are stored in the
+   * same shard, the other messages are distributed by the given id.
+   */
+  protected int resolveShard(Message message, long id) {
+    Object key = id;
+    if (message instanceof AbstractAggregateMessage
+        && ((AbstractAggregateMessage) message).getMetadata() != null
+        && ((AbstractAggregateMessage) message).getMetadata().getSource() != null) {
+      key = ((AbstractAggregateMessage) message).getMetadata().getSource().getId();
+    }
+    return Math.floorMod(Objects.hashCode(key), Math.max(1, shards));
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午4:12:37
+   *
+   */
+  public static class OutboxRecord {
+
+    final long id;
+    final Message message;
+    final Exception failure;
+
+    public OutboxRecord(long id, Exception failure) {
+      this.id = id;
+      message = null;
+      this.failure = failure;
+    }
+
+    public OutboxRecord(long id, Message message) {
+      this.id = id;
+      this.message = message;
+      failure = null;
+    }
+
+    /**
+     * Returns the failure if the payload of the record can't be resolved, otherwise returns null
+     */
+    public Exception getFailure() {
+      return failure;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public Message getMessage() {
+      return message;
+    }
+
+  }
+}
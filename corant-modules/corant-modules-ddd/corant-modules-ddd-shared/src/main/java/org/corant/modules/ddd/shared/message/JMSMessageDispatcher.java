@@ -23,6 +23,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -31,8 +33,13 @@ import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.literal.NamedLiteral;
 import javax.inject.Inject;
+import javax.jms.CompletionListener;
 import javax.jms.Destination;
 import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
 import javax.transaction.Transactional;
 import org.corant.modules.ddd.Message;
 import org.corant.modules.ddd.Message.BinaryMessage;
@@ -41,6 +48,9 @@ import org.corant.modules.jms.JMSNames;
 import org.corant.modules.jms.context.JMSContextService;
 import org.corant.modules.jms.marshaller.MessageMarshaller;
 import org.corant.modules.jms.metadata.MessageDestinationMetaData;
+import org.corant.modules.jms.send.MessageProducerPool;
+import org.corant.modules.jms.send.MessageProducerPool.PooledMessageProducer;
+import org.corant.modules.jta.shared.TransactionService;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.service.RequiredConfiguration;
@@ -51,6 +61,18 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 /**
  * corant-modules-ddd-shared
  *
+ * <p>
+ * Dispatches the domain messages to the JMS destinations. If the
+ * {@code corant.ddd.message.jms-dispatcher.async} is true and a {@link MessageProducerPool} is
+ * available, the messages are sent asynchronously with the pooled JMS contexts outside of the
+ * current transaction, the dispatching thread only blocks when the in-flight window of the
+ * destination is full. The asynchronous sending is only used when the current transaction was
+ * committed, e.g. the messages are dispatched after the completion of the JTA RL unit of work,
+ * otherwise the messages are sent synchronously with the XA JMS context so that they are committed
+ * or rolled back with the transaction, note that this dispatcher is transactional so a dispatching
+ * without transaction also runs in a new transaction. The failed asynchronous sends are logged,
+ * counted by {@link #getAsyncFailureCount()} and the metrics of the pool and are not retried.
+ *
  * @author bingo 下午12:01:54
  *
  */
@@ -86,10 +108,24 @@ public class JMSMessageDispatcher implements MessageDispatcher {
       defaultValue = JMSNames.MSG_MARSHAL_SCHEMA_ZIP_BINARY)
   protected String binaryMarshallerName;
 
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.jms-dispatcher.async", defaultValue = "false")
+  protected boolean async;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.jms-dispatcher.max-in-flight", defaultValue = "256")
+  protected int maxInFlight;
+
+  @Inject
+  @Any
+  protected Instance<MessageProducerPool> producerPool;
+
   protected MessageMarshaller marshaller;
 
   protected MessageMarshaller binaryMarshaller;
 
+  protected final LongAdder asyncFailures = new LongAdder();
+
   @Override
   public void accept(Message[] messages) {
     for (Message msg : messages) {
@@ -102,6 +138,10 @@ public class JMSMessageDispatcher implements MessageDispatcher {
 
   public void send(String broker, boolean multicast, String destination,
       Map<String, Object> properties, Message message) {
+    if (async && producerPool.isResolvable() && isAsyncAllowed()) {
+      sendAsync(broker, multicast, destination, properties, message);
+      return;
+    }
     JMSContext ctx = obtainJmsContext(broker);
     final Destination dest = resolveDestination(message, ctx, multicast, destination);
     logger.finer(() -> String.format("Resolved JMS message destination %s for domain message %s",
@@ -114,6 +154,47 @@ public class JMSMessageDispatcher implements MessageDispatcher {
     ctx.createProducer().send(dest, jmsMsg);
   }
 
+  /**
+   * Returns the number of the failed sends in the asynchronous mode.
+   */
+  public long getAsyncFailureCount() {
+    return asyncFailures.sum();
+  }
+
+  /**
+   * Send the given message asynchronously with the pooled JMS context of the destination, the
+   * message isn't enlisted in the current transaction.
+   */
+  public void sendAsync(String broker, boolean multicast, String destination,
+      Map<String, Object> properties, Message message) {
+    final MessageProducerPool pool = producerPool.get();
+    final PooledMessageProducer pooled = pool.borrow(broker, multicast, destination, false);
+    boolean broken = false;
+    try {
+      final JMSContext ctx = pooled.getContext();
+      final Destination dest = resolveDestination(message, ctx, multicast, destination);
+      final javax.jms.Message jmsMsg = createJMSMessage(ctx, message);
+      if (isNotEmpty(properties)) {
+        properties.forEach(uncheckedBiConsumer(jmsMsg::setObjectProperty));
+      }
+      onPreDispatch(jmsMsg);
+      final JMSProducer producer = ctx.createProducer();
+      final CompletionListener listener =
+          pooled.acquire(maxInFlight, new AsyncCompletionListener(message, destination));
+      try {
+        producer.setAsync(listener).send(dest, jmsMsg);
+      } catch (RuntimeException e) {
+        listener.onException(jmsMsg, e);
+        throw e;
+      }
+    } catch (RuntimeException e) {
+      broken = MessageProducerPool.isBroken(e);
+      throw e;
+    } finally {
+      pool.release(pooled, broken);
+    }
+  }
+
   protected Destination createDestination(JMSContext ctx, boolean multicast, String destination) {
     return multicast ? ctx.createTopic(destination) : ctx.createQueue(destination);
   }
@@ -142,6 +223,24 @@ public class JMSMessageDispatcher implements MessageDispatcher {
     return metas.computeIfAbsent(clazz, MessageDestinationMetaData::from);
   }
 
+  /**
+   * Returns whether the message can be sent asynchronously outside of the current transaction,
+   * only if there is no transaction or the current transaction was committed.
+   */
+  protected boolean isAsyncAllowed() {
+    final Transaction tx = TransactionService.currentTransaction();
+    if (tx == null) {
+      return true;
+    }
+    try {
+      final int status = tx.getStatus();
+      return status == Status.STATUS_NO_TRANSACTION || status == Status.STATUS_COMMITTED;
+    } catch (SystemException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+
   protected JMSContext obtainJmsContext(String broker) {
     if (contextService.isResolvable()) {
       return shouldNotNull(contextService.get().getJMSContext(broker));
@@ -160,6 +259,13 @@ public class JMSMessageDispatcher implements MessageDispatcher {
     metas.clear();
   }
 
+  protected void onAsyncFailed(Message message, String destination, Exception exception) {
+    asyncFailures.increment();
+    logger.log(Level.SEVERE, exception,
+        () -> String.format("Asynchronous dispatching of the domain message %s to %s failed.",
+            message.getClass(), destination));
+  }
+
   protected void onPreDispatch(javax.jms.Message jmsMsg) {
     if (!preDispatchHandlers.isUnsatisfied()) {
       preDispatchHandlers.stream().sorted(Sortable::compare).forEach(h -> h.accept(jmsMsg));
@@ -181,4 +287,32 @@ public class JMSMessageDispatcher implements MessageDispatcher {
     }
     return createDestination(ctx, multicast, destination);
   }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午12:01:54
+   *
+   */
+  protected class AsyncCompletionListener implements CompletionListener {
+
+    final Message message;
+    final String destination;
+
+    protected AsyncCompletionListener(Message message, String destination) {
+      this.message = message;
+      this.destination = destination;
+    }
+
+    @Override
+    public void onCompletion(javax.jms.Message jmsMsg) {
+      logger.finer(() -> String.format("Dispatched the domain message %s to %s asynchronously.",
+          message.getClass(), destination));
+    }
+
+    @Override
+    public void onException(javax.jms.Message jmsMsg, Exception exception) {
+      onAsyncFailed(message, destination, exception);
+    }
+  }
 }
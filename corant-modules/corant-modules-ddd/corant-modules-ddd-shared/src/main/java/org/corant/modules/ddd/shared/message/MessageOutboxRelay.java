@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.message;
+
+import static org.corant.context.Beans.find;
+import static org.corant.shared.util.Strings.isNotBlank;
+import static org.corant.shared.util.Strings.split;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.jms.JMSException;
+import javax.jms.JMSRuntimeException;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageFormatRuntimeException;
+import org.corant.context.ContainerEvents.PostContainerStartedEvent;
+import org.corant.modules.ddd.Message;
+import org.corant.modules.ddd.MessageDispatcher;
+import org.corant.modules.ddd.shared.message.JDBCMessageOutbox.OutboxRecord;
+import org.corant.modules.jms.metadata.MessageDestinationMetaData;
+import org.corant.modules.jta.shared.TransactionService;
+import org.corant.shared.normal.Names;
+import org.corant.shared.retry.BackoffStrategy;
+import org.corant.shared.retry.BackoffStrategy.CappedExpoBackoffStrategy;
+import org.corant.shared.service.RequiredConfiguration;
+import org.corant.shared.service.RequiredConfiguration.ValuePredicate;
+import org.corant.shared.util.Threads;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * <p>
+ * Publishes the messages stored in the {@link JDBCMessageOutbox}. The shards of the outbox are
+ * distributed to the relay workers, each worker polls the undispatched records of its shards in
+ * storing order with the configured interval or when it's signalled after a unit of work was
+ * committed, publishes them in batches in a new transaction and marks them as dispatched in the
+ * same transaction. If a batch fails with a non-transient failure, for example the payload can't be
+ * deserialized or marshalled, its records are published one by one to find out the failed record,
+ * the failure is counted by {@link JDBCMessageOutbox#markFailed(long, Throwable)} and the
+ * subsequent records of the shard wait for the next polling, so that the storing order is kept. If
+ * a batch fails with a transient failure, for example the broker or the database is unavailable,
+ * the failure isn't counted, the records are kept and the polling of the shard is backed off
+ * exponentially up to {@code corant.ddd.message.outbox.relay.max-backoff}, so that an outage
+ * doesn't move the head record of a shard to the dead-letter table ahead of its successors. The
+ * dispatched records are purged periodically after
+ * {@code corant.ddd.message.outbox.relay.dispatched-retention}.
+ *
+ * <p>
+ * If the {@link JMSMessageDispatcher} is enabled, the messages are published with the outbox
+ * record id as the JMS property {@link JDBCMessageOutbox#KEY_PROPERTY_NAME}. Since the JMS
+ * resource may not participate in the transaction, a message may be published more than once, the
+ * message receivers should use the key to drop the duplicates. If the instances of the application
+ * share the outbox table, use {@code corant.ddd.message.outbox.relay.owned-shards} to distribute
+ * the shards to the instances.
+ *
+ * @author bingo 下午4:46:05
+ *
+ */
+@ApplicationScoped
+@RequiredConfiguration(key = "corant.ddd.message.outbox.enable", predicate = ValuePredicate.EQ,
+    type = Boolean.class, value = "true")
+public class MessageOutboxRelay {
+
+  protected final Logger logger = Logger.getLogger(MessageOutboxRelay.class.getName());
+  protected final List<Worker> workers = new ArrayList<>();
+
+  @Inject
+  protected JDBCMessageOutbox outbox;
+
+  @Inject
+  @Any
+  protected Instance<JMSMessageDispatcher> jmsDispatcher;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.workers", defaultValue = "2")
+  protected int workerSize;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.batch-size", defaultValue = "128")
+  protected int batchSize;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.poll-interval", defaultValue = "PT5S")
+  protected Duration pollInterval;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.owned-shards")
+  protected Optional<String> ownedShards;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.purge-interval", defaultValue = "PT1H")
+  protected Duration purgeInterval;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.dispatched-retention",
+      defaultValue = "P1D")
+  protected Duration dispatchedRetention;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.max-backoff", defaultValue = "PT5M")
+  protected Duration maxBackoff;
+
+  protected volatile ScheduledExecutorService executor;
+  protected volatile BackoffStrategy backoffStrategy;
+
+  /**
+   * Wake up all the relay workers to publish the undispatched messages, the signal is ignored if
+   * the worker is running, the running worker checks the outbox again before it stops.
+   */
+  public void signal() {
+    final ScheduledExecutorService service = executor;
+    if (service != null) {
+      for (Worker worker : workers) {
+        try {
+          service.execute(worker);
+        } catch (RejectedExecutionException e) {
+          logger.log(Level.FINE, e, () -> "The outbox relay was stopped!");
+        }
+      }
+    }
+  }
+
+  protected void onPostContainerStarted(@Observes PostContainerStartedEvent event) {
+    final List<Integer> shards = resolveOwnedShards();
+    final int size = Math.max(1, Math.min(workerSize, shards.size()));
+    for (int i = 0; i < size; i++) {
+      workers.add(new Worker());
+    }
+    for (int i = 0; i < shards.size(); i++) {
+      workers.get(i % size).shards.add(shards.get(i));
+    }
+    backoffStrategy = new CappedExpoBackoffStrategy(2.0, pollInterval,
+        maxBackoff.compareTo(pollInterval) > 0 ? maxBackoff : pollInterval);
+    // one more thread for purging
+    executor = Executors.newScheduledThreadPool(size + 1,
+        Threads.daemonThreadFactory(Names.CORANT_PREFIX + "ddd-outbox-relay"));
+    final long interval = pollInterval.toMillis();
+    workers.forEach(
+        w -> executor.scheduleWithFixedDelay(w, 0, interval, TimeUnit.MILLISECONDS));
+    final long purging = purgeInterval.toMillis();
+    executor.scheduleWithFixedDelay(this::purge, purging, purging, TimeUnit.MILLISECONDS);
+    logger.info(() -> String.format("Start %s message outbox relay workers for shards %s.", size,
+        shards));
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    final ScheduledExecutorService service = executor;
+    executor = null;
+    if (service != null) {
+      service.shutdown();
+      try {
+        if (!service.awaitTermination(pollInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+          logger.warning(() -> "Terminate message outbox relay timeout!");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    workers.clear();
+  }
+
+  /**
+   * Publish the given outbox records and mark them as dispatched in a new transaction.
+   *
+   * @param records the records to dispatch
+   */
+  protected void dispatch(List<OutboxRecord> records) {
+    requiresNew(() -> {
+      publish(records);
+      List<Long> ids = new ArrayList<>(records.size());
+      records.forEach(r -> ids.add(r.getId()));
+      outbox.markDispatched(ids);
+    });
+  }
+
+  /**
+   * Count the failure of the given outbox record in a new transaction.
+   *
+   * @param record the failed record
+   * @param failure the failure
+   */
+  protected void fail(OutboxRecord record, Exception failure) {
+    logger.log(Level.WARNING, failure,
+        () -> String.format("Relay outbox message %s occurred error!", record.getId()));
+    requiresNew(() -> outbox.markFailed(record.getId(), failure));
+  }
+
+  /**
+   * Returns whether the given failure is transient, for example the broker or the database is
+   * unavailable. The transient failures of a shard are not counted, the shard is backed off and its
+   * records are published again later. The message format and the serialization failures are not
+   * transient.
+   *
+   * @param failure the failure to check
+   */
+  protected boolean isTransient(Throwable failure) {
+    boolean transientFailure = false;
+    final Set<Throwable> causes = Collections.newSetFromMap(new IdentityHashMap<>());
+    Throwable cause = failure;
+    while (cause != null && causes.add(cause)) {
+      if (cause instanceof MessageFormatException || cause instanceof MessageFormatRuntimeException
+          || cause instanceof ObjectStreamException) {
+        return false;
+      }
+      if (cause instanceof JMSException || cause instanceof JMSRuntimeException
+          || cause instanceof IOException || cause instanceof SQLTransientException
+          || cause instanceof SQLRecoverableException
+          || cause instanceof SQLNonTransientConnectionException) {
+        transientFailure = true;
+      }
+      cause = cause instanceof JMSException && cause.getCause() == null
+          ? ((JMSException) cause).getLinkedException()
+          : cause.getCause();
+    }
+    return transientFailure;
+  }
+
+  /**
+   * Publish the given outbox records, the records are published with the
+   * {@link JMSMessageDispatcher} if it's enabled, otherwise with the {@link MessageDispatcher}.
+   *
+   * @param records the records to publish
+   */
+  protected void publish(List<OutboxRecord> records) {
+    if (jmsDispatcher.isResolvable()) {
+      final JMSMessageDispatcher dispatcher = jmsDispatcher.get();
+      for (OutboxRecord record : records) {
+        final Message message = record.getMessage();
+        for (MessageDestinationMetaData dest : dispatcher.from(message.getClass())) {
+          Map<String, Object> properties = new HashMap<>(dest.getProperties());
+          properties.put(JDBCMessageOutbox.KEY_PROPERTY_NAME, record.getId());
+          dispatcher.send(dest.getConnectionFactoryId(), dest.isMulticast(), dest.getName(),
+              properties, message);
+        }
+      }
+    } else {
+      find(MessageDispatcher.class).orElse(MessageDispatcher.empty())
+          .accept(records.stream().map(OutboxRecord::getMessage).toArray(Message[]::new));
+    }
+  }
+
+  protected void purge() {
+    try {
+      requiresNew(() -> outbox.purgeDispatched(Instant.now().minus(dispatchedRetention)));
+    } catch (Exception e) {
+      logger.log(Level.WARNING, e, () -> "Purge dispatched outbox messages occurred error!");
+    }
+  }
+
+  /**
+   * Publish a batch of the undispatched messages of the given shard, returns the number of the
+   * published messages, returns 0 if any message of the batch failed with a non-transient failure.
+   * The transient failures are thrown without being counted, see {@link #isTransient(Throwable)}.
+   *
+   * @param shard the outbox shard
+   */
+  protected int relay(int shard) {
+    final List<OutboxRecord> records = outbox.select(shard, batchSize);
+    if (records.isEmpty()) {
+      return 0;
+    }
+    final OutboxRecord last = records.get(records.size() - 1);
+    final List<OutboxRecord> resolved =
+        last.getFailure() == null ? records : records.subList(0, records.size() - 1);
+    if (!resolved.isEmpty()) {
+      try {
+        dispatch(resolved);
+      } catch (RuntimeException e) {
+        if (isTransient(e)) {
+          throw e;
+        }
+        logger.log(Level.FINE, e, () -> String
+            .format("Relay outbox messages of shard %s failed, relay them one by one.", shard));
+        for (OutboxRecord record : resolved) {
+          try {
+            dispatch(Collections.singletonList(record));
+          } catch (RuntimeException ex) {
+            if (isTransient(ex)) {
+              throw ex;
+            }
+            fail(record, ex);
+            return 0;
+          }
+        }
+      }
+    }
+    if (last.getFailure() != null) {
+      fail(last, last.getFailure());
+      return 0;
+    }
+    logger.fine(() -> String.format("Relay %s outbox messages of shard %s.", records.size(),
+        shard));
+    return records.size();
+  }
+
+  /**
+   * Run the given runner in a new transaction.
+   *
+   * @param runner the runner
+   */
+  protected void requiresNew(Runnable runner) {
+    TransactionService.actuator().requiresNew().run(runner);
+  }
+
+  protected List<Integer> resolveOwnedShards() {
+    final List<Integer> shards = new ArrayList<>();
+    if (ownedShards.isPresent() && isNotBlank(ownedShards.get())) {
+      for (String shard : split(ownedShards.get(), ",", true, true)) {
+        shards.add(Integer.valueOf(shard));
+      }
+    } else {
+      for (int i = 0; i < outbox.getShards(); i++) {
+        shards.add(i);
+      }
+    }
+    return shards;
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午4:46:05
+   *
+   */
+  protected class Worker implements Runnable {
+
+    final List<Integer> shards = new ArrayList<>();
+    final Map<Integer, ShardBackoff> backoffs = new HashMap<>();
+    final AtomicBoolean running = new AtomicBoolean();
+    volatile boolean signalled;
+
+    @Override
+    public void run() {
+      if (!running.compareAndSet(false, true)) {
+        signalled = true;
+        return;
+      }
+      try {
+        do {
+          signalled = false;
+          for (int shard : shards) {
+            relay(shard);
+          }
+        } while (signalled && executor != null);
+      } finally {
+        running.set(false);
+      }
+    }
+
+    void relay(int shard) {
+      final ShardBackoff backoff = backoffs.get(shard);
+      if (backoff != null && System.nanoTime() - backoff.resumeNanos < 0) {
+        return;
+      }
+      try {
+        while (executor != null && MessageOutboxRelay.this.relay(shard) >= batchSize) {
+          // drain the shard
+        }
+        backoffs.remove(shard);
+      } catch (Exception e) {
+        if (isTransient(e)) {
+          final ShardBackoff next = backoffs.computeIfAbsent(shard, k -> new ShardBackoff());
+          final long delay = backoffStrategy.computeBackoffMillis(++next.attempts);
+          next.resumeNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+          logger.log(Level.WARNING, e, () -> String.format(
+              "Relay outbox messages of shard %s failed %s times, back off %s ms.", shard,
+              next.attempts, delay));
+        } else {
+          logger.log(Level.WARNING, e,
+              () -> String.format("Relay outbox messages of shard %s occurred error!", shard));
+        }
+      }
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午4:46:05
+   *
+   */
+  static class ShardBackoff {
+    int attempts;
+    long resumeNanos;
+  }
+}
@@ -28,6 +28,8 @@ import org.corant.modules.ddd.AggregateLifecycleManageEvent;
 import org.corant.modules.ddd.AggregateLifecycleManager;
 import org.corant.modules.ddd.annotation.InfrastructureServices;
 import org.corant.modules.ddd.shared.repository.EntityManagers;
+import org.corant.modules.ddd.shared.unitwork.AbstractJPAUnitOfWork;
+import org.corant.modules.ddd.shared.unitwork.UnitOfWorks;
 import org.corant.shared.normal.Priorities;
 
 /**
@@ -51,6 +53,9 @@ public class DefaultAggregateLifecycleManager implements AggregateLifecycleManag
   @Inject
   protected EntityManagers entityManagers;
 
+  @Inject
+  protected UnitOfWorks unitOfWorks;
+
   @Override
   public void handle(@Observes(
       during = TransactionPhase.IN_PROGRESS) @Priority(Priorities.FRAMEWORK_HIGHER) AggregateLifecycleManageEvent e) {
@@ -68,22 +73,13 @@ public class DefaultAggregateLifecycleManager implements AggregateLifecycleManag
     if (action == LifecycleAction.PERSIST) {
       if (entity.getLifecycle() == Lifecycle.INITIAL) {
         em.persist(entity);
-        if (effectImmediately) {
-          em.flush();
-        }
-      } else {
-        if (!em.contains(entity) || forceMerge) {
-          em.merge(entity); // performance turning
-        }
-        if (effectImmediately) {
-          em.flush();
-        }
+      } else if (!em.contains(entity) || forceMerge) {
+        em.merge(entity); // performance turning
       }
+      flushOrMarkDirty(em, effectImmediately);
     } else if (action == LifecycleAction.REMOVE) {
       em.remove(entity);
-      if (effectImmediately) {
-        em.flush();
-      }
+      flushOrMarkDirty(em, effectImmediately);
     } else if (action == LifecycleAction.RECOVER) {
       em.refresh(entity);
     } else if (!entity.isPhantom()) {
@@ -91,4 +87,16 @@ public class DefaultAggregateLifecycleManager implements AggregateLifecycleManag
     }
   }
 
+  /**
+   * Flush the given entity manager if the given effectImmediately is true, otherwise mark it as
+   * dirty in the current unit of work if the flush tracking is enabled.
+   */
+  protected void flushOrMarkDirty(EntityManager em, boolean effectImmediately) {
+    if (effectImmediately) {
+      em.flush();
+    } else if (AbstractJPAUnitOfWork.isFlushTracking()) {
+      unitOfWorks.currentDefaultUnitOfWork().ifPresent(uow -> uow.markDirty(em));
+    }
+  }
+
 }
@@ -23,6 +23,7 @@ import org.corant.config.Configs;
 import org.corant.shared.ubiquity.Sortable;
 import org.corant.shared.util.Fields;
 import org.corant.shared.util.Identifiers.GeneralSnowflakeUUIDGenerator;
+import org.corant.shared.util.Identifiers.LeasedSnowflakeUUIDGenerator;
 import org.corant.shared.util.Identifiers.SnowflakeD5W5S12UUIDGenerator;
 import org.corant.shared.util.Identifiers.SnowflakeIpv4HostUUIDGenerator;
 import org.corant.shared.util.Identifiers.SnowflakeW10S12UUIDGenerator;
@@ -44,13 +45,19 @@ public class SnowflakeIdentifierGenerator {
   public static final String IG_SF_WK_ID = "corant.identifier.generator.snowflake.worker-id";
   public static final String IG_SF_DC_ID = "corant.identifier.generator.snowflake.datacenter-id";
   public static final String IG_SF_DL_TM = "corant.identifier.generator.snowflake.delayed-timing";
+  public static final String IG_SF_LS = "corant.identifier.generator.snowflake.lease-size";
+  public static final String IG_SF_LA = "corant.identifier.generator.snowflake.lease-max-age";
   static Logger logger = Logger.getLogger(SnowflakeIdentifierGenerator.class.getName());
 
   final boolean retainEntitySelfId = Configs.getValue(IG_SF_RESI, Boolean.TYPE, false);
   final String entityIdPropertyName = Configs.getValue(IG_SF_EIPN, String.class, "id");
+  final int leaseSize = Configs.getValue(IG_SF_LS, Integer.class, 0);
+  final long leaseMaxAge = Configs.getValue(IG_SF_LA, Long.class,
+      LeasedSnowflakeUUIDGenerator.DEFAULT_MAX_LEASE_AGE_MS);
 
   TimeService specTimeGenerator;
   GeneralSnowflakeUUIDGenerator generator;
+  LeasedSnowflakeUUIDGenerator leasedGenerator;
 
   public long generate(Object object) {
     if (retainEntitySelfId) {
@@ -59,10 +66,45 @@ public class SnowflakeIdentifierGenerator {
         return (Long) id;
       }
     }
+    if (leaseSize > 0 || leasedGenerator.remaining() > 0) {
+      return leasedGenerator.generate(
+          () -> specTimeGenerator.get(object, generator.getUnit() == ChronoUnit.SECONDS));
+    }
     return generator
         .generate(() -> specTimeGenerator.get(object, generator.getUnit() == ChronoUnit.SECONDS));
   }
 
+  /**
+   * Generate the given number of ids at once, the ids are in ascending order.
+   *
+   * @param size the number of the ids
+   */
+  public long[] generate(int size) {
+    return generator.generate(
+        () -> specTimeGenerator.get(null, generator.getUnit() == ChronoUnit.SECONDS), size);
+  }
+
+  /**
+   * Lease at least the given number of ids to the current thread in one block, the subsequent
+   * {@link #generate(Object)} invocations of the current thread use the leased ids first, generally
+   * used before persisting a large number of entities in one flush. The ids are generated with
+   * the time of the invocation instead of the time of the entities, the unused leased ids are
+   * discarded once the lease is older than the configured lease max age in milliseconds.
+   *
+   * @param size the number of the ids that will be used by the current thread
+   */
+  public void preallocate(int size) {
+    leasedGenerator.preallocate(
+        () -> specTimeGenerator.get(null, generator.getUnit() == ChronoUnit.SECONDS), size);
+  }
+
+  /**
+   * Discard the unused leased ids of the current thread.
+   */
+  public void release() {
+    leasedGenerator.release();
+  }
+
   @PostConstruct
   synchronized void initialize() {
     specTimeGenerator = findAnyway(TimeService.class)
@@ -82,6 +124,8 @@ public class SnowflakeIdentifierGenerator {
     } else {
       generator = new SnowflakeIpv4HostUUIDGenerator(delayedTiming);
     }
+    leasedGenerator =
+        new LeasedSnowflakeUUIDGenerator(generator, Math.max(1, leaseSize), leaseMaxAge);
     logger.info(
         () -> String.format("Create global identifier generator %s.", generator.description()));
   }
@@ -13,27 +13,41 @@
  */
 package org.corant.modules.ddd.shared.repository;
 
+import static org.corant.context.Beans.find;
 import static org.corant.shared.util.Classes.tryAsClass;
+import static org.corant.shared.util.Conversions.toObject;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Objects.defaultObject;
 import static org.corant.shared.util.Objects.forceCast;
+import static org.corant.shared.util.Primitives.wrap;
 import static org.corant.shared.util.Sets.linkedHashSetOf;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
+import javax.persistence.PersistenceUnitUtil;
 import javax.persistence.Query;
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Type.PersistenceType;
 import org.corant.modules.ddd.Aggregate;
 import org.corant.modules.ddd.Aggregate.AggregateIdentifier;
 import org.corant.modules.ddd.Entity;
 import org.corant.modules.ddd.Repository;
+import org.corant.modules.jpa.shared.EntityMultiLoader;
 import org.corant.modules.jpa.shared.JPAQueries;
 import org.corant.modules.jpa.shared.JPAQueries.AdvancedJPAQuery;
 import org.corant.modules.jpa.shared.JPAQueries.JPAQuery;
@@ -198,6 +212,14 @@ public interface JPARepository extends Repository<Query> {
     return getEntityManager().getEntityManagerFactory();
   }
 
+  /**
+   * Returns the max number of the primary keys loaded in one statement used by
+   * {@link #select(Class, Serializable...)}, default is 256.
+   */
+  default int getMultiLoadChunkSize() {
+    return 256;
+  }
+
   /**
    * {@link EntityManager#getReference(Class, Object)}
    */
@@ -411,7 +433,18 @@ public interface JPARepository extends Repository<Query> {
   }
 
   /**
-   * Retrieves the entities by primary keys
+   * Retrieves the entities by primary keys, the entities are returned in the order of the given
+   * primary keys and the missing entities are ignored. The given primary keys are converted to the
+   * id type of the entity class if necessary.
+   *
+   * <p>
+   * If there is an {@link EntityMultiLoader} that accepts the entity manager, the entities are
+   * loaded with it, so that the entities that are already managed by the persistence context are
+   * returned without hitting the database. Otherwise, the entities that exist in the second level
+   * cache are retrieved with {@link EntityManager#find(Class, Object)}, the others are loaded with
+   * the chunked {@code WHERE id IN (...)} queries that don't flush the persistence context, the
+   * size of the chunk is {@link #getMultiLoadChunkSize()}. If the entity class doesn't have a
+   * single basic id attribute, for example an embedded id, the entities are retrieved one by one.
    *
    * @param <T> the result type
    * @param entityClass the entity class
@@ -421,10 +454,60 @@ public interface JPARepository extends Repository<Query> {
   default <T> List<T> select(Class<T> entityClass, Serializable... ids) {
     if (isEmpty(ids)) {
       return new ArrayList<>();
-    } else {
-      return linkedHashSetOf(ids).stream().map(i -> get(entityClass, i)).filter(Objects::isNotNull)
+    }
+    final EntityManager em = getEntityManager();
+    final EntityType<T> type = em.getMetamodel().entity(entityClass);
+    if (!type.hasSingleIdAttribute()
+        || type.getIdType().getPersistenceType() != PersistenceType.BASIC) {
+      return linkedHashSetOf(ids).stream().map(i -> get(entityClass, i))
+          .filter(Objects::isNotNull).collect(Collectors.toList());
+    }
+    final Class<?> idClass = wrap(type.getIdType().getJavaType());
+    final Set<Serializable> idSet = new LinkedHashSet<>(ids.length << 1);
+    for (Serializable id : ids) {
+      if (id != null) {
+        idSet.add(idClass.isInstance(id) ? id : (Serializable) toObject(id, idClass));
+      }
+    }
+    if (idSet.size() <= 1) {
+      return idSet.stream().map(i -> get(entityClass, i)).filter(Objects::isNotNull)
           .collect(Collectors.toList());
     }
+    final int chunkSize = Math.max(1, getMultiLoadChunkSize());
+    final Optional<EntityMultiLoader> loader =
+        find(EntityMultiLoader.class).filter(l -> l.accept(em));
+    if (loader.isPresent()) {
+      return loader.get().load(em, entityClass, new ArrayList<>(idSet), chunkSize);
+    }
+    final Map<Object, T> loaded = new HashMap<>(idSet.size() << 1);
+    final List<Serializable> remainders = new ArrayList<>(idSet.size());
+    final Cache cache = getEntityManagerFactory().getCache();
+    for (Serializable id : idSet) {
+      T entity;
+      if (cache != null && cache.contains(entityClass, id)
+          && (entity = get(entityClass, id)) != null) {
+        loaded.put(id, entity);
+      } else {
+        remainders.add(id);
+      }
+    }
+    if (!remainders.isEmpty()) {
+      final String idName = type.getId(type.getIdType().getJavaType()).getName();
+      final PersistenceUnitUtil util = getEntityManagerFactory().getPersistenceUnitUtil();
+      final CriteriaBuilder cb = em.getCriteriaBuilder();
+      for (int i = 0; i < remainders.size(); i += chunkSize) {
+        final List<Serializable> chunk =
+            remainders.subList(i, Math.min(i + chunkSize, remainders.size()));
+        final CriteriaQuery<T> cq = cb.createQuery(entityClass);
+        final Root<T> root = cq.from(entityClass);
+        cq.select(root).where(root.get(idName).in(chunk));
+        for (T entity : em.createQuery(cq).setFlushMode(FlushModeType.COMMIT).getResultList()) {
+          loaded.put(util.getIdentifier(entity), entity);
+        }
+      }
+    }
+    return idSet.stream().map(loaded::get).filter(Objects::isNotNull)
+        .collect(Collectors.toList());
   }
 
   @SuppressWarnings("unchecked")
@@ -20,12 +20,15 @@ import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Maps.transformValue;
 import static org.corant.shared.util.Objects.areEqual;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.persistence.EntityManager;
@@ -74,6 +77,9 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
       .orElse(Boolean.FALSE);
   protected static final int MAX_CHANGES_ITERATIONS = ConfigProvider.getConfig()
       .getOptionalValue("corant.ddd.unitofwork.max-changes-iterations", Integer.class).orElse(128);
+  protected static final boolean USE_FLUSH_TRACKING = ConfigProvider.getConfig()
+      .getOptionalValue("corant.ddd.unitofwork.use-flush-tracking", Boolean.class)
+      .orElse(Boolean.FALSE);
 
   protected final Logger logger = Logger.getLogger(this.getClass().toString());
 
@@ -84,6 +90,8 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
       new LinkedHashMap<>();
   protected final Map<Object, Object> registeredVariables = new LinkedHashMap<>();
   protected final LinkedList<WrappedMessage> registeredMessages = new LinkedList<>();
+  protected final Set<EntityManager> dirtyEntityManagers =
+      Collections.newSetFromMap(new IdentityHashMap<>());
 
   protected volatile boolean activated;
 
@@ -92,6 +100,14 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
     activated = true;
   }
 
+  /**
+   * Returns whether the flush tracking is enabled, the flush tracking is configured by
+   * {@code corant.ddd.unitofwork.use-flush-tracking}, default is false.
+   */
+  public static boolean isFlushTracking() {
+    return USE_FLUSH_TRACKING;
+  }
+
   @Override
   public void complete(boolean success) {
     activated = false;
@@ -157,6 +173,20 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
     return unmodifiableCollection(entityManagers.values());
   }
 
+  /**
+   * Mark the given entity manager held by this unit of work as having unflushed aggregate state
+   * changes, generally invoked by the aggregate lifecycle manager after the aggregate was
+   * persisted, merged or removed without flushing. If the flush tracking is enabled, only the
+   * marked entity managers are flushed when fan-out the aggregate evolutions again.
+   *
+   * @param entityManager the entity manager that has unflushed changes
+   */
+  public void markDirty(EntityManager entityManager) {
+    if (entityManager != null && entityManagers.containsValue(entityManager)) {
+      dirtyEntityManagers.add(entityManager);
+    }
+  }
+
   /**
    * Message queue collected by the current unit of work.
    *
@@ -236,6 +266,7 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
         em.close();
       }
     });
+    dirtyEntityManagers.clear();
     evolutionaryAggregates.clear();
     registeredAggregates.clear();
     registeredMessages.clear();
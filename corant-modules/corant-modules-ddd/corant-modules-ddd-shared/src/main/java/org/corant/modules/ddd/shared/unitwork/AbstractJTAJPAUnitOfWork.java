@@ -13,8 +13,11 @@
  */
 package org.corant.modules.ddd.shared.unitwork;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import javax.persistence.EntityManager;
 import javax.persistence.FlushModeType;
 import javax.transaction.Status;
 import javax.transaction.Synchronization;
@@ -40,6 +43,17 @@ import org.corant.shared.ubiquity.Mutable.MutableBoolean;
  * EntityManagers are flushed to the underlying storage, and messages are collected at the same
  * time.
  * </p>
+ * <p>
+ * If {@code corant.ddd.unitofwork.use-flush-tracking} is true, only the first flush before the
+ * completion flushes all the entity managers, when the aggregate evolutionary event observers
+ * change the aggregates, only the entity managers that marked dirty by the aggregate lifecycle
+ * manager are flushed and the flush is skipped if there are no such entity managers. Since the
+ * messages raised by an aggregate are collected when the aggregate is flushed, the messages raised
+ * by an aggregate that was changed by the observers without being preserved or destroyed would be
+ * collected by the transaction commit flush after the messages were fanned out and then be lost, so
+ * once the tracked flushes settle all the entity managers are flushed once more before fanning out
+ * the messages, and if that flush raises new evolutions the observers are notified again.
+ * </p>
  *
  * @author bingo 上午11:38:39
  *
@@ -50,6 +64,9 @@ public abstract class AbstractJTAJPAUnitOfWork extends AbstractJPAUnitOfWork
   protected final Transaction transaction;
   protected final MessageDispatcher messageDispatcher;
   protected final UnitOfWorkExtension extension;
+  protected int flushes;
+  protected int skippedFlushes;
+  protected int evolutionIterations;
 
   protected AbstractJTAJPAUnitOfWork(AbstractJTAJPAUnitOfWorksManager manager,
       Transaction transaction) {
@@ -64,6 +81,7 @@ public abstract class AbstractJTAJPAUnitOfWork extends AbstractJPAUnitOfWork
   public void afterCompletion(int status) {
     final boolean success = status == Status.STATUS_COMMITTED;
     try {
+      getManager().getFlushStatistics().record(flushes, skippedFlushes, evolutionIterations);
       complete(success);
     } finally {
       logger.fine(() -> String.format("End unit of work [%s].", transaction.toString()));
@@ -82,6 +100,14 @@ public abstract class AbstractJTAJPAUnitOfWork extends AbstractJPAUnitOfWork
     handlePreComplete();
   }
 
+  /**
+   * Returns the number of the entity manager flushes enforced by this unit of work before the
+   * completion.
+   */
+  public int getFlushes() {
+    return flushes;
+  }
+
   @Override
   public Transaction getId() {
     return transaction;
@@ -128,6 +154,8 @@ public abstract class AbstractJTAJPAUnitOfWork extends AbstractJPAUnitOfWork
       Map<AggregateIdentifier, Integer> evolutions = new HashMap<>();
       Map<AggregateIdentifier, Integer> temp = new HashMap<>(evolutionaryAggregates.size());
       MutableBoolean fanout = new MutableBoolean(false);
+      // whether all the entity managers were flushed after the last notification of the observers
+      boolean settled = true;
       int i = MAX_CHANGES_ITERATIONS;
       while (true) {
         evolutionaryAggregates.forEach((k, v) -> {
@@ -136,20 +164,33 @@ public abstract class AbstractJTAJPAUnitOfWork extends AbstractJPAUnitOfWork
           }
         });
         if (temp.isEmpty() || evolutions.equals(temp)) {
-          break;
+          if (settled) {
+            break;
+          }
+          // the observers may change the aggregates without marking them dirty, flush all the
+          // entity managers to collect their evolutions and messages before fan-out the messages
+          settled = true;
+          flushEntityManagers();
+          temp.clear();
+          continue;
         }
+        evolutionIterations++;
         temp.forEach((k, v) -> {
           Integer last = evolutions.get(k);
           if (last == null || last.intValue() != v.intValue()) {
             evolutions.put(k, v);
-            CDIs.fireEvent(new AggregateEvolutionaryEvent(registeredAggregates.get(k)),
-                AggregateTypeLiteral.of(k.getTypeCls()));
+            fireEvolutionaryEvent(k);
             fanout.set(true);
           }
         });
         if (fanout.get()) {
           // the state of the aggregate in the current unit of work may change again, flush again
-          flushEntityManagers();
+          if (useFlushTracking()) {
+            flushDirtyEntityManagers();
+            settled = false;
+          } else {
+            flushEntityManagers();
+          }
         } else {
           break;
         }
@@ -164,33 +205,67 @@ public abstract class AbstractJTAJPAUnitOfWork extends AbstractJPAUnitOfWork
       evolutions.clear();
       temp.clear();
     }
+    logger.fine(() -> String.format(
+        "Fan-out evolutions of unit of work [%s] with %s iterations, %s flushes, %s skipped.",
+        transaction.toString(), evolutionIterations, flushes, skippedFlushes));
   }
 
   protected abstract void fanoutMessages();
 
-  protected void flushEntityManagers() {
-    entityManagers.values().forEach(em -> {
-      logger.fine(() -> String.format(
-          "Enforce entity managers %s flush to collect the messages, before %s completion.", em,
-          transaction.toString()));
-      if (USE_MANUAL_FLUSH_MODEL) {
-        final FlushModeType fm = em.getFlushMode();
-        try {
-          if (fm != FlushModeType.COMMIT) {
-            em.setFlushMode(FlushModeType.COMMIT);
-          }
-          em.flush();
-        } catch (Exception e) {
-          throw new CorantRuntimeException(e);
-        } finally {
-          if (fm != em.getFlushMode()) {
-            em.setFlushMode(fm);
-          }
+  /**
+   * Fire the aggregate evolutionary event of the registered aggregate with the given identifier to
+   * the evolutionary observers of the aggregate type.
+   *
+   * @param identifier the aggregate identifier
+   */
+  protected void fireEvolutionaryEvent(AggregateIdentifier identifier) {
+    CDIs.fireEvent(new AggregateEvolutionaryEvent(registeredAggregates.get(identifier)),
+        AggregateTypeLiteral.of(identifier.getTypeCls()));
+  }
+
+  /**
+   * Flush the entity managers that marked dirty since the last flush, if there are no dirty entity
+   * managers the flush is skipped.
+   *
+   * @see #markDirty(EntityManager)
+   */
+  protected void flushDirtyEntityManagers() {
+    if (dirtyEntityManagers.isEmpty()) {
+      skippedFlushes++;
+      return;
+    }
+    Collection<EntityManager> dirties = new ArrayList<>(dirtyEntityManagers);
+    dirtyEntityManagers.clear();
+    dirties.forEach(this::flushEntityManager);
+  }
+
+  protected void flushEntityManager(EntityManager em) {
+    logger.fine(() -> String.format(
+        "Enforce entity managers %s flush to collect the messages, before %s completion.", em,
+        transaction.toString()));
+    if (USE_MANUAL_FLUSH_MODEL) {
+      final FlushModeType fm = em.getFlushMode();
+      try {
+        if (fm != FlushModeType.COMMIT) {
+          em.setFlushMode(FlushModeType.COMMIT);
         }
-      } else {
         em.flush();
+      } catch (Exception e) {
+        throw new CorantRuntimeException(e);
+      } finally {
+        if (fm != em.getFlushMode()) {
+          em.setFlushMode(fm);
+        }
       }
-    });
+    } else {
+      em.flush();
+    }
+    flushes++;
+  }
+
+  protected void flushEntityManagers() {
+    dirtyEntityManagers.clear();
+    entityManagers.values().forEach(this::flushEntityManager);
   }
 
   @Override
@@ -208,4 +283,11 @@ public abstract class AbstractJTAJPAUnitOfWork extends AbstractJPAUnitOfWork
     return extension.supportsPersistedObserver(aggregateClass);
   }
 
+  /**
+   * Returns whether the flush tracking is used by this unit of work, default is
+   * {@link #isFlushTracking()}.
+   */
+  protected boolean useFlushTracking() {
+    return USE_FLUSH_TRACKING;
+  }
 }
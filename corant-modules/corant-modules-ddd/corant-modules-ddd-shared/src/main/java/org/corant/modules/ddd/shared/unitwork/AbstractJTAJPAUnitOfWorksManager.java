@@ -16,6 +16,8 @@ package org.corant.modules.ddd.shared.unitwork;
 import static org.corant.shared.util.Assertions.shouldNotNull;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import javax.annotation.PreDestroy;
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
@@ -41,6 +43,7 @@ import org.corant.shared.exception.CorantRuntimeException;
 public abstract class AbstractJTAJPAUnitOfWorksManager extends AbstractJPAUnitOfWorksManager {
 
   protected final Map<Object, AbstractJTAJPAUnitOfWork> uows = new ConcurrentHashMap<>();
+  protected final FlushStatistics flushStatistics = new FlushStatistics();
 
   @Inject
   protected UnitOfWorkExtension extension;
@@ -76,6 +79,13 @@ public abstract class AbstractJTAJPAUnitOfWorksManager extends AbstractJPAUnitOf
     return extension;
   }
 
+  /**
+   * Returns the entity manager flush statistics of the completed unit of works
+   */
+  public FlushStatistics getFlushStatistics() {
+    return flushStatistics;
+  }
+
   public MessageDispatcher getMessageDispatcher() {
     return messageDispatcher.isResolvable() ? messageDispatcher.get() : MessageDispatcher.empty();
   }
@@ -105,4 +115,72 @@ public abstract class AbstractJTAJPAUnitOfWorksManager extends AbstractJPAUnitOf
     return transaction;// JTA1.3 Spec-> 3.3.4 Transaction Equality and Hash Code
   }
 
+  /**
+   * corant-modules-ddd-shared
+   *
+   * <p>
+   * The entity manager flush statistics of the unit of works, the flushes are the entity manager
+   * flushes enforced by the unit of works before the completion, the skipped flushes are the
+   * flushes skipped by the flush tracking since there were no dirty entity managers, the iterations
+   * are the aggregate evolutionary event fan-out iterations.
+   *
+   * @author bingo 下午2:14:21
+   *
+   */
+  public static class FlushStatistics {
+
+    final LongAdder unitOfWorks = new LongAdder();
+    final LongAdder flushes = new LongAdder();
+    final LongAdder skippedFlushes = new LongAdder();
+    final LongAdder iterations = new LongAdder();
+    final LongAccumulator maxFlushes = new LongAccumulator(Math::max, 0);
+
+    public double getAverageFlushes() {
+      long count = unitOfWorks.sum();
+      return count == 0 ? 0 : (double) flushes.sum() / count;
+    }
+
+    public long getFlushes() {
+      return flushes.sum();
+    }
+
+    public long getIterations() {
+      return iterations.sum();
+    }
+
+    public long getMaxFlushes() {
+      return maxFlushes.get();
+    }
+
+    public long getSkippedFlushes() {
+      return skippedFlushes.sum();
+    }
+
+    public long getUnitOfWorks() {
+      return unitOfWorks.sum();
+    }
+
+    public void reset() {
+      unitOfWorks.reset();
+      flushes.reset();
+      skippedFlushes.reset();
+      iterations.reset();
+      maxFlushes.reset();
+    }
+
+    @Override
+    public String toString() {
+      return "FlushStatistics [unitOfWorks=" + getUnitOfWorks() + ", flushes=" + getFlushes()
+          + ", skippedFlushes=" + getSkippedFlushes() + ", iterations=" + getIterations()
+          + ", maxFlushes=" + getMaxFlushes() + "]";
+    }
+
+    void record(int flushes, int skippedFlushes, int iterations) {
+      unitOfWorks.increment();
+      this.flushes.add(flushes);
+      this.skippedFlushes.add(skippedFlushes);
+      this.iterations.add(iterations);
+      maxFlushes.accumulate(flushes);
+    }
+  }
 }
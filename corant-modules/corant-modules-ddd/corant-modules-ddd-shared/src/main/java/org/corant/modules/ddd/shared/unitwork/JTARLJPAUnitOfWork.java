@@ -15,7 +15,9 @@ package org.corant.modules.ddd.shared.unitwork;
 
 import static org.corant.shared.util.Empties.sizeOf;
 import static org.corant.shared.util.Objects.defaultObject;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import javax.transaction.Transaction;
 import org.corant.modules.ddd.Message;
 import org.corant.modules.ddd.MessageStorage;
@@ -85,18 +87,23 @@ public class JTARLJPAUnitOfWork extends AbstractJTAJPAUnitOfWork {
         "Sorted the flushed messages and trigger them if necessary, store them to the message storage, before %s completion.",
         transaction.toString()));
     LinkedList<WrappedMessage> messages = new LinkedList<>();
+    List<Message> storingMessages = new ArrayList<>();
     extractMessages(messages);
     int cycles = MAX_CHANGES_ITERATIONS;
     WrappedMessage wm;
     while ((wm = messages.poll()) != null) {
       final Message msg = wm.delegate;
-      storedMessages.add(messageStorage.apply(msg));
+      storingMessages.add(msg);
       sagaService.trigger(msg);// FIXME Is it right to do so?
       if (extractMessages(messages) && --cycles < 0) {
         throw new CorantRuntimeException(
             "Reach max changes iterations [%s], can't handle messages! ", MAX_CHANGES_ITERATIONS);
       }
     }
+    if (!storingMessages.isEmpty()) {
+      // store all the messages of the unit of work at once
+      storedMessages.addAll(messageStorage.applyAll(storingMessages));
+    }
   }
 
 }
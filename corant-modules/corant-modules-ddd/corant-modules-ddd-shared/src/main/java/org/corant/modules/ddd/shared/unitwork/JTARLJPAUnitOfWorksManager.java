@@ -36,6 +36,7 @@ import org.corant.modules.ddd.MessageStorage;
 import org.corant.modules.ddd.SagaService;
 import org.corant.modules.ddd.annotation.InfrastructureServices;
 import org.corant.modules.ddd.shared.annotation.JTARL;
+import org.corant.modules.ddd.shared.message.MessageOutboxRelay;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
@@ -71,12 +72,25 @@ public class JTARLJPAUnitOfWorksManager extends AbstractJTAJPAUnitOfWorksManager
   @Any
   protected Instance<Supplier<List<Message>>> lastUndispatchMessages;
 
+  @Inject
+  @Any
+  protected Instance<MessageOutboxRelay> outboxRelay;
+
   @Inject
   @ConfigProperty(name = "corant.ddd.unitofwork.use-rl.termination-timeout", defaultValue = "PT5S")
   protected Duration terminationTimeout;
 
+  /**
+   * Returns the message dispatcher used to dispatch the stored messages after the unit of work was
+   * committed, if the message outbox is enabled, the returned dispatcher only signals the outbox
+   * relay to publish the stored messages.
+   */
   @Override
   public MessageDispatcher getMessageDispatcher() {
+    if (outboxRelay.isResolvable()) {
+      final MessageOutboxRelay relay = outboxRelay.get();
+      return msgs -> relay.signal();
+    }
     return msgs -> dispatcher
         .submit(() -> find(MessageDispatcher.class).orElse(MessageDispatcher.empty()).accept(msgs));
   }
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.message;
+
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jms.JMSException;
+import javax.jms.MessageFormatRuntimeException;
+import org.corant.modules.ddd.AbstractAggregateMessage;
+import org.corant.modules.ddd.Aggregate.AggregateIdentifier;
+import org.corant.modules.ddd.AggregateMessageMetadata;
+import org.corant.modules.ddd.shared.message.JDBCMessageOutbox.OutboxRecord;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.retry.BackoffStrategy.CappedExpoBackoffStrategy;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * @author bingo 下午5:26:13
+ *
+ */
+public class MessageOutboxRelayTest extends TestCase {
+
+  TestOutbox outbox;
+  TestRelay relay;
+
+  @Test
+  public void testDispatchMarking() {
+    for (long id = 1; id <= 7; id++) {
+      outbox.store(0, id, new TestMessage("a", id));
+    }
+    assertEquals(3, relay.relay(0));
+    assertEquals(Arrays.asList(1L, 2L, 3L), outbox.dispatched);
+    assertEquals(Arrays.asList(1L, 2L, 3L), relay.published);
+    relay.worker(0).run();
+    assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L), outbox.dispatched);
+    assertEquals(outbox.dispatched, relay.published);
+    assertEquals(0, relay.relay(0));
+  }
+
+  @Test
+  public void testFailedAndDeadLetter() {
+    for (long id = 1; id <= 6; id++) {
+      outbox.store(0, id, new TestMessage("a", id));
+    }
+    relay.failing.add(2L);
+    // the batch fails, the records before the failed one are dispatched one by one
+    assertEquals(0, relay.relay(0));
+    assertEquals(Arrays.asList(1L), outbox.dispatched);
+    assertEquals(1, outbox.attempts.get(2L).intValue());
+    // the subsequent records wait for the failed one
+    assertEquals(0, relay.relay(0));
+    assertEquals(Arrays.asList(1L), outbox.dispatched);
+    assertEquals(2, outbox.attempts.get(2L).intValue());
+    // the failed record is moved to the dead letters after the max attempts
+    assertEquals(0, relay.relay(0));
+    assertEquals(Arrays.asList(2L), outbox.deadLetters);
+    relay.worker(0).run();
+    assertEquals(Arrays.asList(1L, 3L, 4L, 5L, 6L), outbox.dispatched);
+
+    // the unresolvable record
+    outbox.store(0, 7L, new TestMessage("a", 7L));
+    outbox.store(0, 8L, null);
+    outbox.store(0, 9L, new TestMessage("a", 9L));
+    assertEquals(0, relay.relay(0));
+    assertEquals(Arrays.asList(1L, 3L, 4L, 5L, 6L, 7L), outbox.dispatched);
+    assertEquals(1, outbox.attempts.get(8L).intValue());
+    relay.worker(0).run();
+    relay.worker(0).run();
+    assertEquals(Arrays.asList(2L, 8L), outbox.deadLetters);
+    relay.worker(0).run();
+    assertEquals(Arrays.asList(1L, 3L, 4L, 5L, 6L, 7L, 9L), outbox.dispatched);
+  }
+
+  @Test
+  public void testOutageIsNotCounted() throws Exception {
+    for (long id = 1; id <= 3; id++) {
+      outbox.store(0, id, new TestMessage("a", id));
+    }
+    relay.down = true;
+    relay.pollInterval = Duration.ofMillis(20);
+    relay.maxBackoff = Duration.ofMillis(80);
+    relay.onPostContainerStarted(null);
+    try {
+      // the broker is down much longer than the max attempts times the poll interval
+      Thread.sleep(600);
+      assertTrue(outbox.attempts.isEmpty());
+      assertTrue(outbox.deadLetters.isEmpty());
+      assertTrue(outbox.dispatched.isEmpty());
+      // the shard is backed off instead of being polled with every interval
+      assertTrue(relay.publishing.get() > 1);
+      assertTrue(relay.publishing.get() < 15);
+      relay.down = false;
+      long deadline = System.currentTimeMillis() + 5000;
+      while (outbox.dispatched.size() < 3 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      // the storing order is kept
+      assertEquals(Arrays.asList(1L, 2L, 3L), outbox.dispatched);
+      assertTrue(relay.workers.get(0).backoffs.isEmpty());
+    } finally {
+      relay.onPreDestroy();
+    }
+  }
+
+  @Test
+  public void testSharding() {
+    outbox.shards = 4;
+    Set<Integer> shards = new HashSet<>();
+    for (long id = 0; id < 64; id++) {
+      int shard = outbox.resolveShard(new TestMessage("a", id), id);
+      assertEquals(outbox.resolveShard(new TestMessage("a", 0), 0), shard);
+      shard = outbox.resolveShard(new TestMessage(null, id), id);
+      assertTrue(shard >= 0 && shard < 4);
+      shards.add(shard);
+      shards.add(outbox.resolveShard(new TestMessage("a" + id, id), id));
+    }
+    // the messages of different aggregates are distributed
+    assertEquals(4, shards.size());
+
+    relay.workerSize = 3;
+    relay.ownedShards = Optional.of("1, 3,5,7 ,9");
+    relay.onPostContainerStarted(null);
+    try {
+      assertEquals(3, relay.workers.size());
+      assertEquals(Arrays.asList(1, 7), relay.workers.get(0).shards);
+      assertEquals(Arrays.asList(3, 9), relay.workers.get(1).shards);
+      assertEquals(Arrays.asList(5), relay.workers.get(2).shards);
+    } finally {
+      relay.onPreDestroy();
+    }
+  }
+
+  @Test
+  public void testTransientFailures() {
+    assertTrue(relay.isTransient(new CorantRuntimeException(new JMSException("down"))));
+    JMSException linked = new JMSException("down");
+    linked.setLinkedException(new ConnectException());
+    assertTrue(relay.isTransient(new IllegalStateException(linked)));
+    assertFalse(relay.isTransient(new MessageFormatRuntimeException("format")));
+    JMSException marshalling = new JMSException("marshal");
+    marshalling.setLinkedException(new NotSerializableException());
+    assertFalse(relay.isTransient(marshalling));
+    assertFalse(relay.isTransient(new IllegalStateException()));
+  }
+
+  @Test
+  public void testSignal() throws Exception {
+    relay.pollInterval = Duration.ofHours(1);
+    outbox.blocker = new CountDownLatch(1);
+    relay.onPostContainerStarted(null);
+    try {
+      // the first polling of the only worker found nothing and is blocked
+      assertTrue(outbox.selecting.await(5, TimeUnit.SECONDS));
+      outbox.store(0, 1L, new TestMessage("a", 1L));
+      relay.signal();
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!relay.workers.get(0).signalled && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue(relay.workers.get(0).signalled);
+      outbox.blocker.countDown();
+      // the running worker checks the outbox again instead of waiting for the next polling
+      while (outbox.dispatched.isEmpty() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(Arrays.asList(1L), outbox.dispatched);
+    } finally {
+      relay.onPreDestroy();
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    outbox = new TestOutbox();
+    outbox.shards = 1;
+    outbox.maxAttempts = 3;
+    relay = new TestRelay();
+    relay.outbox = outbox;
+    relay.batchSize = 3;
+    relay.workerSize = 1;
+    relay.pollInterval = Duration.ofMillis(50);
+    relay.purgeInterval = Duration.ofHours(1);
+    relay.dispatchedRetention = Duration.ofDays(1);
+    relay.ownedShards = Optional.empty();
+    relay.maxBackoff = Duration.ofSeconds(1);
+    relay.backoffStrategy =
+        new CappedExpoBackoffStrategy(2.0, relay.pollInterval, relay.maxBackoff);
+    relay.executor = new ScheduledThreadPoolExecutor(1);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    ScheduledExecutorService executor = relay.executor;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午5:26:13
+   *
+   */
+  static class TestIdentifier implements AggregateIdentifier {
+
+    private static final long serialVersionUID = 1L;
+
+    final String id;
+
+    TestIdentifier(String id) {
+      this.id = id;
+    }
+
+    @Override
+    public Serializable getId() {
+      return id;
+    }
+
+    @Override
+    public String getType() {
+      return TestMessage.class.getName();
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午5:26:13
+   *
+   */
+  static class TestMessage extends AbstractAggregateMessage {
+
+    private static final long serialVersionUID = 1L;
+
+    final long sequence;
+
+    TestMessage(String aggregateId, long sequence) {
+      super(aggregateId == null ? null
+          : new AggregateMessageMetadata(new TestIdentifier(aggregateId), sequence));
+      this.sequence = sequence;
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * <p>
+   * The in memory outbox.
+   *
+   * @author bingo 下午5:26:13
+   *
+   */
+  static class TestOutbox extends JDBCMessageOutbox {
+
+    final Map<Integer, TreeMap<Long, TestMessage>> records = new HashMap<>();
+    final Map<Long, Integer> attempts = new HashMap<>();
+    final List<Long> dispatched = new CopyOnWriteArrayList<>();
+    final List<Long> deadLetters = new CopyOnWriteArrayList<>();
+    final CountDownLatch selecting = new CountDownLatch(1);
+    volatile CountDownLatch blocker;
+
+    @Override
+    public synchronized void markDispatched(Collection<Long> ids) {
+      records.values().forEach(r -> r.keySet().removeAll(ids));
+      dispatched.addAll(ids);
+    }
+
+    @Override
+    public synchronized boolean markFailed(long id, Throwable error) {
+      if (attempts.merge(id, 1, Integer::sum) >= maxAttempts) {
+        records.values().forEach(r -> r.remove(id));
+        deadLetters.add(id);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public int purgeDispatched(Instant before) {
+      return 0;
+    }
+
+    @Override
+    public List<OutboxRecord> select(int shard, int limit) {
+      List<OutboxRecord> selected = new ArrayList<>();
+      synchronized (this) {
+        for (Map.Entry<Long, TestMessage> record : records
+            .getOrDefault(shard, new TreeMap<>()).entrySet()) {
+          if (selected.size() >= limit) {
+            break;
+          }
+          if (record.getValue() == null) {
+            selected.add(new OutboxRecord(record.getKey(), new IllegalStateException()));
+            break;
+          }
+          selected.add(new OutboxRecord(record.getKey(), record.getValue()));
+        }
+      }
+      selecting.countDown();
+      if (blocker != null) {
+        try {
+          blocker.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return selected;
+    }
+
+    synchronized void store(int shard, long id, TestMessage message) {
+      records.computeIfAbsent(shard, k -> new TreeMap<>()).put(id, message);
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午5:26:13
+   *
+   */
+  static class TestRelay extends MessageOutboxRelay {
+
+    final List<Long> published = new CopyOnWriteArrayList<>();
+    final Set<Long> failing = new HashSet<>();
+    final AtomicInteger publishing = new AtomicInteger();
+    volatile boolean down;
+
+    @Override
+    protected void publish(List<OutboxRecord> records) {
+      publishing.incrementAndGet();
+      if (down) {
+        throw new CorantRuntimeException(new JMSException("The broker is down"));
+      }
+      for (OutboxRecord record : records) {
+        if (failing.contains(record.getId())) {
+          throw new IllegalStateException("failing " + record.getId());
+        }
+      }
+      records.forEach(r -> published.add(r.getId()));
+    }
+
+    @Override
+    protected void requiresNew(Runnable runner) {
+      // the published messages are not rolled back, as if the JMS resource is not enlisted
+      runner.run();
+    }
+
+    Worker worker(int shard) {
+      Worker worker = new Worker();
+      worker.shards.add(shard);
+      return worker;
+    }
+  }
+}
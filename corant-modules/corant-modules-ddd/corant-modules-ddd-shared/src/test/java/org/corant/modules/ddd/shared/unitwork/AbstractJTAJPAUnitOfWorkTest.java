@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.unitwork;
+
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
+import javax.transaction.xa.XAResource;
+import org.corant.modules.ddd.Aggregate;
+import org.corant.modules.ddd.Aggregate.AggregateIdentifier;
+import org.corant.modules.ddd.Event;
+import org.corant.modules.ddd.Message;
+import org.corant.modules.ddd.MessageDispatcher;
+import org.corant.modules.ddd.UnitOfWorksManager.UnitOfWorksListener;
+import org.corant.modules.jpa.shared.PersistenceService.PersistenceContextLiteral;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * @author bingo 上午10:12:36
+ *
+ */
+public class AbstractJTAJPAUnitOfWorkTest extends TestCase {
+
+  TestManager manager;
+  TestEntityManager emA;
+  TestEntityManager emB;
+  TestUnitOfWork uow;
+  TestAggregate x;
+  TestAggregate y;
+
+  @Test
+  public void testFlushStatistics() {
+    x.changed(emA);
+    uow.observers.put(x.getId(), a -> {
+      y.changed(emB);
+      uow.markDirty(emB.proxy);
+    });
+    uow.fanoutEvolutions();
+    uow.afterCompletion(Status.STATUS_COMMITTED);
+    TestUnitOfWork other = new TestUnitOfWork(manager, true, emA, emB);
+    other.fanoutEvolutions();
+    other.afterCompletion(Status.STATUS_COMMITTED);
+    assertEquals(2, manager.getFlushStatistics().getUnitOfWorks());
+    assertEquals(5 + 2, manager.getFlushStatistics().getFlushes());
+    assertEquals(1, manager.getFlushStatistics().getSkippedFlushes());
+    assertEquals(2, manager.getFlushStatistics().getIterations());
+    assertEquals(5, manager.getFlushStatistics().getMaxFlushes());
+  }
+
+  @Test
+  public void testTrackedFlushes() {
+    x.changed(emA);
+    uow.observers.put(x.getId(), a -> {
+      y.changed(emB);
+      uow.markDirty(emB.proxy);
+    });
+    uow.fanoutEvolutions();
+    assertEquals(Arrays.asList("x", "y"), uow.notified);
+    // the initial flush and the final settling flush
+    assertEquals(2, emA.flushes);
+    // plus the tracked flush of the dirty entity manager
+    assertEquals(3, emB.flushes);
+    // the round that notified the observer of y had nothing dirty
+    assertEquals(1, uow.skippedFlushes);
+    assertEquals(5, uow.getFlushes());
+    assertEquals(2, uow.evolutionIterations);
+  }
+
+  @Test
+  public void testUnpreservedChanges() {
+    x.changed(emA);
+    // the observer changes y and raises a message without preserving y
+    uow.observers.put(x.getId(), a -> {
+      y.raise(false, new TestMessage("y-changed"));
+      y.changed(emB);
+    });
+    uow.fanoutEvolutions();
+    // the settling flush collects the evolution of y and notifies the observer
+    assertEquals(Arrays.asList("x", "y"), uow.notified);
+    assertEquals(Arrays.asList("y-changed"), uow.getMessages().stream()
+        .map(m -> ((TestMessage) m.delegate).name).collect(Collectors.toList()));
+    assertEquals(3, emA.flushes);
+    assertEquals(3, emB.flushes);
+    assertEquals(2, uow.skippedFlushes);
+    assertEquals(2, uow.evolutionIterations);
+  }
+
+  @Test
+  public void testUntrackedFlushes() {
+    uow = new TestUnitOfWork(manager, false, emA, emB);
+    x.changed(emA);
+    uow.observers.put(x.getId(), a -> y.changed(emB));
+    uow.fanoutEvolutions();
+    assertEquals(Arrays.asList("x", "y"), uow.notified);
+    assertEquals(3, emA.flushes);
+    assertEquals(3, emB.flushes);
+    assertEquals(0, uow.skippedFlushes);
+    assertEquals(2, uow.evolutionIterations);
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    manager = new TestManager();
+    emA = new TestEntityManager(manager);
+    emB = new TestEntityManager(manager);
+    uow = new TestUnitOfWork(manager, true, emA, emB);
+    x = new TestAggregate("x");
+    y = new TestAggregate("y");
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午10:12:36
+   *
+   */
+  static class TestAggregate implements Aggregate {
+
+    private static final long serialVersionUID = 2520325406591016040L;
+
+    final String id;
+    final List<Message> messages = new ArrayList<>();
+
+    TestAggregate(String id) {
+      this.id = id;
+    }
+
+    @Override
+    public List<Message> extractMessages(boolean flush) {
+      List<Message> extracted = new ArrayList<>(messages);
+      if (flush) {
+        messages.clear();
+      }
+      return extracted;
+    }
+
+    @Override
+    public Serializable getId() {
+      return id;
+    }
+
+    @Override
+    public Lifecycle getLifecycle() {
+      return Lifecycle.POST_UPDATED;
+    }
+
+    @Override
+    public Long getVn() {
+      return 1L;
+    }
+
+    @Override
+    public void raise(boolean anyway, Message... messages) {
+      this.messages.addAll(Arrays.asList(messages));
+    }
+
+    @Override
+    public void raise(Event event, Annotation... qualifiers) {}
+
+    @Override
+    public void raiseAsync(Event event, Annotation... qualifiers) {}
+
+    /**
+     * Change this aggregate in the given entity manager, the change is registered to the unit of
+     * work when the entity manager is flushed.
+     */
+    void changed(TestEntityManager em) {
+      em.pending.add(this);
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * <p>
+   * Simulates the entity manager and the aggregate listener, the pending aggregates are registered
+   * to the current unit of work when flushing.
+   *
+   * @author bingo 上午10:12:36
+   *
+   */
+  static class TestEntityManager implements InvocationHandler {
+
+    final TestManager manager;
+    final List<TestAggregate> pending = new ArrayList<>();
+    final EntityManager proxy;
+    int flushes;
+
+    TestEntityManager(TestManager manager) {
+      this.manager = manager;
+      proxy = (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {EntityManager.class}, this);
+    }
+
+    @Override
+    public Object invoke(Object p, Method method, Object[] args) {
+      switch (method.getName()) {
+        case "flush":
+          flushes++;
+          List<TestAggregate> flushing = new ArrayList<>(pending);
+          pending.clear();
+          flushing.forEach(manager.current::register);
+          return null;
+        case "isOpen":
+          return false;
+        case "equals":
+          return p == args[0];
+        case "hashCode":
+          return System.identityHashCode(p);
+        case "toString":
+          return "em" + System.identityHashCode(p);
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午10:12:36
+   *
+   */
+  static class TestManager extends AbstractJTAJPAUnitOfWorksManager {
+
+    TestUnitOfWork current;
+
+    TestManager() {
+      extension = new UnitOfWorkExtension();
+      extension.observeAllAggregateEvolutionary = true;
+    }
+
+    @Override
+    public Stream<UnitOfWorksListener> getListeners() {
+      return Stream.empty();
+    }
+
+    @Override
+    public MessageDispatcher getMessageDispatcher() {
+      return MessageDispatcher.empty();
+    }
+
+    @Override
+    protected AbstractJTAJPAUnitOfWork buildUnitOfWork(Transaction transaction) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午10:12:36
+   *
+   */
+  static class TestMessage implements Message {
+
+    private static final long serialVersionUID = -2906393405236596567L;
+
+    final String name;
+
+    TestMessage(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午10:12:36
+   *
+   */
+  static class TestTransaction implements Transaction {
+
+    int status = Status.STATUS_ACTIVE;
+
+    @Override
+    public void commit() {
+      status = Status.STATUS_COMMITTED;
+    }
+
+    @Override
+    public boolean delistResource(XAResource xaRes, int flag) {
+      return false;
+    }
+
+    @Override
+    public boolean enlistResource(XAResource xaRes) {
+      return false;
+    }
+
+    @Override
+    public int getStatus() {
+      return status;
+    }
+
+    @Override
+    public void registerSynchronization(Synchronization sync) {}
+
+    @Override
+    public void rollback() {
+      status = Status.STATUS_ROLLEDBACK;
+    }
+
+    @Override
+    public void setRollbackOnly() {
+      status = Status.STATUS_MARKED_ROLLBACK;
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午10:12:36
+   *
+   */
+  static class TestUnitOfWork extends AbstractJTAJPAUnitOfWork {
+
+    final boolean tracking;
+    final Map<Serializable, Consumer<Aggregate>> observers = new HashMap<>();
+    final List<Serializable> notified = new ArrayList<>();
+
+    TestUnitOfWork(TestManager manager, boolean tracking, TestEntityManager... ems) {
+      super(manager, new TestTransaction());
+      this.tracking = tracking;
+      for (int i = 0; i < ems.length; i++) {
+        entityManagers.put(PersistenceContextLiteral.of("pu" + i), ems[i].proxy);
+      }
+      manager.current = this;
+    }
+
+    @Override
+    protected void fanoutMessages() {}
+
+    @Override
+    protected void fireEvolutionaryEvent(AggregateIdentifier identifier) {
+      notified.add(identifier.getId());
+      Consumer<Aggregate> observer = observers.get(identifier.getId());
+      if (observer != null) {
+        observer.accept(registeredAggregates.get(identifier));
+      }
+    }
+
+    @Override
+    protected boolean useFlushTracking() {
+      return tracking;
+    }
+  }
+}
@@ -25,4 +25,6 @@ public interface JMSNames {
   String REPLY_MSG_MARSHAL_SCHEMA = "__CORANT_REPLY_MSG_MARSHAL_SCHEMA__";
   String MSG_MARSHAL_SCHEMA_ZIP_BINARY = "ZIP_BINARY";
   String MSG_MARSHAL_SCHEMA_STD_JAVA = "STD_JAVA";
+  String MSG_COMPRESSION = "__CORANT_MSG_COMPRESSION__";
+  String MSG_COMPRESSION_DEFLATE = "DEFLATE";
 }
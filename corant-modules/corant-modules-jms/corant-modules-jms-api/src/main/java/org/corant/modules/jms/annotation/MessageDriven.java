@@ -24,6 +24,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 import javax.enterprise.inject.Stereotype;
 import javax.jms.Session;
+import org.corant.modules.jms.receive.ManagedMessagePartitionKeyExtractor;
 import org.corant.shared.retry.BackoffStrategy.BackoffAlgorithm;
 
 /**
@@ -57,6 +58,60 @@ public @interface MessageDriven {
    */
   String acknowledge() default "2";
 
+  /**
+   * Whether to receive the messages in batches, if true the first parameter type of the message
+   * receiving method must be {@link java.util.List} with the payload class as its element type, and
+   * the method is invoked with the list of the payloads, see {@link #batchSize()}. A method whose
+   * first parameter type is {@link java.util.List} without this enabled receives each list payload
+   * as a single message. Default is false.
+   *
+   * <p>
+   * Note: The final value type is <b>boolean</b> type; in order to support configurability, the
+   * string is used as the value type of annotation property, and the value will eventually be
+   * converted to boolean type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to boolean value.
+   *
+   * @return batch
+   */
+  String batch() default "false";
+
+  /**
+   * The max number of messages received per batch, only works if the {@link #batch()} is enabled,
+   * the messages are drained from the message
+   * consumer until the batch size or the {@link #batchTimeout()} is reached, then the receiving
+   * method is invoked with the list of the payloads. Each batch has only one acknowledgement,
+   * which means that in JTA XA, each batch is a separate transaction; in SESSION_TRANSACTED, each
+   * batch is committed once; in CLIENT_ACKNOWLEDGE, each batch is acknowledged once. If a batch
+   * fails, the messages of the batch are redelivered and then received and handled one by one, so
+   * that a single bad message doesn't block the whole batch. Default is 64.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>integer</b> type; in order to support configurability,
+   * the string is used as the value type of annotation property, and the value will eventually be
+   * converted to integer type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to integer value.
+   *
+   * @return batchSize
+   */
+  String batchSize() default "64";
+
+  /**
+   * The max milliseconds to wait for the subsequent messages of a batch after the first message of
+   * the batch was received, only works if the {@link #batch()} is enabled. Default is 100.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>long</b> type; in order to support configurability, the
+   * string is used as the value type of annotation property, and the value will eventually be
+   * converted to long type. If the value of this property uses the <b>"${...}"</b> expression, the
+   * specific value can be obtained from the system property or configuration, and then convert it
+   * to long value.
+   *
+   * @return batchTimeout
+   */
+  String batchTimeout() default "100";
+
   /**
    * Returns the Back-off Algorithm, default is {@link BackoffAlgorithm#FIXED}
    * <p>
@@ -155,6 +210,104 @@ public @interface MessageDriven {
    */
   String maxBrokenDuration() default "PT1H";
 
+  /**
+   * The max number of the receiving tasks of each destination, each task has its own session and
+   * message consumer. If the value is greater than {@link #minReceivers()}, the receiving executor
+   * scales the receiving tasks between the min and the max according to the receive hit rate, the
+   * handling latency and the backlog of the destination if the broker exposes it. Default is 1.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>integer</b> type; in order to support configurability,
+   * the string is used as the value type of annotation property, and the value will eventually be
+   * converted to integer type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to integer value.
+   *
+   * @return maxReceivers
+   */
+  String maxReceivers() default "1";
+
+  /**
+   * The min number of the receiving tasks of each destination, the receiving executor starts with
+   * the min number of tasks. Default is 1.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>integer</b> type; in order to support configurability,
+   * the string is used as the value type of annotation property, and the value will eventually be
+   * converted to integer type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to integer value.
+   *
+   * @see #maxReceivers()
+   * @return minReceivers
+   */
+  String minReceivers() default "1";
+
+  /**
+   * The name of the message property whose value is used as the partition key, only works if
+   * {@link #partitions()} is greater than 1 and {@link #partitionKeyExtractor()} is blank. The
+   * messages without the property are distributed to the lanes in turn. Default is JMSXGroupID.
+   *
+   * <p>
+   * Note: If the value of this property uses the <b>"${...}"</b> expression, the specific value can
+   * be obtained from the system property or configuration.
+   *
+   * @return partitionKey
+   */
+  String partitionKey() default "JMSXGroupID";
+
+  /**
+   * The name of the CDI bean of {@link ManagedMessagePartitionKeyExtractor} that extracts the
+   * partition key from the message and its payload, only works if {@link #partitions()} is greater
+   * than 1. If the value is blank, the {@link #partitionKey()} message property is used.
+   *
+   * <p>
+   * Note: If the value of this property uses the <b>"${...}"</b> expression, the specific value can
+   * be obtained from the system property or configuration.
+   *
+   * @return partitionKeyExtractor
+   */
+  String partitionKeyExtractor() default EMPTY;
+
+  /**
+   * The number of the ordered in-memory lanes of the partitioned dispatching, if the value is
+   * greater than 1, the receiver drains up to {@link #batchSize()} messages within
+   * {@link #batchTimeout()}, hashes each message by its partition key to one of the lanes, the
+   * messages of a lane are handled sequentially by the worker of the lane in the receiving order,
+   * and the lanes are handled in parallel. The messages with the same key are never reordered. The
+   * batch is committed or acknowledged only after all the messages of the batch have been handled
+   * successfully, if any message fails, the subsequent messages of its lane in the batch are
+   * skipped and the whole batch is rolled back or recovered for redelivery, so the receiving
+   * method should be idempotent. The partitioned dispatching doesn't support XA, batch receiving
+   * method or the receiving method with the session parameter, and always uses the polling mode.
+   * Default is 0, means not partitioned.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>integer</b> type; in order to support configurability,
+   * the string is used as the value type of annotation property, and the value will eventually be
+   * converted to integer type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to integer value.
+   *
+   * @return partitions
+   */
+  String partitions() default "0";
+
+  /**
+   * Returns the message receive mode, default is {@link ReceiveMode#POLLING}.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>{@link ReceiveMode}</b> type; in order to support
+   * configurability, the string is used as the value type of annotation property, and the value
+   * will eventually be converted to {@link ReceiveMode} type. If the value of this property uses
+   * the <b>"${...}"</b> expression, the specific value can be obtained from the system property or
+   * configuration, and then convert it to {@link ReceiveMode} value.
+   *
+   * @see ReceiveMode
+   * @return receiveMode
+   */
+  String receiveMode() default "POLLING";
+
   /**
    * The number of messages received per execution, using the same message consumer. Each message
    * receipt has its own message acknowledgement, which means that in JTA XA, each message received
@@ -254,4 +407,29 @@ public @interface MessageDriven {
    * @return xa
    */
   String xa() default "true";
+
+  /**
+   * corant-modules-jms-api
+   *
+   * @author bingo 下午3:16:42
+   *
+   */
+  enum ReceiveMode {
+    /**
+     * The receiving task pulls the messages from the message consumer with
+     * {@link MessageDriven#receiveTimeout()} and {@link MessageDriven#receiveThreshold()} on each
+     * scheduled execution.
+     */
+    POLLING,
+
+    /**
+     * The receiving task registers a message listener on the message consumer of its session, the
+     * message delivered by the provider is handled in the delivering thread with the same
+     * transaction and acknowledgment semantics as the {@link #POLLING} mode, the scheduled
+     * execution of the task only maintains the listener and the circuit break state. In this mode
+     * the {@link MessageDriven#receiveTimeout()} and {@link MessageDriven#receiveThreshold()} are
+     * ignored.
+     */
+    LISTENER
+  }
 }
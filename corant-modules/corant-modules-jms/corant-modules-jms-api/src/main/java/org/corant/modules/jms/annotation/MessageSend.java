@@ -33,6 +33,21 @@ import org.corant.modules.jms.JMSNames;
 @Target(FIELD)
 public @interface MessageSend {
 
+  /**
+   * The maximum number of the messages that are committed in one transacted session when the
+   * {@link #sendMode()} is {@link SendMode#BATCH}, default is 64.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>integer</b> type; in order to support configurability,
+   * the string is used as the value type of annotation property, and the value will eventually be
+   * converted to integer type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to integer value.
+   *
+   * @return batchSize
+   */
+  String batchSize() default "64";
+
   /**
    * Sets the minimum length of time in milliseconds that must elapse after a message is sent before
    * the Jakarta Messaging provider may deliver the message to a consumer.
@@ -101,6 +116,22 @@ public @interface MessageSend {
    */
   String marshaller() default JMSNames.MSG_MARSHAL_SCHEMA_STD_JAVA;
 
+  /**
+   * The maximum number of the incomplete asynchronous sends of the destination when the
+   * {@link #sendMode()} is {@link SendMode#ASYNC}, the sending thread is blocked when the window is
+   * full until one of the previous sends completes, default is 256.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>integer</b> type; in order to support configurability,
+   * the string is used as the value type of annotation property, and the value will eventually be
+   * converted to integer type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to integer value.
+   *
+   * @return maxInFlight
+   */
+  String maxInFlight() default "256";
+
   /**
    * Specifies that messages sent using the JMSProducer will have the specified property set to the
    * specified Java object value.
@@ -115,6 +146,21 @@ public @interface MessageSend {
    */
   MessageProperty[] properties() default {};
 
+  /**
+   * Returns the message send mode, default is {@link SendMode#SYNC}.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>{@link SendMode}</b> type; in order to support
+   * configurability, the string is used as the value type of annotation property, and the value
+   * will eventually be converted to {@link SendMode} type. If the value of this property uses the
+   * <b>"${...}"</b> expression, the specific value can be obtained from the system property or
+   * configuration, and then convert it to {@link SendMode} value.
+   *
+   * @see SendMode
+   * @return sendMode
+   */
+  String sendMode() default "SYNC";
+
   /**
    * Specifies the time to live of messages that are sent using the JMSProducer. This is used to
    * determine the expiration time of a message.
@@ -137,4 +183,33 @@ public @interface MessageSend {
    */
   String timeToLive() default "-1";
 
+
+  /**
+   * corant-modules-jms-api
+   *
+   * @author bingo 下午3:02:51
+   *
+   */
+  enum SendMode {
+    /**
+     * Each message is sent with a JMS context of the current scope and the sending thread waits for
+     * the acknowledgement of the broker.
+     */
+    SYNC,
+
+    /**
+     * The messages are sent with the pooled JMS context and producer of the destination and the
+     * sending thread doesn't wait for the acknowledgement of the broker, the completion is notified
+     * by the JMS 2.0 CompletionListener, the number of the incomplete sends is bounded by
+     * {@link MessageSend#maxInFlight()}. The failed sends are logged and can't be rolled back.
+     */
+    ASYNC,
+
+    /**
+     * The messages of a send invocation are sent with the pooled transacted JMS context of the
+     * destination and committed every {@link MessageSend#batchSize()} messages, if any message
+     * fails the uncommitted messages are rolled back.
+     */
+    BATCH
+  }
 }
@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import org.corant.modules.jms.annotation.MessageDriven;
+import org.corant.modules.jms.annotation.MessageDriven.ReceiveMode;
 import org.corant.shared.retry.BackoffStrategy.BackoffAlgorithm;
 
 /**
@@ -49,6 +50,12 @@ public class MessageDrivenMetaData {
 
   private final int acknowledge;
 
+  private final boolean batch;
+
+  private final int batchSize;
+
+  private final long batchTimeout;
+
   private final BackoffAlgorithm brokenBackoffAlgo;
 
   private final double brokenBackoffFactor;
@@ -63,8 +70,20 @@ public class MessageDrivenMetaData {
 
   private final String maxBrokenDuration;
 
+  private final int maxReceivers;
+
+  private final int minReceivers;
+
+  private final String partitionKey;
+
+  private final String partitionKeyExtractor;
+
+  private final int partitions;
+
   private final int receiveThreshold;
 
+  private final ReceiveMode receiveMode;
+
   private final long receiveTimeout;
 
   private final Collection<MessageReplyMetaData> reply;
@@ -80,9 +99,11 @@ public class MessageDrivenMetaData {
   private final boolean xa;
 
   public MessageDrivenMetaData(Class<?> beanClass, Annotation[] beanQualifiers, Method beanMethod,
-      int acknowledge, BackoffAlgorithm brokenBackoffAlgo, double brokenBackoffFactor,
-      String brokenDuration, int cacheLevel, int failureThreshold, long loopIntervalMs,
-      String maxBrokenDuration, int receiveThreshold, long receiveTimeout,
+      int acknowledge, boolean batch, int batchSize, long batchTimeout,
+      BackoffAlgorithm brokenBackoffAlgo, double brokenBackoffFactor, String brokenDuration,
+      int cacheLevel, int failureThreshold, long loopIntervalMs, String maxBrokenDuration,
+      int maxReceivers, int minReceivers, String partitionKey, String partitionKeyExtractor,
+      int partitions, int receiveThreshold, ReceiveMode receiveMode, long receiveTimeout,
       Collection<MessageReplyMetaData> reply, String selector, String[] specifiedSelectors,
       int tryThreshold, int txTimeout, boolean xa) {
     this.beanClass = beanClass;
@@ -90,6 +111,9 @@ public class MessageDrivenMetaData {
         beanQualifiers == null ? EMPTY_ARRAY : Arrays.copyOf(beanQualifiers, beanQualifiers.length);
     this.beanMethod = beanMethod;
     this.acknowledge = acknowledge;
+    this.batch = batch;
+    this.batchSize = batchSize;
+    this.batchTimeout = batchTimeout;
     this.brokenBackoffAlgo = brokenBackoffAlgo;
     this.brokenBackoffFactor = brokenBackoffFactor;
     this.brokenDuration = MetaDataPropertyResolver.get(brokenDuration, String.class);
@@ -97,7 +121,13 @@ public class MessageDrivenMetaData {
     this.failureThreshold = failureThreshold;
     this.loopIntervalMs = loopIntervalMs;
     this.maxBrokenDuration = MetaDataPropertyResolver.get(maxBrokenDuration, String.class);
+    this.maxReceivers = maxReceivers;
+    this.minReceivers = minReceivers;
+    this.partitionKey = MetaDataPropertyResolver.get(partitionKey, String.class);
+    this.partitionKeyExtractor = MetaDataPropertyResolver.get(partitionKeyExtractor, String.class);
+    this.partitions = partitions;
     this.receiveThreshold = receiveThreshold;
+    this.receiveMode = receiveMode == null ? ReceiveMode.POLLING : receiveMode;
     this.receiveTimeout = receiveTimeout;
     this.reply = Collections.unmodifiableList(newArrayList(reply));
     this.selector = MetaDataPropertyResolver.get(selector, String.class);
@@ -115,12 +145,18 @@ public class MessageDrivenMetaData {
     Method beanMethod = shouldNotNull(method);
     MessageDriven annotation = shouldNotNull(method.getAnnotation(MessageDriven.class));
     return new MessageDrivenMetaData(beanMethod.getDeclaringClass(), qualifiers, beanMethod,
-        getInt(annotation.acknowledge()),
+        getInt(annotation.acknowledge()), getBoolean(annotation.batch()),
+        getInt(annotation.batchSize()),
+        getLong(annotation.batchTimeout()),
         get(annotation.brokenBackoffAlgo(), BackoffAlgorithm.class),
         getDouble(annotation.brokenBackoffFactor()), getString(annotation.brokenDuration()),
         getInt(annotation.cacheLevel()), getInt(annotation.failureThreshold()),
         getLong(annotation.loopIntervalMs()), getString(annotation.maxBrokenDuration()),
-        getInt(annotation.receiveThreshold()), getLong(annotation.receiveTimeout()),
+        getInt(annotation.maxReceivers()), getInt(annotation.minReceivers()),
+        getString(annotation.partitionKey()), getString(annotation.partitionKeyExtractor()),
+        getInt(annotation.partitions()),
+        getInt(annotation.receiveThreshold()), get(annotation.receiveMode(), ReceiveMode.class),
+        getLong(annotation.receiveTimeout()),
         MessageReplyMetaData.of(annotation.reply()), getString(annotation.selector()),
         annotation.specifiedSelectors(), getInt(annotation.tryThreshold()),
         getInt(annotation.txTimeout()), getBoolean(annotation.xa()));
@@ -130,6 +166,14 @@ public class MessageDrivenMetaData {
     return acknowledge;
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public long getBatchTimeout() {
+    return batchTimeout;
+  }
+
   public Class<?> getBeanClass() {
     return beanClass;
   }
@@ -170,6 +214,30 @@ public class MessageDrivenMetaData {
     return maxBrokenDuration;
   }
 
+  public int getMaxReceivers() {
+    return maxReceivers;
+  }
+
+  public int getMinReceivers() {
+    return minReceivers;
+  }
+
+  public String getPartitionKey() {
+    return partitionKey;
+  }
+
+  public String getPartitionKeyExtractor() {
+    return partitionKeyExtractor;
+  }
+
+  public int getPartitions() {
+    return partitions;
+  }
+
+  public ReceiveMode getReceiveMode() {
+    return receiveMode;
+  }
+
   public int getReceiveThreshold() {
     return receiveThreshold;
   }
@@ -198,6 +266,10 @@ public class MessageDrivenMetaData {
     return txTimeout;
   }
 
+  public boolean isBatch() {
+    return batch;
+  }
+
   public boolean isXa() {
     return xa;
   }
@@ -13,6 +13,7 @@
  */
 package org.corant.modules.jms.metadata;
 
+import static org.corant.modules.jms.metadata.MetaDataPropertyResolver.get;
 import static org.corant.modules.jms.metadata.MetaDataPropertyResolver.getBoolean;
 import static org.corant.modules.jms.metadata.MetaDataPropertyResolver.getInt;
 import static org.corant.modules.jms.metadata.MetaDataPropertyResolver.getLong;
@@ -22,6 +23,7 @@ import static org.corant.shared.util.Lists.newArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import org.corant.modules.jms.annotation.MessageSend;
+import org.corant.modules.jms.annotation.MessageSend.SendMode;
 
 /**
  * corant-modules-jms-api
@@ -31,6 +33,8 @@ import org.corant.modules.jms.annotation.MessageSend;
  */
 public class MessageSendMetaData {
 
+  private final int batchSize;
+
   private final long deliveryDelay;
 
   private final int deliveryMode;
@@ -41,28 +45,42 @@ public class MessageSendMetaData {
 
   private final String marshaller;
 
+  private final int maxInFlight;
+
   private final Collection<MessagePropertyMetaData> properties;
 
+  private final SendMode sendMode;
+
   private final long timeToLive;
 
-  public MessageSendMetaData(long deliveryDelay, int deliveryMode,
+  public MessageSendMetaData(int batchSize, long deliveryDelay, int deliveryMode,
       MessageDestinationMetaData destination, boolean dupsOkAck, String marshaller,
-      Collection<MessagePropertyMetaData> properties, long timeToLive) {
+      int maxInFlight, Collection<MessagePropertyMetaData> properties, SendMode sendMode,
+      long timeToLive) {
+    this.batchSize = Math.max(1, batchSize);
     this.deliveryDelay = deliveryDelay;
     this.deliveryMode = deliveryMode;
     this.destination = destination;
     this.dupsOkAck = dupsOkAck;
     this.marshaller = MetaDataPropertyResolver.get(marshaller, String.class);
+    this.maxInFlight = Math.max(1, maxInFlight);
     this.properties = Collections.unmodifiableList(newArrayList(properties));
+    this.sendMode = sendMode == null ? SendMode.SYNC : sendMode;
     this.timeToLive = timeToLive;
   }
 
   public static MessageSendMetaData of(MessageSend annotation) {
     shouldNotNull(annotation);
-    return new MessageSendMetaData(getLong(annotation.deliveryDelay()),
-        getInt(annotation.deliveryMode()), MessageDestinationMetaData.of(annotation.destination()),
+    return new MessageSendMetaData(getInt(annotation.batchSize()),
+        getLong(annotation.deliveryDelay()), getInt(annotation.deliveryMode()),
+        MessageDestinationMetaData.of(annotation.destination()),
         getBoolean(annotation.dupsOkAck()), getString(annotation.marshaller()),
-        MessagePropertyMetaData.of(annotation.properties()), getLong(annotation.timeToLive()));
+        getInt(annotation.maxInFlight()), MessagePropertyMetaData.of(annotation.properties()),
+        get(annotation.sendMode(), SendMode.class), getLong(annotation.timeToLive()));
+  }
+
+  public int getBatchSize() {
+    return batchSize;
   }
 
   public long getDeliveryDelay() {
@@ -81,10 +99,18 @@ public class MessageSendMetaData {
     return marshaller;
   }
 
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
   public Collection<MessagePropertyMetaData> getProperties() {
     return properties;
   }
 
+  public SendMode getSendMode() {
+    return sendMode;
+  }
+
   public long getTimeToLive() {
     return timeToLive;
   }
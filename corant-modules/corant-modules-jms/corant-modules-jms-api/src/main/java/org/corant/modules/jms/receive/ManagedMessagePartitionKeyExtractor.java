@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.receive;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * corant-modules-jms-api
+ *
+ * <p>
+ * Extracts the partition key of the partitioned message dispatching, the messages with equal keys
+ * are handled sequentially in the receiving order. The implementations are named CDI beans and
+ * must be thread safe.
+ *
+ * @see org.corant.modules.jms.annotation.MessageDriven#partitionKeyExtractor()
+ *
+ * @author bingo 下午5:02:11
+ *
+ */
+@FunctionalInterface
+public interface ManagedMessagePartitionKeyExtractor {
+
+  /**
+   * Returns the partition key of the given message, the returned null means that the message can
+   * be handled in any order.
+   *
+   * @param message the received message
+   * @param payload the resolved payload of the message
+   * @throws JMSException if the message properties can't be read
+   */
+  Object extract(Message message, Object payload) throws JMSException;
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.send;
+
+import javax.jms.CompletionListener;
+import javax.jms.Destination;
+import javax.jms.JMSContext;
+import javax.jms.JMSRuntimeException;
+import javax.jms.MessageFormatRuntimeException;
+import javax.jms.TransactionRolledBackRuntimeException;
+
+/**
+ * corant-modules-jms-api
+ *
+ * <p>
+ * The pool of the JMS contexts used to send messages, the pooled contexts are grouped by the
+ * connection factory id, the destination and whether the context is transacted. A borrowed context
+ * is used by one thread at a time and must be released after use.
+ *
+ * @author bingo 下午3:20:18
+ *
+ */
+public interface MessageProducerPool {
+
+  /**
+   * Returns whether the given exception thrown while using a borrowed producer means the JMS
+   * context or its connection may be broken, i.e. it's or it wraps a provider
+   * {@link JMSRuntimeException} other than the message format exception and the transaction rolled
+   * back exception. The result can be used as the broken argument of
+   * {@link #release(PooledMessageProducer, boolean)}.
+   *
+   * @param e the exception occurred while sending
+   */
+  static boolean isBroken(Throwable e) {
+    final Throwable t = e instanceof JMSRuntimeException ? e : e.getCause();
+    return t instanceof JMSRuntimeException && !(t instanceof MessageFormatRuntimeException)
+        && !(t instanceof TransactionRolledBackRuntimeException);
+  }
+
+  /**
+   * Borrow a pooled message producer of the given connection factory and destination, creates a new
+   * one if there is no idle one.
+   *
+   * @param connectionFactoryId the connection factory id
+   * @param multicast whether the destination is a topic
+   * @param destination the destination name
+   * @param transacted whether the JMS context of the producer is SESSION_TRANSACTED
+   * @return a pooled message producer
+   */
+  PooledMessageProducer borrow(String connectionFactoryId, boolean multicast, String destination,
+      boolean transacted);
+
+  /**
+   * Return the borrowed message producer to the pool, if the given broken is true or the pool is
+   * full the producer is closed.
+   *
+   * @param producer the borrowed message producer
+   * @param broken whether the JMS context of the producer or its connection was broken while
+   *        using, e.g. the provider threw a JMS runtime exception
+   */
+  void release(PooledMessageProducer producer, boolean broken);
+
+  /**
+   * corant-modules-jms-api
+   *
+   * @author bingo 下午3:20:18
+   *
+   */
+  interface PooledMessageProducer {
+
+    /**
+     * Blocks until the in-flight window of the destination has a free permit, then returns the
+     * completion listener that should be set to the JMS producer by
+     * {@link javax.jms.JMSProducer#setAsync(CompletionListener)}, the returned listener releases
+     * the permit when the asynchronous send completes and then notifies the given listener. If the
+     * send fails synchronously, the caller must invoke {@link CompletionListener#onException} of
+     * the returned listener to release the permit.
+     *
+     * <p>
+     * The size of the in-flight window is decided by the first acquirement of the destination.
+     *
+     * @param maxInFlight the maximum number of the incomplete asynchronous sends of the destination
+     * @param listener the listener to be notified when the send completes, can be null
+     */
+    CompletionListener acquire(int maxInFlight, CompletionListener listener);
+
+    /**
+     * Returns the pooled JMS context
+     */
+    JMSContext getContext();
+
+    /**
+     * Returns the destination of the pooled producer
+     */
+    Destination getDestination();
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.artemis;
+
+import static org.corant.context.Beans.findNamed;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+import org.apache.activemq.artemis.api.core.management.ResourceNames;
+import org.apache.activemq.artemis.api.jms.management.JMSManagementHelper;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.corant.modules.jms.shared.receive.MessageReceivingBacklogProvider;
+import org.corant.modules.jms.shared.receive.MessageReceivingMetaData;
+
+/**
+ * corant-modules-jms-artemis
+ *
+ * <p>
+ * Provides the message count of the anycast destination queue of the message receiver through the
+ * Artemis management address, used by the receiving autoscaling. The management requests of a
+ * connection factory share one connection, the connection is closed and recreated by the next
+ * request if the broker doesn't reply in time or any error occurred, in which case an empty result
+ * is returned, e.g. the user of the connection factory has no management permission.
+ *
+ * @author bingo 下午7:40:26
+ *
+ */
+@ApplicationScoped
+public class ArtemisMessageReceivingBacklogProvider implements MessageReceivingBacklogProvider {
+
+  public static final String MANAGEMENT_ADDRESS = "activemq.management";
+  public static final long MANAGEMENT_TIMEOUT_MS = 2000L;
+
+  protected final Logger logger =
+      Logger.getLogger(ArtemisMessageReceivingBacklogProvider.class.getName());
+
+  protected final Map<String, ManagementRequestor> requestors = new ConcurrentHashMap<>();
+
+  @Override
+  public OptionalLong getBacklog(MessageReceivingMetaData meta) {
+    if (meta.isMulticast()) {
+      return OptionalLong.empty();
+    }
+    Optional<ActiveMQConnectionFactory> factory =
+        findNamed(ActiveMQConnectionFactory.class, meta.getConnectionFactoryId());
+    if (factory.isEmpty()) {
+      return OptionalLong.empty();
+    }
+    ManagementRequestor requestor = requestors.computeIfAbsent(meta.getConnectionFactoryId(),
+        k -> new ManagementRequestor(factory.get()));
+    try {
+      return requestor.getMessageCount(meta.getDestination());
+    } catch (Exception e) {
+      requestor.close();
+      logger.log(Level.FINE, e,
+          () -> String.format("Can't get the message count of the queue, [%s].", meta));
+    }
+    return OptionalLong.empty();
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    requestors.values().forEach(ManagementRequestor::close);
+    requestors.clear();
+  }
+
+  /**
+   * corant-modules-jms-artemis
+   *
+   * <p>
+   * The management requestor of a connection factory, the connection, the session and the reply
+   * queue are created lazily and reused by the subsequent requests, the requests are serialized
+   * since the session is not thread safe.
+   *
+   * @author bingo 下午7:40:26
+   *
+   */
+  protected static class ManagementRequestor {
+
+    protected final ActiveMQConnectionFactory factory;
+
+    protected Connection connection;
+    protected Session session;
+    protected MessageProducer producer;
+    protected MessageConsumer consumer;
+    protected TemporaryQueue replyQueue;
+
+    protected ManagementRequestor(ActiveMQConnectionFactory factory) {
+      this.factory = factory;
+    }
+
+    /**
+     * Close the connection, the next request recreates it.
+     */
+    public synchronized void close() {
+      if (connection != null) {
+        try {
+          connection.close();
+        } catch (Exception e) {
+          // Noop!
+        } finally {
+          connection = null;
+          session = null;
+          producer = null;
+          consumer = null;
+          replyQueue = null;
+        }
+      }
+    }
+
+    /**
+     * Returns the message count of the given queue, returns an empty result if the request was
+     * failed.
+     *
+     * @param queue the queue name
+     * @throws JMSException if the broker can't be requested
+     */
+    public synchronized OptionalLong getMessageCount(String queue) throws JMSException {
+      if (connection == null) {
+        open();
+      }
+      Message request = session.createMessage();
+      JMSManagementHelper.putAttribute(request, ResourceNames.QUEUE + queue, "messageCount");
+      request.setJMSReplyTo(replyQueue);
+      producer.send(request);
+      Message reply = consumer.receive(MANAGEMENT_TIMEOUT_MS);
+      if (reply == null) {
+        // close the reply queue so that a late reply isn't taken as the reply of the next request
+        close();
+      } else if (JMSManagementHelper.hasOperationSucceeded(reply)) {
+        Object result;
+        try {
+          result = JMSManagementHelper.getResult(reply);
+        } catch (JMSException e) {
+          throw e;
+        } catch (Exception e) {
+          JMSException ex = new JMSException("Can't resolve the message count of " + queue);
+          ex.setLinkedException(e);
+          throw ex;
+        }
+        if (result instanceof Number) {
+          return OptionalLong.of(((Number) result).longValue());
+        }
+      }
+      return OptionalLong.empty();
+    }
+
+    protected void open() throws JMSException {
+      connection = factory.createConnection();
+      try {
+        connection.setExceptionListener(e -> close());
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        replyQueue = session.createTemporaryQueue();
+        producer = session.createProducer(session.createQueue(MANAGEMENT_ADDRESS));
+        consumer = session.createConsumer(replyQueue);
+        connection.start();
+      } catch (JMSException | RuntimeException e) {
+        close();
+        throw e;
+      }
+    }
+  }
+
+}
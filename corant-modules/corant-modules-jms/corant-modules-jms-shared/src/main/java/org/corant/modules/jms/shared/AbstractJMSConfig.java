@@ -58,6 +58,9 @@ public abstract class AbstractJMSConfig implements JMSConfig, NamedObject, Decla
   @ConfigKeyItem
   protected boolean propagateSecurityContext = false;
 
+  @ConfigKeyItem
+  protected boolean enableMetrics = false;
+
   @Override
   public boolean equals(Object obj) {
     if (this == obj) {
@@ -121,6 +124,16 @@ public abstract class AbstractJMSConfig implements JMSConfig, NamedObject, Decla
     return enable;
   }
 
+  /**
+   * Returns whether to record the receiving and sending metrics of the destinations of the
+   * connection factory and register them to JMX, default is false.
+   *
+   * @see JMSInstrumentation
+   */
+  public boolean isEnableMetrics() {
+    return enableMetrics;
+  }
+
   public boolean isPropagateSecurityContext() {
     return propagateSecurityContext;
   }
@@ -15,7 +15,7 @@ package org.corant.modules.jms.shared;
 
 import static java.util.Collections.newSetFromMap;
 import static org.corant.context.Beans.findNamed;
-import static org.corant.context.Beans.select;
+import static org.corant.context.Beans.tryResolve;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.isNotEmpty;
 import static org.corant.shared.util.Lists.union;
@@ -46,6 +46,7 @@ import org.corant.modules.jms.annotation.MessageDriven;
 import org.corant.modules.jms.annotation.MessageReply;
 import org.corant.modules.jms.annotation.MessageSend;
 import org.corant.modules.jms.marshaller.MessageMarshaller;
+import org.corant.modules.jms.shared.receive.MessageReceivingMetaData;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.normal.Priorities;
 import org.corant.shared.ubiquity.Tuple.Pair;
@@ -70,10 +71,8 @@ public abstract class AbstractJMSExtension implements Extension {
       NamedQualifierObjectManager.empty();
 
   public static AbstractJMSConfig getConfig(String connectionFactoryId) {
-    if (select(AbstractJMSExtension.class).isResolvable()) {
-      return select(AbstractJMSExtension.class).get().getConfigManager().get(connectionFactoryId);
-    }
-    return null;
+    AbstractJMSExtension extension = tryResolve(AbstractJMSExtension.class);
+    return extension == null ? null : extension.getConfigManager().get(connectionFactoryId);
   }
 
   public NamedQualifierObjectManager<? extends AbstractJMSConfig> getConfigManager() {
@@ -90,6 +89,7 @@ public abstract class AbstractJMSExtension implements Extension {
 
   protected void onBeforeShutdown(
       @Observes @Priority(Priorities.FRAMEWORK_LOWER) BeforeShutdown bs) {
+    JMSInstrumentation.releaseAll();
     configManager.destroy();
     receiveMethods.clear();
     streamMethods.clear();
@@ -122,7 +122,8 @@ public abstract class AbstractJMSExtension implements Extension {
           Set<MessageDestination> mds =
               setOf(method.getAnnotationsByType(MessageDestination.class));
           Set<MessageDestination> pds =
-              setOf(method.getParameterTypes()[0].getAnnotationsByType(MessageDestination.class));
+              setOf(MessageReceivingMetaData.resolvePayloadClass(method)
+                  .getAnnotationsByType(MessageDestination.class));
           receiveMethods.put(cm, Pair.of(mds, pds));
         });
   }
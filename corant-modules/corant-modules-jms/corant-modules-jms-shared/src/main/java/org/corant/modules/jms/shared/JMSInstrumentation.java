@@ -0,0 +1,486 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared;
+
+import static org.corant.shared.normal.Names.applicationName;
+import static org.corant.shared.util.MBeans.deregisterFromMBean;
+import static org.corant.shared.util.MBeans.registerToMBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.jms.BytesMessage;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import javax.management.ObjectName;
+import org.corant.modules.jms.shared.jmx.JMSMetrics;
+import org.corant.shared.ubiquity.TimeHistogram;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * The instrumentation of the message receiving or sending of a destination, it records the message
+ * counts, the handling or sending time, the empty receive wait time, the marshalling time, the
+ * payload sizes, the redeliveries and the circuit break of the receiving tasks. The instrumentation
+ * only records if the metrics of the connection factory is enabled, see
+ * {@link AbstractJMSConfig#isEnableMetrics()}, the enabled instrumentations are registered to JMX
+ * and can be exported by the metrics module.
+ *
+ * @author bingo 下午2:16:35
+ *
+ */
+public class JMSInstrumentation {
+
+  protected static final Logger logger = Logger.getLogger(JMSInstrumentation.class.getName());
+  protected static final Map<Key, JMSInstrumentation> instrumentations = new ConcurrentHashMap<>();
+  protected static final List<Consumer<JMSInstrumentation>> listeners =
+      new CopyOnWriteArrayList<>();
+  protected static final List<String> mbeanNames = new CopyOnWriteArrayList<>();
+
+  protected final Key key;
+  protected final boolean enabled;
+  protected final LongAdder messages = new LongAdder();
+  protected final LongAdder handled = new LongAdder();
+  protected final LongAdder failed = new LongAdder();
+  protected final LongAdder asyncFailed = new LongAdder();
+  protected final LongAdder redelivered = new LongAdder();
+  protected final LongAdder payloadBytes = new LongAdder();
+  protected final LongAdder payloads = new LongAdder();
+  protected final LongAccumulator maxPayloadBytes = new LongAccumulator(Math::max, 0);
+  protected final TimeHistogram processTime = new TimeHistogram();
+  protected final TimeHistogram receiveWait = new TimeHistogram();
+  protected final TimeHistogram marshalTime = new TimeHistogram();
+  protected final AtomicInteger brokenTasks = new AtomicInteger();
+  protected final LongAdder brokenCount = new LongAdder();
+  protected final LongAdder brokenNanos = new LongAdder();
+
+  protected JMSInstrumentation(Key key, boolean enabled) {
+    this.key = key;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Add a listener that is notified with the existing enabled instrumentations and the enabled
+   * instrumentations created afterwards.
+   *
+   * @param listener the listener
+   */
+  public static void addListener(Consumer<JMSInstrumentation> listener) {
+    listeners.add(listener);
+    getAll().forEach(listener);
+  }
+
+  /**
+   * Returns all the enabled instrumentations
+   */
+  public static Collection<JMSInstrumentation> getAll() {
+    List<JMSInstrumentation> all = new ArrayList<>();
+    instrumentations.values().forEach(i -> {
+      if (i.enabled) {
+        all.add(i);
+      }
+    });
+    return Collections.unmodifiableList(all);
+  }
+
+  /**
+   * Returns the instrumentation of the given kind, connection factory id and destination, the
+   * instrumentation is created and registered to JMX on the first call.
+   *
+   * @param kind the kind of the instrumentation
+   * @param connectionFactoryId the connection factory id
+   * @param destination the destination name
+   * @param multicast whether the destination is a topic
+   */
+  public static JMSInstrumentation of(Kind kind, String connectionFactoryId, String destination,
+      boolean multicast) {
+    final Key key = new Key(kind, connectionFactoryId, destination, multicast);
+    JMSInstrumentation ins = instrumentations.get(key);
+    if (ins == null) {
+      ins = instrumentations.computeIfAbsent(key, k -> {
+        AbstractJMSConfig config = AbstractJMSExtension.getConfig(k.connectionFactoryId);
+        return new JMSInstrumentation(k, config != null && config.isEnableMetrics());
+      });
+      if (ins.enabled) {
+        ins.register();
+      }
+    }
+    return ins;
+  }
+
+  /**
+   * Deregister all the instrumentations from JMX and remove all the listeners.
+   */
+  public static void releaseAll() {
+    if (!mbeanNames.isEmpty()) {
+      deregisterFromMBean(mbeanNames.toArray(String[]::new));
+      mbeanNames.clear();
+    }
+    listeners.clear();
+    instrumentations.clear();
+  }
+
+  /**
+   * Remove the given listener.
+   *
+   * @param listener the listener to remove
+   */
+  public static void removeListener(Consumer<JMSInstrumentation> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Returns the payload size in bytes of the given message if the size can be resolved without
+   * changing the state of the message, otherwise returns -1.
+   *
+   * @param message the message
+   */
+  public static long resolvePayloadSize(Message message) {
+    try {
+      if (message instanceof BytesMessage) {
+        return ((BytesMessage) message).getBodyLength();
+      } else if (message instanceof TextMessage) {
+        String text = ((TextMessage) message).getText();
+        return text == null ? 0 : text.length();
+      }
+    } catch (Exception e) {
+      // the message body is write-only or unreadable
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the number of the asynchronous sends that completed exceptionally
+   */
+  public long getAsyncFailedCount() {
+    return asyncFailed.sum();
+  }
+
+  /**
+   * Returns the number of the currently broken receiving tasks
+   */
+  public int getBrokenTasks() {
+    return brokenTasks.get();
+  }
+
+  /**
+   * Returns the number of the receiving tasks entering the breaking mode
+   */
+  public long getBrokenCount() {
+    return brokenCount.sum();
+  }
+
+  /**
+   * Returns the total milliseconds that the receiving tasks were broken
+   */
+  public long getBrokenMillis() {
+    return brokenNanos.sum() / 1000000L;
+  }
+
+  public String getConnectionFactoryId() {
+    return key.connectionFactoryId;
+  }
+
+  public String getDestination() {
+    return key.destination;
+  }
+
+  /**
+   * Returns the number of the messages failed to be handled or sent
+   */
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
+  /**
+   * Returns the number of the messages handled or sent successfully
+   */
+  public long getHandledCount() {
+    return handled.sum();
+  }
+
+  public Kind getKind() {
+    return key.kind;
+  }
+
+  /**
+   * Returns the marshalling time histogram
+   */
+  public TimeHistogram getMarshalTime() {
+    return marshalTime;
+  }
+
+  /**
+   * Returns the max resolvable payload size in bytes
+   */
+  public long getMaxPayloadBytes() {
+    return maxPayloadBytes.get();
+  }
+
+  /**
+   * Returns the mean of the resolvable payload sizes in bytes
+   */
+  public double getMeanPayloadBytes() {
+    long count = payloads.sum();
+    return count == 0 ? 0 : payloadBytes.sum() / (double) count;
+  }
+
+  /**
+   * Returns the number of the received or sending messages
+   */
+  public long getMessageCount() {
+    return messages.sum();
+  }
+
+  /**
+   * Returns the handling time histogram of the receiver or the sending time histogram of the
+   * sender
+   */
+  public TimeHistogram getProcessTime() {
+    return processTime;
+  }
+
+  /**
+   * Returns the number of the received messages that were redelivered
+   */
+  public long getRedeliveredCount() {
+    return redelivered.sum();
+  }
+
+  /**
+   * Returns the histogram of the time spent on the receive invocations that returned no message
+   */
+  public TimeHistogram getReceiveWait() {
+    return receiveWait;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public boolean isMulticast() {
+    return key.multicast;
+  }
+
+  /**
+   * Record that an asynchronous send completed exceptionally, the failure is reported by the
+   * completion listener after the sending invocation returned.
+   */
+  public void onAsyncFailed() {
+    if (enabled) {
+      asyncFailed.increment();
+    }
+  }
+
+  /**
+   * Record that a receiving task entered the breaking mode
+   */
+  public void onBroken() {
+    if (enabled) {
+      brokenTasks.incrementAndGet();
+      brokenCount.increment();
+    }
+  }
+
+  /**
+   * Record that a receiving task left the breaking mode
+   *
+   * @param brokenNanos the nanoseconds that the task was broken
+   */
+  public void onBrokenExited(long brokenNanos) {
+    if (enabled) {
+      brokenTasks.decrementAndGet();
+      this.brokenNanos.add(Math.max(0, brokenNanos));
+    }
+  }
+
+  /**
+   * Record the empty receive invocation
+   *
+   * @param nanos the nanoseconds waited
+   */
+  public void onEmptyReceived(long nanos) {
+    if (enabled) {
+      receiveWait.record(nanos);
+    }
+  }
+
+  /**
+   * Record the marshalling
+   *
+   * @param nanos the marshalling nanoseconds
+   */
+  public void onMarshalled(long nanos) {
+    if (enabled) {
+      marshalTime.record(nanos);
+    }
+  }
+
+  /**
+   * Record the handling or sending of the given number of messages
+   *
+   * @param count the number of the messages
+   * @param nanos the handling or sending nanoseconds
+   * @param success whether the handling or sending succeeded
+   */
+  public void onProcessed(int count, long nanos, boolean success) {
+    if (enabled) {
+      processTime.record(nanos);
+      if (success) {
+        handled.add(count);
+      } else {
+        failed.add(count);
+      }
+    }
+  }
+
+  /**
+   * Record the received message
+   *
+   * @param message the received message
+   */
+  public void onReceived(Message message) {
+    if (enabled) {
+      messages.increment();
+      try {
+        if (message.getJMSRedelivered()) {
+          redelivered.increment();
+        }
+      } catch (Exception e) {
+        // ignore the unknown redelivery
+      }
+      onPayload(resolvePayloadSize(message));
+    }
+  }
+
+  /**
+   * Record the sending message
+   *
+   * @param payloadSize the payload size in bytes, -1 if unknown
+   */
+  public void onSending(long payloadSize) {
+    if (enabled) {
+      messages.increment();
+      onPayload(payloadSize);
+    }
+  }
+
+  /**
+   * Clears all the histograms
+   */
+  public void resetHistograms() {
+    processTime.reset();
+    receiveWait.reset();
+    marshalTime.reset();
+  }
+
+  @Override
+  public String toString() {
+    return key.toString();
+  }
+
+  protected void onPayload(long size) {
+    if (size >= 0) {
+      payloads.increment();
+      payloadBytes.add(size);
+      maxPayloadBytes.accumulate(size);
+    }
+  }
+
+  protected void register() {
+    synchronized (this) {
+      String name = applicationName().concat(":type=jms,subtype=")
+          .concat(key.kind.name().toLowerCase()).concat(",name=")
+          .concat(ObjectName.quote(key.connectionFactoryId + ":" + key.destination));
+      if (mbeanNames.contains(name)) {
+        return;
+      }
+      try {
+        registerToMBean(name, new JMSMetrics(this));
+        mbeanNames.add(name);
+        logger.fine(() -> String.format("Register JMS %s metrics to jmx.", key));
+      } catch (Exception e) {
+        logger.log(Level.WARNING, e, () -> String.format("Can't register JMS %s metrics.", key));
+      }
+    }
+    listeners.forEach(l -> l.accept(this));
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午2:16:35
+   *
+   */
+  public enum Kind {
+    RECEIVER, SENDER
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午2:16:35
+   *
+   */
+  protected static class Key {
+
+    final Kind kind;
+    final String connectionFactoryId;
+    final String destination;
+    final boolean multicast;
+
+    Key(Kind kind, String connectionFactoryId, String destination, boolean multicast) {
+      this.kind = kind;
+      this.connectionFactoryId = connectionFactoryId;
+      this.destination = destination;
+      this.multicast = multicast;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return kind == other.kind && multicast == other.multicast
+          && Objects.equals(connectionFactoryId, other.connectionFactoryId)
+          && Objects.equals(destination, other.destination);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(kind, connectionFactoryId, destination, multicast);
+    }
+
+    @Override
+    public String toString() {
+      return kind.name().toLowerCase() + " [connection factory: " + connectionFactoryId
+          + ", destination: " + destination + ", multicast: " + multicast + "]";
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.jmx;
+
+import java.util.concurrent.TimeUnit;
+import org.corant.modules.jms.shared.JMSInstrumentation;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * @author bingo 下午2:58:04
+ *
+ */
+public class JMSMetrics implements JMSMetricsMBean {
+
+  final JMSInstrumentation instrumentation;
+
+  public JMSMetrics(JMSInstrumentation instrumentation) {
+    this.instrumentation = instrumentation;
+  }
+
+  @Override
+  public long getAsyncFailedCount() {
+    return instrumentation.getAsyncFailedCount();
+  }
+
+  @Override
+  public long getBrokenCount() {
+    return instrumentation.getBrokenCount();
+  }
+
+  @Override
+  public long getBrokenMillis() {
+    return instrumentation.getBrokenMillis();
+  }
+
+  @Override
+  public int getBrokenTasks() {
+    return instrumentation.getBrokenTasks();
+  }
+
+  @Override
+  public String getConnectionFactoryId() {
+    return instrumentation.getConnectionFactoryId();
+  }
+
+  @Override
+  public String getDestination() {
+    return instrumentation.getDestination();
+  }
+
+  @Override
+  public long getFailedCount() {
+    return instrumentation.getFailedCount();
+  }
+
+  @Override
+  public long getHandledCount() {
+    return instrumentation.getHandledCount();
+  }
+
+  @Override
+  public double getMarshalTimeMaxMillis() {
+    return instrumentation.getMarshalTime().getMax(TimeUnit.MICROSECONDS) / 1000d;
+  }
+
+  @Override
+  public double getMarshalTimeMeanMillis() {
+    return instrumentation.getMarshalTime().getMeanMillis();
+  }
+
+  @Override
+  public double getMarshalTimeP50Millis() {
+    return instrumentation.getMarshalTime().getPercentileMillis(0.5);
+  }
+
+  @Override
+  public double getMarshalTimeP99Millis() {
+    return instrumentation.getMarshalTime().getPercentileMillis(0.99);
+  }
+
+  @Override
+  public long getMaxPayloadBytes() {
+    return instrumentation.getMaxPayloadBytes();
+  }
+
+  @Override
+  public double getMeanPayloadBytes() {
+    return instrumentation.getMeanPayloadBytes();
+  }
+
+  @Override
+  public long getMessageCount() {
+    return instrumentation.getMessageCount();
+  }
+
+  @Override
+  public double getProcessTimeMaxMillis() {
+    return instrumentation.getProcessTime().getMax(TimeUnit.MICROSECONDS) / 1000d;
+  }
+
+  @Override
+  public double getProcessTimeMeanMillis() {
+    return instrumentation.getProcessTime().getMeanMillis();
+  }
+
+  @Override
+  public double getProcessTimeP50Millis() {
+    return instrumentation.getProcessTime().getPercentileMillis(0.5);
+  }
+
+  @Override
+  public double getProcessTimeP99Millis() {
+    return instrumentation.getProcessTime().getPercentileMillis(0.99);
+  }
+
+  @Override
+  public double getReceiveWaitMaxMillis() {
+    return instrumentation.getReceiveWait().getMax(TimeUnit.MICROSECONDS) / 1000d;
+  }
+
+  @Override
+  public double getReceiveWaitMeanMillis() {
+    return instrumentation.getReceiveWait().getMeanMillis();
+  }
+
+  @Override
+  public double getReceiveWaitP50Millis() {
+    return instrumentation.getReceiveWait().getPercentileMillis(0.5);
+  }
+
+  @Override
+  public double getReceiveWaitP99Millis() {
+    return instrumentation.getReceiveWait().getPercentileMillis(0.99);
+  }
+
+  @Override
+  public long getRedeliveredCount() {
+    return instrumentation.getRedeliveredCount();
+  }
+
+  @Override
+  public boolean isMulticast() {
+    return instrumentation.isMulticast();
+  }
+
+  @Override
+  public void resetHistograms() {
+    instrumentation.resetHistograms();
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.jmx;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * @author bingo 下午2:58:04
+ *
+ */
+public interface JMSMetricsMBean {
+
+  long getAsyncFailedCount();
+
+  long getBrokenCount();
+
+  long getBrokenMillis();
+
+  int getBrokenTasks();
+
+  String getConnectionFactoryId();
+
+  String getDestination();
+
+  long getFailedCount();
+
+  long getHandledCount();
+
+  double getMarshalTimeMaxMillis();
+
+  double getMarshalTimeMeanMillis();
+
+  double getMarshalTimeP50Millis();
+
+  double getMarshalTimeP99Millis();
+
+  long getMaxPayloadBytes();
+
+  double getMeanPayloadBytes();
+
+  long getMessageCount();
+
+  double getProcessTimeMaxMillis();
+
+  double getProcessTimeMeanMillis();
+
+  double getProcessTimeP50Millis();
+
+  double getProcessTimeP99Millis();
+
+  double getReceiveWaitMaxMillis();
+
+  double getReceiveWaitMeanMillis();
+
+  double getReceiveWaitP50Millis();
+
+  double getReceiveWaitP99Millis();
+
+  long getRedeliveredCount();
+
+  boolean isMulticast();
+
+  void resetHistograms();
+
+}
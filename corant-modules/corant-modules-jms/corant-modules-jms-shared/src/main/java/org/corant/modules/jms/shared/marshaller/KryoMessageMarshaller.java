@@ -13,13 +13,30 @@
  */
 package org.corant.modules.jms.shared.marshaller;
 
+import static org.corant.modules.jms.JMSNames.MSG_COMPRESSION;
+import static org.corant.modules.jms.JMSNames.MSG_COMPRESSION_DEFLATE;
 import static org.corant.shared.util.Assertions.shouldInstanceOf;
+import static org.corant.shared.util.Classes.asClass;
 import static org.corant.shared.util.Classes.getUserClass;
-import java.io.ByteArrayOutputStream;
+import static org.corant.shared.util.Strings.split;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.jms.BytesMessage;
 import javax.jms.JMSContext;
@@ -28,14 +45,37 @@ import javax.jms.Message;
 import javax.jms.Session;
 import org.corant.modules.jms.marshaller.MessageMarshaller;
 import org.corant.shared.exception.CorantRuntimeException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.Pool;
 
 /**
  * corant-modules-jms-shared
  *
+ * <p>
+ * Kryo message marshaller, the {@link Kryo} instances and the {@link Output}/{@link Input} buffers
+ * are pooled, the serialized bytes are streamed into the {@link BytesMessage} and deserialized
+ * from the {@link BytesMessage} directly without an intermediate full array. The marshaller can be
+ * configured by:
+ * <ul>
+ * <li>{@code corant.jms.marshaller.kryo.registrations}: the comma separated class names to
+ * register, the classes are registered with the IDs start from {@link #REGISTRATION_ID_BASE} in
+ * the declared order, so that the class IDs rather than the class names are written into the
+ * payloads. The producers and the consumers must declare the same list.</li>
+ * <li>{@code corant.jms.marshaller.kryo.compression-threshold}: if the serialized size is greater
+ * than the threshold the payload is deflated and the message property
+ * {@link org.corant.modules.jms.JMSNames#MSG_COMPRESSION} is set, the default is -1 means no
+ * compression.</li>
+ * <li>{@code corant.jms.marshaller.kryo.buffer-size}: the initial buffer size of the pooled
+ * buffers, the default is 4096.</li>
+ * <li>{@code corant.jms.marshaller.kryo.max-pooled-buffer-size}: the buffers grow larger than this
+ * are not returned to the pool, the default is 1048576.</li>
+ * </ul>
+ *
  * @author bingo 上午11:34:02
  *
  */
@@ -43,15 +83,31 @@ import com.esotericsoftware.kryo.io.Output;
 @Named("KRYO")
 public class KryoMessageMarshaller implements MessageMarshaller {
 
+  public static final int REGISTRATION_ID_BASE = 100;
+
   protected static final Map<Class<?>, Serializer<?>> customSerializers = new ConcurrentHashMap<>();
 
-  protected static final ThreadLocal<Kryo> kryoCache = ThreadLocal.withInitial(() -> {
-    Kryo inst = new Kryo();
-    customSerializers.forEach(inst::addDefaultSerializer);
-    inst.setRegistrationRequired(false);// FIXME
-    inst.setReferences(false);
-    return inst;
-  });
+  @Inject
+  @ConfigProperty(name = "corant.jms.marshaller.kryo.registrations")
+  protected Optional<String> registrations;
+
+  @Inject
+  @ConfigProperty(name = "corant.jms.marshaller.kryo.compression-threshold", defaultValue = "-1")
+  protected Integer compressionThreshold;
+
+  @Inject
+  @ConfigProperty(name = "corant.jms.marshaller.kryo.buffer-size", defaultValue = "4096")
+  protected Integer bufferSize;
+
+  @Inject
+  @ConfigProperty(name = "corant.jms.marshaller.kryo.max-pooled-buffer-size",
+      defaultValue = "1048576")
+  protected Integer maxPooledBufferSize;
+
+  protected List<Class<?>> registrationClasses = Collections.emptyList();
+  protected Pool<Kryo> kryoPool;
+  protected Pool<Output> outputPool;
+  protected Pool<Input> inputPool;
 
   public static Serializer<?> putCustomSerializer(Class<?> type, Serializer<?> serializer) {
     return customSerializers.put(type, serializer);
@@ -64,63 +120,224 @@ public class KryoMessageMarshaller implements MessageMarshaller {
   @Override
   public <T> T deserialize(Message message, Class<T> clazz) {
     BytesMessage bytMsg = shouldInstanceOf(message, BytesMessage.class);
+    Inflater inflater = null;
+    Kryo kryo = null;
+    Input input = null;
     try {
       if (bytMsg.getBodyLength() == 0) {
         return null;
       }
-      byte[] data = new byte[(int) bytMsg.getBodyLength()];
-      bytMsg.readBytes(data);
-      return fromBytes(data, clazz);
-    } catch (JMSException e) {
+      InputStream is = new BytesMessageInputStream(bytMsg);
+      if (MSG_COMPRESSION_DEFLATE.equals(bytMsg.getStringProperty(MSG_COMPRESSION))) {
+        inflater = new Inflater();
+        is = new InflaterInputStream(is, inflater, bufferSize);
+      }
+      kryo = kryoPool.obtain();
+      kryo.register(getUserClass(clazz));
+      input = inputPool.obtain();
+      input.setInputStream(is);
+      return kryo.readObject(input, clazz);
+    } catch (JMSException | KryoException e) {
       throw new CorantRuntimeException(e);
+    } finally {
+      if (input != null) {
+        input.setInputStream(null);
+        inputPool.free(input);
+      }
+      if (kryo != null) {
+        kryoPool.free(kryo);
+      }
+      if (inflater != null) {
+        inflater.end();
+      }
     }
   }
 
   @Override
   public Message serialize(JMSContext jmsContext, Object object) {
-    BytesMessage bytMsg = jmsContext.createBytesMessage();
-    if (object != null) {
-      try {
-        bytMsg.writeBytes(toBytes(object));
-      } catch (JMSException e) {
-        throw new CorantRuntimeException(e);
-      }
-    }
-    return resolveSchemaProperty(bytMsg, "KRYO");
+    return doSerialize(jmsContext.createBytesMessage(), object);
   }
 
   @Override
   public Message serialize(Session session, Object object) {
     try {
-      BytesMessage bytMsg = session.createBytesMessage();
-      if (object != null) {
-        bytMsg.writeBytes(toBytes(object));
-      }
-      return resolveSchemaProperty(bytMsg, "KRYO");
+      return doSerialize(session.createBytesMessage(), object);
     } catch (JMSException e) {
       throw new CorantRuntimeException(e);
     }
   }
 
-  protected <T> T fromBytes(byte[] bytes, Class<T> clazz) {
-    final Kryo kryo = kryoCache.get();
-    kryo.register(getUserClass(clazz));
-    try (Input in = new Input(bytes)) {
-      return kryo.readObject(in, clazz);
+  protected Kryo createKryo() {
+    Kryo inst = new Kryo();
+    customSerializers.forEach(inst::addDefaultSerializer);
+    inst.setRegistrationRequired(false);
+    inst.setReferences(false);
+    for (int i = 0; i < registrationClasses.size(); i++) {
+      inst.register(registrationClasses.get(i), REGISTRATION_ID_BASE + i);
     }
+    return inst;
+  }
+
+  @PostConstruct
+  protected void onPostConstruct() {
+    registrationClasses = registrations
+        .map(r -> Arrays.stream(split(r, ",", true, true)).map(cn -> asClass(cn))
+            .collect(Collectors.<Class<?>>toList()))
+        .orElse(Collections.emptyList());
+    final int capacity = Runtime.getRuntime().availableProcessors() * 4;
+    kryoPool = new Pool<>(true, false, capacity) {
+      @Override
+      protected Kryo create() {
+        return createKryo();
+      }
+    };
+    outputPool = new Pool<>(true, false, capacity) {
+      @Override
+      protected Output create() {
+        return new Output(bufferSize, -1);
+      }
+    };
+    inputPool = new Pool<>(true, false, capacity) {
+      @Override
+      protected Input create() {
+        return new Input(bufferSize);
+      }
+    };
   }
 
   @PreDestroy
   protected void onPreDestroy() {
     customSerializers.clear();
+    if (kryoPool != null) {
+      kryoPool.clear();
+      outputPool.clear();
+      inputPool.clear();
+    }
+  }
+
+  protected Message doSerialize(BytesMessage bytMsg, Object object) {
+    if (object != null) {
+      final Kryo kryo = kryoPool.obtain();
+      final Output output = outputPool.obtain();
+      try {
+        kryo.register(getUserClass(object));
+        final OutputStream os = new BytesMessageOutputStream(bytMsg);
+        if (compressionThreshold < 0) {
+          // stream the buffer into the message each time it is full
+          output.setOutputStream(os);
+          kryo.writeObject(output, object);
+          output.flush();
+        } else {
+          output.setOutputStream(null);
+          kryo.writeObject(output, object);
+          if (output.position() > compressionThreshold) {
+            final Deflater deflater = new Deflater();
+            try (DeflaterOutputStream dos = new DeflaterOutputStream(os, deflater, bufferSize)) {
+              dos.write(output.getBuffer(), 0, output.position());
+            } finally {
+              deflater.end();
+            }
+            bytMsg.setStringProperty(MSG_COMPRESSION, MSG_COMPRESSION_DEFLATE);
+          } else {
+            bytMsg.writeBytes(output.getBuffer(), 0, output.position());
+          }
+        }
+      } catch (JMSException | IOException | KryoException e) {
+        throw new CorantRuntimeException(e);
+      } finally {
+        output.setOutputStream(null);
+        if (output.getBuffer().length > maxPooledBufferSize) {
+          output.setBuffer(new byte[bufferSize], -1);
+        }
+        outputPool.free(output);
+        kryoPool.free(kryo);
+      }
+    }
+    return resolveSchemaProperty(bytMsg, "KRYO");
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 上午11:34:02
+   *
+   */
+  protected static class BytesMessageInputStream extends InputStream {
+
+    final BytesMessage message;
+    byte[] scratch;
+
+    protected BytesMessageInputStream(BytesMessage message) {
+      this.message = message;
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        int read = message.readBytes(scratch(1), 1);
+        return read == -1 ? -1 : scratch[0] & 0xff;
+      } catch (JMSException e) {
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      try {
+        if (off == 0) {
+          return message.readBytes(b, len);
+        }
+        int read = message.readBytes(scratch(len), len);
+        if (read > 0) {
+          System.arraycopy(scratch, 0, b, off, read);
+        }
+        return read;
+      } catch (JMSException e) {
+        throw new IOException(e);
+      }
+    }
+
+    byte[] scratch(int len) {
+      if (scratch == null || scratch.length < len) {
+        scratch = new byte[Math.max(len, 512)];
+      }
+      return scratch;
+    }
   }
 
-  protected byte[] toBytes(Object object) {
-    final Kryo kryo = kryoCache.get();
-    kryo.register(getUserClass(object));
-    try (Output output = new Output(new ByteArrayOutputStream())) {
-      kryo.writeObject(output, object);
-      return output.getBuffer();
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 上午11:34:02
+   *
+   */
+  protected static class BytesMessageOutputStream extends OutputStream {
+
+    final BytesMessage message;
+
+    protected BytesMessageOutputStream(BytesMessage message) {
+      this.message = message;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      try {
+        message.writeBytes(b, off, len);
+      } catch (JMSException e) {
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      try {
+        message.writeByte((byte) b);
+      } catch (JMSException e) {
+        throw new IOException(e);
+      }
     }
   }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * Message receiver that receives messages in batches, the messages are drained from the message
+ * consumer until the batch size is reached or no more message arrives within the batch timeout
+ * after the first message of the batch, then the message receiving method is invoked with the list
+ * of the payloads.
+ *
+ * <p>
+ * Each batch has only one acknowledgement: in JTA XA the transaction is begun and the XA resource
+ * is enlisted once per batch; in SESSION_TRANSACTED the session is committed once per batch; in
+ * CLIENT_ACKNOWLEDGE the last message of the batch is acknowledged, which acknowledges all the
+ * messages consumed by the session. If a batch fails, the transaction or the session is rolled back
+ * or recovered so that all the messages of the batch are redelivered, and the receiver falls back
+ * to receive and handle the subsequent messages one by one until as many messages as the failed
+ * batch have been handled successfully, so that a single bad message doesn't block the whole batch.
+ *
+ * NOTE: This is not thread safe.
+ *
+ * @author bingo 下午4:06:52
+ *
+ */
+public class DefaultMessageBatchReceiver extends DefaultMessageReceiver {
+
+  protected final DefaultMessageHandler batchHandler;
+  protected final int batchSize;
+  protected final long batchTimeout;
+
+  protected volatile int batchingSize;
+  protected volatile int fallbackCounter;
+
+  protected DefaultMessageBatchReceiver(MessageReceivingMetaData metaData,
+      DefaultMessageHandler messageHandler, MessageReceivingMediator mediator) {
+    super(metaData, messageHandler, mediator);
+    batchHandler = messageHandler;
+    batchSize = metaData.getBatchSize();
+    batchTimeout = metaData.getBatchTimeout();
+  }
+
+  @Override
+  public synchronized boolean receive() {
+    logger.log(Level.FINE, () -> String.format(">>> Begin receiving batch messages, %s.", meta));
+    Throwable throwable = null;
+    batchingSize = 0;
+    try {
+      if (initialize()) {
+        int rt = receiveThreshold;
+        while (--rt >= 0) {
+          batchingSize = 0;
+          preConsume();
+          List<Message> messages = consume(fallbackCounter > 0 ? 1 : batchSize);
+          postConsume(messages.isEmpty() ? null : messages.get(messages.size() - 1));
+          if (messages.isEmpty()) {
+            logger.log(Level.FINE, () -> String.format("No message for now, %s.", meta));
+            break;
+          }
+          if (fallbackCounter > 0) {
+            fallbackCounter = Math.max(0, fallbackCounter - messages.size());
+          }
+        }
+      }
+    } catch (Exception e) {
+      throwable = e;
+      if (batchingSize > 1) {
+        fallbackCounter = batchingSize;
+        logger.log(Level.WARNING, () -> String.format(
+            "The batch of %s messages failed, fall back to handle them one by one, %s.",
+            fallbackCounter, meta));
+      }
+      onException(e);
+    } finally {
+      batchingSize = 0;
+      logger.log(Level.FINE, () -> String.format("<<< End receiving batch messages, %s.%n", meta));
+    }
+    return throwable == null;
+  }
+
+  /**
+   * Drain at most the given limit messages from the message consumer and handle them, returns the
+   * handled messages, returns an empty list if no message was received.
+   *
+   * @param limit the max number of messages of the batch
+   * @throws JMSException consume
+   */
+  protected List<Message> consume(int limit) throws JMSException {
+    List<Message> messages = new ArrayList<>(Math.min(limit, 64));
+    Message message = consume0(receiveTimeout);
+    if (message != null) {
+      messages.add(message);
+      final long deadline = System.currentTimeMillis() + batchTimeout;
+      while (messages.size() < limit
+          && (message = consume0(deadline - System.currentTimeMillis())) != null) {
+        messages.add(message);
+      }
+      batchingSize = messages.size();
+      logger.log(Level.FINE, () -> String.format("Received %s messages start handling, [%s]",
+          messages.size(), meta));
+      final long start = System.nanoTime();
+      boolean success = false;
+      try {
+        handle(messages);
+        success = true;
+      } finally {
+        final long nanos = System.nanoTime() - start;
+        statistics.onHandled(nanos);
+        instrumentation.onProcessed(messages.size(), nanos, success);
+      }
+      logger.log(Level.FINE, () -> String.format("Complete batch messages handling, [%s]", meta));
+    }
+    return messages;
+  }
+
+  /**
+   * Handle the given batch messages
+   *
+   * @param messages the received batch messages
+   * @throws JMSException handle
+   */
+  protected void handle(List<Message> messages) throws JMSException {
+    batchHandler.onMessages(messages, session);
+  }
+
+  protected Message consume0(long timeout) throws JMSException {
+    final long start = System.nanoTime();
+    Message message =
+        timeout <= 0 ? messageConsumer.receiveNoWait() : messageConsumer.receive(timeout);
+    statistics.onReceived(message != null);
+    onReceived(message, System.nanoTime() - start);
+    return message;
+  }
+
+}
@@ -16,6 +16,8 @@ package org.corant.modules.jms.shared.receive;
 import static org.corant.context.Beans.find;
 import static org.corant.shared.util.Assertions.shouldNotBlank;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.jms.JMSException;
@@ -27,6 +29,8 @@ import org.corant.context.security.SecurityContexts;
 import org.corant.modules.jms.JMSNames;
 import org.corant.modules.jms.receive.ManagedMessageReceivingHandler;
 import org.corant.modules.jms.shared.AbstractJMSExtension;
+import org.corant.modules.jms.shared.JMSInstrumentation;
+import org.corant.modules.jms.shared.JMSInstrumentation.Kind;
 import org.corant.modules.jms.shared.context.SecurityContextPropagator;
 import org.corant.modules.jms.shared.context.SecurityContextPropagator.SimpleSecurityContextPropagator;
 import org.corant.shared.exception.CorantRuntimeException;
@@ -45,14 +49,17 @@ public class DefaultMessageHandler implements ManagedMessageReceivingHandler {
   final Class<?> messageClass;
   final MessageReceivingExecutorConfig config;
   final boolean propagateSecurityContext;
+  final JMSInstrumentation instrumentation;
 
   protected DefaultMessageHandler(MessageReceivingMetaData meta,
       MessageReceivingMediator mediator) {
     method = meta.getMethod();
     config = MessageReceivingExecutorConfig.getExecutorConfig(meta.getConnectionFactoryId());
-    messageClass = method.getMethod().getParameterTypes()[0];
+    messageClass = meta.getPayloadClass();
     propagateSecurityContext = AbstractJMSExtension.getConfig(config.getConnectionFactoryId())
         .isPropagateSecurityContext();
+    instrumentation = JMSInstrumentation.of(Kind.RECEIVER, meta.getConnectionFactoryId(),
+        meta.getDestination(), meta.isMulticast());
     this.mediator = mediator;
   }
 
@@ -74,12 +81,65 @@ public class DefaultMessageHandler implements ManagedMessageReceivingHandler {
     }
   }
 
+  /**
+   * Handle the given batch messages, the payloads of the messages are resolved and passed to the
+   * message receiving method as a list, the security context is resolved from the first message.
+   *
+   * @param messages the batch messages
+   * @param session the session that the messages were received from
+   * @return the result of the message receiving method
+   */
+  @SuppressWarnings("resource")
+  public Object onMessages(List<Message> messages, Session session) {
+    try {
+      resolveSecurityContext(messages.get(0));
+      List<Object> payloads = new ArrayList<>(messages.size());
+      for (Message message : messages) {
+        payloads.add(resolvePayload(message));
+      }
+      if (method.getMethod().getParameterCount() > 1) {
+        return method.invoke(payloads, new MessageReceivingSession(session, config));
+      } else {
+        return method.invoke(payloads);
+      }
+    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException
+        | JMSException e) {
+      throw new CorantRuntimeException(e);
+    } finally {
+      SecurityContexts.setCurrent(null);
+    }
+  }
+
+  /**
+   * Invoke the message receiving method with the given resolved payload of the given message, used
+   * for the message receiving method that has only the payload parameter.
+   *
+   * @param message the received message
+   * @param payload the resolved payload of the message
+   * @return the result of the message receiving method
+   */
+  public Object onPayload(Message message, Object payload) {
+    try {
+      resolveSecurityContext(message);
+      return method.invoke(payload);
+    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      throw new CorantRuntimeException(e);
+    } finally {
+      SecurityContexts.setCurrent(null);
+    }
+  }
+
   protected Object resolvePayload(Message message) throws JMSException {
     if (!Message.class.isAssignableFrom(messageClass)) {
       String marshallerName = shouldNotBlank(message.getStringProperty(JMSNames.MSG_MARSHAL_SCHEMA),
           "Resolve message payload occurred error, missing [%s] information message header.",
           JMSNames.MSG_MARSHAL_SCHEMA);
-      return mediator.getMessageMarshaller(marshallerName).deserialize(message, messageClass);
+      final long start = System.nanoTime();
+      try {
+        return mediator.getMessageMarshaller(marshallerName).deserialize(message, messageClass);
+      } finally {
+        instrumentation.onMarshalled(System.nanoTime() - start);
+      }
     }
     return message;
   }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import org.corant.modules.jms.receive.ManagedMessageReceivingHandler;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * Message receiver that registers itself as the message listener of the message consumer, the
+ * messages delivered by the provider are handled in the delivering thread of the session, so the
+ * messages of a session are handled one by one, the session is never used concurrently and a
+ * message is never acknowledged before its handling completes. The concurrency of the delivering
+ * is controlled by the JMS provider and the number of the receiving tasks.
+ *
+ * <p>
+ * Each message is handled with the same transaction and acknowledgment semantics as the polling
+ * receiver: begin and enlist the XA transaction, handle and reply, then commit the transaction or
+ * the session or acknowledge the message; on failure, rollback the transaction or rollback/recover
+ * the session. Note: In XA mode, whether the delivery of the message is a part of the transaction
+ * depends on the JMS provider, since the message was delivered before the transaction began.
+ *
+ * <p>
+ * The scheduled execution of the receiving task only calls {@link #receive()} to register the
+ * listener if necessary and to report whether any message handling failed since the last call, so
+ * that the circuit break of the task still works, when the task breaks, the message consumer is
+ * closed and the delivery stops until the task enters trying mode.
+ *
+ * @author bingo 下午3:28:16
+ *
+ */
+public class DefaultMessageListenerReceiver extends DefaultMessageReceiver
+    implements MessageListener {
+
+  protected final AtomicInteger failures = new AtomicInteger(0);
+  protected volatile MessageConsumer listeningConsumer;
+
+  protected DefaultMessageListenerReceiver(MessageReceivingMetaData metaData,
+      ManagedMessageReceivingHandler messageHandler, MessageReceivingMediator mediator) {
+    super(metaData, messageHandler, mediator);
+  }
+
+  @Override
+  public synchronized boolean initialize() throws JMSException {
+    if (!super.initialize()) {
+      return false;
+    }
+    if (listeningConsumer != messageConsumer) {
+      messageConsumer.setMessageListener(this);
+      listeningConsumer = messageConsumer;
+      logger.log(Level.INFO, () -> String.format("Register message listener, [%s]", meta));
+    }
+    return true;
+  }
+
+  @Override
+  public void onMessage(Message message) {
+    dispatch(message);
+  }
+
+  /**
+   * Register the message listener if necessary, returns false if any message handling failed
+   * since the last call.
+   */
+  @Override
+  public boolean receive() {
+    try {
+      initialize();
+    } catch (Exception e) {
+      onException(e);
+      return false;
+    }
+    return failures.getAndSet(0) == 0;
+  }
+
+  /**
+   * Release the message consumer and session only if the given stop is true, since the message
+   * consumer must stay open to keep the message delivering.
+   */
+  @Override
+  public void release(boolean stop) {
+    if (stop) {
+      super.release(true);
+      listeningConsumer = null;
+    }
+  }
+
+  protected void dispatch(Message message) {
+    statistics.onDelivered(1);
+    instrumentation.onReceived(message);
+    try {
+      preConsume();
+      handle(message);
+      postConsume(message);
+    } catch (Exception e) {
+      failures.incrementAndGet();
+      onException(e);
+    }
+  }
+
+}
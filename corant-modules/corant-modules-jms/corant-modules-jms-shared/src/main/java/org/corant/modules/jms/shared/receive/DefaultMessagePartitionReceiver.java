@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import static org.corant.context.Beans.findNamed;
+import static org.corant.shared.util.Strings.isBlank;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import org.corant.modules.jms.receive.ManagedMessagePartitionKeyExtractor;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.normal.Names;
+import org.corant.shared.util.Threads;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * Message receiver that dispatches the messages of a batch to the ordered in-memory lanes by the
+ * partition key, each lane has its own worker thread that handles the messages of the lane
+ * sequentially in the receiving order, so the messages with the same key are never reordered while
+ * the messages with different keys are handled in parallel.
+ *
+ * <p>
+ * The JMS acknowledgement is cumulative per session, so the completion of the messages is tracked
+ * per batch: the replies are sent in the receiving order by the receiving thread and the batch is
+ * committed or acknowledged only after all the messages of the batch have been handled
+ * successfully. If a message fails, the subsequent messages of its lane in the batch are skipped
+ * and the whole batch is rolled back or recovered for redelivery, then the receiver falls back to
+ * handle the redelivered messages one by one, see {@link DefaultMessageBatchReceiver}.
+ *
+ * NOTE: This is not thread safe.
+ *
+ * @author bingo 下午5:21:37
+ *
+ */
+public class DefaultMessagePartitionReceiver extends DefaultMessageBatchReceiver {
+
+  protected final int partitions;
+  protected final String partitionKey;
+  protected final ManagedMessagePartitionKeyExtractor keyExtractor;
+
+  protected volatile ExecutorService[] lanes;
+  protected int sequence;
+
+  protected DefaultMessagePartitionReceiver(MessageReceivingMetaData metaData,
+      DefaultMessageHandler messageHandler, MessageReceivingMediator mediator) {
+    super(metaData, messageHandler, mediator);
+    partitions = metaData.getPartitions();
+    partitionKey = metaData.getPartitionKey();
+    if (isBlank(metaData.getPartitionKeyExtractor())) {
+      keyExtractor = null;
+    } else {
+      keyExtractor = findNamed(ManagedMessagePartitionKeyExtractor.class,
+          metaData.getPartitionKeyExtractor())
+              .orElseThrow(() -> new CorantRuntimeException(
+                  "Can't find any partition key extractor named %s! message receiver [%s].",
+                  metaData.getPartitionKeyExtractor(), metaData));
+    }
+  }
+
+  @Override
+  public void release(boolean stop) {
+    try {
+      super.release(stop);
+    } finally {
+      if (stop) {
+        releaseLanes();
+      }
+    }
+  }
+
+  @Override
+  protected void handle(List<Message> messages) throws JMSException {
+    final ExecutorService[] useLanes = resolveLanes();
+    final List<CompletableFuture<Object>> results = new ArrayList<>(messages.size());
+    final CompletableFuture<?>[] tails = new CompletableFuture<?>[partitions];
+    try {
+      for (final Message message : messages) {
+        final Object payload = resolvePayload(message);
+        final int lane = resolveLane(message, payload);
+        final CompletableFuture<Object> result;
+        if (tails[lane] == null) {
+          result = CompletableFuture.supplyAsync(() -> handle(message, payload), useLanes[lane]);
+        } else {
+          // the failure of the previous message of the lane skips the message
+          result = tails[lane].thenApplyAsync(r -> handle(message, payload), useLanes[lane]);
+        }
+        tails[lane] = result;
+        results.add(result);
+      }
+    } finally {
+      // wait for all the dispatched messages before the session is committed or rolled back
+      CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[results.size()]))
+          .handle((r, t) -> null).join();
+    }
+    for (int i = 0; i < messages.size(); i++) {
+      final Object result;
+      try {
+        result = results.get(i).join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+            : new CorantRuntimeException(e.getCause());
+      }
+      mediator.onPostMessageHandled(messages.get(i), session, result);
+    }
+  }
+
+  /**
+   * Handle the given message with its resolved payload in the lane thread, returns the result of
+   * the message receiving method.
+   *
+   * @param message the received message
+   * @param payload the resolved payload of the message
+   */
+  protected Object handle(Message message, Object payload) {
+    return batchHandler.onPayload(message, payload);
+  }
+
+  protected void releaseLanes() {
+    final ExecutorService[] useLanes = lanes;
+    lanes = null;
+    if (useLanes != null) {
+      for (ExecutorService lane : useLanes) {
+        lane.shutdown();
+      }
+      logger.log(Level.FINE, () -> String.format("Release partition lanes, [%s]", meta));
+    }
+  }
+
+  protected int resolveLane(Message message, Object payload) throws JMSException {
+    Object key = keyExtractor != null ? keyExtractor.extract(message, payload)
+        : message.getObjectProperty(partitionKey);
+    if (key == null) {
+      return Math.floorMod(sequence++, partitions);
+    }
+    int hash = key.hashCode();
+    return Math.floorMod(hash ^ hash >>> 16, partitions);
+  }
+
+  protected Object resolvePayload(Message message) throws JMSException {
+    return batchHandler.resolvePayload(message);
+  }
+
+  protected ExecutorService[] resolveLanes() {
+    ExecutorService[] useLanes = lanes;
+    if (useLanes == null) {
+      useLanes = new ExecutorService[partitions];
+      String name = Names.CORANT_PREFIX + "msg-par-" + meta.getDestination();
+      for (int i = 0; i < partitions; i++) {
+        useLanes[i] = Executors.newSingleThreadExecutor(Threads.daemonThreadFactory(name));
+      }
+      lanes = useLanes;
+      logger.log(Level.FINE,
+          () -> String.format("Create %s partition lanes, [%s]", partitions, meta));
+    }
+    return useLanes;
+  }
+
+}
@@ -34,6 +34,8 @@ import javax.transaction.TransactionManager;
 import javax.transaction.xa.XAResource;
 import org.corant.modules.jms.receive.ManagedMessageReceiver;
 import org.corant.modules.jms.receive.ManagedMessageReceivingHandler;
+import org.corant.modules.jms.shared.JMSInstrumentation;
+import org.corant.modules.jms.shared.JMSInstrumentation.Kind;
 import org.corant.modules.jta.shared.TransactionService;
 import org.corant.shared.ubiquity.Sortable;
 
@@ -69,6 +71,8 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
   // workhorse
   protected final ManagedMessageReceivingHandler messageHandler;
   protected final MessageReceivingMediator mediator;
+  protected final MessageReceivingStatistics statistics;
+  protected final JMSInstrumentation instrumentation;
   protected volatile Connection connection;
   protected volatile Session session;
   protected volatile MessageConsumer messageConsumer;
@@ -78,6 +82,9 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     meta = metaData;
     this.messageHandler = messageHandler;
     this.mediator = mediator;
+    statistics = MessageReceivingStatistics.of(metaData);
+    instrumentation = JMSInstrumentation.of(Kind.RECEIVER, metaData.getConnectionFactoryId(),
+        metaData.getDestination(), metaData.isMulticast());
     receiveThreshold = metaData.getReceiveThreshold();
     receiveTimeout = metaData.getReceiveTimeout();
 
@@ -168,6 +175,10 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     return throwable == null;
   }
 
+  public MessageReceivingStatistics getStatistics() {
+    return statistics;
+  }
+
   @Override
   public void release(boolean stop) {
     try {
@@ -209,16 +220,16 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
 
   protected Message consume() throws JMSException {
     final Message message;
+    final long start = System.nanoTime();
     if (receiveTimeout <= 0) {
       message = messageConsumer.receiveNoWait();
     } else {
       message = messageConsumer.receive(receiveTimeout);
     }
+    statistics.onReceived(message != null);
+    onReceived(message, System.nanoTime() - start);
     if (message != null) {
-      logger.log(Level.FINE, () -> String.format("Received message start handling, [%s]", meta));
-      Object result = messageHandler.onMessage(message, session);
-      mediator.onPostMessageHandled(message, session, result);
-      logger.log(Level.FINE, () -> String.format("Complete message handling, [%s]", meta));
+      handle(message);
     }
     return message;
   }
@@ -233,6 +244,42 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     }
   }
 
+  /**
+   * Handle the received message and reply if necessary
+   *
+   * @param message the received message
+   * @throws JMSException handle
+   */
+  protected void handle(Message message) throws JMSException {
+    logger.log(Level.FINE, () -> String.format("Received message start handling, [%s]", meta));
+    final long start = System.nanoTime();
+    boolean success = false;
+    try {
+      Object result = messageHandler.onMessage(message, session);
+      mediator.onPostMessageHandled(message, session, result);
+      success = true;
+    } finally {
+      final long nanos = System.nanoTime() - start;
+      statistics.onHandled(nanos);
+      instrumentation.onProcessed(1, nanos, success);
+    }
+    logger.log(Level.FINE, () -> String.format("Complete message handling, [%s]", meta));
+  }
+
+  /**
+   * Record the result of a receive invocation to the instrumentation
+   *
+   * @param message the received message, null if no message was received
+   * @param nanos the nanoseconds spent on the receive invocation
+   */
+  protected void onReceived(Message message, long nanos) {
+    if (message == null) {
+      instrumentation.onEmptyReceived(nanos);
+    } else {
+      instrumentation.onReceived(message);
+    }
+  }
+
   /**
    * Related work on consume occurred error, rollback transaction or rollback/recover session if
    * necessary
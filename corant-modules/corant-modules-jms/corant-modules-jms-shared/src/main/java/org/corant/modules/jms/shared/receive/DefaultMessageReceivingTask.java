@@ -17,6 +17,7 @@ import static org.corant.context.Beans.resolve;
 import static org.corant.shared.util.Objects.defaultObject;
 import static org.corant.shared.util.Objects.max;
 import static org.corant.shared.util.Threads.tryThreadSleep;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -32,6 +33,8 @@ import org.corant.modules.jms.receive.ManagedMessageReceiveReplier;
 import org.corant.modules.jms.receive.ManagedMessageReceiver;
 import org.corant.modules.jms.receive.ManagedMessageReceivingHandler;
 import org.corant.modules.jms.receive.ManagedMessageReceivingTask;
+import org.corant.modules.jms.shared.JMSInstrumentation;
+import org.corant.modules.jms.shared.JMSInstrumentation.Kind;
 import org.corant.shared.retry.BackoffStrategy;
 
 /**
@@ -94,6 +97,7 @@ public class DefaultMessageReceivingTask
   protected final ManagedMessageReceiver messageReceiver;
   protected final ManagedMessageReceivingHandler messageHandler;
   protected final ManagedMessageReceiveReplier messageReplier;
+  protected final JMSInstrumentation instrumentation;
 
   public DefaultMessageReceivingTask(MessageReceivingMetaData metaData) {
     this(metaData, metaData.getBrokenBackoffStrategy());
@@ -107,9 +111,20 @@ public class DefaultMessageReceivingTask
     jmsFailureThreshold = max(failureThreshold / 2, 2);
     this.backoffStrategy = backoffStrategy;
     tryThreshold = metaData.getTryThreshold();
+    instrumentation = JMSInstrumentation.of(Kind.RECEIVER, metaData.getConnectionFactoryId(),
+        metaData.getDestination(), metaData.isMulticast());
     messageReplier = new DefaultMessageReplier(meta, this);
-    messageHandler = new DefaultMessageHandler(meta, this);
-    messageReceiver = new DefaultMessageReceiver(metaData, messageHandler, this);
+    DefaultMessageHandler handler = new DefaultMessageHandler(meta, this);
+    messageHandler = handler;
+    if (metaData.isPartitioned()) {
+      messageReceiver = new DefaultMessagePartitionReceiver(metaData, handler, this);
+    } else if (metaData.isBatch()) {
+      messageReceiver = new DefaultMessageBatchReceiver(metaData, handler, this);
+    } else if (metaData.isListenerMode()) {
+      messageReceiver = new DefaultMessageListenerReceiver(metaData, handler, this);
+    } else {
+      messageReceiver = new DefaultMessageReceiver(metaData, handler, this);
+    }
     logger.log(Level.FINE, () -> String.format("Create message receive task for %s.", metaData));
   }
 
@@ -134,6 +149,11 @@ public class DefaultMessageReceivingTask
   @Override
   public boolean checkCancelled() {
     if (cancellation.get()) {
+      if (state == STATE_BRK) {
+        instrumentation.onBrokenExited(
+            TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - brokenTimePoint));
+        state = STATE_RUN;
+      }
       resetMonitors();
       messageReceiver.release(true);
       logger.log(Level.INFO,
@@ -149,6 +169,14 @@ public class DefaultMessageReceivingTask
         NamedLiteral.of(defaultObject(schema, JMSNames.MSG_MARSHAL_SCHEMA_STD_JAVA)));
   }
 
+  /**
+   * Returns the circuit break state of the task, one of {@link #STATE_RUN}, {@link #STATE_TRY} and
+   * {@link #STATE_BRK}
+   */
+  public byte getState() {
+    return state;
+  }
+
   public boolean isInProgress() {
     return inProgress;
   }
@@ -250,6 +278,7 @@ public class DefaultMessageReceivingTask
     brokenTimePoint = System.currentTimeMillis();
     brokenMillis = backoffStrategy.computeBackoffMillis(tryFailureCounter.get());
     state = STATE_BRK;
+    instrumentation.onBroken();
     logger.log(Level.WARNING, () -> String
         .format("The execution enters breaking mode wait for [%s] ms, [%s]!", brokenMillis, meta));
     messageReceiver.release(true);
@@ -262,6 +291,10 @@ public class DefaultMessageReceivingTask
   }
 
   protected void stateTry() {
+    if (state == STATE_BRK) {
+      instrumentation.onBrokenExited(
+          TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - brokenTimePoint));
+    }
     resetMonitors();
     state = STATE_TRY;
     logger.log(Level.INFO, () -> String.format("The execution enters trying mode, [%s]!", meta));
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.OptionalLong;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.corant.modules.jms.shared.AbstractJMSConfig;
+import org.corant.shared.normal.Names;
+import org.corant.shared.util.Threads;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * Adjusts the number of the concurrent receiving tasks of a message receiver between
+ * {@link MessageReceivingMetaData#getMinReceivers()} and
+ * {@link MessageReceivingMetaData#getMaxReceivers()}, the tasks are added or retired one by one.
+ *
+ * <p>
+ * On each evaluation, the busy ratio of the receiver since the last evaluation is computed from the
+ * {@link MessageReceivingStatistics}: for the polling receivers it's the ratio of the receive
+ * invocations that returned a message, for the listener receivers it's the ratio of the handling
+ * time to the elapsed time of all the tasks. If a {@link MessageReceivingBacklogProvider} provides
+ * the backlog of the destination, the estimated time to drain the backlog with the average handling
+ * latency is also considered. A task is added when the busy ratio reaches the scale up ratio or the
+ * backlog can't be drained in time, a task is retired when the busy ratio falls to the scale down
+ * ratio and the backlog can be drained in time with one less task. The decision must be stable for
+ * the configured consecutive evaluations and the scaling is suppressed within the cooldown period
+ * after the last scaling, no task is added if any task of the receiver is breaking or trying.
+ *
+ * @see MessageReceivingExecutorConfig
+ * @author bingo 下午7:02:18
+ *
+ */
+public class MessageReceivingAutoscaler implements Runnable {
+
+  protected static final Logger logger =
+      Logger.getLogger(MessageReceivingAutoscaler.class.getName());
+
+  protected final MessageReceivingExecutor executor;
+  protected final AbstractJMSConfig config;
+  protected final MessageReceivingExecutorConfig executorConfig;
+  protected final MessageReceivingMetaData meta;
+  protected final MessageReceivingStatistics statistics;
+  protected final Deque<MessageReceivingTaskExecution> executions = new ArrayDeque<>();
+
+  protected volatile ScheduledFuture<?> future;
+
+  // the statistics snapshot of the last evaluation
+  protected long lastNanos;
+  protected long lastReceives;
+  protected long lastHits;
+  protected long lastMessages;
+  protected long lastHandlingNanos;
+
+  protected int votes;
+  protected long cooldownNanos;
+
+  protected MessageReceivingAutoscaler(MessageReceivingExecutor executor, AbstractJMSConfig config,
+      MessageReceivingMetaData meta) {
+    this.executor = executor;
+    this.config = config;
+    this.meta = meta;
+    executorConfig = MessageReceivingExecutorConfig.getExecutorConfig(config);
+    statistics = MessageReceivingStatistics.of(meta);
+  }
+
+  /**
+   * Returns the current number of the receiving tasks
+   */
+  public synchronized int getReceivers() {
+    return executions.size();
+  }
+
+  @Override
+  public synchronized void run() {
+    if (future == null) {
+      return;
+    }
+    try {
+      evaluate();
+    } catch (Exception e) {
+      logger.log(Level.WARNING, e,
+          () -> String.format("The receiving autoscaling occurred error, [%s]!", meta));
+    }
+  }
+
+  /**
+   * Start the minimum receiving tasks and schedule the evaluation with the configured interval.
+   *
+   * @param service the scheduled executor service of the connection factory
+   */
+  public synchronized void start(ScheduledExecutorService service) {
+    for (int i = 0; i < meta.getMinReceivers(); i++) {
+      executions.addLast(executor.createExecution(config, meta));
+    }
+    snapshot(System.nanoTime());
+    cooldownNanos = lastNanos;
+    final long interval = executorConfig.getAutoscaleInterval().toMillis();
+    future = service.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop the evaluation and cancel all the receiving tasks.
+   */
+  public synchronized void stop() {
+    if (future != null) {
+      future.cancel(false);
+      future = null;
+    }
+    while (!executions.isEmpty()) {
+      cancel(executions.pollLast());
+    }
+  }
+
+  /**
+   * Cancel the given receiving task execution, the cancellation waits for the in progress
+   * receiving of the task.
+   *
+   * @param execution the receiving task execution to cancel
+   */
+  protected void cancel(MessageReceivingTaskExecution execution) {
+    try {
+      execution.cancel();
+    } catch (Exception e) {
+      logger.log(Level.WARNING, e, () -> "Stop message receiving task error!");
+    }
+  }
+
+  protected void evaluate() {
+    final long now = System.nanoTime();
+    final long elapsed = now - lastNanos;
+    final long receives = statistics.getReceives() - lastReceives;
+    final long hits = statistics.getHits() - lastHits;
+    final long messages = statistics.getMessages() - lastMessages;
+    final long handlingNanos = statistics.getHandlingNanos() - lastHandlingNanos;
+    snapshot(now);
+
+    final int receivers = executions.size();
+    final double busyRatio;
+    if (meta.isListenerMode()) {
+      busyRatio = elapsed > 0 ? (double) handlingNanos / ((double) elapsed * receivers) : 0d;
+    } else {
+      busyRatio = receives > 0 ? (double) hits / receives : 0d;
+    }
+    final double latencyNanos = messages > 0 ? (double) handlingNanos / messages : 0d;
+    final OptionalLong backlog = executor.resolveBacklog(meta);
+
+    int vote = 0;
+    if (receivers < meta.getMaxReceivers()
+        && (busyRatio >= executorConfig.getAutoscaleScaleUpRatio()
+            || isBacklogged(backlog, latencyNanos, receivers))
+        && isRunning()) {
+      vote = 1;
+    } else if (receivers > meta.getMinReceivers()
+        && busyRatio <= executorConfig.getAutoscaleScaleDownRatio()
+        && !isBacklogged(backlog, latencyNanos, receivers - 1)) {
+      vote = -1;
+    }
+    if (vote == 0 || Integer.signum(votes) != vote) {
+      votes = vote;
+    } else {
+      votes += vote;
+    }
+    logger.log(Level.FINE,
+        () -> String.format(
+            "Receiving autoscaling evaluated, receivers: %s, busy ratio: %.2f, backlog: %s, votes: %s, [%s].",
+            receivers, busyRatio, backlog, votes, meta));
+    if (Math.abs(votes) >= executorConfig.getAutoscaleStableTimes() && now - cooldownNanos >= 0) {
+      if (votes > 0) {
+        scaleUp();
+      } else {
+        scaleDown();
+      }
+      votes = 0;
+      cooldownNanos = System.nanoTime() + executorConfig.getAutoscaleCooldown().toNanos();
+    }
+  }
+
+  /**
+   * Returns whether the given backlog can't be drained within the configured duration by the given
+   * number of the receiving tasks with the given average handling latency, returns false if the
+   * backlog or the latency is unknown.
+   */
+  protected boolean isBacklogged(OptionalLong backlog, double latencyNanos, int receivers) {
+    if (backlog.isEmpty() || latencyNanos <= 0 || receivers <= 0) {
+      return false;
+    }
+    return backlog.getAsLong() * latencyNanos / receivers > executorConfig
+        .getAutoscaleBacklogDrainDuration().toNanos();
+  }
+
+  /**
+   * Returns false if any receiving task is breaking or trying, since adding more tasks doesn't help
+   * a failing receiver.
+   */
+  protected boolean isRunning() {
+    for (MessageReceivingTaskExecution execution : executions) {
+      if (execution.getTask() instanceof DefaultMessageReceivingTask
+          && ((DefaultMessageReceivingTask) execution.getTask())
+              .getState() != DefaultMessageReceivingTask.STATE_RUN) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  protected void scaleDown() {
+    final MessageReceivingTaskExecution execution = executions.pollLast();
+    // don't block the scheduler thread while the retired task finishes its current receiving
+    Threads.runInDaemon(Names.CORANT_PREFIX + "msg-scale-down", () -> cancel(execution));
+    logger.log(Level.INFO, () -> String.format(
+        "Scale down the message receiving tasks to %s, [%s].", executions.size(), meta));
+  }
+
+  protected void scaleUp() {
+    executions.addLast(executor.createExecution(config, meta));
+    logger.log(Level.INFO, () -> String.format(
+        "Scale up the message receiving tasks to %s, [%s].", executions.size(), meta));
+  }
+
+  protected void snapshot(long nanos) {
+    lastNanos = nanos;
+    lastReceives = statistics.getReceives();
+    lastHits = statistics.getHits();
+    lastMessages = statistics.getMessages();
+    lastHandlingNanos = statistics.getHandlingNanos();
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import java.util.OptionalLong;
+import org.corant.shared.ubiquity.Sortable;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * Provides the number of the messages waiting in the destination of the message receiver, used by
+ * the receiving autoscaling if the broker exposes it. The implementations are CDI beans, the first
+ * non-empty result in the {@link Sortable} order is used.
+ *
+ * @author bingo 下午6:20:17
+ *
+ */
+public interface MessageReceivingBacklogProvider extends Sortable {
+
+  /**
+   * Returns the backlog of the destination of the given message receiving meta data, returns an
+   * empty result if the backlog is unknown.
+   *
+   * @param meta the message receiving meta data
+   */
+  OptionalLong getBacklog(MessageReceivingMetaData meta);
+
+}
@@ -23,12 +23,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -46,6 +50,7 @@ import org.corant.modules.jms.receive.ManagedMessageReceivingTask;
 import org.corant.modules.jms.shared.AbstractJMSConfig;
 import org.corant.modules.jms.shared.AbstractJMSExtension;
 import org.corant.shared.normal.Names;
+import org.corant.shared.ubiquity.Sortable;
 import org.corant.shared.ubiquity.Tuple.Pair;
 
 /**
@@ -73,12 +78,20 @@ public class MessageReceivingExecutor implements ManagedMessageReceivingExecutor
   @Any
   protected Instance<MessageReceivingMetaDataSupplier> metaDataSuppliers;
 
+  @Inject
+  @Any
+  protected Instance<MessageReceivingBacklogProvider> backlogProviders;
+
   protected final Map<AbstractJMSConfig, ScheduledExecutorService> executors = new HashMap<>();
 
   protected final List<MessageReceivingMetaData> metaDatas = new ArrayList<>();
 
   protected final List<MessageReceivingTaskExecution> receiveExecutions = new ArrayList<>();
 
+  protected final List<MessageReceivingAutoscaler> autoscalers = new ArrayList<>();
+
+  protected final Map<AbstractJMSConfig, AtomicInteger> receivers = new ConcurrentHashMap<>();
+
   @Override
   public void start() {
     Set<Pair<String, String>> anycasts = new HashSet<>();
@@ -91,10 +104,19 @@ public class MessageReceivingExecutor implements ManagedMessageReceivingExecutor
       }
       AbstractJMSConfig config = AbstractJMSExtension.getConfig(meta.getConnectionFactoryId());
       if (config != null && config.isEnable()) {
-        MessageReceivingTaskExecution execution = createExecution(config, meta);
-        receiveExecutions.add(execution);
-        logger.fine(
-            () -> String.format("Scheduled message receiving task. message receiver [%s].", meta));
+        if (meta.isAutoscaling()) {
+          MessageReceivingAutoscaler autoscaler =
+              new MessageReceivingAutoscaler(this, config, meta);
+          autoscaler.start(executors.get(config));
+          autoscalers.add(autoscaler);
+        } else {
+          for (int i = 0; i < meta.getMinReceivers(); i++) {
+            receiveExecutions.add(createExecution(config, meta));
+          }
+        }
+        logger.fine(() -> String.format(
+            "Scheduled %s message receiving tasks. message receiver [%s].",
+            meta.getMinReceivers(), meta));
       }
     }
     anycasts.clear();
@@ -103,6 +125,9 @@ public class MessageReceivingExecutor implements ManagedMessageReceivingExecutor
   @Override
   public void stop() {
     logger.info(() -> "Stopping the message receiving tasks...");
+    while (!autoscalers.isEmpty()) {
+      autoscalers.remove(0).stop();
+    }
     while (!receiveExecutions.isEmpty()) {
       try {
         receiveExecutions.remove(0).cancel();
@@ -131,6 +156,8 @@ public class MessageReceivingExecutor implements ManagedMessageReceivingExecutor
         it.remove();
       }
     }
+    receivers.clear();
+    MessageReceivingStatistics.clear();
     logger.info(() -> "All message receiving executor services were stopped.");
     connections.shutdown();
     logger.info(() -> "All message receiving connections were released.");
@@ -163,7 +190,48 @@ public class MessageReceivingExecutor implements ManagedMessageReceivingExecutor
     final ScheduledFuture<?> future =
         service.scheduleWithFixedDelay(task, executorConfig.getInitialDelay().toMillis(),
             executorConfig.getDelay().toMillis(), TimeUnit.MILLISECONDS);
-    return new MessageReceivingTaskExecution(future, task);
+    resizeExecutor(config, 1);
+    return new MessageReceivingTaskExecution(future, task, () -> {
+      resizeExecutor(config, -1);
+      // run the cancelled task once more to release the message consumer and session
+      try {
+        service.execute(task);
+      } catch (RejectedExecutionException e) {
+        task.run();
+      }
+    });
+  }
+
+  /**
+   * Keep the core pool size of the scheduled executor service of the given connection factory
+   * not less than the number of the receiving tasks plus one for the autoscaling evaluation, so
+   * that the receiving tasks don't wait for each other.
+   */
+  void resizeExecutor(AbstractJMSConfig config, int delta) {
+    final int count = receivers.computeIfAbsent(config, k -> new AtomicInteger()).addAndGet(delta);
+    final ScheduledExecutorService service = executors.get(config);
+    if (service instanceof ScheduledThreadPoolExecutor && !service.isShutdown()) {
+      final int coreSize = Math.max(
+          MessageReceivingExecutorConfig.getExecutorConfig(config).getCorePoolSize(), count + 1);
+      if (((ScheduledThreadPoolExecutor) service).getCorePoolSize() != coreSize) {
+        ((ScheduledThreadPoolExecutor) service).setCorePoolSize(coreSize);
+      }
+    }
+  }
+
+  /**
+   * Returns the backlog of the destination of the given message receiving meta data from the
+   * first {@link MessageReceivingBacklogProvider} that provides it, returns an empty result if the
+   * backlog is unknown.
+   *
+   * @param meta the message receiving meta data
+   */
+  OptionalLong resolveBacklog(MessageReceivingMetaData meta) {
+    if (!backlogProviders.isUnsatisfied()) {
+      return backlogProviders.stream().sorted(Sortable::compare).map(p -> p.getBacklog(meta))
+          .filter(OptionalLong::isPresent).findFirst().orElse(OptionalLong.empty());
+    }
+    return OptionalLong.empty();
   }
 
   void initialize() {
@@ -75,6 +75,24 @@ public class MessageReceivingExecutorConfig
   @ConfigKeyItem(name = "receive-executor-cor-pool-size", defaultValue = "2")
   protected Integer corePoolSize = max(2, Runtime.getRuntime().availableProcessors());
 
+  @ConfigKeyItem(name = "receive-autoscale-interval", defaultValue = "PT10S")
+  protected Duration autoscaleInterval = Duration.ofSeconds(10L);
+
+  @ConfigKeyItem(name = "receive-autoscale-cooldown", defaultValue = "PT1M")
+  protected Duration autoscaleCooldown = Duration.ofMinutes(1L);
+
+  @ConfigKeyItem(name = "receive-autoscale-scale-up-ratio", defaultValue = "0.8")
+  protected Double autoscaleScaleUpRatio = 0.8;
+
+  @ConfigKeyItem(name = "receive-autoscale-scale-down-ratio", defaultValue = "0.2")
+  protected Double autoscaleScaleDownRatio = 0.2;
+
+  @ConfigKeyItem(name = "receive-autoscale-stable-times", defaultValue = "3")
+  protected Integer autoscaleStableTimes = 3;
+
+  @ConfigKeyItem(name = "receive-autoscale-backlog-drain-duration", defaultValue = "PT1M")
+  protected Duration autoscaleBacklogDrainDuration = Duration.ofMinutes(1L);
+
   public static MessageReceivingExecutorConfig getExecutorConfig(AbstractJMSConfig config) {
     return CONFIGS.getOrDefault(config.getConnectionFactoryId(),
         MessageReceivingExecutorConfig.DFLT_INST);
@@ -84,6 +102,54 @@ public class MessageReceivingExecutorConfig
     return CONFIGS.getOrDefault(connectionFactoryId, MessageReceivingExecutorConfig.DFLT_INST);
   }
 
+  /**
+   * Returns the expected duration to drain the backlog of the destination, if the backlog can't be
+   * drained in this duration with the current receiving tasks and the current handling latency,
+   * the receiving tasks are scaled up.
+   */
+  public Duration getAutoscaleBacklogDrainDuration() {
+    return autoscaleBacklogDrainDuration;
+  }
+
+  /**
+   * Returns the min duration between two scaling actions of the same destination.
+   */
+  public Duration getAutoscaleCooldown() {
+    return autoscaleCooldown;
+  }
+
+  /**
+   * Returns the interval to evaluate the receiving statistics of the autoscaling destinations.
+   */
+  public Duration getAutoscaleInterval() {
+    return autoscaleInterval;
+  }
+
+  /**
+   * Returns the busy ratio under which the receiving tasks are scaled down, the busy ratio is the
+   * receive hit rate of the polling receivers or the handling time ratio of the listener receivers.
+   */
+  public double getAutoscaleScaleDownRatio() {
+    return autoscaleScaleDownRatio;
+  }
+
+  /**
+   * Returns the busy ratio over which the receiving tasks are scaled up.
+   *
+   * @see #getAutoscaleScaleDownRatio()
+   */
+  public double getAutoscaleScaleUpRatio() {
+    return autoscaleScaleUpRatio;
+  }
+
+  /**
+   * Returns the number of the consecutive evaluations with the same scaling direction required
+   * before a scaling action is performed.
+   */
+  public int getAutoscaleStableTimes() {
+    return max(1, autoscaleStableTimes);
+  }
+
   @Override
   public Duration getAwaitTermination() {
     return awaitTermination;
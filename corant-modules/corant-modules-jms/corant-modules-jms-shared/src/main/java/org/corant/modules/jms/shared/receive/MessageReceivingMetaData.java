@@ -21,9 +21,14 @@ import static org.corant.shared.util.Empties.isNotEmpty;
 import static org.corant.shared.util.Objects.max;
 import static org.corant.shared.util.Sets.setOf;
 import static org.corant.shared.util.Strings.isBlank;
+import static org.corant.shared.util.Strings.isNotBlank;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -31,9 +36,11 @@ import org.corant.context.proxy.ContextualMethodHandler;
 import org.corant.context.qualifier.Qualifiers;
 import org.corant.modules.jms.annotation.MessageDestination;
 import org.corant.modules.jms.annotation.MessageDriven;
+import org.corant.modules.jms.annotation.MessageDriven.ReceiveMode;
 import org.corant.modules.jms.metadata.MessageDestinationMetaData;
 import org.corant.modules.jms.metadata.MessageDrivenMetaData;
 import org.corant.modules.jms.metadata.MessageReplyMetaData;
+import org.corant.modules.jms.metadata.MetaDataPropertyResolver;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.retry.BackoffStrategy;
 import org.corant.shared.retry.BackoffStrategy.BackoffStrategyBuilder;
@@ -50,6 +57,15 @@ public class MessageReceivingMetaData {
 
   private final ContextualMethodHandler method;
   private final int acknowledge;
+  private final Class<?> payloadClass;
+  private final boolean batch;
+  private final int batchSize;
+  private final long batchTimeout;
+  private final int minReceivers;
+  private final int maxReceivers;
+  private final int partitions;
+  private final String partitionKey;
+  private final String partitionKeyExtractor;
   private final String connectionFactoryId;
   private final String destination;
   private final boolean multicast;
@@ -58,6 +74,7 @@ public class MessageReceivingMetaData {
   private final int cacheLevel;
   private final long receiveTimeout;
   private final int receiveThreshold;
+  private final ReceiveMode receiveMode;
   private final int failureThreshold;
   private final int tryThreshold;
   private final BackoffStrategy brokenBackoffStrategy;
@@ -75,11 +92,21 @@ public class MessageReceivingMetaData {
     multicast = dest.isMulticast();
     // the driven
     acknowledge = driven.getAcknowledge();
+    batch = driven.isBatch();
+    payloadClass = resolvePayloadClass(method.getMethod(), batch);
+    batchSize = max(1, driven.getBatchSize());
+    batchTimeout = max(0L, driven.getBatchTimeout());
+    minReceivers = max(1, driven.getMinReceivers());
+    maxReceivers = max(minReceivers, driven.getMaxReceivers());
+    partitions = max(0, driven.getPartitions());
+    partitionKey = driven.getPartitionKey();
+    partitionKeyExtractor = driven.getPartitionKeyExtractor();
     selector = driven.getSelector();
     specifiedSelectors = driven.getSpecifiedSelectors();
     cacheLevel = driven.getCacheLevel();
     receiveTimeout = driven.getReceiveTimeout();
     receiveThreshold = max(1, driven.getReceiveThreshold());
+    receiveMode = driven.getReceiveMode();
     failureThreshold = max(2, driven.getFailureThreshold());
     tryThreshold = max(1, driven.getTryThreshold());
     loopIntervalMs = max(500L, driven.getLoopIntervalMs());
@@ -103,6 +130,28 @@ public class MessageReceivingMetaData {
             r.getDestination());
       }
     }
+    if (batch) {
+      shouldBeTrue(isEmpty(replies),
+          "The batch message receiving method %s doesn't support reply.", method.getMethod());
+      if (receiveMode == ReceiveMode.LISTENER) {
+        logger.warning(() -> String.format(
+            "The batch message receiving method %s doesn't support listener mode, use polling mode.",
+            method.getMethod()));
+      }
+    }
+    if (isPartitioned()) {
+      shouldBeFalse(batch || xa || method.getMethod().getParameterCount() > 1,
+          "The partitioned message receiving method %s doesn't support batch, xa or session parameter.",
+          method.getMethod());
+      shouldBeTrue(isNotBlank(partitionKey) || isNotBlank(partitionKeyExtractor),
+          "The partitioned message receiving method %s requires a partition key or extractor.",
+          method.getMethod());
+      if (receiveMode == ReceiveMode.LISTENER) {
+        logger.warning(() -> String.format(
+            "The partitioned message receiving method %s doesn't support listener mode, use polling mode.",
+            method.getMethod()));
+      }
+    }
     if (isNotEmpty(replies)) {
       shouldBeFalse(method.getMethod().getReturnType().equals(Void.TYPE),
           "The message receiving method %s requires a return type because the method is configured with a reply.",
@@ -131,7 +180,8 @@ public class MessageReceivingMetaData {
         MessageDrivenMetaData.from(method.getMethod(), method.getQualifiers());
     Set<MessageDestinationMetaData> dests = MessageDestinationMetaData.from(method.getMethod());
     if (isEmpty(dests)) {
-      dests = MessageDestinationMetaData.from(method.getMethod().getParameterTypes()[0]);
+      dests = MessageDestinationMetaData
+          .from(resolvePayloadClass(method.getMethod(), driven.isBatch()));
     }
     shouldNotEmpty(dests,
         "Can't find any message destination from the message receiving method %s.",
@@ -144,6 +194,42 @@ public class MessageReceivingMetaData {
     return metas;
   }
 
+  /**
+   * Returns the payload class of the given message receiving method, the payload class is the
+   * first parameter type of the method, if the {@link MessageDriven#batch()} of the method is
+   * enabled, the first parameter type must be {@link List} and the payload class is the element
+   * type of the list.
+   *
+   * @param method the message receiving method
+   */
+  public static Class<?> resolvePayloadClass(Method method) {
+    MessageDriven driven = method.getAnnotation(MessageDriven.class);
+    return resolvePayloadClass(method,
+        driven != null && MetaDataPropertyResolver.getBoolean(driven.batch()));
+  }
+
+  static Class<?> resolvePayloadClass(Method method, boolean batch) {
+    Class<?> type = method.getParameterTypes()[0];
+    if (batch) {
+      shouldBeTrue(List.class.equals(type),
+          "The batch message receiving method %s must use a list as the first parameter.", method);
+      Type pt = method.getGenericParameterTypes()[0];
+      if (pt instanceof ParameterizedType) {
+        Type et = ((ParameterizedType) pt).getActualTypeArguments()[0];
+        if (et instanceof ParameterizedType) {
+          et = ((ParameterizedType) et).getRawType();
+        }
+        if (et instanceof Class) {
+          return (Class<?>) et;
+        }
+      }
+      throw new CorantRuntimeException(
+          "The batch message receiving method %s must declare the element type of the list.",
+          method);
+    }
+    return type;
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (this == obj) {
@@ -187,6 +273,14 @@ public class MessageReceivingMetaData {
     return acknowledge;
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public long getBatchTimeout() {
+    return batchTimeout;
+  }
+
   public BackoffStrategy getBrokenBackoffStrategy() {
     return brokenBackoffStrategy;
   }
@@ -215,6 +309,34 @@ public class MessageReceivingMetaData {
     return method;
   }
 
+  public ReceiveMode getReceiveMode() {
+    return receiveMode;
+  }
+
+  public String getPartitionKey() {
+    return partitionKey;
+  }
+
+  public String getPartitionKeyExtractor() {
+    return partitionKeyExtractor;
+  }
+
+  public int getPartitions() {
+    return partitions;
+  }
+
+  public int getMaxReceivers() {
+    return maxReceivers;
+  }
+
+  public int getMinReceivers() {
+    return minReceivers;
+  }
+
+  public Class<?> getPayloadClass() {
+    return payloadClass;
+  }
+
   public int getReceiveThreshold() {
     return receiveThreshold;
   }
@@ -253,10 +375,26 @@ public class MessageReceivingMetaData {
     return prime * result + (selector == null ? 0 : selector.hashCode());
   }
 
+  public boolean isAutoscaling() {
+    return maxReceivers > minReceivers;
+  }
+
+  public boolean isBatch() {
+    return batch;
+  }
+
+  public boolean isListenerMode() {
+    return receiveMode == ReceiveMode.LISTENER && !batch && !isPartitioned();
+  }
+
   public boolean isMulticast() {
     return multicast;
   }
 
+  public boolean isPartitioned() {
+    return partitions > 1;
+  }
+
   public boolean isXa() {
     return xa;
   }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * The cumulative receiving statistics of a destination, shared by all the receiving tasks of the
+ * destination, used to evaluate the busy ratio and the handling latency of the destination.
+ *
+ * @author bingo 下午6:12:40
+ *
+ */
+public class MessageReceivingStatistics {
+
+  protected static final Map<MessageReceivingMetaData, MessageReceivingStatistics> statistics =
+      new ConcurrentHashMap<>();
+
+  protected final LongAdder receives = new LongAdder();
+  protected final LongAdder hits = new LongAdder();
+  protected final LongAdder messages = new LongAdder();
+  protected final LongAdder handlingNanos = new LongAdder();
+
+  /**
+   * Clear all the statistics, called when the message receiving executor stops.
+   */
+  public static void clear() {
+    statistics.clear();
+  }
+
+  public static MessageReceivingStatistics of(MessageReceivingMetaData meta) {
+    return statistics.computeIfAbsent(meta, k -> new MessageReceivingStatistics());
+  }
+
+  /**
+   * Returns the total handling nanoseconds
+   */
+  public long getHandlingNanos() {
+    return handlingNanos.sum();
+  }
+
+  /**
+   * Returns the number of the receive invocations that returned a message
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of the received messages, including the messages delivered to the message
+   * listeners
+   */
+  public long getMessages() {
+    return messages.sum();
+  }
+
+  /**
+   * Returns the number of the receive invocations on the message consumers
+   */
+  public long getReceives() {
+    return receives.sum();
+  }
+
+  /**
+   * Record the messages delivered to the message listener
+   *
+   * @param count the number of the delivered messages
+   */
+  public void onDelivered(int count) {
+    messages.add(count);
+  }
+
+  /**
+   * Record the handling of the messages
+   *
+   * @param nanos the handling nanoseconds
+   */
+  public void onHandled(long nanos) {
+    handlingNanos.add(nanos);
+  }
+
+  /**
+   * Record a receive invocation on the message consumer
+   *
+   * @param hit whether the invocation returned a message
+   */
+  public void onReceived(boolean hit) {
+    receives.increment();
+    if (hit) {
+      hits.increment();
+      messages.increment();
+    }
+  }
+
+}
@@ -54,4 +54,8 @@ public class MessageReceivingTaskExecution {
   public ScheduledFuture<?> getFuture() {
     return future;
   }
+
+  public ManagedMessageReceivingTask getTask() {
+    return task;
+  }
 }
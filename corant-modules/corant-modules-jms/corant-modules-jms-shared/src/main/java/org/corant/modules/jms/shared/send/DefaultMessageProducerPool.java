@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.send;
+
+import static org.corant.context.Beans.findNamed;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.jms.CompletionListener;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSContext;
+import javax.jms.Message;
+import org.corant.modules.jms.send.MessageProducerPool;
+import org.corant.modules.jms.shared.JMSInstrumentation;
+import org.corant.modules.jms.shared.JMSInstrumentation.Kind;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * Default message producer pool, all the pooled JMS contexts of a connection factory are created
+ * from one root JMS context so that they share one connection, each pooled context has its own
+ * session and the underlying message producer is reused by the provider for all the JMS producers
+ * created from the context. If a pooled context is broken, the root context of the connection
+ * factory is evicted and re-created on the next creation, the idle pooled contexts of the evicted
+ * root context are closed and the borrowed ones are closed when they are returned. The root context
+ * is reference counted, it's closed after the last pooled context created from it was closed.
+ *
+ * @author bingo 下午3:36:42
+ *
+ */
+@ApplicationScoped
+public class DefaultMessageProducerPool implements MessageProducerPool {
+
+  protected static final Logger logger =
+      Logger.getLogger(DefaultMessageProducerPool.class.getName());
+
+  protected final Map<String, RootContext> roots = new ConcurrentHashMap<>();
+  protected final Map<PoolKey, BlockingQueue<DefaultPooledMessageProducer>> idles =
+      new ConcurrentHashMap<>();
+  protected final Map<PoolKey, Semaphore> windows = new ConcurrentHashMap<>();
+  protected volatile boolean closed;
+
+  @Inject
+  @ConfigProperty(name = "corant.jms.send.pool.max-idle", defaultValue = "8")
+  protected Integer maxIdle;
+
+  @Override
+  public PooledMessageProducer borrow(String connectionFactoryId, boolean multicast,
+      String destination, boolean transacted) {
+    if (closed) {
+      throw new CorantRuntimeException("The message producer pool was closed!");
+    }
+    final PoolKey key = new PoolKey(connectionFactoryId, multicast, destination, transacted);
+    DefaultPooledMessageProducer producer = idles(key).poll();
+    if (producer == null) {
+      producer = create(key);
+    }
+    return producer;
+  }
+
+  @Override
+  public void release(PooledMessageProducer producer, boolean broken) {
+    DefaultPooledMessageProducer pooled = (DefaultPooledMessageProducer) producer;
+    if (broken) {
+      // the connection may be broken, evict the root context
+      close(pooled);
+      evict(pooled.root);
+    } else if (closed || pooled.root.isEvicted() || !idles(pooled.key).offer(pooled)) {
+      close(pooled);
+    }
+  }
+
+  protected void close(DefaultPooledMessageProducer producer) {
+    try {
+      close(producer.context);
+    } finally {
+      producer.root.release();
+    }
+  }
+
+  protected void close(JMSContext context) {
+    if (context != null) {
+      try {
+        context.close();
+      } catch (Exception e) {
+        logger.log(Level.WARNING, e, () -> "Close pooled JMS context occurred error!");
+      }
+    }
+  }
+
+  protected DefaultPooledMessageProducer create(PoolKey key) {
+    RootContext root;
+    do {
+      root = roots.computeIfAbsent(key.connectionFactoryId,
+          cf -> new RootContext(cf, findNamed(ConnectionFactory.class, cf)
+              .orElseThrow(() -> new CorantRuntimeException(
+                  "Can not find any JMS connection factory for %s.", cf))
+              .createContext()));
+      // the root context may be evicted concurrently, retry with a new one
+    } while (!root.retain());
+    JMSContext context = null;
+    try {
+      context = root.context.createContext(
+          key.transacted ? JMSContext.SESSION_TRANSACTED : JMSContext.AUTO_ACKNOWLEDGE);
+      final Destination destination = key.multicast ? context.createTopic(key.destination)
+          : context.createQueue(key.destination);
+      logger.fine(() -> String.format("Create pooled JMS context for %s.", key));
+      return new DefaultPooledMessageProducer(this, key, root, context, destination);
+    } catch (RuntimeException e) {
+      close(context);
+      root.release();
+      if (context == null) {
+        evict(root);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Evict the given root context and close the idle pooled contexts created from it, the root
+   * context is closed after the borrowed pooled contexts created from it were returned.
+   *
+   * @param root the root context to evict
+   */
+  protected void evict(RootContext root) {
+    if (roots.remove(root.connectionFactoryId, root)) {
+      final List<DefaultPooledMessageProducer> evicted = new ArrayList<>();
+      idles.values().forEach(q -> q.removeIf(p -> p.root == root && evicted.add(p)));
+      evicted.forEach(this::close);
+      // release the reference of the pool
+      root.evict();
+      logger.fine(() -> String.format("Evict the root JMS context of %s.",
+          root.connectionFactoryId));
+    }
+  }
+
+  protected BlockingQueue<DefaultPooledMessageProducer> idles(PoolKey key) {
+    return idles.computeIfAbsent(key, k -> new ArrayBlockingQueue<>(Math.max(1, maxIdle)));
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    closed = true;
+    idles.values().forEach(q -> {
+      DefaultPooledMessageProducer producer;
+      while ((producer = q.poll()) != null) {
+        close(producer);
+      }
+    });
+    idles.clear();
+    roots.values().forEach(this::evict);
+    windows.clear();
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午3:36:42
+   *
+   */
+  public static class DefaultPooledMessageProducer implements PooledMessageProducer {
+
+    final DefaultMessageProducerPool pool;
+    final PoolKey key;
+    final RootContext root;
+    final JMSContext context;
+    final Destination destination;
+
+    DefaultPooledMessageProducer(DefaultMessageProducerPool pool, PoolKey key, RootContext root,
+        JMSContext context, Destination destination) {
+      this.pool = pool;
+      this.key = key;
+      this.root = root;
+      this.context = context;
+      this.destination = destination;
+    }
+
+    @Override
+    public CompletionListener acquire(int maxInFlight, CompletionListener listener) {
+      final Semaphore window =
+          pool.windows.computeIfAbsent(key, k -> new Semaphore(Math.max(1, maxInFlight)));
+      try {
+        window.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CorantRuntimeException(e);
+      }
+      return new InFlightCompletionListener(window, listener, key);
+    }
+
+    @Override
+    public JMSContext getContext() {
+      return context;
+    }
+
+    @Override
+    public Destination getDestination() {
+      return destination;
+    }
+
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * <p>
+   * Releases the in-flight permit when the asynchronous send completes, the failures are recorded
+   * to the sending instrumentation of the destination so that they are visible in the metrics even
+   * if the given delegate listener ignores them.
+   *
+   * @author bingo 下午3:36:42
+   *
+   */
+  static class InFlightCompletionListener implements CompletionListener {
+
+    final Semaphore window;
+    final CompletionListener delegate;
+    final PoolKey key;
+
+    InFlightCompletionListener(Semaphore window, CompletionListener delegate, PoolKey key) {
+      this.window = window;
+      this.delegate = delegate;
+      this.key = key;
+    }
+
+    @Override
+    public void onCompletion(Message message) {
+      window.release();
+      if (delegate != null) {
+        delegate.onCompletion(message);
+      }
+    }
+
+    @Override
+    public void onException(Message message, Exception exception) {
+      window.release();
+      JMSInstrumentation.of(Kind.SENDER, key.connectionFactoryId, key.destination, key.multicast)
+          .onAsyncFailed();
+      if (delegate != null) {
+        delegate.onException(message, exception);
+      } else {
+        logger.log(Level.SEVERE, exception,
+            () -> String.format("Asynchronous message sending occurred error, %s.", key));
+      }
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * <p>
+   * The reference counted root JMS context of a connection factory, the pool holds one reference
+   * until the root context is evicted and each pooled context created from it holds one reference
+   * until it's closed.
+   *
+   * @author bingo 下午3:36:42
+   *
+   */
+  static class RootContext {
+
+    final String connectionFactoryId;
+    final JMSContext context;
+    int references = 1;
+    boolean evicted;
+
+    RootContext(String connectionFactoryId, JMSContext context) {
+      this.connectionFactoryId = connectionFactoryId;
+      this.context = context;
+    }
+
+    synchronized void evict() {
+      if (!evicted) {
+        evicted = true;
+        release();
+      }
+    }
+
+    synchronized boolean isEvicted() {
+      return evicted;
+    }
+
+    synchronized void release() {
+      if (--references == 0) {
+        try {
+          context.close();
+        } catch (Exception e) {
+          logger.log(Level.WARNING, e, () -> "Close root JMS context occurred error!");
+        }
+      }
+    }
+
+    synchronized boolean retain() {
+      if (evicted) {
+        return false;
+      }
+      references++;
+      return true;
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午3:36:42
+   *
+   */
+  static class PoolKey {
+
+    final String connectionFactoryId;
+    final boolean multicast;
+    final String destination;
+    final boolean transacted;
+    final int hash;
+
+    PoolKey(String connectionFactoryId, boolean multicast, String destination,
+        boolean transacted) {
+      this.connectionFactoryId = connectionFactoryId;
+      this.multicast = multicast;
+      this.destination = destination;
+      this.transacted = transacted;
+      hash = Objects.hash(connectionFactoryId, multicast, destination, transacted);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      PoolKey other = (PoolKey) obj;
+      return multicast == other.multicast && transacted == other.transacted
+          && Objects.equals(connectionFactoryId, other.connectionFactoryId)
+          && Objects.equals(destination, other.destination);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return "connection factory: " + connectionFactoryId + ", destination: " + destination
+          + ", multicast: " + multicast + ", transacted: " + transacted;
+    }
+
+  }
+}
@@ -14,6 +14,7 @@
 package org.corant.modules.jms.shared.send;
 
 import static org.corant.context.Beans.findNamed;
+import static org.corant.context.Beans.resolve;
 import static org.corant.context.Beans.resolveApply;
 import static org.corant.shared.util.Conversions.toObject;
 import static org.corant.shared.util.Empties.isNotEmpty;
@@ -25,21 +26,32 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Stream;
+import javax.jms.CompletionListener;
 import javax.jms.DeliveryMode;
 import javax.jms.Destination;
 import javax.jms.JMSContext;
 import javax.jms.JMSProducer;
 import javax.jms.Message;
+import org.corant.modules.jms.annotation.MessageSend.SendMode;
 import org.corant.modules.jms.marshaller.MessageMarshaller;
 import org.corant.modules.jms.metadata.MessageDestinationMetaData;
 import org.corant.modules.jms.metadata.MessageSendMetaData;
+import org.corant.modules.jms.send.MessageProducerPool;
+import org.corant.modules.jms.send.MessageProducerPool.PooledMessageProducer;
 import org.corant.modules.jms.send.MessageSender;
+import org.corant.modules.jms.shared.JMSInstrumentation;
+import org.corant.modules.jms.shared.JMSInstrumentation.Kind;
 import org.corant.modules.jms.shared.context.DefaultJMSContextService;
 import org.corant.shared.exception.CorantRuntimeException;
 
 /**
  * corant-modules-jms-shared
  *
+ * <p>
+ * Default message sender, in {@link SendMode#SYNC} mode the messages are sent with the JMS context
+ * of the current scope; in {@link SendMode#ASYNC} and {@link SendMode#BATCH} modes the messages are
+ * sent with the pooled JMS context of the destination, see {@link MessageProducerPool}.
+ *
  * @author bingo 下午5:52:36
  *
  */
@@ -52,6 +64,9 @@ public class DefaultMessageSender implements MessageSender {
   protected long deliveryDelay = -1;
   protected long timeToLive = -1;
   protected Map<String, Object> properties = new HashMap<>();
+  protected SendMode sendMode = SendMode.SYNC;
+  protected int maxInFlight = 256;
+  protected int batchSize = 64;
 
   public DefaultMessageSender(MessageSendMetaData annotation) {
     MessageDestinationMetaData annDest = annotation.getDestination();
@@ -62,6 +77,9 @@ public class DefaultMessageSender implements MessageSender {
     deliveryMode = annotation.getDeliveryMode();
     deliveryDelay = annotation.getDeliveryDelay();
     timeToLive = annotation.getTimeToLive();
+    sendMode = annotation.getSendMode();
+    maxInFlight = annotation.getMaxInFlight();
+    batchSize = annotation.getBatchSize();
     if (isNotEmpty(annotation.getProperties())) {
       annotation.getProperties()
           .forEach(p -> properties.put(p.getName(), toObject(p.getValue(), p.getType())));
@@ -106,6 +124,14 @@ public class DefaultMessageSender implements MessageSender {
     doSend(serialSchema, messages);
   }
 
+  /**
+   * Returns the completion listener to be notified when the asynchronous send completes, default
+   * is null.
+   */
+  protected CompletionListener completionListener() {
+    return null;
+  }
+
   protected void configure(JMSContext jmsc, JMSProducer producer) {
     producer.setDeliveryMode(deliveryMode);
     if (deliveryDelay > 0) {
@@ -119,25 +145,53 @@ public class DefaultMessageSender implements MessageSender {
     }
   }
 
+  /**
+   * Configure the JMS producer created from the pooled JMS context, the pooled context is shared by
+   * the senders of the destination, so only the producer settings should be applied.
+   */
+  protected void configurePooled(JMSContext jmsc, JMSProducer producer) {
+    configure(jmsc, producer);
+  }
+
+  /**
+   * Send the given message and record the marshalling time, the payload size and the sending time
+   * to the instrumentation of the destination, in {@link SendMode#ASYNC} mode the sending time
+   * doesn't contain the time waiting for the completion.
+   */
   @SuppressWarnings("unchecked")
   protected void doSend(JMSContext jmsc, Destination d, JMSProducer p, MessageMarshaller marshaller,
       Object message) {
+    final JMSInstrumentation instrumentation = instrumentation();
+    long start = System.nanoTime();
+    boolean success = false;
     try {
       if (marshaller != null) {
-        p.send(d, marshaller.serialize(jmsc, message));
+        Message serialized = marshaller.serialize(jmsc, message);
+        instrumentation.onMarshalled(System.nanoTime() - start);
+        instrumentation.onSending(JMSInstrumentation.resolvePayloadSize(serialized));
+        start = System.nanoTime();
+        p.send(d, serialized);
       } else if (message instanceof String) {
+        instrumentation.onSending(((String) message).length());
         p.send(d, (String) message);
       } else if (message instanceof Message) {
+        instrumentation.onSending(JMSInstrumentation.resolvePayloadSize((Message) message));
         p.send(d, (Message) message);
       } else if (message instanceof Map) {
+        instrumentation.onSending(-1);
         p.send(d, (Map<String, Object>) message);
       } else if (message instanceof byte[]) {
+        instrumentation.onSending(((byte[]) message).length);
         p.send(d, (byte[]) message);
       } else if (message instanceof Serializable) {
+        instrumentation.onSending(-1);
         p.send(d, (Serializable) message);
       }
+      success = true;
     } catch (Exception e) {
       throw new CorantRuntimeException(e);
+    } finally {
+      instrumentation.onProcessed(1, System.nanoTime() - start, success);
     }
   }
 
@@ -157,8 +211,70 @@ public class DefaultMessageSender implements MessageSender {
     }
   }
 
+  /**
+   * Send the given messages with the pooled JMS context of the destination, in
+   * {@link SendMode#ASYNC} mode the sending thread blocks only when the in-flight window is full;
+   * in {@link SendMode#BATCH} mode the messages are committed every batch size messages and the
+   * uncommitted messages are rolled back if any message fails.
+   *
+   * @param marshallerName the message marshaller name
+   * @param messages the messages to send
+   */
+  protected void doPooledSend(String marshallerName, Object... messages) {
+    final boolean batch = sendMode == SendMode.BATCH;
+    final MessageProducerPool pool = resolve(MessageProducerPool.class);
+    final PooledMessageProducer pooled =
+        pool.borrow(connectionFactoryId, multicast, destination, batch);
+    boolean broken = false;
+    try {
+      final MessageMarshaller serializer = marshaller(marshallerName);
+      final JMSContext jmsc = pooled.getContext();
+      final Destination d = pooled.getDestination();
+      final JMSProducer p = jmsc.createProducer();
+      configurePooled(jmsc, p);
+      if (batch) {
+        int uncommitted = 0;
+        try {
+          for (Object message : messages) {
+            doSend(jmsc, d, p, serializer, message);
+            if (++uncommitted >= batchSize) {
+              jmsc.commit();
+              uncommitted = 0;
+            }
+          }
+          if (uncommitted > 0) {
+            jmsc.commit();
+          }
+        } catch (RuntimeException e) {
+          jmsc.rollback();
+          throw e;
+        }
+      } else {
+        for (Object message : messages) {
+          CompletionListener listener = pooled.acquire(maxInFlight, completionListener());
+          p.setAsync(listener);
+          try {
+            doSend(jmsc, d, p, serializer, message);
+          } catch (RuntimeException e) {
+            listener.onException(null, e);
+            throw e;
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      broken = isBroken(e);
+      throw e;
+    } finally {
+      pool.release(pooled, broken);
+    }
+  }
+
   protected void doSend(String marshallerName, Object... messages) {
     if (isNotEmpty(messages)) {
+      if (sendMode != SendMode.SYNC) {
+        doPooledSend(marshallerName, messages);
+        return;
+      }
       final JMSContext jmsc = resolveApply(DefaultJMSContextService.class,
           b -> b.getJMSContext(connectionFactoryId, dupsOkAck));
       doSend(jmsc, marshallerName, messages);
@@ -177,6 +293,25 @@ public class DefaultMessageSender implements MessageSender {
     }
   }
 
+  /**
+   * Returns the sending instrumentation of the destination
+   */
+  protected JMSInstrumentation instrumentation() {
+    return JMSInstrumentation.of(Kind.SENDER, connectionFactoryId, destination, multicast);
+  }
+
+  /**
+   * Returns whether the given sending exception means the pooled JMS context or its connection is
+   * broken, only the JMS runtime exceptions thrown by the provider break it, the message level
+   * exceptions, the marshalling exceptions and the other application exceptions don't.
+   *
+   * @param e the exception occurred while sending
+   */
+  protected boolean isBroken(RuntimeException e) {
+    // the sending exceptions are wrapped, see doSend
+    return MessageProducerPool.isBroken(e);
+  }
+
   protected MessageMarshaller marshaller(String marshallerName) {
     return findNamed(MessageMarshaller.class, marshallerName).orElse(null);
   }
@@ -33,6 +33,7 @@ import javax.jms.JMSProducer;
 import javax.jms.XAConnectionFactory;
 import javax.jms.XAJMSContext;
 import javax.transaction.Transactional.TxType;
+import org.corant.modules.jms.annotation.MessageSend.SendMode;
 import org.corant.modules.jta.shared.SynchronizationAdapter;
 import org.corant.modules.jta.shared.TransactionService;
 import org.corant.shared.exception.CorantRuntimeException;
@@ -68,6 +69,17 @@ public class MessageSenderTemplate extends DefaultMessageSender {
     return new MessageSenderTemplate().connectionFactoryId(connectionFactoryId);
   }
 
+  /**
+   * Set the maximum number of the messages committed in one transacted session in
+   * {@link SendMode#BATCH} mode.
+   *
+   * @param batchSize the batch size
+   */
+  public MessageSenderTemplate batchSize(int batchSize) {
+    this.batchSize = Math.max(1, batchSize);
+    return this;
+  }
+
   public MessageSenderTemplate clientId(String clientId) {
     this.clientId = clientId;
     return this;
@@ -113,6 +125,17 @@ public class MessageSenderTemplate extends DefaultMessageSender {
     return this;
   }
 
+  /**
+   * Set the maximum number of the incomplete asynchronous sends of the destination in
+   * {@link SendMode#ASYNC} mode.
+   *
+   * @param maxInFlight the in-flight window size
+   */
+  public MessageSenderTemplate maxInFlight(int maxInFlight) {
+    this.maxInFlight = Math.max(1, maxInFlight);
+    return this;
+  }
+
   public MessageSenderTemplate multicast(boolean multicast) {
     this.multicast = multicast;
     return this;
@@ -143,6 +166,19 @@ public class MessageSenderTemplate extends DefaultMessageSender {
     return this;
   }
 
+  /**
+   * Set the send mode, in {@link SendMode#ASYNC} and {@link SendMode#BATCH} modes the pooled JMS
+   * context of the destination is used, the {@link #sessionMode(int)}, {@link #clientId(String)}
+   * and {@link #exceptionListener(ExceptionListener)} are ignored, and the mode is ignored if the
+   * {@link #txType(TxType)} is set.
+   *
+   * @param sendMode the send mode
+   */
+  public MessageSenderTemplate sendMode(SendMode sendMode) {
+    this.sendMode = sendMode == null ? SendMode.SYNC : sendMode;
+    return this;
+  }
+
   public MessageSenderTemplate sessionMode(int sessionMode) {
     this.sessionMode = sessionMode;
     return this;
@@ -203,8 +239,27 @@ public class MessageSenderTemplate extends DefaultMessageSender {
     }
   }
 
+  @Override
+  protected CompletionListener completionListener() {
+    return completionListener;
+  }
+
   @Override
   protected void configure(JMSContext jmsc, JMSProducer producer) {
+    if (completionListener != null) {
+      producer.setAsync(completionListener);
+    }
+    if (isNotBlank(clientId)) {
+      jmsc.setClientID(clientId);
+    }
+    if (exceptionListener != null) {
+      jmsc.setExceptionListener(exceptionListener);
+    }
+    configurePooled(jmsc, producer);
+  }
+
+  @Override
+  protected void configurePooled(JMSContext jmsc, JMSProducer producer) {
     if (isNotBlank(replyTo)) {
       producer
           .setJMSReplyTo(multicastReplyTo ? jmsc.createTopic(replyTo) : jmsc.createQueue(replyTo));
@@ -212,9 +267,6 @@ public class MessageSenderTemplate extends DefaultMessageSender {
     if (priority > -1) {
       producer.setPriority(priority);
     }
-    if (completionListener != null) {
-      producer.setAsync(completionListener);
-    }
     if (disableMessageID != null) {
       producer.setDisableMessageID(disableMessageID);
     }
@@ -224,12 +276,6 @@ public class MessageSenderTemplate extends DefaultMessageSender {
     if (isNotBlank(jmsType)) {
       producer.setJMSType(jmsType);
     }
-    if (isNotBlank(clientId)) {
-      jmsc.setClientID(clientId);
-    }
-    if (exceptionListener != null) {
-      jmsc.setExceptionListener(exceptionListener);
-    }
     super.configure(jmsc, producer);
   }
 
@@ -248,6 +294,8 @@ public class MessageSenderTemplate extends DefaultMessageSender {
             doSend(ctx, marshallerName, messages);
           });
       // }
+    } else if (sendMode != SendMode.SYNC) {
+      doPooledSend(marshallerName, messages);
     } else {
       JMSContext ctx = null;
       try {
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.marshaller;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.jms.BytesMessage;
+import javax.jms.JMSContext;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import org.corant.modules.jms.marshaller.MessageMarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * Micro-benchmarks of the serialize and deserialize round trip of {@link KryoMessageMarshaller}
+ * against {@link MapMessageMarshaller}, the JMS context and messages are simple in-memory
+ * implementations so that only the marshalling costs are measured.
+ *
+ * @author bingo 下午4:18:05
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MessageMarshallerBenchmark {
+
+  JMSContext context;
+  Map<String, Object> map;
+  Order order;
+  MapMessageMarshaller mapMarshaller;
+  KryoMessageMarshaller kryoMarshaller;
+  KryoMessageMarshaller registeredKryoMarshaller;
+  KryoMessageMarshaller compressedKryoMarshaller;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder().include(MessageMarshallerBenchmark.class.getSimpleName()).build())
+            .run();
+  }
+
+  static KryoMessageMarshaller kryoMarshaller(String registrations, int compressionThreshold) {
+    KryoMessageMarshaller marshaller = new KryoMessageMarshaller();
+    marshaller.registrations = Optional.ofNullable(registrations);
+    marshaller.compressionThreshold = compressionThreshold;
+    marshaller.bufferSize = 4096;
+    marshaller.maxPooledBufferSize = 1048576;
+    marshaller.onPostConstruct();
+    return marshaller;
+  }
+
+  @Benchmark
+  public Object kryoMap() {
+    return roundTrip(kryoMarshaller, map, Map.class);
+  }
+
+  @Benchmark
+  public Object kryoPojo() {
+    return roundTrip(kryoMarshaller, order, Order.class);
+  }
+
+  @Benchmark
+  public Object kryoPojoCompressed() {
+    return roundTrip(compressedKryoMarshaller, order, Order.class);
+  }
+
+  @Benchmark
+  public Object kryoPojoRegistered() {
+    return roundTrip(registeredKryoMarshaller, order, Order.class);
+  }
+
+  @Benchmark
+  public Object map() {
+    return roundTrip(mapMarshaller, map, Map.class);
+  }
+
+  @Setup
+  public void setup() {
+    context = (JMSContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {JMSContext.class}, (p, m, a) -> {
+          if ("createBytesMessage".equals(m.getName())) {
+            return InMemoryMessage.create(BytesMessage.class);
+          } else if ("createMapMessage".equals(m.getName())) {
+            return InMemoryMessage.create(MapMessage.class);
+          }
+          throw new UnsupportedOperationException(m.getName());
+        });
+    map = new LinkedHashMap<>();
+    order = new Order();
+    order.id = "ORD-20211019-000001";
+    order.customer = "corant";
+    order.amount = 12345678L;
+    order.price = 99.5d;
+    order.paid = true;
+    for (int i = 0; i < 16; i++) {
+      Line line = new Line();
+      line.sku = "SKU-" + i;
+      line.quantity = i;
+      order.lines.add(line);
+      map.put("field" + i, i % 2 == 0 ? "value-" + i : (Object) (long) i);
+    }
+    mapMarshaller = new MapMessageMarshaller();
+    kryoMarshaller = kryoMarshaller(null, -1);
+    registeredKryoMarshaller = kryoMarshaller(
+        String.join(",", Order.class.getName(), Line.class.getName(), ArrayList.class.getName()),
+        -1);
+    compressedKryoMarshaller = kryoMarshaller(null, 256);
+  }
+
+  <T> T roundTrip(MessageMarshaller marshaller, Object object, Class<T> clazz) {
+    Message message = marshaller.serialize(context, object);
+    ((InMemoryMessage) Proxy.getInvocationHandler(message)).reset();
+    return marshaller.deserialize(message, clazz);
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * <p>
+   * A simple in-memory bytes and map message.
+   *
+   * @author bingo 下午4:18:05
+   *
+   */
+  static class InMemoryMessage implements InvocationHandler {
+    final Map<String, Object> properties = new HashMap<>();
+    final Map<String, Object> body = new LinkedHashMap<>();
+    byte[] bytes = new byte[256];
+    int length;
+    int position;
+
+    static <T extends Message> T create(Class<T> type) {
+      return type.cast(Proxy.newProxyInstance(InMemoryMessage.class.getClassLoader(),
+          new Class<?>[] {type}, new InMemoryMessage()));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      switch (method.getName()) {
+        case "setStringProperty":
+          properties.put((String) args[0], args[1]);
+          return null;
+        case "setObject":
+          body.put((String) args[0], args[1]);
+          return null;
+        case "getStringProperty":
+          return properties.get(args[0]);
+        case "getObject":
+          return body.get(args[0]);
+        case "getMapNames":
+          return Collections.enumeration(new ArrayList<>(body.keySet()));
+        case "getBodyLength":
+          return (long) length;
+        case "writeByte":
+          write(new byte[] {(Byte) args[0]}, 0, 1);
+          return null;
+        case "writeBytes":
+          byte[] data = (byte[]) args[0];
+          write(data, args.length == 3 ? (Integer) args[1] : 0,
+              args.length == 3 ? (Integer) args[2] : data.length);
+          return null;
+        case "readBytes":
+          byte[] buffer = (byte[]) args[0];
+          int count = Math.min(args.length == 2 ? (Integer) args[1] : buffer.length,
+              length - position);
+          if (count <= 0) {
+            return -1;
+          }
+          System.arraycopy(bytes, position, buffer, 0, count);
+          position += count;
+          return count;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0];
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+
+    void reset() {
+      position = 0;
+    }
+
+    void write(byte[] data, int offset, int count) {
+      if (length + count > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, length + count));
+      }
+      System.arraycopy(data, offset, bytes, length, count);
+      length += count;
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午4:18:05
+   *
+   */
+  public static class Line {
+    String sku;
+    int quantity;
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午4:18:05
+   *
+   */
+  public static class Order {
+    String id;
+    String customer;
+    long amount;
+    double price;
+    boolean paid;
+    List<Line> lines = new ArrayList<>();
+  }
+}
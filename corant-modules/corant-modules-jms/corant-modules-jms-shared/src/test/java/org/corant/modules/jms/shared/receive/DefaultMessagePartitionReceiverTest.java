@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import org.corant.context.proxy.ContextualMethodHandler;
+import org.corant.modules.jms.annotation.MessageDriven.ReceiveMode;
+import org.corant.modules.jms.marshaller.MessageMarshaller;
+import org.corant.modules.jms.metadata.MessageDestinationMetaData;
+import org.corant.modules.jms.metadata.MessageDrivenMetaData;
+import org.corant.shared.retry.BackoffStrategy.BackoffAlgorithm;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * @author bingo 下午2:41:06
+ *
+ */
+public class DefaultMessagePartitionReceiverTest extends TestCase {
+
+  static final String KEY = "key";
+  static final String SEQ = "seq";
+
+  static Message message(String key, int seq) {
+    return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(),
+        new Class<?>[] {Message.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getObjectProperty":
+              return KEY.equals(args[0]) ? key : null;
+            case "getIntProperty":
+              return seq;
+            case "toString":
+              return key + "-" + seq;
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            default:
+              return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+          }
+        });
+  }
+
+  static MessageReceivingMetaData metaData(int partitions) throws Exception {
+    MessageDrivenMetaData driven = new MessageDrivenMetaData(Receiver.class, new Annotation[0],
+        Receiver.class.getMethod("onMessage", Message.class), Session.SESSION_TRANSACTED, false,
+        1024, 1000, BackoffAlgorithm.FIXED, 2.0, "PT5M", 3, 16, 1000, "PT1H", 1, 1, KEY, null,
+        partitions, 1, ReceiveMode.POLLING, 10, Collections.emptyList(), null, new String[0], 2,
+        300, false);
+    return new MessageReceivingMetaData(
+        new ContextualMethodHandler(Receiver.class.getMethod("onMessage", Message.class)),
+        new MessageDestinationMetaData("test", "test-queue-" + partitions, false,
+            Collections.emptyMap()),
+        driven);
+  }
+
+  static List<String> keysOfDistinctLanes(TestReceiver receiver, int size)
+      throws JMSException {
+    List<String> keys = new ArrayList<>();
+    Set<Integer> lanes = new HashSet<>();
+    for (int i = 0; keys.size() < size; i++) {
+      if (lanes.add(receiver.resolveLane(message("k" + i, 0), null))) {
+        keys.add("k" + i);
+      }
+    }
+    return keys;
+  }
+
+  @Test
+  public void testFailureSkipsLaneAndRollsBack() throws Exception {
+    TestReceiver receiver = new TestReceiver(metaData(4), Collections.emptyList());
+    List<String> keys = keysOfDistinctLanes(receiver, 3);
+    for (int i = 0; i < 30; i++) {
+      receiver.messages.add(message(keys.get(i % 3), i));
+    }
+    // the fifth message of the second key fails
+    receiver.failing = 13;
+    try {
+      assertFalse(receiver.receive());
+      assertEquals(0, receiver.commits.get());
+      assertEquals(1, receiver.rollbacks.get());
+      // only the messages before the failed one are replied, the replies are rolled back too
+      List<Integer> replied = new ArrayList<>();
+      for (int i = 0; i < 13; i++) {
+        replied.add(i);
+      }
+      assertEquals(replied, receiver.replied);
+      // the redelivered messages are handled one by one
+      assertEquals(30, receiver.fallbackCounter);
+      // the subsequent messages of the lane are skipped
+      assertEquals(Arrays.asList(1, 4, 7, 10, 13), receiver.handled.get(keys.get(1)));
+      // the other lanes are not affected
+      assertEquals(10, receiver.handled.get(keys.get(0)).size());
+      assertEquals(10, receiver.handled.get(keys.get(2)).size());
+    } finally {
+      receiver.release(true);
+    }
+  }
+
+  @Test
+  public void testLaneOrderingAndCommit() throws Exception {
+    List<Message> messages = new ArrayList<>();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      messages.add(message("k" + i % 7, i));
+      expected.add(i);
+    }
+    TestReceiver receiver = new TestReceiver(metaData(4), messages);
+    try {
+      assertTrue(receiver.receive());
+      // one commit after all the messages were handled
+      assertEquals(1, receiver.commits.get());
+      assertEquals(200, receiver.handledAtCommit);
+      assertEquals(0, receiver.rollbacks.get());
+      // the replies are sent in the receiving order
+      assertEquals(expected, receiver.replied);
+      // the messages of a key are handled in the receiving order
+      assertEquals(7, receiver.handled.size());
+      receiver.handled.forEach((k, seqs) -> {
+        for (int i = 1; i < seqs.size(); i++) {
+          assertTrue(k, seqs.get(i - 1) < seqs.get(i));
+        }
+      });
+    } finally {
+      receiver.release(true);
+    }
+  }
+
+  @Test
+  public void testLanesInParallel() throws Exception {
+    TestReceiver receiver = new TestReceiver(metaData(2), Collections.emptyList());
+    List<String> keys = keysOfDistinctLanes(receiver, 2);
+    receiver.messages.add(message(keys.get(0), 0));
+    receiver.messages.add(message(keys.get(1), 1));
+    // each message waits for the other one, they only complete if the lanes run in parallel
+    receiver.rendezvous = new CountDownLatch(2);
+    try {
+      assertTrue(receiver.receive());
+      assertEquals(1, receiver.commits.get());
+      assertEquals(2, receiver.replied.size());
+    } finally {
+      receiver.release(true);
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午2:41:06
+   *
+   */
+  public static class Receiver {
+    public void onMessage(Message message) {
+      // Noop!
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午2:41:06
+   *
+   */
+  static class TestMediator implements MessageReceivingMediator {
+    final List<Integer> replied = new CopyOnWriteArrayList<>();
+
+    @Override
+    public boolean checkCancelled() {
+      return false;
+    }
+
+    @Override
+    public MessageMarshaller getMessageMarshaller(String name) {
+      return null;
+    }
+
+    @Override
+    public void onPostMessageHandled(Message message, Session session, Object result)
+        throws JMSException {
+      replied.add(message.getIntProperty(SEQ));
+    }
+
+    @Override
+    public void onReceivingException(Exception e) {
+      // Noop!
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午2:41:06
+   *
+   */
+  static class TestReceiver extends DefaultMessagePartitionReceiver {
+    final LinkedList<Message> messages;
+    final List<Integer> replied;
+    final Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+    final AtomicInteger handledCount = new AtomicInteger();
+    final AtomicInteger commits = new AtomicInteger();
+    final AtomicInteger rollbacks = new AtomicInteger();
+    volatile int handledAtCommit = -1;
+    volatile int failing = -1;
+    volatile CountDownLatch rendezvous;
+
+    TestReceiver(MessageReceivingMetaData metaData, List<Message> messages) {
+      this(metaData, messages, new TestMediator());
+    }
+
+    TestReceiver(MessageReceivingMetaData metaData, List<Message> messages,
+        TestMediator mediator) {
+      super(metaData, null, mediator);
+      this.messages = new LinkedList<>(messages);
+      replied = mediator.replied;
+      session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+          new Class<?>[] {Session.class}, (proxy, method, args) -> {
+            if ("commit".equals(method.getName())) {
+              handledAtCommit = handledCount.get();
+              commits.incrementAndGet();
+            } else if ("rollback".equals(method.getName())) {
+              rollbacks.incrementAndGet();
+            }
+            return null;
+          });
+      messageConsumer = (MessageConsumer) Proxy.newProxyInstance(
+          MessageConsumer.class.getClassLoader(), new Class<?>[] {MessageConsumer.class},
+          (proxy, method, args) -> method.getName().startsWith("receive") ? this.messages.poll()
+              : null);
+    }
+
+    @Override
+    public boolean initialize() {
+      return true;
+    }
+
+    @Override
+    protected Object handle(Message message, Object payload) {
+      try {
+        int seq = message.getIntProperty(SEQ);
+        String key = (String) message.getObjectProperty(KEY);
+        handled.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(seq);
+        if (rendezvous != null) {
+          rendezvous.countDown();
+          assertTrue(rendezvous.await(5, TimeUnit.SECONDS));
+        }
+        if (seq % 3 == 0) {
+          Thread.sleep(1);
+        }
+        if (seq == failing) {
+          throw new IllegalStateException("failing " + seq);
+        }
+        handledCount.incrementAndGet();
+        return seq;
+      } catch (JMSException e) {
+        throw new IllegalStateException(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    protected Object resolvePayload(Message message) {
+      return message;
+    }
+  }
+}
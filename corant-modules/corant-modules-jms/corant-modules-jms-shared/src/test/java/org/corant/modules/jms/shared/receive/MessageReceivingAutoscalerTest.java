@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jms.Message;
+import javax.jms.Session;
+import org.corant.context.proxy.ContextualMethodHandler;
+import org.corant.modules.jms.annotation.MessageDriven.ReceiveMode;
+import org.corant.modules.jms.metadata.MessageDestinationMetaData;
+import org.corant.modules.jms.metadata.MessageDrivenMetaData;
+import org.corant.modules.jms.receive.ManagedMessageReceivingTask;
+import org.corant.modules.jms.shared.AbstractJMSConfig;
+import org.corant.shared.retry.BackoffStrategy.BackoffAlgorithm;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * @author bingo 下午3:12:47
+ *
+ */
+public class MessageReceivingAutoscalerTest extends TestCase {
+
+  static final AtomicInteger SEQ = new AtomicInteger();
+
+  ScheduledExecutorService service;
+  TestExecutor executor;
+  MessageReceivingAutoscaler autoscaler;
+  MessageReceivingStatistics statistics;
+
+  static MessageReceivingMetaData metaData(String destination) throws Exception {
+    MessageDrivenMetaData driven = new MessageDrivenMetaData(Receiver.class, new Annotation[0],
+        Receiver.class.getMethod("onMessage", Message.class), Session.SESSION_TRANSACTED, false,
+        1, 1000, BackoffAlgorithm.FIXED, 2.0, "PT5M", 3, 16, 1000, "PT1H", 3, 1, null, null, 0,
+        1, ReceiveMode.POLLING, 10, Collections.emptyList(), null, new String[0], 2, 300, false);
+    return new MessageReceivingMetaData(
+        new ContextualMethodHandler(Receiver.class.getMethod("onMessage", Message.class)),
+        new MessageDestinationMetaData("test", destination, false, Collections.emptyMap()),
+        driven);
+  }
+
+  @Test
+  public void testBacklog() {
+    // half of the receive invocations hit, neither busy nor idle
+    executor.backlog = OptionalLong.of(100_000);
+    for (int i = 0; i < 3; i++) {
+      receive(5, 5);
+      statistics.onHandled(TimeUnit.MILLISECONDS.toNanos(5));
+      autoscaler.evaluate();
+    }
+    // the backlog can't be drained in time
+    assertEquals(2, autoscaler.getReceivers());
+
+    autoscaler.cooldownNanos = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      receive(1, 19);
+      statistics.onHandled(TimeUnit.MILLISECONDS.toNanos(1));
+      autoscaler.evaluate();
+    }
+    // almost idle, but the backlog can't be drained in time with one less task
+    assertEquals(2, autoscaler.getReceivers());
+  }
+
+  @Test
+  public void testCooldown() {
+    for (int i = 0; i < 3; i++) {
+      receive(10, 0);
+      autoscaler.evaluate();
+    }
+    assertEquals(2, autoscaler.getReceivers());
+    for (int i = 0; i < 6; i++) {
+      receive(10, 0);
+      autoscaler.evaluate();
+    }
+    // the scaling is suppressed within the cooldown period
+    assertEquals(2, autoscaler.getReceivers());
+    autoscaler.cooldownNanos = System.nanoTime();
+    receive(10, 0);
+    autoscaler.evaluate();
+    assertEquals(3, autoscaler.getReceivers());
+    // never exceed the maximum receivers
+    autoscaler.cooldownNanos = System.nanoTime();
+    for (int i = 0; i < 6; i++) {
+      receive(10, 0);
+      autoscaler.evaluate();
+    }
+    assertEquals(3, autoscaler.getReceivers());
+  }
+
+  @Test
+  public void testHysteresis() {
+    // the busy evaluations must be consecutive
+    receive(10, 0);
+    autoscaler.evaluate();
+    receive(10, 0);
+    autoscaler.evaluate();
+    receive(5, 5);
+    autoscaler.evaluate();
+    receive(10, 0);
+    autoscaler.evaluate();
+    receive(0, 10);
+    autoscaler.evaluate();
+    receive(10, 0);
+    autoscaler.evaluate();
+    receive(10, 0);
+    autoscaler.evaluate();
+    assertEquals(1, autoscaler.getReceivers());
+    receive(10, 0);
+    autoscaler.evaluate();
+    assertEquals(2, autoscaler.getReceivers());
+    assertEquals(0, autoscaler.votes);
+  }
+
+  @Test
+  public void testScaleDownWithoutBlocking() throws Exception {
+    autoscaler.scaleUp();
+    assertEquals(2, autoscaler.getReceivers());
+    TestTask retired = executor.tasks.get(1);
+    retired.cancelling = new CountDownLatch(1);
+    for (int i = 0; i < 3; i++) {
+      receive(0, 10);
+      autoscaler.evaluate();
+    }
+    // the evaluation returns while the retired task is still in progress
+    assertEquals(1, autoscaler.getReceivers());
+    assertEquals(1, retired.cancelled.getCount());
+    retired.cancelling.countDown();
+    assertTrue(retired.cancelled.await(5, TimeUnit.SECONDS));
+    assertEquals(1, executor.tasks.get(0).cancelled.getCount());
+    // never fall below the minimum receivers
+    autoscaler.cooldownNanos = System.nanoTime();
+    for (int i = 0; i < 6; i++) {
+      receive(0, 10);
+      autoscaler.evaluate();
+    }
+    assertEquals(1, autoscaler.getReceivers());
+  }
+
+  void receive(int hits, int misses) {
+    for (int i = 0; i < hits; i++) {
+      statistics.onReceived(true);
+    }
+    for (int i = 0; i < misses; i++) {
+      statistics.onReceived(false);
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    MessageReceivingMetaData meta = metaData("test-queue-" + SEQ.incrementAndGet());
+    service = new ScheduledThreadPoolExecutor(1);
+    executor = new TestExecutor(service);
+    autoscaler = new MessageReceivingAutoscaler(executor, AbstractJMSConfig.DFLT_INST, meta);
+    autoscaler.start(service);
+    statistics = MessageReceivingStatistics.of(meta);
+    assertEquals(1, autoscaler.getReceivers());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    autoscaler.stop();
+    service.shutdownNow();
+    MessageReceivingStatistics.clear();
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午3:12:47
+   *
+   */
+  public static class Receiver {
+    public void onMessage(Message message) {
+      // Noop!
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午3:12:47
+   *
+   */
+  static class TestExecutor extends MessageReceivingExecutor {
+    final ScheduledExecutorService service;
+    final List<TestTask> tasks = new CopyOnWriteArrayList<>();
+    volatile OptionalLong backlog = OptionalLong.empty();
+
+    TestExecutor(ScheduledExecutorService service) {
+      this.service = service;
+    }
+
+    @Override
+    MessageReceivingTaskExecution createExecution(AbstractJMSConfig config,
+        MessageReceivingMetaData meta) {
+      TestTask task = new TestTask();
+      tasks.add(task);
+      return new MessageReceivingTaskExecution(service.schedule(task, 1, TimeUnit.HOURS), task);
+    }
+
+    @Override
+    OptionalLong resolveBacklog(MessageReceivingMetaData meta) {
+      return backlog;
+    }
+  }
+
+  /**
+   * corant-modules-jms-shared
+   *
+   * @author bingo 下午3:12:47
+   *
+   */
+  static class TestTask implements ManagedMessageReceivingTask {
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    volatile CountDownLatch cancelling;
+
+    @Override
+    public boolean cancel() {
+      try {
+        if (cancelling != null) {
+          cancelling.await(5, TimeUnit.SECONDS);
+        }
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      } finally {
+        cancelled.countDown();
+      }
+    }
+
+    @Override
+    public void run() {
+      // Noop!
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jpa.hibernate.orm;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.inject.Singleton;
+import javax.persistence.EntityManager;
+import org.corant.modules.jpa.shared.EntityMultiLoader;
+import org.corant.shared.util.Objects;
+import org.hibernate.Session;
+
+/**
+ * corant-modules-jpa-hibernate-orm
+ *
+ * <p>
+ * Loads the entities with {@link Session#byMultipleIds(Class)}, the session is checked first.
+ *
+ * @author bingo 下午3:21:46
+ *
+ */
+@Singleton
+public class HibernateEntityMultiLoader implements EntityMultiLoader {
+
+  @Override
+  public boolean accept(EntityManager entityManager) {
+    return entityManager.getDelegate() instanceof Session;
+  }
+
+  @Override
+  public <T> List<T> load(EntityManager entityManager, Class<T> entityClass,
+      List<? extends Serializable> ids, int batchSize) {
+    return entityManager.unwrap(Session.class).byMultipleIds(entityClass)
+        .enableSessionCheck(true).enableOrderedReturn(true).withBatchSize(batchSize)
+        .multiLoad(ids).stream().filter(Objects::isNotNull).collect(Collectors.toList());
+  }
+
+}
@@ -42,6 +42,7 @@ import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.normal.Names;
 import org.corant.shared.util.Fields;
 import org.corant.shared.util.Identifiers.GeneralSnowflakeUUIDGenerator;
+import org.corant.shared.util.Identifiers.LeasedSnowflakeUUIDGenerator;
 import org.corant.shared.util.Identifiers.SnowflakeD5W5S12UUIDGenerator;
 import org.corant.shared.util.Identifiers.SnowflakeIpv4HostUUIDGenerator;
 import org.corant.shared.util.Identifiers.SnowflakeW10S12UUIDGenerator;
@@ -66,11 +67,15 @@ public class HibernateSnowflakeIdGenerator implements IdentifierGenerator {
   public static final String IG_SF_DC_ID = "identifier.generator.snowflake.datacenter-id";
   public static final String IG_SF_DL_TM = "identifier.generator.snowflake.delayed-timing";
   public static final String IG_SF_UP_TM = "identifier.generator.snowflake.use-persistence-timer";
+  public static final String IG_SF_LS = "identifier.generator.snowflake.lease-size";
+  public static final String IG_SF_LA = "identifier.generator.snowflake.lease-max-age";
   public static final String GL_IG_SF_WK_IP = Names.CORANT_PREFIX + IG_SF_WK_IP;
   public static final String GL_IG_SF_WK_ID = Names.CORANT_PREFIX + IG_SF_WK_ID;
   public static final String GL_IG_SF_DC_ID = Names.CORANT_PREFIX + IG_SF_DC_ID;
   public static final String GL_IG_SF_DL_TM = Names.CORANT_PREFIX + IG_SF_DL_TM;
   public static final String GL_IG_SF_UP_TM = Names.CORANT_PREFIX + IG_SF_UP_TM;
+  public static final String GL_IG_SF_LS = Names.CORANT_PREFIX + IG_SF_LS;
+  public static final String GL_IG_SF_LA = Names.CORANT_PREFIX + IG_SF_LA;
 
   static Logger logger = Logger.getLogger(HibernateSnowflakeIdGenerator.class.getName());
 
@@ -133,6 +138,35 @@ public class HibernateSnowflakeIdGenerator implements IdentifierGenerator {
     return getGenerator(ptu).snowflakeGenerator.parseGeneratedWorkersId(id);
   }
 
+  /**
+   * Lease at least the given number of ids of the given persistence unit to the current thread in
+   * one block, the entities persisted by the current thread use the leased ids first, generally
+   * used before persisting a large number of entities in one flush to avoid generating the ids one
+   * by one. The unused leased ids are discarded once the lease is older than the configured lease
+   * max age in milliseconds.
+   *
+   * @param ptu the persistence unit name, use to identify the generator configuration.
+   * @param size the number of the entities that will be persisted by the current thread
+   */
+  public static void preallocate(String ptu, int size) {
+    final Generator generator = getGenerator(ptu);
+    final SessionFactoryImplementor sessionFactory = generator.usePersistenceTimer
+        ? shouldNotNull(resolve(PersistenceService.class).getEntityManagerFactory(
+            Qualifiers.resolveName(ptu))).unwrap(SessionFactoryImplementor.class)
+        : null;
+    generator.leasedGenerator.preallocate(
+        () -> generator.timeService.get(generator.useSecond, sessionFactory, null), size);
+  }
+
+  /**
+   * Discard the unused leased ids of the given persistence unit of the current thread.
+   *
+   * @param ptu the persistence unit name, use to identify the generator configuration.
+   */
+  public static void release(String ptu) {
+    getGenerator(ptu).leasedGenerator.release();
+  }
+
   /**
    * Clear the generators
    */
@@ -159,6 +193,10 @@ public class HibernateSnowflakeIdGenerator implements IdentifierGenerator {
         Configs.getValue(GL_IG_SF_UP_TM, String.class, FALSE)));
     long delayedTiming = toLong(metaData.getProperties().getOrDefault(IG_SF_DL_TM,
         Configs.getValue(GL_IG_SF_DL_TM, Long.class, 16000L)));
+    int leaseSize = toInteger(metaData.getProperties().getOrDefault(IG_SF_LS,
+        Configs.getValue(GL_IG_SF_LS, Integer.class, 0)));
+    long leaseMaxAge = toLong(metaData.getProperties().getOrDefault(IG_SF_LA, Configs
+        .getValue(GL_IG_SF_LA, Long.class, LeasedSnowflakeUUIDGenerator.DEFAULT_MAX_LEASE_AGE_MS)));
 
     if (workerId >= 0) {
       if (dataCenterId >= 0) {
@@ -174,7 +212,8 @@ public class HibernateSnowflakeIdGenerator implements IdentifierGenerator {
     logger.info(() -> String.format(
         "Create identifier generator for persistence unit[%s], the generator is %s.", ptu,
         generator.description()));
-    return new Generator(tryAsClass(metaData.getPersistenceProviderClassName()), generator, usePst);
+    return new Generator(tryAsClass(metaData.getPersistenceProviderClassName()), generator, usePst,
+        leaseSize, leaseMaxAge);
   }
 
   static Generator getGenerator(String ptu) {
@@ -199,6 +238,8 @@ public class HibernateSnowflakeIdGenerator implements IdentifierGenerator {
    */
   public static class Generator {
     final GeneralSnowflakeUUIDGenerator snowflakeGenerator;
+    final LeasedSnowflakeUUIDGenerator leasedGenerator;
+    final int leaseSize;
     final boolean useSecond;
     final HibernateSessionTimeService timeService;
     final boolean usePersistenceTimer;
@@ -207,7 +248,21 @@ public class HibernateSnowflakeIdGenerator implements IdentifierGenerator {
 
     public Generator(final Class<?> providerClass, GeneralSnowflakeUUIDGenerator snowflakeGenerator,
         boolean usePst) {
+      this(providerClass, snowflakeGenerator, usePst, 0);
+    }
+
+    public Generator(final Class<?> providerClass, GeneralSnowflakeUUIDGenerator snowflakeGenerator,
+        boolean usePst, int leaseSize) {
+      this(providerClass, snowflakeGenerator, usePst, leaseSize,
+          LeasedSnowflakeUUIDGenerator.DEFAULT_MAX_LEASE_AGE_MS);
+    }
+
+    public Generator(final Class<?> providerClass, GeneralSnowflakeUUIDGenerator snowflakeGenerator,
+        boolean usePst, int leaseSize, long leaseMaxAge) {
       this.snowflakeGenerator = snowflakeGenerator;
+      this.leaseSize = leaseSize;
+      leasedGenerator = new LeasedSnowflakeUUIDGenerator(snowflakeGenerator,
+          Math.max(1, leaseSize), leaseMaxAge);
       useSecond = snowflakeGenerator.getUnit() == ChronoUnit.SECONDS;
       usePersistenceTimer = usePst;
       if (!usePersistenceTimer) {
@@ -225,6 +280,9 @@ public class HibernateSnowflakeIdGenerator implements IdentifierGenerator {
           return (Long) id;
         }
       }
+      if (leaseSize > 0 || leasedGenerator.remaining() > 0) {
+        return leasedGenerator.generate(() -> timeService.get(useSecond, sessionFactory, object));
+      }
       return snowflakeGenerator.generate(() -> timeService.get(useSecond, sessionFactory, object));
     }
 
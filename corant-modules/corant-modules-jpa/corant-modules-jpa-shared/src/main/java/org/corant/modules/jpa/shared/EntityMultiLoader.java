@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jpa.shared;
+
+import java.io.Serializable;
+import java.util.List;
+import javax.persistence.EntityManager;
+
+/**
+ * corant-modules-jpa-shared
+ *
+ * <p>
+ * The provider specific entities multiple loading, the entities that are already managed by the
+ * persistence context are returned without hitting the database, the others are loaded in batches.
+ *
+ * @author bingo 下午3:21:46
+ *
+ */
+public interface EntityMultiLoader {
+
+  /**
+   * Returns whether the given entity manager can be used to load the entities.
+   *
+   * @param entityManager the entity manager
+   */
+  boolean accept(EntityManager entityManager);
+
+  /**
+   * Returns the entities of the given primary keys in the order of the primary keys, the missing
+   * entities are ignored.
+   *
+   * @param <T> the entity type
+   * @param entityManager the entity manager
+   * @param entityClass the entity class
+   * @param ids the primary keys, the type of the primary keys must be the id type of the entity
+   * @param batchSize the max number of the primary keys loaded in one statement
+   */
+  <T> List<T> load(EntityManager entityManager, Class<T> entityClass,
+      List<? extends Serializable> ids, int batchSize);
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.microprofile.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import org.corant.context.ContainerEvents.PreContainerStopEvent;
+import org.corant.context.concurrent.executor.ExecutorServiceInstrumentation;
+import org.corant.context.concurrent.executor.ExecutorServiceManager;
+import org.corant.kernel.event.PostCorantReadyEvent;
+import org.corant.shared.ubiquity.TimeHistogram;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
+
+/**
+ * corant-modules-microprofile-metrics
+ *
+ * <p>
+ * Exports the telemetry of the managed executor services whose metrics are enabled (see
+ * {@code corant.concurrent.executor.<name>.enable-metrics}) as the vendor gauges, all the gauges
+ * are tagged with {@code executor=<name>}.
+ *
+ * @author bingo 下午4:21:06
+ *
+ */
+@ApplicationScoped
+public class ExecutorServiceMetricsExporter {
+
+  public static final String PREFIX = "corant.executor.";
+
+  protected final Logger logger = Logger.getLogger(ExecutorServiceMetricsExporter.class.getName());
+  protected final List<MetricID> registered = new ArrayList<>();
+  protected final Consumer<ExecutorServiceInstrumentation> listener = this::export;
+
+  @Inject
+  protected ExecutorServiceManager manager;
+
+  @Inject
+  @RegistryType(type = MetricRegistry.Type.VENDOR)
+  protected MetricRegistry registry;
+
+  protected synchronized void export(ExecutorServiceInstrumentation ins) {
+    logger.fine(() -> String.format("Export managed executor service %s metrics.", ins.getName()));
+    Tag tag = new Tag("executor", ins.getName());
+    gauge(tag, "active", MetricUnits.NONE, "The approximate number of active threads",
+        () -> (long) ins.getActiveCount());
+    gauge(tag, "pool", MetricUnits.NONE, "The current number of threads in the pool",
+        () -> (long) ins.getPoolSize());
+    gauge(tag, "queue", MetricUnits.NONE, "The number of tasks waiting in the queue",
+        () -> (long) ins.getQueueSize());
+    gauge(tag, "rejected", MetricUnits.NONE, "The number of rejected tasks",
+        ins::getRejectedCount);
+    gauge(tag, "failed", MetricUnits.NONE, "The number of tasks completed exceptionally",
+        ins::getFailedCount);
+    histogram(tag, "queue-wait", "The time tasks spent waiting in the queue", ins.getQueueWait());
+    histogram(tag, "run-time", "The time tasks spent running", ins.getRunTime());
+    if (ins.isScheduled()) {
+      histogram(tag, "schedule-drift", "The lateness of the scheduled tasks start time",
+          ins.getScheduleDrift());
+    }
+  }
+
+  protected void gauge(Tag tag, String name, String unit, String description,
+      Gauge<Long> gauge) {
+    Metadata metadata = Metadata.builder().withName(PREFIX + name).withType(MetricType.GAUGE)
+        .withUnit(unit).withDescription(description).build();
+    registry.register(metadata, gauge, tag);
+    registered.add(new MetricID(metadata.getName(), tag));
+  }
+
+  protected void histogram(Tag tag, String name, String description, TimeHistogram histogram) {
+    Gauge<Double> mean = histogram::getMeanMillis;
+    Gauge<Double> p50 = () -> histogram.getPercentileMillis(0.5);
+    Gauge<Double> p99 = () -> histogram.getPercentileMillis(0.99);
+    Gauge<Long> max = () -> histogram.getMax(TimeUnit.MILLISECONDS);
+    register(tag, name + ".mean", "The mean of " + description, mean);
+    register(tag, name + ".p50", "The median of " + description, p50);
+    register(tag, name + ".p99", "The 99th percentile of " + description, p99);
+    register(tag, name + ".max", "The maximum of " + description, max);
+  }
+
+  protected void onPostCorantReadyEvent(@Observes PostCorantReadyEvent event) {
+    manager.addListener(listener);
+  }
+
+  protected synchronized void onPreContainerStopEvent(@Observes PreContainerStopEvent event) {
+    manager.removeListener(listener);
+    registered.forEach(registry::remove);
+    registered.clear();
+  }
+
+  protected <T extends Number> void register(Tag tag, String name, String description,
+      Gauge<T> gauge) {
+    Metadata metadata = Metadata.builder().withName(PREFIX + name).withType(MetricType.GAUGE)
+        .withUnit(MetricUnits.MILLISECONDS).withDescription(description).build();
+    registry.register(metadata, gauge, tag);
+    registered.add(new MetricID(metadata.getName(), tag));
+  }
+}
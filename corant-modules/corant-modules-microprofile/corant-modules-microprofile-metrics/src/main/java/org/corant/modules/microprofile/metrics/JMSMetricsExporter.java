@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.microprofile.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import org.corant.context.ContainerEvents.PreContainerStopEvent;
+import org.corant.kernel.event.PostCorantReadyEvent;
+import org.corant.modules.jms.shared.JMSInstrumentation;
+import org.corant.modules.jms.shared.JMSInstrumentation.Kind;
+import org.corant.shared.service.RequiredClassPresent;
+import org.corant.shared.ubiquity.TimeHistogram;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
+
+/**
+ * corant-modules-microprofile-metrics
+ *
+ * <p>
+ * Exports the receiving and sending telemetry of the JMS destinations whose connection factory
+ * metrics are enabled (see {@code enable-metrics} of the JMS connection factory config) as the
+ * vendor gauges, the receiving gauges are prefixed with {@code corant.jms.receiver.} and the
+ * sending gauges are prefixed with {@code corant.jms.sender.}, all the gauges are tagged with
+ * {@code connectionFactory=<id>} and {@code destination=<name>}. Since the sending instrumentations
+ * are created on the first sending, the instrumentations created after the container is ready are
+ * also exported.
+ *
+ * @author bingo 下午3:27:51
+ *
+ */
+@ApplicationScoped
+@RequiredClassPresent("org.corant.modules.jms.shared.JMSInstrumentation")
+public class JMSMetricsExporter {
+
+  public static final String RECEIVER_PREFIX = "corant.jms.receiver.";
+  public static final String SENDER_PREFIX = "corant.jms.sender.";
+
+  protected final Logger logger = Logger.getLogger(JMSMetricsExporter.class.getName());
+  protected final List<MetricID> registered = new ArrayList<>();
+  protected final Consumer<JMSInstrumentation> listener = this::export;
+
+  @Inject
+  @RegistryType(type = MetricRegistry.Type.VENDOR)
+  protected MetricRegistry registry;
+
+  protected synchronized void export(JMSInstrumentation ins) {
+    logger.fine(() -> String.format("Export JMS %s metrics.", ins));
+    final String prefix = ins.getKind() == Kind.RECEIVER ? RECEIVER_PREFIX : SENDER_PREFIX;
+    final Tag[] tags = {new Tag("connectionFactory", ins.getConnectionFactoryId()),
+        new Tag("destination", ins.getDestination())};
+    try {
+      if (ins.getKind() == Kind.RECEIVER) {
+        gauge(prefix, tags, "received", MetricUnits.NONE, "The number of received messages",
+            ins::getMessageCount);
+        gauge(prefix, tags, "handled", MetricUnits.NONE,
+            "The number of messages handled successfully", ins::getHandledCount);
+        gauge(prefix, tags, "failed", MetricUnits.NONE,
+            "The number of messages failed to be handled", ins::getFailedCount);
+        gauge(prefix, tags, "redelivered", MetricUnits.NONE,
+            "The number of received messages that were redelivered", ins::getRedeliveredCount);
+        gauge(prefix, tags, "broken", MetricUnits.NONE,
+            "The number of receiving tasks currently broken", () -> (long) ins.getBrokenTasks());
+        gauge(prefix, tags, "broken-count", MetricUnits.NONE,
+            "The number of times receiving tasks entered breaking mode", ins::getBrokenCount);
+        gauge(prefix, tags, "broken-time", MetricUnits.MILLISECONDS,
+            "The total time receiving tasks spent in breaking mode", ins::getBrokenMillis);
+        histogram(prefix, tags, "handling-time", "The time spent handling messages",
+            ins.getProcessTime());
+        histogram(prefix, tags, "receive-wait", "The time spent on receives returning no message",
+            ins.getReceiveWait());
+        histogram(prefix, tags, "unmarshal-time", "The time spent unmarshalling messages",
+            ins.getMarshalTime());
+      } else {
+        gauge(prefix, tags, "sending", MetricUnits.NONE, "The number of messages to send",
+            ins::getMessageCount);
+        gauge(prefix, tags, "sent", MetricUnits.NONE, "The number of messages sent successfully",
+            ins::getHandledCount);
+        gauge(prefix, tags, "failed", MetricUnits.NONE, "The number of messages failed to send",
+            ins::getFailedCount);
+        histogram(prefix, tags, "send-time", "The time spent sending messages",
+            ins.getProcessTime());
+        histogram(prefix, tags, "marshal-time", "The time spent marshalling messages",
+            ins.getMarshalTime());
+      }
+      gauge(prefix, tags, "payload.max", MetricUnits.BYTES, "The maximum of payload sizes",
+          ins::getMaxPayloadBytes);
+      gauge(prefix, tags, "payload.mean", MetricUnits.BYTES, "The mean of payload sizes",
+          () -> Math.round(ins.getMeanPayloadBytes()));
+    } catch (Exception e) {
+      logger.log(Level.WARNING, e, () -> String.format("Can't export JMS %s metrics.", ins));
+    }
+  }
+
+  protected void gauge(String prefix, Tag[] tags, String name, String unit, String description,
+      Gauge<Long> gauge) {
+    register(prefix, tags, name, unit, description, gauge);
+  }
+
+  protected void histogram(String prefix, Tag[] tags, String name, String description,
+      TimeHistogram histogram) {
+    Gauge<Double> mean = histogram::getMeanMillis;
+    Gauge<Double> p50 = () -> histogram.getPercentileMillis(0.5);
+    Gauge<Double> p99 = () -> histogram.getPercentileMillis(0.99);
+    Gauge<Long> max = () -> histogram.getMax(TimeUnit.MILLISECONDS);
+    register(prefix, tags, name + ".mean", MetricUnits.MILLISECONDS, "The mean of " + description,
+        mean);
+    register(prefix, tags, name + ".p50", MetricUnits.MILLISECONDS,
+        "The median of " + description, p50);
+    register(prefix, tags, name + ".p99", MetricUnits.MILLISECONDS,
+        "The 99th percentile of " + description, p99);
+    register(prefix, tags, name + ".max", MetricUnits.MILLISECONDS,
+        "The maximum of " + description, max);
+  }
+
+  protected void onPostCorantReadyEvent(@Observes PostCorantReadyEvent event) {
+    JMSInstrumentation.addListener(listener);
+  }
+
+  protected synchronized void onPreContainerStopEvent(@Observes PreContainerStopEvent event) {
+    JMSInstrumentation.removeListener(listener);
+    registered.forEach(registry::remove);
+    registered.clear();
+  }
+
+  protected <T extends Number> void register(String prefix, Tag[] tags, String name, String unit,
+      String description, Gauge<T> gauge) {
+    Metadata metadata = Metadata.builder().withName(prefix + name).withType(MetricType.GAUGE)
+        .withUnit(unit).withDescription(description).build();
+    registry.register(metadata, gauge, tags);
+    registered.add(new MetricID(metadata.getName(), tags));
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.mapping;
+
+import static org.corant.shared.util.Classes.defaultClassLoader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.shared.resource.Resource;
+import org.corant.shared.resource.URLResource;
+import org.corant.shared.util.Serializations;
+import org.corant.shared.util.Serializations.ObjectInputStreamWithLoader;
+
+/**
+ * corant-modules-query-api
+ *
+ * <p>
+ * A build time precompiled index of the query mapping files of an artifact, the index is located
+ * at {@link #INDEX_RESOURCE} of the artifact and is generated by the maven plugin goal
+ * {@code query-index}. Each entry of the index contains the path of the mapping file relative to
+ * the artifact root, the size, the last modified time and the CRC32 checksum of the mapping file,
+ * the query names, the fetch query references and the serialized parsed query mapping.
+ *
+ * <p>
+ * The entries are deserialized lazily, only when the corresponding mapping file is requested and
+ * it is unchanged since indexed, otherwise the caller should fall back to parse the mapping file.
+ * The mapping file content is not read to verify it, the size and the CRC32 checksum of a mapping
+ * file in a jar are compared with the ones of the jar entry recorded in the central directory,
+ * and the size and the last modified time of a mapping file in a directory are compared with the
+ * ones of the file.
+ *
+ * @author bingo 下午3:16:05
+ *
+ */
+public class QueryMappingIndex {
+
+  public static final String INDEX_RESOURCE = "META-INF/corant-query-mapping.idx";
+
+  static final int MAGIC = 0x43514D49;
+  static final int FORMAT_VERSION = 2;
+  static final Logger logger = Logger.getLogger(QueryMappingIndex.class.getName());
+
+  protected final String root;
+  protected final Map<String, Entry> entries;
+
+  protected QueryMappingIndex(String root, Map<String, Entry> entries) {
+    this.root = root;
+    this.entries = Collections.unmodifiableMap(entries);
+  }
+
+  /**
+   * Compute the CRC32 checksum of the given bytes.
+   */
+  public static long checksum(byte[] bytes) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return crc.getValue();
+  }
+
+  /**
+   * Load all the query mapping indexes from the given class loader, the indexes that can't be read
+   * are ignored.
+   *
+   * @param classLoader the class loader used to find the indexes
+   */
+  public static List<QueryMappingIndex> load(ClassLoader classLoader) {
+    List<QueryMappingIndex> indexes = new ArrayList<>();
+    try {
+      Enumeration<URL> urls = classLoader.getResources(INDEX_RESOURCE);
+      while (urls.hasMoreElements()) {
+        URL url = urls.nextElement();
+        String path = url.getPath();
+        try (InputStream is = url.openStream()) {
+          indexes.add(read(path.substring(0, path.length() - INDEX_RESOURCE.length()), is));
+        } catch (Exception e) {
+          logger.log(Level.WARNING, e, () -> String.format("Can't read query mapping index %s.",
+              url));
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Can't find query mapping indexes.");
+    }
+    return indexes;
+  }
+
+  /**
+   * Read the index from the given input stream.
+   *
+   * @param root the root URL path of the artifact where the index located, used to match the URL
+   *        of mapping files
+   * @param input the index input stream
+   */
+  public static QueryMappingIndex read(String root, InputStream input) throws IOException {
+    DataInputStream dis = new DataInputStream(input);
+    if (dis.readInt() != MAGIC || dis.readInt() != FORMAT_VERSION) {
+      throw new QueryRuntimeException("Unsupported query mapping index format!");
+    }
+    int size = dis.readInt();
+    Map<String, Entry> entries = new HashMap<>(size << 1);
+    for (int i = 0; i < size; i++) {
+      String path = dis.readUTF();
+      Stamp stamp = new Stamp(dis.readLong(), dis.readLong(), dis.readLong());
+      String[] queryNames = readStrings(dis);
+      String[] fetchQueryNames = readStrings(dis);
+      byte[] data = new byte[dis.readInt()];
+      dis.readFully(data);
+      entries.put(path, new Entry(path, stamp, queryNames, fetchQueryNames, data));
+    }
+    return new QueryMappingIndex(root, entries);
+  }
+
+  /**
+   * Write the given query mappings as an index to the given output stream.
+   *
+   * @param output the output stream
+   * @param mappings the parsed query mappings, the URL of the mappings must be the path relative
+   *        to the artifact root
+   * @param stamps the stamps of the mapping files keyed by the relative path
+   */
+  public static void write(OutputStream output, List<QueryMapping> mappings,
+      Map<String, Stamp> stamps) throws IOException {
+    DataOutputStream dos = new DataOutputStream(output);
+    dos.writeInt(MAGIC);
+    dos.writeInt(FORMAT_VERSION);
+    dos.writeInt(mappings.size());
+    for (QueryMapping mapping : mappings) {
+      List<String> queryNames = new ArrayList<>();
+      List<String> fetchQueryNames = new ArrayList<>();
+      for (Query query : mapping.getQueries()) {
+        queryNames.add(query.getVersionedName());
+        fetchQueryNames.addAll(query.getVersionedFetchQueryNames());
+      }
+      byte[] data = Serializations.serialize(new Data(mapping));
+      Stamp stamp = stamps.get(mapping.getUrl());
+      dos.writeUTF(mapping.getUrl());
+      dos.writeLong(stamp.size);
+      dos.writeLong(stamp.lastModified);
+      dos.writeLong(stamp.checksum);
+      writeStrings(dos, queryNames);
+      writeStrings(dos, fetchQueryNames);
+      dos.writeInt(data.length);
+      dos.write(data);
+    }
+    dos.flush();
+  }
+
+  static String[] readStrings(DataInputStream dis) throws IOException {
+    String[] strings = new String[dis.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = dis.readUTF();
+    }
+    return strings;
+  }
+
+  static void writeStrings(DataOutputStream dos, List<String> strings) throws IOException {
+    dos.writeInt(strings.size());
+    for (String string : strings) {
+      dos.writeUTF(string);
+    }
+  }
+
+  public Map<String, Entry> getEntries() {
+    return entries;
+  }
+
+  public String getRoot() {
+    return root;
+  }
+
+  /**
+   * Returns the query mapping of the given mapping file URL if the mapping file was indexed and the
+   * given resource is unchanged since indexed, otherwise returns null.
+   *
+   * @param url the URL path of the mapping file, used as the query mapping URL
+   * @param resource the mapping file resource, used to verify the indexed stamp
+   */
+  public QueryMapping resolve(String url, Resource resource) {
+    if (url == null || !url.startsWith(root)) {
+      return null;
+    }
+    Entry entry = entries.get(url.substring(root.length()));
+    if (entry == null) {
+      return null;
+    }
+    try {
+      if (!entry.stamp.matches(resource)) {
+        logger.fine(() -> String.format("The query mapping file %s was changed since indexed.",
+            url));
+        return null;
+      }
+      return entry.toMapping(url);
+    } catch (Exception e) {
+      logger.log(Level.WARNING, e, () -> String.format(
+          "Can't resolve the query mapping file %s from index, fall back to parse it.", url));
+      return null;
+    }
+  }
+
+  /**
+   * corant-modules-query-api
+   *
+   * @author bingo 下午3:16:05
+   *
+   */
+  public static class Entry {
+
+    final String path;
+    final Stamp stamp;
+    final String[] queryNames;
+    final String[] fetchQueryNames;
+    final byte[] data;
+
+    Entry(String path, Stamp stamp, String[] queryNames, String[] fetchQueryNames, byte[] data) {
+      this.path = path;
+      this.stamp = stamp;
+      this.queryNames = queryNames;
+      this.fetchQueryNames = fetchQueryNames;
+      this.data = data;
+    }
+
+    public String[] getFetchQueryNames() {
+      return fetchQueryNames.clone();
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public String[] getQueryNames() {
+      return queryNames.clone();
+    }
+
+    public Stamp getStamp() {
+      return stamp;
+    }
+
+    QueryMapping toMapping(String url) throws IOException, ClassNotFoundException {
+      try (ObjectInputStream ois = new ObjectInputStreamWithLoader(new ByteArrayInputStream(data),
+          defaultClassLoader())) {
+        Data d = (Data) ois.readObject();
+        QueryMapping mapping = new QueryMapping(url, d.commonSegment);
+        mapping.paramMappings.putAll(d.paramMappings);
+        for (Query query : d.queries) {
+          query.setMappingFilePath(url);
+          mapping.queries.add(query);
+        }
+        return mapping;
+      }
+    }
+  }
+
+  /**
+   * corant-modules-query-api
+   *
+   * <p>
+   * The size, the last modified time and the CRC32 checksum of an indexed mapping file, used to
+   * verify whether the mapping file is changed since indexed.
+   *
+   * @author bingo 下午3:16:05
+   *
+   */
+  public static class Stamp {
+
+    final long size;
+    final long lastModified;
+    final long checksum;
+
+    public Stamp(long size, long lastModified, long checksum) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.checksum = checksum;
+    }
+
+    /**
+     * Returns the stamp of the given mapping file, the file content is read to compute the CRC32
+     * checksum which is the same as the one of the jar entry of the file once it's packaged.
+     *
+     * @param file the mapping file
+     */
+    public static Stamp of(File file) throws IOException {
+      return new Stamp(file.length(), file.lastModified(),
+          checksum(Files.readAllBytes(file.toPath())));
+    }
+
+    public long getChecksum() {
+      return checksum;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * Returns whether the given mapping file resource matches this stamp, the CRC32 checksum and
+     * the size of a jar entry are read from the central directory of the jar, the size and the
+     * last modified time of a file are read from the file system. The resource content is only
+     * read to compute the checksum if the resource is neither a jar entry nor a file.
+     *
+     * @param resource the mapping file resource
+     */
+    public boolean matches(Resource resource) throws IOException {
+      final URL url = resource instanceof URLResource ? ((URLResource) resource).getURL() : null;
+      if (url != null && "jar".equals(url.getProtocol())) {
+        URLConnection conn = url.openConnection();
+        if (conn instanceof JarURLConnection) {
+          JarEntry entry = ((JarURLConnection) conn).getJarEntry();
+          if (entry != null && entry.getCrc() != -1) {
+            return entry.getSize() == size && entry.getCrc() == checksum;
+          }
+        }
+      } else if (url != null && "file".equals(url.getProtocol())) {
+        try {
+          File file = new File(url.toURI());
+          return file.isFile() && file.length() == size && file.lastModified() == lastModified;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+          logger.log(Level.FINE, e, () -> String.format("Can't resolve the file of %s.", url));
+        }
+      }
+      return checksum(resource.getBytes()) == checksum;
+    }
+  }
+
+  /**
+   * corant-modules-query-api
+   *
+   * @author bingo 下午3:16:05
+   *
+   */
+  static class Data implements Serializable {
+
+    private static final long serialVersionUID = -2950263838493227461L;
+
+    final String commonSegment;
+    final LinkedHashMap<String, ParameterMapping> paramMappings;
+    final ArrayList<Query> queries;
+
+    Data(QueryMapping mapping) {
+      commonSegment = mapping.getCommonSegment();
+      paramMappings = new LinkedHashMap<>(mapping.getParamMappings());
+      queries = new ArrayList<>(mapping.getQueries());
+    }
+  }
+}
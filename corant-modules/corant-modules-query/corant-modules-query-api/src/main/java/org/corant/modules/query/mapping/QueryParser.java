@@ -50,9 +50,18 @@ public class QueryParser {
   static Logger logger = Logger.getLogger(QueryParser.class.getName());
 
   public List<QueryMapping> parse(String... pathExpresses) {
+    return parse(getQueryMappingFiles(pathExpresses));
+  }
+
+  /**
+   * Parse the given query mapping resources, the keys of the given map are used as the URL of the
+   * query mappings.
+   *
+   * @param fileMap the query mapping resources to be parsed
+   */
+  public List<QueryMapping> parse(Map<String, ? extends Resource> fileMap) {
     List<QueryMapping> qmList = new CopyOnWriteArrayList<>();
     final SAXParserFactory factory = createSAXParserFactory();
-    final Map<String, Resource> fileMap = getQueryMappingFiles(pathExpresses);
     fileMap.entrySet().stream().parallel().forEach(entry -> {
       logger.fine(() -> String.format("Parse query mapping file %s.", entry.getKey()));
       try (InputStream is = entry.getValue().openInputStream()) {
@@ -77,7 +86,7 @@ public class QueryParser {
     return factory;
   }
 
-  Map<String, Resource> getQueryMappingFiles(String... pathExpresses) {
+  public Map<String, Resource> getQueryMappingFiles(String... pathExpresses) {
     Map<String, Resource> map = new ConcurrentHashMap<>();
     for (String pathExpress : pathExpresses) {
       setOf(split(pathExpress, ",", true, true)).forEach(path -> {
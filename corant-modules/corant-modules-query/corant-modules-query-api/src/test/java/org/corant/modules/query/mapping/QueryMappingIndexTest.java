@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.mapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.modules.query.mapping.QueryMappingIndex.Stamp;
+import org.corant.shared.resource.FileSystemResource;
+import org.corant.shared.resource.Resource;
+import org.corant.shared.resource.URLResource;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-api
+ *
+ * @author bingo 下午3:40:12
+ *
+ */
+public class QueryMappingIndexTest extends TestCase {
+
+  static final String MAPPING_PATH = "META-INF/TestQuery.xml";
+  static final String MAPPING = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<query-mappings xmlns=\"http://corant.org/schema/nqms\">\n"
+      + "  <parameters-mapping>\n"
+      + "    <entry name=\"id\" type=\"java.lang.Long\"/>\n"
+      + "  </parameters-mapping>\n"
+      + "  <common-segment>var x = 1;</common-segment>\n"
+      + "  <query name=\"Order.get\" result-class=\"java.util.Map\" cache=\"true\">\n"
+      + "    <description>Get order</description>\n"
+      + "    <script><![CDATA[SELECT * FROM T_ORDER WHERE ID = :id]]></script>\n"
+      + "    <fetch-query reference-query=\"Order.items\" reference-query-version=\"1\"\n"
+      + "      inject-property-name=\"items\">\n"
+      + "      <parameter name=\"orderId\" source=\"R\" source-name=\"id\"/>\n"
+      + "    </fetch-query>\n"
+      + "  </query>\n"
+      + "  <query name=\"Order.items\" version=\"1\">\n"
+      + "    <script><![CDATA[SELECT * FROM T_ITEM WHERE ORDER_ID = :orderId]]></script>\n"
+      + "  </query>\n"
+      + "</query-mappings>\n";
+
+  Path root;
+  File mappingFile;
+
+  @Test
+  public void testJarRoundTrip() throws Exception {
+    File jar = createJar("corant-query-", MAPPING);
+    URL url = new URL("jar:" + jar.toURI().toURL() + "!/" + MAPPING_PATH);
+    QueryMappingIndex index = QueryMappingIndex.read(
+        url.getPath().substring(0, url.getPath().length() - MAPPING_PATH.length()),
+        new ByteArrayInputStream(buildIndex()));
+    QueryMapping resolved = index.resolve(url.getPath(), new URLResource(url));
+    assertNotNull(resolved);
+    assertMappingEquals(parse(url.getPath(), new URLResource(url)), resolved);
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    QueryMappingIndex index = QueryMappingIndex.read(rootPath(),
+        new ByteArrayInputStream(buildIndex()));
+    QueryMappingIndex.Entry entry = index.getEntries().get(MAPPING_PATH);
+    assertNotNull(entry);
+    assertEquals(MAPPING.getBytes(StandardCharsets.UTF_8).length, entry.getStamp().getSize());
+    assertEquals(mappingFile.lastModified(), entry.getStamp().getLastModified());
+    assertArrayEquals(new String[] {"Order.get", "Order.items_1"}, entry.getQueryNames());
+    assertArrayEquals(new String[] {"Order.items_1"}, entry.getFetchQueryNames());
+    String url = rootPath() + MAPPING_PATH;
+    FileSystemResource resource = new FileSystemResource(mappingFile);
+    QueryMapping resolved = index.resolve(url, resource);
+    assertNotNull(resolved);
+    assertEquals(url, resolved.getUrl());
+    assertMappingEquals(parse(url, resource), resolved);
+    // the files that are not indexed or not under the root are not resolved
+    assertNull(index.resolve(rootPath() + "META-INF/OtherQuery.xml", resource));
+    assertNull(index.resolve("/other/" + MAPPING_PATH, resource));
+  }
+
+  @Test
+  public void testStaleIndex() throws Exception {
+    byte[] data = buildIndex();
+    String url = rootPath() + MAPPING_PATH;
+    FileSystemResource resource = new FileSystemResource(mappingFile);
+    // only the last modified time changed
+    assertTrue(mappingFile.setLastModified(mappingFile.lastModified() + 2000));
+    QueryMappingIndex index = QueryMappingIndex.read(rootPath(), new ByteArrayInputStream(data));
+    assertNull(index.resolve(url, resource));
+    // the content changed
+    Files.write(mappingFile.toPath(), MAPPING.replace("T_ITEM", "T_ORDER_ITEM")
+        .getBytes(StandardCharsets.UTF_8));
+    assertNull(index.resolve(url, resource));
+    // the jar entry changed, the content of the indexed file is packaged
+    String changed = MAPPING.replace("T_ITEM", "T_LINE");
+    File jar = createJar("corant-query-stale-", changed);
+    URL jarUrl = new URL("jar:" + jar.toURI().toURL() + "!/" + MAPPING_PATH);
+    QueryMappingIndex jarIndex = QueryMappingIndex.read(
+        jarUrl.getPath().substring(0, jarUrl.getPath().length() - MAPPING_PATH.length()),
+        new ByteArrayInputStream(data));
+    assertNull(jarIndex.resolve(jarUrl.getPath(), new URLResource(jarUrl)));
+    // the index of the previous format is rejected
+    ByteArrayOutputStream previous = new ByteArrayOutputStream();
+    try (DataOutputStream dos = new DataOutputStream(previous)) {
+      dos.writeInt(QueryMappingIndex.MAGIC);
+      dos.writeInt(1);
+      dos.writeInt(0);
+    }
+    try {
+      QueryMappingIndex.read(rootPath(), new ByteArrayInputStream(previous.toByteArray()));
+      fail();
+    } catch (QueryRuntimeException e) {
+      // expected
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    root = Files.createTempDirectory("corant-query-index-");
+    mappingFile = root.resolve(MAPPING_PATH).toFile();
+    assertTrue(mappingFile.getParentFile().mkdirs());
+    Files.write(mappingFile.toPath(), MAPPING.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+    super.tearDown();
+  }
+
+  void assertMappingEquals(QueryMapping expected, QueryMapping actual) {
+    assertEquals(expected.getUrl(), actual.getUrl());
+    assertEquals(expected.getCommonSegment(), actual.getCommonSegment());
+    assertEquals(expected.getParamMappings().size(), actual.getParamMappings().size());
+    expected.getParamMappings().forEach((n, m) -> assertEquals(m.getType(),
+        actual.getParamMappings().get(n).getType()));
+    assertEquals(expected.getQueries().size(), actual.getQueries().size());
+    for (int i = 0; i < expected.getQueries().size(); i++) {
+      Query eq = expected.getQueries().get(i);
+      Query aq = actual.getQueries().get(i);
+      assertEquals(eq.getVersionedName(), aq.getVersionedName());
+      assertEquals(eq.getMappingFilePath(), aq.getMappingFilePath());
+      assertEquals(eq.getDescription(), aq.getDescription());
+      assertEquals(eq.getResultClass(), aq.getResultClass());
+      assertEquals(eq.getType(), aq.getType());
+      assertEquals(eq.isCache(), aq.isCache());
+      assertEquals(eq.getProperties(), aq.getProperties());
+      assertEquals(eq.getParamConvertSchema(), aq.getParamConvertSchema());
+      assertEquals(eq.getScript().getType(), aq.getScript().getType());
+      assertEquals(eq.getScript().getCode(), aq.getScript().getCode());
+      assertEquals(eq.getVersionedFetchQueryNames(), aq.getVersionedFetchQueryNames());
+      assertEquals(eq.getFetchQueries().size(), aq.getFetchQueries().size());
+      for (int j = 0; j < eq.getFetchQueries().size(); j++) {
+        FetchQuery ef = eq.getFetchQueries().get(j);
+        FetchQuery af = aq.getFetchQueries().get(j);
+        assertEquals(ef.getInjectPropertyName(), af.getInjectPropertyName());
+        assertEquals(ef.getMaxSize(), af.getMaxSize());
+        assertEquals(ef.isMultiRecords(), af.isMultiRecords());
+        assertEquals(ef.getParameters().size(), af.getParameters().size());
+        for (int k = 0; k < ef.getParameters().size(); k++) {
+          assertEquals(ef.getParameters().get(k).getName(), af.getParameters().get(k).getName());
+          assertEquals(ef.getParameters().get(k).getSource(),
+              af.getParameters().get(k).getSource());
+          assertEquals(ef.getParameters().get(k).getSourceName(),
+              af.getParameters().get(k).getSourceName());
+        }
+      }
+    }
+  }
+
+  /**
+   * Build the index the way of the maven plugin goal, the mapping files are parsed with the paths
+   * relative to the artifact root.
+   */
+  byte[] buildIndex() throws IOException {
+    List<QueryMapping> mappings = new QueryParser()
+        .parse(Collections.singletonMap(MAPPING_PATH, new FileSystemResource(mappingFile)));
+    Map<String, Stamp> stamps = new HashMap<>();
+    stamps.put(MAPPING_PATH, Stamp.of(mappingFile));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    QueryMappingIndex.write(output, mappings, stamps);
+    return output.toByteArray();
+  }
+
+  File createJar(String prefix, String content) throws IOException {
+    File jar = File.createTempFile(prefix, ".jar", root.toFile());
+    try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+      jos.putNextEntry(new JarEntry(MAPPING_PATH));
+      jos.write(content.getBytes(StandardCharsets.UTF_8));
+      jos.closeEntry();
+    }
+    return jar;
+  }
+
+  QueryMapping parse(String url, Resource resource) {
+    return new QueryParser().parse(Collections.singletonMap(url, resource)).get(0);
+  }
+
+  String rootPath() throws IOException {
+    return root.toUri().toURL().getPath();
+  }
+}
@@ -52,10 +52,10 @@ public class DefaultCasNamedQuerierResolver extends AbstractNamedQuerierResolver
   @ConfigProperty(name = "corant.query.cassandra.mapping-file.paths")
   protected Optional<String> mappingFilePaths;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.writeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
-    clearBuilders();
+    evictBuilders(builders, queries);
   }
 
   @Override
@@ -44,10 +44,10 @@ public class DefaultJpqlNamedQuerierResolver
   @Inject
   protected Logger logger;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.writeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
-    clearBuilders();
+    evictBuilders(builders, queries);
   }
 
   @Override
@@ -40,10 +40,10 @@ public class DefaultMgNamedQuerierResolver extends AbstractNamedQuerierResolver<
   @Inject
   protected Logger logger;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.writeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
-    clearBuilders();
+    evictBuilders(builders, queries);
   }
 
   @Override
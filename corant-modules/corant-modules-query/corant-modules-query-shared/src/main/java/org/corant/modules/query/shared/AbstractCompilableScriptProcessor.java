@@ -15,8 +15,10 @@ package org.corant.modules.query.shared;
 
 import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Assertions.shouldNotBlank;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import javax.script.Bindings;
 import javax.script.Compilable;
@@ -26,19 +28,40 @@ import javax.script.SimpleBindings;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.mapping.FetchQuery;
 import org.corant.modules.query.mapping.FetchQuery.FetchQueryParameter;
+import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.mapping.QueryHint;
 import org.corant.modules.query.mapping.Script;
 import org.corant.modules.query.mapping.Script.ScriptType;
+import org.corant.modules.query.shared.QueryMappingService.BeforeQueryMappingInitializeHandler;
 import org.corant.modules.query.shared.ScriptProcessor.AbstractScriptProcessor;
+import net.jcip.annotations.GuardedBy;
 
 /**
  *
  * corant-modules-query-shared
  *
+ * <p>
+ * The compiled functions are cached in thread local by script id, since the script ids of the
+ * re-parsed queries are changed, when the query mappings are re-initialized or refreshed each
+ * thread only evicts the functions whose scripts are no longer in the live script ids.
+ *
  * @author bingo 下午2:34:03
  *
  */
-public abstract class AbstractCompilableScriptProcessor extends AbstractScriptProcessor {
+public abstract class AbstractCompilableScriptProcessor extends AbstractScriptProcessor
+    implements BeforeQueryMappingInitializeHandler {
+
+  @GuardedBy("QueryMappingService.writeLock")
+  @Override
+  public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
+    getLiveScriptIds().addAll(resolveScriptIds(queries));
+  }
+
+  @GuardedBy("QueryMappingService.writeLock")
+  @Override
+  public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
+    getLiveScriptIds().removeAll(resolveScriptIds(queries));
+  }
 
   @Override
   public Function<ParameterAndResultPair, Object> resolveFetchInjections(FetchQuery fetchQuery) {
@@ -142,6 +165,12 @@ public abstract class AbstractCompilableScriptProcessor extends AbstractScriptPr
 
   protected abstract Compilable getCompilable(ScriptType type);
 
+  /**
+   * Returns the ids of the scripts of the current queries, used to evict the thread local cached
+   * functions of the replaced scripts.
+   */
+  protected abstract Set<Object> getLiveScriptIds();
+
   protected abstract ThreadLocalExecution<Object, Function<ParameterAndResult, Object>> getParamResultFunctions();
 
   protected abstract ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>> getParamResultPairFunctions();
@@ -153,9 +182,22 @@ public abstract class AbstractCompilableScriptProcessor extends AbstractScriptPr
    *
    */
   public static class ThreadLocalExecution<K, V> {
+    final Set<?> liveKeys;
     long initializedVersion;
     Map<K, V> executions = new HashMap<>();
 
+    public ThreadLocalExecution() {
+      this(null);
+    }
+
+    /**
+     * @param liveKeys the keys in use, when the initialized version changes only the executions
+     *        of these keys are retained, null means all the executions are cleared.
+     */
+    public ThreadLocalExecution(Set<?> liveKeys) {
+      this.liveKeys = liveKeys;
+    }
+
     public void clear() {
       executions.clear();
     }
@@ -164,7 +206,11 @@ public abstract class AbstractCompilableScriptProcessor extends AbstractScriptPr
       final long cv = QueryMappingService.getInitializedVersion();
       if (initializedVersion < cv) {
         initializedVersion = cv;
-        executions.clear();
+        if (liveKeys == null) {
+          executions.clear();
+        } else {
+          executions.keySet().retainAll(liveKeys);
+        }
         logger.info(() -> String.format(
             "Clean thread local script executions cache, current initialized version: %s",
             initializedVersion));
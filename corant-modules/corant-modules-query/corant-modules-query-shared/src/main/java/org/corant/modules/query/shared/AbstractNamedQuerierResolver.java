@@ -13,6 +13,8 @@
  */
 package org.corant.modules.query.shared;
 
+import java.util.Collection;
+import java.util.Map;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import org.corant.modules.query.FetchQueryHandler;
@@ -21,7 +23,6 @@ import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.shared.QueryMappingService.BeforeQueryMappingInitializeHandler;
 import org.corant.modules.query.shared.dynamic.DynamicQuerier;
-import net.jcip.annotations.GuardedBy;
 
 /**
  * corant-modules-query-shared
@@ -57,7 +58,17 @@ public abstract class AbstractNamedQuerierResolver<Q extends DynamicQuerier<?, ?
     return queryHandler;
   }
 
-  @GuardedBy("QueryMappingService.rwl.readLock")
+  /**
+   * Evict the cached builders of the given queries to be replaced, the builders of the other
+   * queries are retained.
+   *
+   * @param builders the cached builders keyed by the versioned query name
+   * @param queries the queries to be replaced
+   */
+  protected void evictBuilders(Map<String, ?> builders, Collection<Query> queries) {
+    queries.forEach(q -> builders.remove(q.getVersionedName()));
+  }
+
   protected Query resolveQuery(String name) {
     Query query = getMappingService().getQuery(name);
     if (query == null) {
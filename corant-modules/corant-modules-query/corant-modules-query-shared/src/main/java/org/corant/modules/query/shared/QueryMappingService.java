@@ -14,7 +14,9 @@
 package org.corant.modules.query.shared;
 
 import static java.util.Collections.unmodifiableCollection;
+import static java.util.Collections.unmodifiableMap;
 import static org.corant.context.Beans.findNamed;
+import static org.corant.shared.util.Classes.defaultClassLoader;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.isNotEmpty;
 import static org.corant.shared.util.Objects.areEqual;
@@ -22,19 +24,26 @@ import static org.corant.shared.util.Strings.NEWLINE;
 import static org.corant.shared.util.Strings.isNotBlank;
 import static org.corant.shared.util.Strings.split;
 import static org.corant.shared.util.Throwables.rethrow;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
@@ -46,6 +55,8 @@ import org.corant.modules.query.mapping.FetchQuery;
 import org.corant.modules.query.mapping.FetchQuery.FetchQueryParameter;
 import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.mapping.QueryHint;
+import org.corant.modules.query.mapping.QueryMapping;
+import org.corant.modules.query.mapping.QueryMappingIndex;
 import org.corant.modules.query.mapping.QueryParser;
 import org.corant.modules.query.mapping.Script.ScriptType;
 import org.corant.modules.query.spi.FetchQueryParameterResolver;
@@ -54,6 +65,11 @@ import org.corant.modules.query.spi.FetchQueryResultInjector;
 import org.corant.modules.query.spi.QueryProvider;
 import org.corant.modules.query.spi.QueryScriptResolver;
 import org.corant.modules.query.spi.ResultHintResolver;
+import org.corant.shared.resource.Resource;
+import org.corant.shared.resource.SourceType;
+import org.corant.shared.resource.watch.FileChangeEvent;
+import org.corant.shared.resource.watch.Watcher;
+import org.corant.shared.resource.watch.Watchers;
 import org.corant.shared.ubiquity.Experimental;
 import org.corant.shared.ubiquity.Sortable;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -61,6 +77,22 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 /**
  * corant-modules-query-shared
  *
+ * <p>
+ * The query mappings are held in an immutable versioned snapshot that is published through a
+ * volatile reference, so the query lookups never block. The (re)initialization and the refreshing
+ * build a new snapshot aside and swap it atomically.
+ *
+ * <p>
+ * If {@code corant.query.mapping-file.watch} is true, the mapping files located in the file system
+ * (for example the files in the exploded class path directories under development) are watched,
+ * when some of them were changed only the changed files are re-parsed and only the queries of the
+ * changed files are passed to the {@link BeforeQueryMappingInitializeHandler} and
+ * {@link AfterQueryMappingInitializedHandler}.
+ *
+ * <p>
+ * If {@code corant.query.mapping-file.index} is true (default), the build time query mapping
+ * indexes (see {@link QueryMappingIndex}) are used to skip parsing the unchanged mapping files.
+ *
  * @author bingo 下午12:59:22
  *
  */
@@ -68,14 +100,19 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 public class QueryMappingService {
 
   public static final String MAPPING_FILE_PATH_CFG_KEY = "corant.query.mapping-file.paths";
+  public static final String MAPPING_FILE_WATCH_CFG_KEY = "corant.query.mapping-file.watch";
+  public static final String MAPPING_FILE_INDEX_CFG_KEY = "corant.query.mapping-file.index";
   public static final String DEFAULT_MAPPING_FILE_PATH = "META-INF/**Query.xml";
 
-  protected final static ReadWriteLock rwl = new ReentrantReadWriteLock();
-  protected final static AtomicLong initializedVersion = new AtomicLong(0);
+  protected static final ReentrantLock writeLock = new ReentrantLock();
+  protected static final AtomicLong initializedVersion = new AtomicLong(0);
 
-  protected final Map<String, Query> queries = new HashMap<>();
+  protected volatile QueryMappings mappings = QueryMappings.EMPTY;
   protected volatile boolean initialized = false;
 
+  protected final List<Watcher> watchers = new CopyOnWriteArrayList<>();
+  protected final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
   @Inject
   protected Logger logger;
 
@@ -83,6 +120,14 @@ public class QueryMappingService {
   @ConfigProperty(name = MAPPING_FILE_PATH_CFG_KEY, defaultValue = DEFAULT_MAPPING_FILE_PATH)
   protected String mappingFilePaths;
 
+  @Inject
+  @ConfigProperty(name = MAPPING_FILE_WATCH_CFG_KEY, defaultValue = "false")
+  protected boolean watchMappingFiles;
+
+  @Inject
+  @ConfigProperty(name = MAPPING_FILE_INDEX_CFG_KEY, defaultValue = "true")
+  protected boolean useMappingIndex;
+
   @Inject
   @Any
   protected Instance<QueryProvider> queryProviders;
@@ -108,59 +153,202 @@ public class QueryMappingService {
   }
 
   public Collection<Query> getQueries() {
-    Lock l = rwl.readLock();
-    l.lock();
-    try {
-      return unmodifiableCollection(queries.values());
-    } finally {
-      l.unlock();
-    }
+    return mappings.queries.values();
   }
 
   public Query getQuery(String name) {
-    Lock l = rwl.readLock();
-    l.lock();
-    try {
-      return queries.get(name);
-    } finally {
-      l.unlock();
-    }
+    return mappings.queries.get(name);
   }
 
   public boolean isInitialized() {
     return initialized;
   }
 
+  /**
+   * Re-parse the given changed mapping files and publish a new snapshot, the deleted files are
+   * removed from the snapshot, the files that do not belong to the current snapshot are ignored.
+   * Only the queries of the given files are passed to the initialize handlers. If an error occurs,
+   * the current snapshot is retained.
+   *
+   * @param mappingFileUrls the changed mapping files, the URL path of the mapping files, same as
+   *        the {@link Query#getMappingFilePath()}
+   */
+  @Experimental
+  public void refresh(Collection<String> mappingFileUrls) {
+    writeLock.lock();
+    try {
+      final QueryMappings current = mappings;
+      if (!initialized || isEmpty(mappingFileUrls)) {
+        return;
+      }
+      final Map<String, QueryMapping> files = new LinkedHashMap<>(current.files);
+      final Set<String> changed = new LinkedHashSet<>();
+      final List<String> existing = new ArrayList<>();
+      for (String url : mappingFileUrls) {
+        if (files.remove(url) != null) {
+          changed.add(url);
+          if (new File(url).isFile()) {
+            existing.add(SourceType.FILE_SYSTEM.getPrefix().concat(url));
+          }
+        }
+      }
+      if (changed.isEmpty()) {
+        return;
+      }
+      logger.info(() -> String.format("Start query mapping refreshing, changed files %s.",
+          String.join(",", changed)));
+      if (!existing.isEmpty()) {
+        new QueryParser().parse(existing.toArray(String[]::new))
+            .forEach(m -> files.put(m.getUrl(), m));
+      }
+      final Map<String, Query> queries = resolveQueries(files.values());
+      validateFetchQueries(queries);
+      queries.putAll(current.provided);
+      publish(new QueryMappings(files, queries, current.provided),
+          current.queries.values().stream().filter(q -> changed.contains(q.getMappingFilePath()))
+              .collect(Collectors.toList()),
+          queries.values().stream().filter(q -> changed.contains(q.getMappingFilePath()))
+              .collect(Collectors.toList()));
+      logger.info("Completed query mapping refreshing.");
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
   @Experimental // NOTE since the query scripts may be cached in thread local
   public void reinitialize() {
-    Lock l = rwl.writeLock();
-    l.lock();
-    Throwable throwable = null;
+    writeLock.lock();
     try {
       logger.info("Start query mapping re-initialization.");
       doInitialize();
       logger.info("Completed query mapping re-initialization.");
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  protected void doInitialize() {
+    final Map<String, QueryMapping> files = new LinkedHashMap<>();
+    final QueryParser parser = new QueryParser();
+    final Map<String, Resource> resources =
+        parser.getQueryMappingFiles(resolveMappingFilePaths());
+    if (useMappingIndex && !resources.isEmpty()) {
+      resolveIndexedMappings(resources, files);
+    }
+    parser.parse(resources).forEach(m -> files.put(m.getUrl(), m));
+    final Map<String, Query> queries = resolveQueries(files.values());
+    validateFetchQueries(queries);
+    final Map<String, Query> provided = new HashMap<>();
+    if (!queryProviders.isUnsatisfied()) {
+      // FIXME CIRCULAR NO CHECK!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!! bingo
+      queryProviders.forEach(qp -> qp.provide().forEach(q -> provided.put(q.getVersionedName(), q)));
+    }
+    queries.putAll(provided);
+    publish(new QueryMappings(files, queries, provided), getQueries(), queries.values());
+    if (watchMappingFiles) {
+      watch(files.keySet());
+    }
+  }
+
+  protected void initialize() {
+    writeLock.lock();
+    Throwable throwable = null;
+    try {
+      logger.info("Start query mapping initialization.");
+      doInitialize();
+      logger.info("Complete query mapping initialization.");
     } catch (Exception ex) {
       throwable = ex;
       initialized = false;
-      queries.clear();
+      mappings = QueryMappings.EMPTY;
     } finally {
-      l.unlock();
+      writeLock.unlock();
       if (throwable != null) {
         rethrow(throwable);
       }
     }
   }
 
-  protected void doInitialize() {
-    initialized = false;
+  /**
+   * Resolve the query mappings from the build time indexes, the resolved resources are removed
+   * from the given resources, the unindexed or changed resources are retained to be parsed.
+   */
+  protected void resolveIndexedMappings(Map<String, Resource> resources,
+      Map<String, QueryMapping> files) {
+    final List<QueryMappingIndex> indexes = QueryMappingIndex.load(defaultClassLoader());
+    if (indexes.isEmpty()) {
+      return;
+    }
+    final int size = resources.size();
+    resources.entrySet().removeIf(e -> {
+      for (QueryMappingIndex index : indexes) {
+        QueryMapping mapping = index.resolve(e.getKey(), e.getValue());
+        if (mapping != null) {
+          files.put(e.getKey(), mapping);
+          return true;
+        }
+      }
+      return false;
+    });
+    logger.info(() -> String.format("Resolved %s of %s query mapping files from %s indexes.",
+        size - resources.size(), size, indexes.size()));
+  }
+
+  protected void onMappingFileChange(FileChangeEvent event, Map<Path, String> watched) {
+    String url = watched.get(event.getFile().toPath().toAbsolutePath().normalize());
+    // the successive events of a file are debounced by the watch service, the pending refreshes
+    // only coalesce the changes of the files that are dispatched concurrently
+    if (url != null && pendingRefreshes.add(url)) {
+      List<String> urls = new ArrayList<>(pendingRefreshes);
+      pendingRefreshes.removeAll(urls);
+      try {
+        refresh(urls);
+      } catch (Exception e) {
+        logger.log(Level.WARNING, e,
+            () -> String.format("Refresh query mapping files %s occurred error!", urls));
+      }
+    }
+  }
+
+  @PostConstruct
+  protected void onPostConstruct() {
+    initialize();
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    uninitialize();
+  }
+
+  /**
+   * Publish the given new snapshot, the given old queries are passed to the before initialize
+   * handlers and the given new queries are passed to the after initialized handlers.
+   */
+  protected void publish(QueryMappings newMappings, Collection<Query> oldQueries,
+      Collection<Query> newQueries) {
     if (!preInitializeHandlers.isUnsatisfied()) {
-      final Collection<Query> oldQueries = getQueries();
+      final Collection<Query> olds = unmodifiableCollection(oldQueries);
+      final long civn = getInitializedVersion();
+      preInitializeHandlers.forEach(l -> l.beforeQueryMappingInitialize(olds, civn));
+    }
+    mappings = newMappings;
+    initialized = true;
+    initializedVersion.incrementAndGet();
+    if (!postInitializedHandlers.isUnsatisfied()) {
+      final Collection<Query> news = unmodifiableCollection(newQueries);
       final long civn = getInitializedVersion();
-      preInitializeHandlers.forEach(l -> l.beforeQueryMappingInitialize(oldQueries, civn));
+      postInitializedHandlers.forEach(l -> l.afterQueryMappingInitialized(news, civn));
     }
-    queries.clear();
-    new QueryParser().parse(resolveMappingFilePaths()).forEach(m -> {
+    logger.info(() -> String.format("Found %s queries from mapping file path %s.",
+        newMappings.queries.size(), mappingFilePaths));
+  }
+
+  /**
+   * Resolve and verify the queries of the given query mappings.
+   */
+  protected Map<String, Query> resolveQueries(Collection<QueryMapping> queryMappings) {
+    final Map<String, Query> queries = new HashMap<>();
+    queryMappings.forEach(m -> {
       List<String> broken = m.selfValidate();
       if (!broken.isEmpty()) {
         throw new QueryRuntimeException(String.join(NEWLINE, broken));
@@ -225,70 +413,7 @@ public class QueryMappingService {
         }
       });
     });
-    queries.keySet().forEach(q -> {
-      List<String> refs = new LinkedList<>();
-      List<String> tmp = new LinkedList<>(queries.get(q).getVersionedFetchQueryNames());
-      while (!tmp.isEmpty()) {
-        String tq = tmp.remove(0);
-        refs.add(tq);
-        if (areEqual(tq, q)) {
-          throw new QueryRuntimeException(
-              "The queries in system circular reference occurred on [%s -> %s]", q,
-              String.join(" -> ", refs));
-        }
-        Query fq = queries.get(tq);
-        if (fq == null) {
-          throw new QueryRuntimeException(
-              "The 'name' [%s] of 'fetch-query' in query [%s] in system can not found the referred query!",
-              tq, q);
-        }
-        tmp.addAll(queries.get(tq).getVersionedFetchQueryNames());
-      }
-      refs.clear();
-    });
-    if (!queryProviders.isUnsatisfied()) {
-      // FIXME CIRCULAR NO CHECK!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!! bingo
-      queryProviders.forEach(qp -> qp.provide().forEach(q -> queries.put(q.getVersionedName(), q)));
-    }
-    initialized = true;
-    initializedVersion.incrementAndGet();
-    if (!postInitializedHandlers.isUnsatisfied()) {
-      final Collection<Query> newQueries = getQueries();
-      final long civn = getInitializedVersion();
-      postInitializedHandlers.forEach(l -> l.afterQueryMappingInitialized(newQueries, civn));
-    }
-    logger.info(() -> String.format("Found %s queries from mapping file path %s.", queries.size(),
-        mappingFilePaths));
-  }
-
-  protected void initialize() {
-    Lock l = rwl.writeLock();
-    Throwable throwable = null;
-    l.lock();
-    try {
-      logger.info("Start query mapping initialization.");
-      doInitialize();
-      logger.info("Complete query mapping initialization.");
-    } catch (Exception ex) {
-      throwable = ex;
-      initialized = false;
-      queries.clear();
-    } finally {
-      l.unlock();
-      if (throwable != null) {
-        rethrow(throwable);
-      }
-    }
-  }
-
-  @PostConstruct
-  protected void onPostConstruct() {
-    initialize();
-  }
-
-  @PreDestroy
-  protected void onPreDestroy() {
-    uninitialize();
+    return queries;
   }
 
   protected String[] resolveMappingFilePaths() {
@@ -320,18 +445,80 @@ public class QueryMappingService {
   }
 
   protected void uninitialize() {
-    Lock l = rwl.writeLock();
-    l.lock();
+    writeLock.lock();
     try {
       logger.info("Start query mapping un-initialization.");
-      queries.clear();
+      unwatch();
+      mappings = QueryMappings.EMPTY;
       initialized = false;
       logger.info("Completed query mapping un-initialization.");
     } finally {
-      l.unlock();
+      writeLock.unlock();
     }
   }
 
+  protected void unwatch() {
+    for (Watcher watcher : watchers) {
+      try {
+        watcher.close();
+      } catch (IOException e) {
+        logger.log(Level.WARNING, e, () -> "Close query mapping file watcher occurred error!");
+      }
+    }
+    watchers.clear();
+    pendingRefreshes.clear();
+  }
+
+  /**
+   * Verify the fetch query references of the given queries.
+   */
+  protected void validateFetchQueries(Map<String, Query> queries) {
+    queries.keySet().forEach(q -> {
+      List<String> refs = new LinkedList<>();
+      List<String> tmp = new LinkedList<>(queries.get(q).getVersionedFetchQueryNames());
+      while (!tmp.isEmpty()) {
+        String tq = tmp.remove(0);
+        refs.add(tq);
+        if (areEqual(tq, q)) {
+          throw new QueryRuntimeException(
+              "The queries in system circular reference occurred on [%s -> %s]", q,
+              String.join(" -> ", refs));
+        }
+        Query fq = queries.get(tq);
+        if (fq == null) {
+          throw new QueryRuntimeException(
+              "The 'name' [%s] of 'fetch-query' in query [%s] in system can not found the referred query!",
+              tq, q);
+        }
+        tmp.addAll(queries.get(tq).getVersionedFetchQueryNames());
+      }
+      refs.clear();
+    });
+  }
+
+  /**
+   * Watch the given mapping files that located in the file system, the files in the jars are
+   * ignored.
+   */
+  protected void watch(Collection<String> mappingFileUrls) {
+    unwatch();
+    final Map<Path, Map<Path, String>> dirs = new HashMap<>();
+    for (String url : mappingFileUrls) {
+      File file = new File(url);
+      if (file.isFile()) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        dirs.computeIfAbsent(path.getParent(), k -> new HashMap<>()).put(path, url);
+      }
+    }
+    dirs.forEach((dir, files) -> {
+      final Map<Path, String> watched = unmodifiableMap(files);
+      watchers.add(Watchers.watchDirectoryInDaemon(dir.toFile(), false,
+          p -> watched.containsKey(p.toAbsolutePath().normalize()),
+          e -> onMappingFileChange(e, watched)));
+      logger.fine(() -> String.format("Watch query mapping files %s.", watched.values()));
+    });
+  }
+
   @FunctionalInterface
   public interface AfterQueryMappingInitializedHandler extends Sortable {
     void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion);
@@ -346,4 +533,30 @@ public class QueryMappingService {
   public interface QueryMappingClient {
     Set<String> getMappingFilePaths();
   }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * <p>
+   * An immutable snapshot of the query mappings.
+   *
+   * @author bingo 下午12:59:22
+   *
+   */
+  protected static class QueryMappings {
+
+    static final QueryMappings EMPTY =
+        new QueryMappings(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+
+    final Map<String, QueryMapping> files;
+    final Map<String, Query> queries;
+    final Map<String, Query> provided;
+
+    QueryMappings(Map<String, QueryMapping> files, Map<String, Query> queries,
+        Map<String, Query> provided) {
+      this.files = unmodifiableMap(new LinkedHashMap<>(files));
+      this.queries = unmodifiableMap(new HashMap<>(queries));
+      this.provided = unmodifiableMap(new HashMap<>(provided));
+    }
+  }
 }
@@ -15,7 +15,9 @@ package org.corant.modules.query.shared;
 
 import static org.corant.shared.util.Empties.isNotEmpty;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import org.corant.modules.query.FetchQueryHandler;
@@ -156,6 +158,41 @@ public interface ScriptProcessor extends Sortable, AfterQueryMappingInitializedH
       }
       return cs;
     }
+
+    /**
+     * Returns the ids of the scripts of the given queries that this processor supports, includes
+     * the fetch query injection, parameter and predicate scripts and the query hint scripts.
+     *
+     * @param queries the queries to resolve
+     */
+    protected Set<String> resolveScriptIds(Collection<Query> queries) {
+      Set<String> ids = new HashSet<>();
+      for (Query query : queries) {
+        if (isNotEmpty(query.getFetchQueries())) {
+          for (FetchQuery fq : query.getFetchQueries()) {
+            collectScriptId(fq.getInjectionScript(), ids);
+            collectScriptId(fq.getPredicateScript(), ids);
+            if (fq.getParameters() != null) {
+              for (FetchQueryParameter fqp : fq.getParameters()) {
+                collectScriptId(fqp.getScript(), ids);
+              }
+            }
+          }
+        }
+        if (isNotEmpty(query.getHints())) {
+          for (QueryHint qh : query.getHints()) {
+            collectScriptId(qh.getScript(), ids);
+          }
+        }
+      }
+      return ids;
+    }
+
+    void collectScriptId(Script script, Set<String> ids) {
+      if (script != null && supports(script)) {
+        ids.add(script.getId());
+      }
+    }
   }
 
   /**
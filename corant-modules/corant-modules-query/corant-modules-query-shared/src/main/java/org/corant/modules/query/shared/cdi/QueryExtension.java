@@ -49,6 +49,9 @@ public class QueryExtension implements Extension {
   public static boolean verifyDeployment =
       Configs.getValue("corant.query.verify-deployment", Boolean.TYPE, false);
 
+  public static boolean warmUpScripts =
+      Configs.getValue("corant.query.warm-up-scripts", Boolean.TYPE, false);
+
   protected final Logger logger = Logger.getLogger(this.getClass().getName());
 
   Set<Class<?>> declarativeQueryServiceClasses = new LinkedHashSet<>();
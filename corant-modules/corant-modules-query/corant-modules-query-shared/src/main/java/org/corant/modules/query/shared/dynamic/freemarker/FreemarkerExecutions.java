@@ -18,6 +18,7 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 import javax.inject.Singleton;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.mapping.Query;
@@ -133,26 +134,26 @@ public class FreemarkerExecutions
     return scriptResolver;
   }
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.writeLock")
   @Override
   public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
-    executions.clear();
-    if (QueryExtension.verifyDeployment) {
+    if (QueryExtension.verifyDeployment || QueryExtension.warmUpScripts) {
       logger.info("Start freemark query scripts precompiling.");
-      int cs = 0;
-      for (Query query : queries) {
-        if (query.getScript().getType() == ScriptType.FM) {
-          resolveExecution(query);
-          cs++;
-        }
-      }
+      // the templates are compiled on first use if not precompiled
+      Stream<Query> stream =
+          QueryExtension.warmUpScripts ? queries.parallelStream() : queries.stream();
+      int cs = stream.filter(q -> q.getScript().getType() == ScriptType.FM).mapToInt(q -> {
+        resolveExecution(q);
+        return 1;
+      }).sum();
       logger.info("Complete " + cs + " freemarker query scripts precompiling.");
     }
   }
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.writeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
-    executions.clear();
+    // only evict the executions of the queries to be replaced
+    queries.forEach(q -> executions.remove(q.getScript().getId()));
   }
 }
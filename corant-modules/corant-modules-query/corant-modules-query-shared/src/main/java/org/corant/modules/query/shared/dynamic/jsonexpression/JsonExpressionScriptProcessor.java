@@ -56,6 +56,7 @@ import org.corant.modules.query.mapping.FetchQuery;
 import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.mapping.Script;
 import org.corant.modules.query.mapping.Script.ScriptType;
+import org.corant.modules.query.shared.QueryMappingService.BeforeQueryMappingInitializeHandler;
 import org.corant.modules.query.shared.ScriptProcessor.AbstractScriptProcessor;
 import org.corant.modules.query.shared.cdi.QueryExtension;
 import org.corant.shared.exception.NotSupportedException;
@@ -74,7 +75,8 @@ import net.jcip.annotations.GuardedBy;
  *
  */
 @Singleton
-public class JsonExpressionScriptProcessor extends AbstractScriptProcessor {
+public class JsonExpressionScriptProcessor extends AbstractScriptProcessor
+    implements BeforeQueryMappingInitializeHandler {
 
   public static final String FILTER_KEY = "filter";
   public static final String PROJECTION_KEY = "projection";
@@ -105,11 +107,9 @@ public class JsonExpressionScriptProcessor extends AbstractScriptProcessor {
   @Inject
   protected QueryObjectMapper mapper;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.writeLock")
   @Override
   public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
-    injFuns.clear();
-    preFuns.clear();
     if (QueryExtension.verifyDeployment) {
       logger.info("Start json expression query scripts precompiling.");
       int cs = resolveAll(queries, initializedVersion);
@@ -117,6 +117,15 @@ public class JsonExpressionScriptProcessor extends AbstractScriptProcessor {
     }
   }
 
+  @GuardedBy("QueryMappingService.writeLock")
+  @Override
+  public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
+    // only evict the functions of the queries to be replaced
+    Set<String> ids = resolveScriptIds(queries);
+    injFuns.keySet().removeAll(ids);
+    preFuns.keySet().removeAll(ids);
+  }
+
   @Override
   public Function<ParameterAndResultPair, Object> resolveFetchInjections(FetchQuery fetchQuery) {
     final Script script = fetchQuery.getInjectionScript();
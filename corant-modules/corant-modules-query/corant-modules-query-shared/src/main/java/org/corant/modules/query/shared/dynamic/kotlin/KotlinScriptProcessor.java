@@ -15,6 +15,8 @@ package org.corant.modules.query.shared.dynamic.kotlin;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import javax.inject.Singleton;
@@ -41,18 +43,18 @@ public class KotlinScriptProcessor extends AbstractCompilableScriptProcessor {
 
   static final Logger logger = Logger.getLogger(KotlinScriptProcessor.class.getName());
 
+  protected static final Set<Object> LIVE_SCRIPT_IDS = ConcurrentHashMap.newKeySet();
+
   protected static final ThreadLocal<ThreadLocalExecution<Object, Function<ParameterAndResult, Object>>> PARAM_RESULT_FUNCTIONS =
-      ThreadLocal.withInitial(ThreadLocalExecution::new);
+      ThreadLocal.withInitial(() -> new ThreadLocalExecution<>(LIVE_SCRIPT_IDS));
 
   protected static final ThreadLocal<ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>>> PARAM_RESULT_PAIR_FUNCTIONS =
-      ThreadLocal.withInitial(ThreadLocalExecution::new);
+      ThreadLocal.withInitial(() -> new ThreadLocalExecution<>(LIVE_SCRIPT_IDS));
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.writeLock")
   @Override
   public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
-    // FIXME TODO the script was cached in thread local
-    PARAM_RESULT_FUNCTIONS.get().clear();
-    PARAM_RESULT_PAIR_FUNCTIONS.get().clear();
+    super.afterQueryMappingInitialized(queries, initializedVersion);
     if (QueryExtension.verifyDeployment) {
       logger.info("Start kotlin query scripts pre-compiling.");
       int cs = resolveAll(queries, initializedVersion);
@@ -75,6 +77,11 @@ public class KotlinScriptProcessor extends AbstractCompilableScriptProcessor {
     return (Compilable) service.get().createEngine();
   }
 
+  @Override
+  protected Set<Object> getLiveScriptIds() {
+    return LIVE_SCRIPT_IDS;
+  }
+
   @Override
   protected ThreadLocalExecution<Object, Function<ParameterAndResult, Object>> getParamResultFunctions() {
     return PARAM_RESULT_FUNCTIONS.get();
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.enterprise.inject.Instance;
+import javax.script.Compilable;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.modules.query.mapping.Query;
+import org.corant.modules.query.mapping.QueryParser;
+import org.corant.modules.query.mapping.Script;
+import org.corant.modules.query.mapping.Script.ScriptType;
+import org.corant.modules.query.shared.AbstractCompilableScriptProcessor.ThreadLocalExecution;
+import org.corant.modules.query.shared.QueryMappingService.AfterQueryMappingInitializedHandler;
+import org.corant.modules.query.shared.QueryMappingService.BeforeQueryMappingInitializeHandler;
+import org.corant.modules.query.shared.QueryMappingService.QueryMappings;
+import org.corant.modules.query.shared.ScriptProcessor.ParameterAndResult;
+import org.corant.modules.query.shared.ScriptProcessor.ParameterAndResultPair;
+import org.corant.modules.query.shared.dynamic.DynamicQuerier;
+import org.corant.modules.query.spi.QueryProvider;
+import org.corant.shared.resource.SourceType;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-shared
+ *
+ * @author bingo 下午8:26:15
+ *
+ */
+public class QueryMappingServiceTest extends TestCase {
+
+  static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<query-mappings xmlns=\"http://corant.org/schema/nqms\">\n";
+  static final String FOOTER = "</query-mappings>\n";
+
+  Path root;
+  File fileA;
+  File fileB;
+  File fileC;
+  TestHandler handler;
+  TestResolver resolver;
+  TestScriptProcessor processor;
+  QueryMappingService service;
+
+  @Test
+  public void testPartialCacheEviction() throws Exception {
+    service.initialize();
+    service.getQueries().forEach(q -> resolver.builders.put(q.getVersionedName(), new Object()));
+    Object builderA = resolver.builders.get("A.get");
+    String scriptA = predicateScript("A.get").getId();
+    String scriptB = predicateScript("B.get").getId();
+    assertEquals(new HashSet<>(Arrays.asList(scriptA, scriptB)), processor.liveScriptIds);
+    Function<ParameterAndResult, Object> functionA = p -> "A";
+    processor.functions.computeIfAbsent(scriptA, k -> functionA);
+    processor.functions.computeIfAbsent(scriptB, k -> p -> "B");
+    write(fileB, queryB("T_B_V2"));
+    service.refresh(Collections.singletonList(fileB.getPath()));
+    // only the builders of the replaced queries are evicted
+    assertEquals(new HashSet<>(Arrays.asList("A.get", "C.get", "P.get")),
+        resolver.builders.keySet());
+    assertSame(builderA, resolver.builders.get("A.get"));
+    // only the live scripts are retained in the compiled functions once the version changed
+    String refreshedScriptB = predicateScript("B.get").getId();
+    assertFalse(scriptB.equals(refreshedScriptB));
+    assertEquals(new HashSet<>(Arrays.asList(scriptA, refreshedScriptB)),
+        processor.liveScriptIds);
+    processor.functions.computeIfAbsent(refreshedScriptB, k -> p -> "B2");
+    assertEquals(new HashSet<>(Arrays.asList(scriptA, refreshedScriptB)),
+        processor.functions.executions.keySet());
+    assertSame(functionA, processor.functions.executions.get(scriptA));
+    // all the executions are cleared without the live keys
+    ThreadLocalExecution<Object, Object> unkeyed = new ThreadLocalExecution<>();
+    unkeyed.computeIfAbsent(scriptA, k -> functionA);
+    service.reinitialize();
+    unkeyed.computeIfAbsent(refreshedScriptB, k -> functionA);
+    assertEquals(Collections.singleton(refreshedScriptB), unkeyed.executions.keySet());
+  }
+
+  @Test
+  public void testSnapshotPublication() throws Exception {
+    assertFalse(service.isInitialized());
+    assertTrue(service.getQueries().isEmpty());
+    service.initialize();
+    assertTrue(service.isInitialized());
+    final QueryMappings initial = service.mappings;
+    assertEquals(names("A.get", "B.get", "B.items", "C.get", "P.get"),
+        names(service.getQueries()));
+    try {
+      service.getQueries().clear();
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    Query queryA = service.getQuery("A.get");
+    Query queryB = service.getQuery("B.get");
+    Query queryP = service.getQuery("P.get");
+    write(fileB, queryB("T_B_V2"));
+    service.refresh(Collections.singletonList(fileB.getPath()));
+    final QueryMappings refreshed = service.mappings;
+    assertNotSame(initial, refreshed);
+    // the queries of the unchanged files and the provided queries are retained
+    assertSame(queryA, service.getQuery("A.get"));
+    assertSame(queryP, service.getQuery("P.get"));
+    assertNotSame(queryB, service.getQuery("B.get"));
+    assertTrue(service.getQuery("B.get").getScript().getCode().contains("T_B_V2"));
+    // the previous snapshot is never changed
+    assertSame(queryB, initial.queries.get("B.get"));
+    assertFalse(initial.queries.get("B.get").getScript().getCode().contains("T_B_V2"));
+    // the files that do not belong to the snapshot are ignored
+    service.refresh(Collections.singletonList(root.resolve("XQuery.xml").toString()));
+    assertSame(refreshed, service.mappings);
+    // the deleted files are removed
+    Files.delete(fileC.toPath());
+    service.refresh(Collections.singletonList(fileC.getPath()));
+    assertNull(service.getQuery("C.get"));
+    assertEquals(names("A.get", "B.get", "B.items", "P.get"), names(service.getQueries()));
+    // the current snapshot is retained if refreshing fails, A.get refers to B.get
+    final QueryMappings deleted = service.mappings;
+    Files.delete(fileB.toPath());
+    try {
+      service.refresh(Collections.singletonList(fileB.getPath()));
+      fail();
+    } catch (QueryRuntimeException e) {
+      // expected
+    }
+    assertSame(deleted, service.mappings);
+    // the current snapshot is retained if re-initialization fails
+    write(fileA, "<query-mappings>");
+    try {
+      service.reinitialize();
+      fail();
+    } catch (QueryRuntimeException e) {
+      // expected
+    }
+    assertSame(deleted, service.mappings);
+    assertTrue(service.isInitialized());
+    service.uninitialize();
+    assertFalse(service.isInitialized());
+    assertSame(QueryMappings.EMPTY, service.mappings);
+  }
+
+  @Test
+  public void testVersionIncrements() throws Exception {
+    final long version = QueryMappingService.getInitializedVersion();
+    service.initialize();
+    assertEquals(version + 1, QueryMappingService.getInitializedVersion());
+    assertEquals(Arrays.asList("before " + version + " []",
+        "after " + (version + 1) + " [A.get, B.get, B.items, C.get, P.get]"), handler.events);
+    // only the queries of the changed files are passed to the handlers
+    handler.events.clear();
+    write(fileB, queryB("T_B_V2"));
+    service.refresh(Collections.singletonList(fileB.getPath()));
+    assertEquals(version + 2, QueryMappingService.getInitializedVersion());
+    assertEquals(Arrays.asList("before " + (version + 1) + " [B.get, B.items]",
+        "after " + (version + 2) + " [B.get, B.items]"), handler.events);
+    // nothing is published
+    handler.events.clear();
+    service.refresh(Collections.emptyList());
+    service.refresh(Collections.singletonList(root.resolve("XQuery.xml").toString()));
+    Files.delete(fileB.toPath());
+    try {
+      service.refresh(Collections.singletonList(fileB.getPath()));
+      fail();
+    } catch (QueryRuntimeException e) {
+      // expected
+    }
+    assertEquals(version + 2, QueryMappingService.getInitializedVersion());
+    assertTrue(handler.events.isEmpty());
+    // all the queries are passed to the handlers
+    write(fileB, queryB("T_B_V3"));
+    service.reinitialize();
+    assertEquals(version + 3, QueryMappingService.getInitializedVersion());
+    assertEquals(Arrays.asList(
+        "before " + (version + 2) + " [A.get, B.get, B.items, C.get, P.get]",
+        "after " + (version + 3) + " [A.get, B.get, B.items, C.get, P.get]"), handler.events);
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    root = Files.createTempDirectory("corant-query-mapping-").toRealPath();
+    fileA = write(root.resolve("AQuery.xml").toFile(), HEADER
+        + "  <query name=\"A.get\" result-class=\"java.util.Map\">\n"
+        + "    <script><![CDATA[SELECT * FROM T_A]]></script>\n"
+        + "    <fetch-query reference-query=\"B.get\" inject-property-name=\"b\">\n"
+        + "      <predicate-script type=\"JS\"><![CDATA[true]]></predicate-script>\n"
+        + "    </fetch-query>\n"
+        + "  </query>\n" + FOOTER);
+    fileB = write(root.resolve("BQuery.xml").toFile(), queryB("T_B"));
+    fileC = write(root.resolve("CQuery.xml").toFile(), HEADER
+        + "  <query name=\"C.get\">\n"
+        + "    <script><![CDATA[SELECT * FROM T_C]]></script>\n"
+        + "  </query>\n" + FOOTER);
+    // the provided queries are not located in the mapping file paths
+    File provided = write(root.resolve("provided").resolve("provided.xml").toFile(), HEADER
+        + "  <query name=\"P.get\">\n"
+        + "    <script><![CDATA[SELECT * FROM T_P]]></script>\n"
+        + "  </query>\n" + FOOTER);
+    handler = new TestHandler();
+    resolver = new TestResolver();
+    processor = new TestScriptProcessor();
+    service = new QueryMappingService();
+    service.logger = Logger.getLogger(QueryMappingServiceTest.class.getName());
+    service.mappingFilePaths = SourceType.FILE_SYSTEM.getPrefix() + root + "/*Query.xml";
+    service.queryProviders = instance(Collections.singletonList(
+        (QueryProvider) () -> new QueryParser().parse(SourceType.FILE_SYSTEM.getPrefix()
+            + provided.getPath()).get(0).getQueries()));
+    service.resolvers = instance(Collections.emptyList());
+    service.preInitializeHandlers = instance(Arrays.asList(handler, resolver, processor));
+    service.postInitializedHandlers = instance(Arrays.asList(handler, processor));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    service.uninitialize();
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+    super.tearDown();
+  }
+
+  @SuppressWarnings("unchecked")
+  <T> Instance<T> instance(List<T> beans) {
+    return (Instance<T>) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {Instance.class}, (p, method, args) -> {
+          switch (method.getName()) {
+            case "isUnsatisfied":
+              return beans.isEmpty();
+            case "iterator":
+              return beans.iterator();
+            case "forEach":
+              beans.forEach((Consumer<? super T>) args[0]);
+              return null;
+            case "stream":
+              return beans.stream();
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  Set<String> names(Collection<Query> queries) {
+    return queries.stream().map(Query::getVersionedName)
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  Set<String> names(String... names) {
+    return new TreeSet<>(Arrays.asList(names));
+  }
+
+  Script predicateScript(String queryName) {
+    return service.getQuery(queryName).getFetchQueries().get(0).getPredicateScript();
+  }
+
+  String queryB(String table) {
+    return HEADER
+        + "  <query name=\"B.get\">\n"
+        + "    <script><![CDATA[SELECT * FROM " + table + "]]></script>\n"
+        + "    <fetch-query reference-query=\"B.items\" inject-property-name=\"items\">\n"
+        + "      <predicate-script type=\"JS\"><![CDATA[true]]></predicate-script>\n"
+        + "    </fetch-query>\n"
+        + "  </query>\n"
+        + "  <query name=\"B.items\">\n"
+        + "    <script><![CDATA[SELECT * FROM T_B_ITEM]]></script>\n"
+        + "  </query>\n" + FOOTER;
+  }
+
+  File write(File file, String content) throws Exception {
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午8:26:15
+   *
+   */
+  static class TestHandler
+      implements BeforeQueryMappingInitializeHandler, AfterQueryMappingInitializedHandler {
+
+    final List<String> events = new ArrayList<>();
+
+    @Override
+    public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
+      events.add("after " + initializedVersion + " " + sortedNames(queries));
+    }
+
+    @Override
+    public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
+      events.add("before " + initializedVersion + " " + sortedNames(queries));
+    }
+
+    List<String> sortedNames(Collection<Query> queries) {
+      return queries.stream().map(Query::getVersionedName).sorted().collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午8:26:15
+   *
+   */
+  static class TestResolver extends AbstractNamedQuerierResolver<DynamicQuerier<?, ?>> {
+
+    final Map<String, Object> builders = new HashMap<>();
+
+    @Override
+    public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
+      evictBuilders(builders, queries);
+    }
+
+    @Override
+    public DynamicQuerier<?, ?> resolve(String key, Object param) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * <p>
+   * The compiled functions are held in the instance fields in place of the thread locals.
+   *
+   * @author bingo 下午8:26:15
+   *
+   */
+  static class TestScriptProcessor extends AbstractCompilableScriptProcessor {
+
+    final Set<Object> liveScriptIds = ConcurrentHashMap.newKeySet();
+    final ThreadLocalExecution<Object, Function<ParameterAndResult, Object>> functions =
+        new ThreadLocalExecution<>(liveScriptIds);
+    final ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>> pairFunctions =
+        new ThreadLocalExecution<>(liveScriptIds);
+
+    @Override
+    public boolean supports(Script script) {
+      return script != null && script.getType() == ScriptType.JS;
+    }
+
+    @Override
+    protected Compilable getCompilable(ScriptType type) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Set<Object> getLiveScriptIds() {
+      return liveScriptIds;
+    }
+
+    @Override
+    protected ThreadLocalExecution<Object, Function<ParameterAndResult, Object>> getParamResultFunctions() {
+      return functions;
+    }
+
+    @Override
+    protected ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>> getParamResultPairFunctions() {
+      return pairFunctions;
+    }
+  }
+}
@@ -52,10 +52,10 @@ public class DefaultSqlNamedQuerierResolver extends AbstractNamedQuerierResolver
   @ConfigProperty(name = "corant.query.sql.mapping-file.paths")
   protected Optional<String> mappingFilePaths;
 
-  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @GuardedBy("QueryMappingService.writeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
-    clearBuilders();
+    evictBuilders(builders, queries);
   }
 
   @Override
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.resource;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import org.corant.shared.util.Systems;
+
+/**
+ * corant-shared
+ *
+ * <p>
+ * The sorted resource names of a jar, used by {@link ClassPathResourceScanner} to avoid enumerating
+ * and filtering all the entries of the same jar again and again during the boot, since several
+ * subsystems (query mappings, message bundles, configuration sources, persistence units, etc.)
+ * scan the class path respectively.
+ *
+ * <p>
+ * If the jar contains a resource manifest {@link #INDEX_RESOURCE} which is generated at build
+ * time, the sorted names are read from the manifest rather than collected and sorted from the jar
+ * entries. The manifest header records the number of the jar entries and the order independent
+ * hash of all the entry names (the directory entries end with '/'), the manifest is used only if
+ * both match the central directory of the jar, so a stale manifest, e.g. of a shaded jar whose
+ * entries were relocated, is ignored.
+ *
+ * <p>
+ * The indexes are cached softly by the jar file, the length and the last modified time of the jar
+ * file, the cache can be disabled by setting the system property
+ * {@code corant.resource.index.enabled} to false.
+ *
+ * @author bingo 下午2:27:33
+ *
+ */
+public class ClassPathResourceIndex {
+
+  public static final String INDEX_RESOURCE = "META-INF/corant-resources.idx";
+  public static final String INDEX_HEADER = "#corant-resources-2";
+  public static final boolean ENABLED =
+      Boolean.parseBoolean(Systems.getProperty("corant.resource.index.enabled", "true"));
+
+  protected static final Map<File, SoftReference<ClassPathResourceIndex>> indexes =
+      new ConcurrentHashMap<>();
+
+  protected final long length;
+  protected final long lastModified;
+  protected final Manifest manifest;
+  protected final String[] names;
+
+  protected ClassPathResourceIndex(long length, long lastModified, Manifest manifest,
+      String[] names) {
+    this.length = length;
+    this.lastModified = lastModified;
+    this.manifest = manifest;
+    this.names = names;
+  }
+
+  /**
+   * Clear the cached indexes.
+   */
+  public static void clear() {
+    indexes.clear();
+  }
+
+  /**
+   * Returns the index of the given jar file, the index is cached if enabled.
+   *
+   * @param file the jar file
+   * @throws IOException if the file is not a jar file or an I/O error occurs
+   */
+  public static ClassPathResourceIndex of(File file) throws IOException {
+    if (!ENABLED) {
+      return build(file);
+    }
+    SoftReference<ClassPathResourceIndex> ref = indexes.get(file);
+    ClassPathResourceIndex index = ref == null ? null : ref.get();
+    if (index == null || index.length != file.length()
+        || index.lastModified != file.lastModified()) {
+      index = build(file);
+      indexes.put(file, new SoftReference<>(index));
+    }
+    return index;
+  }
+
+  /**
+   * Returns the order independent hash of the given jar entry names, the sum of the 64-bit FNV-1a
+   * hashes of the names.
+   *
+   * @param names the entry names, the directory names end with '/'
+   */
+  public static long hash(Collection<String> names) {
+    long hash = 0;
+    for (String name : names) {
+      hash += hash(name);
+    }
+    return hash;
+  }
+
+  /**
+   * Write the resource manifest of a jar that contains the given entries to the given output
+   * stream, the header records the number and the hash of all the entry names and the file names
+   * are listed in lexicographical order.
+   *
+   * @param output the output stream
+   * @param entryNames all the entry names of the jar include the directories (end with '/'), the
+   *        manifest itself and the entries added by the packager
+   */
+  public static void write(OutputStream output, Collection<String> entryNames) throws IOException {
+    String[] names = entryNames.stream().filter(n -> !n.endsWith("/")).sorted()
+        .toArray(String[]::new);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8));
+    writer.write(INDEX_HEADER + " " + entryNames.size() + " " + Long.toHexString(hash(entryNames)));
+    writer.write('\n');
+    for (String name : names) {
+      writer.write(name);
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  static ClassPathResourceIndex build(File file) throws IOException {
+    // take the file attributes before reading, a concurrent modification invalidates the cache
+    final long length = file.length();
+    final long lastModified = file.lastModified();
+    try (JarFile jarFile = new JarFile(file)) {
+      String[] names = read(jarFile);
+      if (names == null) {
+        List<String> entries = new ArrayList<>(jarFile.size());
+        Enumeration<JarEntry> it = jarFile.entries();
+        while (it.hasMoreElements()) {
+          JarEntry entry = it.nextElement();
+          if (!entry.isDirectory()) {
+            entries.add(entry.getName());
+          }
+        }
+        names = entries.toArray(String[]::new);
+        Arrays.sort(names);
+      }
+      return new ClassPathResourceIndex(length, lastModified, jarFile.getManifest(), names);
+    }
+  }
+
+  static long hash(String name) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < name.length(); i++) {
+      hash ^= name.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the sorted file names listed in the resource manifest of the given jar or null if the
+   * jar doesn't contain a resource manifest or the manifest doesn't match the jar entries.
+   */
+  static String[] read(JarFile jarFile) {
+    JarEntry indexEntry = jarFile.getJarEntry(INDEX_RESOURCE);
+    if (indexEntry == null) {
+      return null;
+    }
+    try (InputStream is = jarFile.getInputStream(indexEntry);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, UTF_8))) {
+      String[] header = String.valueOf(reader.readLine()).split(" ");
+      if (header.length != 3 || !INDEX_HEADER.equals(header[0])
+          || Integer.parseInt(header[1]) != jarFile.size()) {
+        return null;
+      }
+      long hash = 0;
+      Enumeration<JarEntry> it = jarFile.entries();
+      while (it.hasMoreElements()) {
+        hash += hash(it.nextElement().getName());
+      }
+      if (hash != Long.parseUnsignedLong(header[2], 16)) {
+        return null;
+      }
+      List<String> names = new ArrayList<>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          names.add(line);
+        }
+      }
+      return names.toArray(String[]::new);
+    } catch (IOException | NumberFormatException e) {
+      ClassPathResourceScanner.logger.fine(() -> String
+          .format("Can't read resource manifest from %s, %s.", jarFile.getName(), e.getMessage()));
+      return null;
+    }
+  }
+
+  /**
+   * Performs the given action for each resource name that starts with the given prefix in
+   * lexicographical order.
+   *
+   * @param prefix the resource name prefix, null or empty means all
+   * @param action the action to be performed
+   */
+  public void forEach(String prefix, Consumer<String> action) {
+    if (prefix == null || prefix.isEmpty()) {
+      for (String name : names) {
+        action.accept(name);
+      }
+      return;
+    }
+    int i = Arrays.binarySearch(names, prefix);
+    for (i = i < 0 ? -i - 1 : i; i < names.length && names[i].startsWith(prefix); i++) {
+      action.accept(names[i]);
+    }
+  }
+
+  public Manifest getManifest() {
+    return manifest;
+  }
+
+  public int size() {
+    return names.length;
+  }
+}
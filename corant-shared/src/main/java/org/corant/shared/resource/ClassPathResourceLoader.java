@@ -119,10 +119,7 @@ public class ClassPathResourceLoader implements ResourceLoader {
         ClassPathResourceScanner.PATH_SEPARATOR_STRING);
     if (pathMatcher.isPresent()) {
       ClassPathResourceScanner scanner = new ClassPathResourceScanner(pathMatcher.get());
-      for (Map.Entry<URI, ClassLoader> entry : getClassPathEntries(scanner.getRoot()).entrySet()) {
-        scanner.scan(entry.getKey(), entry.getValue());
-      }
-      return scanner.getResources();
+      return scanner.scan(getClassPathEntries(scanner.getRoot())).getResources();
     } else {
       return getClassPathResourceUrls(path).stream().map(u -> {
         try {
@@ -25,6 +25,7 @@ import static org.corant.shared.util.Strings.replace;
 import static org.corant.shared.util.Strings.split;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -38,7 +39,6 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -47,14 +47,15 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.util.FileUtils;
 import org.corant.shared.util.PathMatcher;
+import org.corant.shared.util.Systems;
 
 /**
  * corant-shared
@@ -83,8 +84,11 @@ public class ClassPathResourceScanner {
   protected static final Logger logger = Logger.getLogger(ClassPathResourceScanner.class.getName());
   protected static final Map<Path, URLClassLoader> cachedClassLoaders = new ConcurrentHashMap<>();// static?
 
+  public static final boolean PARALLEL =
+      Boolean.parseBoolean(Systems.getProperty("corant.resource.scanner.parallel", "true"));
+
   protected final Set<ClassPathResource> resources = new LinkedHashSet<>();
-  protected final Set<URI> scannedUris = new HashSet<>();
+  protected final Set<URI> scannedUris;
   protected final String root;
 
   protected Predicate<String> filter = emptyPredicate(true);
@@ -95,6 +99,7 @@ public class ClassPathResourceScanner {
 
   public ClassPathResourceScanner(String root) {
     this.root = root;
+    scannedUris = ConcurrentHashMap.newKeySet();
   }
 
   public ClassPathResourceScanner(String root, Predicate<String> filter) {
@@ -104,6 +109,12 @@ public class ClassPathResourceScanner {
     }
   }
 
+  protected ClassPathResourceScanner(String root, Predicate<String> filter, Set<URI> scannedUris) {
+    this.root = root;
+    this.filter = filter;
+    this.scannedUris = scannedUris;
+  }
+
   /**
    * Get the resources of a relative path through a class and path
    *
@@ -205,6 +216,42 @@ public class ClassPathResourceScanner {
     return this;
   }
 
+  /**
+   * Scan the given class path entries, if there are more than one entries and the system property
+   * {@code corant.resource.scanner.parallel} is not false, the entries are scanned in parallel, the
+   * scanned resources are retained in the order of the given entries.
+   *
+   * @param entries the class path entries and their class loaders
+   * @throws IOException If I/O errors occur
+   */
+  public ClassPathResourceScanner scan(Map<URI, ClassLoader> entries) throws IOException {
+    if (!PARALLEL || entries.size() < 2) {
+      for (Map.Entry<URI, ClassLoader> entry : entries.entrySet()) {
+        scan(entry.getKey(), entry.getValue());
+      }
+      return this;
+    }
+    try {
+      List<ClassPathResourceScanner> scanners =
+          new ArrayList<>(entries.entrySet()).parallelStream().map(entry -> {
+            ClassPathResourceScanner scanner =
+                new ClassPathResourceScanner(root, filter, scannedUris);
+            try {
+              scanner.scan(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            return scanner;
+          }).collect(Collectors.toList());
+      for (ClassPathResourceScanner scanner : scanners) {
+        resources.addAll(scanner.resources);
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return this;
+  }
+
   /**
    * Unfinish yet // FIXME
    */
@@ -318,36 +365,27 @@ public class ClassPathResourceScanner {
     if (sp != -1) {
       jarPath = jarPath.substring(0, sp);
     }
-    JarFile jarFile;
+    ClassPathResourceIndex index;
     try {
-      jarFile = new JarFile(file);
+      index = ClassPathResourceIndex.of(file);
     } catch (IOException notJarFile) {
       logger.log(Level.WARNING, notJarFile,
           () -> String.format("The file %s is not jar file!", file.getName()));
       return;
     }
-    try {
-      for (URI uri : getClassPathFromManifest(file, jarFile.getManifest())) {
-        scan(uri, classloader);
-      }
-      Enumeration<JarEntry> entries = jarFile.entries();
-      while (entries.hasMoreElements()) {
-        JarEntry entry = entries.nextElement();
-        String resourceName = entry.getName();
-        if (entry.isDirectory() || JarFile.MANIFEST_NAME.equals(resourceName)
-            || isNotBlank(root) && !resourceName.startsWith(root) || !filter.test(resourceName)) {
-          continue;
-        }
-        String resourceUrl = jarPath.concat(
-            isNotBlank(resourceName) ? JAR_URL_SEPARATOR.concat(resourceName) : resourceName);
-        resources.add(ClassPathResource.of(resourceName, classloader, new URL(resourceUrl)));
-      }
-    } finally {
-      try {
-        jarFile.close();
-      } catch (IOException ignored) {
-        // Noop!
+    for (URI uri : getClassPathFromManifest(file, index.getManifest())) {
+      scan(uri, classloader);
+    }
+    final String urlPrefix = jarPath.concat(JAR_URL_SEPARATOR);
+    final List<String> resourceNames = new ArrayList<>();
+    index.forEach(isNotBlank(root) ? root : null, resourceName -> {
+      if (!JarFile.MANIFEST_NAME.equals(resourceName) && filter.test(resourceName)) {
+        resourceNames.add(resourceName);
       }
+    });
+    for (String resourceName : resourceNames) {
+      resources.add(ClassPathResource.of(resourceName, classloader,
+          new URL(isNotBlank(resourceName) ? urlPrefix.concat(resourceName) : jarPath)));
     }
   }
 
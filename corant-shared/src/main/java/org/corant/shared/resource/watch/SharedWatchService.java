@@ -0,0 +1,541 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.resource.watch;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import static org.corant.shared.util.Objects.forceCast;
+import static org.corant.shared.util.Throwables.asUncheckedException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.corant.shared.normal.Names;
+import org.corant.shared.util.Systems;
+import org.corant.shared.util.Threads;
+
+/**
+ * corant-shared
+ *
+ * <p>
+ * A shared file watch service that multiplexes many watched files and directories on one
+ * {@link WatchService} per file system, each file system has one daemon thread to take the watch
+ * keys. The events of the same path of the same handle are debounced and coalesced, a burst of the
+ * events is delivered as one event after the path keeps quiet for the debounce time (but no later
+ * than 16 times of the debounce time), the listeners are dispatched on a small shared executor. A
+ * handle may also have a minimum delivery interval, the events of the handle that arrive within
+ * the interval after the last delivery are coalesced and delivered when the interval elapses.
+ *
+ * <p>
+ * If the file system doesn't support the watch service or only provides a polling watch service,
+ * the directories are polled by a shared task at the polling interval.
+ *
+ * <p>
+ * The service can be configured by the system properties:
+ * <ul>
+ * <li>{@code corant.resource.watch.debounce-ms}, default 64</li>
+ * <li>{@code corant.resource.watch.dispatch-threads}, default 2</li>
+ * <li>{@code corant.resource.watch.polling-interval-ms}, default 1000</li>
+ * </ul>
+ *
+ * @author bingo 下午2:48:19
+ *
+ */
+public class SharedWatchService {
+
+  public static final long DEBOUNCE_MS =
+      Long.parseLong(Systems.getProperty("corant.resource.watch.debounce-ms", "64"));
+  public static final int DISPATCH_THREADS =
+      Integer.parseInt(Systems.getProperty("corant.resource.watch.dispatch-threads", "2"));
+  public static final long POLLING_INTERVAL_MS =
+      Long.parseLong(Systems.getProperty("corant.resource.watch.polling-interval-ms", "1000"));
+  public static final String THREAD_PREFIX = Names.CORANT.concat("-fsw");
+
+  static final Logger logger = Logger.getLogger(SharedWatchService.class.getName());
+
+  private static volatile SharedWatchService instance; // NOSONAR
+
+  protected final ScheduledThreadPoolExecutor executor;
+  protected final Map<FileSystem, Optional<WatchService>> services = new HashMap<>();
+  protected final Map<Path, Registration> registrations = new ConcurrentHashMap<>();
+  protected final Map<WatchKey, Registration> keys = new ConcurrentHashMap<>();
+  protected final Map<PendingKey, Pending> pendings = new ConcurrentHashMap<>();
+  protected ScheduledFuture<?> pollingTask;
+
+  protected SharedWatchService() {
+    executor = new ScheduledThreadPoolExecutor(Math.max(DISPATCH_THREADS, 1),
+        Threads.daemonThreadFactory(THREAD_PREFIX.concat("-dispatcher")));
+    executor.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Returns the shared watch service instance.
+   */
+  public static SharedWatchService get() {
+    if (instance == null) {
+      synchronized (SharedWatchService.class) {
+        if (instance == null) {
+          instance = new SharedWatchService();
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Watch the given file or directory and returns the handle, closing the handle stops watching.
+   *
+   * @param path the file or directory to be watched
+   * @param recursive whether to watch the sub-directories if the path is a directory
+   * @param filter the filter of the changed paths if the path is a directory, may be null
+   * @param listeners the listeners
+   */
+  public Handle watch(Path path, boolean recursive, Predicate<Path> filter,
+      FileChangeListener... listeners) {
+    return watch(path, recursive, filter, 0, listeners);
+  }
+
+  /**
+   * Watch the given file or directory and returns the handle, closing the handle stops watching.
+   *
+   * @param path the file or directory to be watched
+   * @param recursive whether to watch the sub-directories if the path is a directory
+   * @param filter the filter of the changed paths if the path is a directory, may be null
+   * @param minIntervalMs the minimum interval in milliseconds between two deliveries of the
+   *        handle, zero or negative means the events are delivered once they are debounced.
+   * @param listeners the listeners
+   */
+  public Handle watch(Path path, boolean recursive, Predicate<Path> filter, long minIntervalMs,
+      FileChangeListener... listeners) {
+    Path target = shouldNotNull(path, "The path to be watched can't null!").toAbsolutePath()
+        .normalize();
+    Handle handle = new Handle(this, target, Files.isDirectory(target), recursive,
+        filter == null ? p -> true : filter, minIntervalMs, listeners);
+    try {
+      synchronized (this) {
+        if (!handle.directory) {
+          register(target.getParent(), handle);
+        } else if (recursive) {
+          registerAll(target, handle);
+        } else {
+          register(target, handle);
+        }
+      }
+    } catch (IOException e) {
+      unregister(handle);
+      throw asUncheckedException(e);
+    }
+    return handle;
+  }
+
+  protected void dispatch(PendingKey key) {
+    final long[] delay = {-1};
+    final Pending[] flushed = {null};
+    pendings.computeIfPresent(key, (k, p) -> {
+      long now = System.nanoTime();
+      long idle = TimeUnit.NANOSECONDS.toMillis(now - p.lastNanos);
+      long waited = TimeUnit.NANOSECONDS.toMillis(now - p.firstNanos);
+      if (idle < DEBOUNCE_MS && waited < DEBOUNCE_MS * 16) {
+        delay[0] = DEBOUNCE_MS - idle;
+        return p;
+      }
+      long throttled = k.handle.throttle(now);
+      if (throttled > 0) {
+        delay[0] = throttled;
+        return p;
+      }
+      flushed[0] = p;
+      return null;
+    });
+    if (delay[0] >= 0) {
+      executor.schedule(() -> dispatch(key), delay[0], TimeUnit.MILLISECONDS);
+    } else if (flushed[0] != null && key.handle.running) {
+      WatchEvent.Kind<?> kind = flushed[0].resolve();
+      if (kind != null) {
+        key.handle.fire(kind, key.path.toFile(), null);
+      }
+    }
+  }
+
+  protected void enqueue(Handle handle, Path path, WatchEvent.Kind<?> kind) {
+    PendingKey key = new PendingKey(handle, path);
+    boolean[] created = {false};
+    pendings.compute(key, (k, p) -> {
+      if (p == null) {
+        created[0] = true;
+        return new Pending(kind);
+      }
+      return p.update(kind);
+    });
+    if (created[0]) {
+      executor.schedule(() -> dispatch(key), DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  protected void onEvent(Registration registration, WatchEvent.Kind<?> kind, Path child) {
+    for (Handle handle : registration.handles) {
+      if (kind == OVERFLOW) {
+        // some events were lost, notify the handle that the watched path may be changed
+        enqueue(handle, handle.directory ? registration.dir : handle.path, ENTRY_MODIFY);
+      } else if (handle.accepts(registration.dir, child)) {
+        enqueue(handle, child, kind);
+      }
+    }
+    if (kind == ENTRY_CREATE && Files.isDirectory(child, NOFOLLOW_LINKS)) {
+      synchronized (this) {
+        for (Handle handle : registration.handles) {
+          if (handle.directory && handle.recursive) {
+            try {
+              registerAll(child, handle);
+            } catch (IOException e) {
+              logger.log(Level.WARNING, e,
+                  () -> String.format("Register directory %s occurred error!", child));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  protected void poll() {
+    for (Registration registration : registrations.values()) {
+      if (registration.key != null) {
+        continue;
+      }
+      Map<Path, Long> current = snapshot(registration.dir);
+      Map<Path, Long> previous = registration.snapshot;
+      registration.snapshot = current;
+      current.forEach((p, t) -> {
+        Long pt = previous.get(p);
+        if (pt == null) {
+          onEvent(registration, ENTRY_CREATE, p);
+        } else if (!pt.equals(t)) {
+          onEvent(registration, ENTRY_MODIFY, p);
+        }
+      });
+      previous.keySet().stream().filter(p -> !current.containsKey(p))
+          .forEach(p -> onEvent(registration, ENTRY_DELETE, p));
+    }
+  }
+
+  protected void register(Path dir, Handle handle) throws IOException {
+    Registration registration = registrations.get(dir);
+    if (registration == null) {
+      Optional<WatchService> service = resolveWatchService(dir.getFileSystem());
+      if (service.isPresent()) {
+        WatchKey key = dir.register(service.get(), ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        registration = new Registration(dir, key, null);
+        keys.put(key, registration);
+      } else {
+        registration = new Registration(dir, null, snapshot(dir));
+        if (pollingTask == null) {
+          pollingTask = executor.scheduleWithFixedDelay(this::poll, POLLING_INTERVAL_MS,
+              POLLING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+      }
+      registrations.put(dir, registration);
+      logger.fine(() -> String.format("Register %s to shared watch service.", dir));
+    }
+    registration.handles.add(handle);
+    handle.dirs.add(dir);
+  }
+
+  protected void registerAll(Path start, Handle handle) throws IOException {
+    Files.walkFileTree(start, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+          throws IOException {
+        register(dir, handle);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  protected synchronized Optional<WatchService> resolveWatchService(FileSystem fileSystem) {
+    return services.computeIfAbsent(fileSystem, fs -> {
+      WatchService service;
+      try {
+        service = fs.newWatchService();
+      } catch (UnsupportedOperationException | IOException e) {
+        logger.fine(() -> String.format("The file system %s doesn't support watch service.", fs));
+        return Optional.empty();
+      }
+      if (service.getClass().getName().endsWith("PollingWatchService")) {
+        // the file system has no native notification, use our own polling
+        try {
+          service.close();
+        } catch (IOException e) {
+          logger.log(Level.FINE, e, () -> "Close polling watch service occurred error!");
+        }
+        return Optional.empty();
+      }
+      Threads.runInDaemon(THREAD_PREFIX.concat("-watcher"), () -> take(service));
+      return Optional.of(service);
+    });
+  }
+
+  protected Map<Path, Long> snapshot(Path dir) {
+    Map<Path, Long> snapshot = new HashMap<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (Path path : stream) {
+        snapshot.put(path, Files.getLastModifiedTime(path).toMillis());
+      }
+    } catch (IOException e) {
+      logger.log(Level.FINE, e, () -> String.format("Can't list the directory %s.", dir));
+    }
+    return snapshot;
+  }
+
+  protected void take(WatchService service) {
+    for (;;) {
+      WatchKey key;
+      try {
+        key = service.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ClosedWatchServiceException e) {
+        break;
+      }
+      Registration registration = keys.get(key);
+      if (registration != null) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+          try {
+            if (event.kind() == OVERFLOW) {
+              onEvent(registration, OVERFLOW, null);
+            } else {
+              WatchEvent<Path> pathEvent = forceCast(event);
+              onEvent(registration, event.kind(), registration.dir.resolve(pathEvent.context()));
+            }
+          } catch (Exception e) {
+            logger.log(Level.WARNING, e, () -> "Handle file watch event occurred error!");
+          }
+        }
+      }
+      if (!key.reset() && registration != null) {
+        // the directory is no longer accessible
+        synchronized (this) {
+          keys.remove(key);
+          registrations.remove(registration.dir, registration);
+          registration.handles.forEach(h -> h.dirs.remove(registration.dir));
+        }
+      }
+    }
+  }
+
+  protected synchronized void unregister(Handle handle) {
+    for (Path dir : handle.dirs) {
+      Registration registration = registrations.get(dir);
+      if (registration != null && registration.handles.remove(handle)
+          && registration.handles.isEmpty()) {
+        registrations.remove(dir);
+        if (registration.key != null) {
+          keys.remove(registration.key);
+          registration.key.cancel();
+        }
+        logger.fine(() -> String.format("Unregister %s from shared watch service.", dir));
+      }
+    }
+    handle.dirs.clear();
+    pendings.keySet().removeIf(k -> k.handle == handle);
+  }
+
+  /**
+   * corant-shared
+   *
+   * <p>
+   * The watch handle of a file or directory, the handle is driven by the shared watch service, so
+   * {@link #run()} does nothing.
+   *
+   * @author bingo 下午2:48:19
+   *
+   */
+  public static class Handle extends AbstractWatcher {
+
+    protected final SharedWatchService service;
+    protected final Path path;
+    protected final boolean directory;
+    protected final boolean recursive;
+    protected final Predicate<Path> filter;
+    protected final long minIntervalNanos;
+    protected final Set<Path> dirs = ConcurrentHashMap.newKeySet();
+    protected volatile boolean delivered;
+    protected volatile long deliveredNanos;
+
+    protected Handle(SharedWatchService service, Path path, boolean directory, boolean recursive,
+        Predicate<Path> filter, long minIntervalMs, FileChangeListener... listeners) {
+      this.service = service;
+      this.path = path;
+      this.directory = directory;
+      this.recursive = recursive;
+      this.filter = filter;
+      minIntervalNanos = minIntervalMs > 0 ? TimeUnit.MILLISECONDS.toNanos(minIntervalMs) : 0L;
+      Collections.addAll(this.listeners, listeners);
+    }
+
+    @Override
+    public void close() throws IOException {
+      super.close();
+      service.unregister(this);
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    @Override
+    public void run() {
+      // Noop! the handle is driven by the shared watch service
+    }
+
+    protected boolean accepts(Path dir, Path child) {
+      if (!running) {
+        return false;
+      }
+      if (!directory) {
+        return path.equals(child);
+      }
+      return (recursive || path.equals(dir)) && filter.test(child);
+    }
+
+    /**
+     * Returns the milliseconds to wait before the next delivery of this handle, or records the
+     * delivery and returns zero if the minimum interval has elapsed since the last delivery.
+     */
+    protected synchronized long throttle(long nowNanos) {
+      if (minIntervalNanos > 0 && delivered) {
+        long remaining = minIntervalNanos - (nowNanos - deliveredNanos);
+        if (remaining > 0) {
+          return Math.max(TimeUnit.NANOSECONDS.toMillis(remaining), 1L);
+        }
+      }
+      delivered = true;
+      deliveredNanos = nowNanos;
+      return 0L;
+    }
+  }
+
+  /**
+   * corant-shared
+   *
+   * @author bingo 下午2:48:19
+   *
+   */
+  protected static class Pending {
+    final boolean existed;
+    final long firstNanos = System.nanoTime();
+    volatile long lastNanos = firstNanos;
+    volatile WatchEvent.Kind<?> last;
+
+    Pending(WatchEvent.Kind<?> kind) {
+      existed = kind != ENTRY_CREATE;
+      last = kind;
+    }
+
+    /**
+     * Coalesce the events of the burst, returns null if the path was created and then deleted.
+     */
+    WatchEvent.Kind<?> resolve() {
+      boolean exists = last != ENTRY_DELETE;
+      if (existed) {
+        return exists ? last == ENTRY_CREATE ? ENTRY_MODIFY : last : ENTRY_DELETE;
+      }
+      return exists ? ENTRY_CREATE : null;
+    }
+
+    Pending update(WatchEvent.Kind<?> kind) {
+      last = kind;
+      lastNanos = System.nanoTime();
+      return this;
+    }
+  }
+
+  /**
+   * corant-shared
+   *
+   * @author bingo 下午2:48:19
+   *
+   */
+  protected static class PendingKey {
+    final Handle handle;
+    final Path path;
+
+    PendingKey(Handle handle, Path path) {
+      this.handle = handle;
+      this.path = path;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof PendingKey)) {
+        return false;
+      }
+      PendingKey other = (PendingKey) obj;
+      return handle == other.handle && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(handle), path);
+    }
+  }
+
+  /**
+   * corant-shared
+   *
+   * @author bingo 下午2:48:19
+   *
+   */
+  protected static class Registration {
+    final Path dir;
+    final WatchKey key;
+    final Set<Handle> handles = new CopyOnWriteArraySet<>();
+    volatile Map<Path, Long> snapshot;
+
+    Registration(Path dir, WatchKey key, Map<Path, Long> snapshot) {
+      this.dir = dir;
+      this.key = key;
+      this.snapshot = snapshot;
+    }
+  }
+}
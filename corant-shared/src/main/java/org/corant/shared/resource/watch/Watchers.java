@@ -16,54 +16,70 @@ package org.corant.shared.resource.watch;
 import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Assertions.shouldNotNull;
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.function.Predicate;
-import org.corant.shared.normal.Names;
-import org.corant.shared.util.Threads;
 
 /**
  * corant-shared
  *
+ * <p>
+ * The watchers returned by this class are the handles of the {@link SharedWatchService}, all of
+ * them share the same watch threads and dispatch threads, no thread is started per watcher. The
+ * watching stops when the handle is closed.
+ *
  * @author bingo 下午9:44:25
  *
  */
 public class Watchers {
 
-  public static final String DAEMON_THREAD_PREFIX = Names.CORANT.concat("-fsw-dae-");
+  public static final String DAEMON_THREAD_PREFIX = SharedWatchService.THREAD_PREFIX;
+
+  /**
+   * Watch the given file or directory.
+   *
+   * @param path the file or directory to be watched
+   * @param recursive whether to watch the sub-directories if the path is a directory
+   * @param filter the filter of the changed paths if the path is a directory, may be null
+   * @param listeners the listeners
+   */
+  public static Watcher watch(Path path, boolean recursive, Predicate<Path> filter,
+      FileChangeListener... listeners) {
+    shouldBeTrue(path != null && Files.exists(path), "The path to be watched can't null.");
+    return SharedWatchService.get().watch(path, recursive, filter, listeners);
+  }
 
   public static Watcher watchDirectoryInDaemon(File fileDir, boolean recursive,
       Predicate<Path> filter, FileChangeListener listeners) {
     shouldBeTrue(fileDir != null && fileDir.exists() && fileDir.isDirectory(),
         "The file dir to be watched can't null and must be a directory.");
-    final Watcher watcher = new DirectoryWatcher(fileDir, recursive, filter, listeners);
-    Threads.runInDaemon(DAEMON_THREAD_PREFIX.concat(fileDir.getName()), watcher);
-    return watcher;
+    return SharedWatchService.get().watch(fileDir.toPath(), recursive, filter, listeners);
   }
 
+  /**
+   * Watch the given file by the {@link SharedWatchService}, the changes of the file are delivered
+   * at most once per the given polling interval, the changes within the interval are coalesced.
+   *
+   * @param file the file to be watched
+   * @param pollingIntervalMs the minimum interval in milliseconds between two deliveries
+   * @param listeners the listeners
+   */
   public static Watcher watchFileInDaemon(File file, long pollingIntervalMs,
       FileChangeListener listeners) {
     shouldBeTrue(file != null && file.exists() && file.isFile(),
         "The file to be watched can't null and must not a directory.");
-    final Watcher watcher = new FileWatcher(file, pollingIntervalMs, listeners);
-    Threads.runInDaemon(DAEMON_THREAD_PREFIX.concat(file.getName()), watcher);
-    return watcher;
+    return SharedWatchService.get().watch(file.toPath(), false, null, pollingIntervalMs,
+        listeners);
   }
 
   public static Watcher watchInDaemon(File fileOrDir, FileChangeListener listeners) {
     shouldBeTrue(fileOrDir != null && fileOrDir.exists(), "The file dir to be watched can't null.");
-    final Watcher watcher = fileOrDir.isFile() ? new FileWatcher(fileOrDir, -1, listeners)
-        : new DirectoryWatcher(fileOrDir, true, null, listeners);
-    Threads.runInDaemon(DAEMON_THREAD_PREFIX.concat(fileOrDir.getName()), watcher);
-    return watcher;
+    return SharedWatchService.get().watch(fileOrDir.toPath(), true, null, listeners);
   }
 
   public static Watcher watchInDaemon(Path dir, FileChangeListener listeners) {
     Path path = shouldNotNull(dir, "The file dir to be watched can't null.").normalize();
-    final Watcher watcher = dir.toFile().isFile() ? new FileWatcher(dir.toFile(), -1, listeners)
-        : new DirectoryWatcher(dir, true, null, listeners);
-    final String name = path.getName(path.getNameCount() - 1).toString();
-    Threads.runInDaemon(DAEMON_THREAD_PREFIX.concat(name), watcher);
-    return watcher;
+    return SharedWatchService.get().watch(path, true, null, listeners);
   }
 
 }
@@ -17,10 +17,14 @@ import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Functions.asCallable;
 import static org.corant.shared.util.Objects.forceCast;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import org.corant.shared.exception.CorantRuntimeException;
@@ -54,6 +58,38 @@ public class AsynchronousRetryer extends AbstractRetryer<AsynchronousRetryer> {
     executor.schedule(task, 0, TimeUnit.MILLISECONDS);
   }
 
+  /**
+   * Execute the given callable whose result is a {@link CompletionStage} and retry it according to
+   * the retry strategy without blocking any thread. Each attempt is scheduled on the executor, the
+   * next attempt is scheduled only after the stage of the previous attempt completed exceptionally
+   * and the backoff was elapsed. Cancelling the returned future stops the retries and also tries to
+   * cancel the stage of the current attempt.
+   *
+   * @param <T> the result type
+   * @param callable the callable that returns the stage to be retried
+   * @return a future that completes with the result of the first successful attempt or the
+   *         recovery callback, or completes exceptionally if no more retries.
+   */
+  public <T> CompletableFuture<T> executeStage(Callable<? extends CompletionStage<T>> callable) {
+    shouldNotNull(callable);
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    final AtomicReference<CompletionStage<T>> current = new AtomicReference<>();
+    future.whenComplete((r, t) -> {
+      CompletionStage<T> stage;
+      if (future.isCancelled() && (stage = current.getAndSet(null)) != null) {
+        try {
+          stage.toCompletableFuture().cancel(true);
+        } catch (UnsupportedOperationException e) {
+          // the stage doesn't support cancellation
+        }
+      }
+    });
+    context.initialize();
+    executor.schedule(new AsynchronousStageRetryTask<>(future, current, callable, this), 0,
+        TimeUnit.MILLISECONDS);
+    return future;
+  }
+
   @Override
   public DefaultRetryContext getContext() {
     return context;
@@ -170,4 +206,141 @@ public class AsynchronousRetryer extends AbstractRetryer<AsynchronousRetryer> {
 
   }
 
+  /**
+   * corant-shared
+   *
+   * @author bingo 下午2:36:12
+   *
+   */
+  public static class AsynchronousStageRetryTask<T> implements Runnable {
+
+    final CompletableFuture<T> future;
+    final AtomicReference<CompletionStage<T>> current;
+    final Callable<? extends CompletionStage<T>> callable;
+    final AsynchronousRetryer retryer;
+    final DefaultRetryContext context;
+    final RetryStrategy retryStrategy;
+    final BackoffStrategy backoffStrategy;
+    final RetryPrecondition retryPrecondition;
+    final RecoveryCallback recoverCallback;
+
+    public AsynchronousStageRetryTask(CompletableFuture<T> future,
+        AtomicReference<CompletionStage<T>> current, Callable<? extends CompletionStage<T>> callable,
+        AsynchronousRetryer retryer) {
+      this.future = future;
+      this.current = current;
+      this.callable = callable;
+      this.retryer = retryer;
+      this.context = retryer.getContext();
+      this.retryStrategy = retryer.getRetryStrategy();
+      this.backoffStrategy = retryer.getBackoffStrategy();
+      this.retryPrecondition = retryer.getRetryPrecondition();
+      this.recoverCallback = retryer.getRecoveryCallback();
+    }
+
+    @Override
+    public void run() {
+      if (future.isDone()) {
+        if (future.isCancelled()) {
+          retryer.logger.fine(() -> String.format(
+              "Execution was cancelled by caller, it has been tried %s times, no more retries.",
+              context.getAttempts()));
+        }
+        return;
+      }
+      final CompletionStage<T> stage;
+      try {
+        if (!retryPrecondition.test(context)) {
+          retryer.logger.info(() -> String.format(
+              "Cancel execution, unable to meet preconditions, it has been tried %s times",
+              context.getAttempts()));
+          future.cancel(false);
+          return;
+        }
+        retryer.emitOnRetry(context);
+        context.getAttemptsCounter().incrementAndGet();
+        stage = callable.call();
+      } catch (Throwable throwable) {
+        onFailure(throwable);
+        return;
+      }
+      if (stage == null) {
+        future.complete(null);
+        return;
+      }
+      current.set(stage);
+      if (future.isCancelled()) {
+        // cancelled while the stage was being created
+        current.set(null);
+        try {
+          stage.toCompletableFuture().cancel(true);
+        } catch (UnsupportedOperationException e) {
+          // the stage doesn't support cancellation
+        }
+        return;
+      }
+      stage.whenComplete((result, throwable) -> {
+        current.compareAndSet(stage, null);
+        if (throwable == null) {
+          if (future.complete(result)) {
+            retryer.logger.fine(() -> String.format(
+                "Executed successfully, it has been tried %s times, no more retries.",
+                context.getAttempts()));
+          }
+        } else {
+          onFailure(throwable instanceof CompletionException && throwable.getCause() != null
+              ? throwable.getCause()
+              : throwable);
+        }
+      });
+    }
+
+    protected void onFailure(Throwable throwable) {
+      if (future.isDone()) {
+        return;
+      }
+      Throwable currThrowable = throwable;
+      try {
+        if (retryStrategy.test(context.setLastThrowable(currThrowable))) {
+          long wait = backoffStrategy.computeBackoffMillis(context);
+          retryer.logger.log(Level.WARNING, currThrowable, () -> String.format(
+              "An error occurred in the retrying execution, it has been tried %s times, wait for %s milliseconds and continue to try to execute!",
+              context.getAttempts(), wait));
+          retryer.executor.schedule(
+              new AsynchronousStageRetryTask<>(future, current, callable, retryer), wait,
+              TimeUnit.MILLISECONDS);
+          currThrowable = null;
+        }
+      } catch (Exception ee) {
+        ee.addSuppressed(currThrowable);
+        currThrowable = ee;
+      } finally {
+        if (currThrowable != null) {
+          if (recoverCallback != null) {
+            try {
+              retryer.logger.log(Level.WARNING, currThrowable, () -> String.format(
+                  "An error occurred in the execution, it has been tried %s times, the retrying execution was interrupted, started to execute the recovery callback.",
+                  context.getAttempts()));
+              T result = forceCast(recoverCallback.recover(context));
+              if (future.complete(result)) {
+                retryer.logger.log(Level.INFO,
+                    () -> "Retry recovery callback executed successfully.");
+              }
+            } catch (Exception e) {
+              e.addSuppressed(currThrowable);
+              currThrowable = e;
+            }
+          }
+          if (!future.isDone()) {
+            final Throwable lastThrowable = currThrowable;
+            retryer.logger.log(Level.WARNING, lastThrowable, () -> String.format(
+                "An error occurred in the execution, it has been tried %s times, no more retries.",
+                context.getAttempts()));
+            future.completeExceptionally(lastThrowable);
+          }
+        }
+      }
+    }
+  }
+
 }
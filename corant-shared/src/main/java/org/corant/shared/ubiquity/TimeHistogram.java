@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.ubiquity;
+
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * corant-shared
+ *
+ * <p>
+ * A lock-free, fixed memory histogram for recording durations in nanoseconds. The values are
+ * grouped into logarithmic buckets, each power of two range is divided into 8 linear sub-buckets,
+ * so the percentiles are estimated with a relative error of at most 12.5%. Suitable for recording
+ * the latencies on hot paths for monitoring purposes.
+ *
+ * @author bingo 下午3:21:08
+ *
+ */
+public class TimeHistogram {
+
+  static final int SUB_BUCKET_BITS = 3;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  protected final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  protected final LongAdder count = new LongAdder();
+  protected final LongAdder total = new LongAdder();
+  protected final AtomicLong max = new AtomicLong();
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exp = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exp - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long upperBoundOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exp = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long sub = index % SUB_BUCKETS;
+    long width = 1L << (exp - SUB_BUCKET_BITS);
+    return ((SUB_BUCKETS + sub) << (exp - SUB_BUCKET_BITS)) + width - 1;
+  }
+
+  /**
+   * Returns the number of recorded values.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Returns the maximum recorded value in the given time unit.
+   *
+   * @param unit the time unit
+   */
+  public long getMax(TimeUnit unit) {
+    return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the mean of the recorded values in milliseconds.
+   */
+  public double getMeanMillis() {
+    long c = count.sum();
+    return c == 0 ? 0 : total.sum() / (double) c / 1000000d;
+  }
+
+  /**
+   * Returns the estimated value at the given percentile in milliseconds.
+   *
+   * @param percentile the percentile, between 0 and 1
+   */
+  public double getPercentileMillis(double percentile) {
+    return getPercentileNanos(percentile) / 1000000d;
+  }
+
+  /**
+   * Returns the estimated value at the given percentile in nanoseconds, the value is the upper
+   * bound of the bucket that contains the percentile.
+   *
+   * @param percentile the percentile, between 0 and 1
+   */
+  public long getPercentileNanos(double percentile) {
+    shouldBeTrue(percentile >= 0 && percentile <= 1, "The percentile must between 0 and 1");
+    long[] snapshot = new long[BUCKETS];
+    long size = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+      size += snapshot[i];
+    }
+    if (size == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile * size));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Returns the sum of the recorded values in the given time unit.
+   *
+   * @param unit the time unit
+   */
+  public long getTotal(TimeUnit unit) {
+    return unit.convert(total.sum(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Records a duration in nanoseconds, the negative values are recorded as zero.
+   *
+   * @param nanos the duration to record
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.incrementAndGet(indexOf(value));
+    count.increment();
+    total.add(value);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Records a duration in the given time unit.
+   *
+   * @param duration the duration to record
+   * @param unit the time unit of the duration
+   */
+  public void record(long duration, TimeUnit unit) {
+    record(unit.toNanos(duration));
+  }
+
+  /**
+   * Clears all recorded values.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    total.reset();
+    max.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, max=%.3fms", getCount(),
+        getMeanMillis(), getPercentileMillis(0.5), getPercentileMillis(0.99),
+        max.get() / 1000000d);
+  }
+}
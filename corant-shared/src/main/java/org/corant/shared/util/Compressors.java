@@ -23,19 +23,38 @@ import static org.corant.shared.util.Streams.streamOf;
 import static org.corant.shared.util.Strings.EMPTY;
 import static org.corant.shared.util.Strings.isBlank;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.zip.CRC32;
 import java.util.zip.CheckedOutputStream;
 import java.util.zip.Deflater;
@@ -45,9 +64,11 @@ import java.util.zip.GZIPOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.normal.Names;
 import org.corant.shared.ubiquity.Tuple.Pair;
 
 /**
@@ -61,6 +82,9 @@ import org.corant.shared.ubiquity.Tuple.Pair;
  */
 public class Compressors {
 
+  static final byte[] GZIP_HEADER =
+      {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
   private Compressors() {}
 
   public static byte[] compress(byte[] bytes) throws IOException {
@@ -115,6 +139,93 @@ public class Compressors {
     }
   }
 
+  /**
+   * Compress the input stream to the output stream in gzip format in parallel with the default
+   * compression level, 128KB block size, dictionary priming and the number of available
+   * processors threads.
+   *
+   * @see #parallelGzip(InputStream, OutputStream, int, int, boolean, int)
+   */
+  public static void parallelGzip(InputStream is, OutputStream os) throws IOException {
+    parallelGzip(is, os, Deflater.DEFAULT_COMPRESSION, ParallelDeflater.DFLT_BLOCK_SIZE, true,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Compress the input stream to the output stream in gzip format in parallel (pigz-style). The
+   * input is split into blocks, the blocks are deflated concurrently on a bounded pool with pooled
+   * deflaters, each block is terminated by a sync flush so that the compressed blocks can be
+   * concatenated into one standard deflate stream, the result can be read by the ordinary
+   * {@link GZIPInputStream}.
+   * <p>
+   * If the dictionary priming is enabled, the last 32KB of the previous block is used as the
+   * dictionary of a block, this keeps the compression ratio close to the single thread
+   * compression.
+   * <p>
+   * Note: The caller must maintain resource release by himself, the given output stream is not
+   * closed.
+   *
+   * @param is the input stream
+   * @param os the output stream
+   * @param level the compression level (0-9)
+   * @param blockSize the block size in bytes
+   * @param primeDictionary whether to use the tail of the previous block as the dictionary
+   * @param threads the number of the compression threads
+   */
+  public static void parallelGzip(InputStream is, OutputStream os, int level, int blockSize,
+      boolean primeDictionary, int threads) throws IOException {
+    try (ParallelDeflater deflater =
+        new ParallelDeflater(level, blockSize, primeDictionary, threads)) {
+      os.write(GZIP_HEADER);
+      long[] result = deflater.deflate(is, os);
+      writeInt(os, (int) result[0]);
+      writeInt(os, (int) result[1]);
+      os.flush();
+    }
+  }
+
+  /**
+   * Compress the given files or directories to the zip file in parallel.
+   *
+   * @see #parallelZip(List, OutputStream, int, int)
+   */
+  public static void parallelZip(List<File> files, File zipFile) throws IOException {
+    try (OutputStream os = new FileOutputStream(zipFile)) {
+      parallelZip(files, os, Deflater.DEFAULT_COMPRESSION,
+          Runtime.getRuntime().availableProcessors());
+    }
+  }
+
+  /**
+   * Compress the given files or directories to the output stream in zip format in parallel, the
+   * entry names are same as {@link #zip(List, File)}. The small files are compressed
+   * concurrently as a whole and the large files are compressed block by block concurrently, the
+   * entries are written in order, the ZIP64 format is used when necessary.
+   * <p>
+   * Note: The caller must maintain resource release by himself, the given output stream is not
+   * closed.
+   *
+   * @param files the files or directories to compress
+   * @param os the output stream
+   * @param level the compression level (0-9)
+   * @param threads the number of the compression threads
+   */
+  public static void parallelZip(List<File> files, OutputStream os, int level, int threads)
+      throws IOException {
+    if (isNotEmpty(files)) {
+      try (ParallelDeflater deflater =
+          new ParallelDeflater(level, ParallelDeflater.DFLT_BLOCK_SIZE, true, threads)) {
+        ParallelZipWriter writer = new ParallelZipWriter(deflater, os);
+        for (File file : files) {
+          if (file.exists()) {
+            writer.collect(file, EMPTY);
+          }
+        }
+        writer.write();
+      }
+    }
+  }
+
   public static byte[] tryCompress(byte[] bytes) {
     try {
       return compress(bytes);
@@ -247,4 +358,463 @@ public class Compressors {
     }
   }
 
+  static void writeInt(OutputStream os, int v) throws IOException {
+    os.write(v & 0xff);
+    os.write(v >>> 8 & 0xff);
+    os.write(v >>> 16 & 0xff);
+    os.write(v >>> 24 & 0xff);
+  }
+
+  static void writeLong(OutputStream os, long v) throws IOException {
+    writeInt(os, (int) v);
+    writeInt(os, (int) (v >>> 32));
+  }
+
+  static void writeShort(OutputStream os, int v) throws IOException {
+    os.write(v & 0xff);
+    os.write(v >>> 8 & 0xff);
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * Parallel raw deflater, the input is split into blocks that are deflated concurrently on a
+   * bounded pool with pooled {@link Deflater}s, the blocks are terminated by sync flush and written
+   * in order, the stream is terminated by an empty final block.
+   *
+   * @author bingo 下午5:02:16
+   *
+   */
+  static class ParallelDeflater implements Closeable {
+
+    static final int DFLT_BLOCK_SIZE = 128 * 1024;
+    static final int DICT_SIZE = 32 * 1024;
+    static final byte[] FINAL_EMPTY_BLOCK = {0x03, 0x00};
+
+    final int level;
+    final int blockSize;
+    final boolean primeDictionary;
+    final int window;
+    final ExecutorService executor;
+    final BlockingQueue<Deflater> deflaters = new LinkedBlockingQueue<>();
+
+    ParallelDeflater(int level, int blockSize, boolean primeDictionary, int threads) {
+      shouldBeTrue(blockSize > 0 && threads > 0,
+          "The block size and the number of threads must greater than 0!");
+      this.level = level;
+      this.blockSize = blockSize;
+      this.primeDictionary = primeDictionary;
+      window = threads * 2;
+      executor = Executors.newFixedThreadPool(threads,
+          Threads.daemonThreadFactory(Names.CORANT.concat("-parallel-deflater")));
+    }
+
+    @Override
+    public void close() {
+      executor.shutdownNow();
+      Deflater deflater;
+      while ((deflater = deflaters.poll()) != null) {
+        deflater.end();
+      }
+    }
+
+    /**
+     * Deflate the input stream to the output stream, returns the CRC32 and the size of the input
+     * and the size of the output.
+     */
+    long[] deflate(InputStream is, OutputStream os) throws IOException {
+      final CRC32 crc = new CRC32();
+      final Deque<Future<byte[]>> pendings = new ArrayDeque<>(window);
+      long totalIn = 0;
+      long totalOut = 0;
+      byte[] dictionary = null;
+      try {
+        for (;;) {
+          final byte[] block = new byte[blockSize];
+          final int length = readFully(is, block);
+          if (length <= 0) {
+            break;
+          }
+          crc.update(block, 0, length);
+          totalIn += length;
+          final byte[] useDictionary = dictionary;
+          pendings.add(executor.submit(() -> deflate(block, length, useDictionary, false)));
+          if (primeDictionary) {
+            int size = Math.min(length, DICT_SIZE);
+            dictionary = Arrays.copyOfRange(block, length - size, length);
+          }
+          if (pendings.size() >= window) {
+            totalOut += write(pendings.poll(), os);
+          }
+        }
+        while (!pendings.isEmpty()) {
+          totalOut += write(pendings.poll(), os);
+        }
+      } finally {
+        pendings.forEach(f -> f.cancel(true));
+      }
+      os.write(FINAL_EMPTY_BLOCK);
+      totalOut += FINAL_EMPTY_BLOCK.length;
+      return new long[] {crc.getValue(), totalIn, totalOut};
+    }
+
+    /**
+     * Deflate the given block, if finish is true the result is a complete deflate stream else the
+     * result is terminated by a sync flush.
+     */
+    byte[] deflate(byte[] block, int length, byte[] dictionary, boolean finish) {
+      Deflater deflater = deflaters.poll();
+      if (deflater == null) {
+        deflater = new Deflater(level, true);
+      }
+      try {
+        deflater.reset();
+        if (dictionary != null) {
+          deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(block, 0, length);
+        byte[] out = new byte[length + (length >> 3) + 64];
+        int size = 0;
+        if (finish) {
+          deflater.finish();
+          while (!deflater.finished()) {
+            if (size == out.length) {
+              out = Arrays.copyOf(out, out.length << 1);
+            }
+            size += deflater.deflate(out, size, out.length - size);
+          }
+        } else {
+          for (;;) {
+            if (size == out.length) {
+              out = Arrays.copyOf(out, out.length << 1);
+            }
+            int space = out.length - size;
+            int count = deflater.deflate(out, size, space, Deflater.SYNC_FLUSH);
+            size += count;
+            if (count < space) {
+              break;
+            }
+          }
+        }
+        return size == out.length ? out : Arrays.copyOf(out, size);
+      } finally {
+        deflaters.offer(deflater);
+      }
+    }
+
+    int readFully(InputStream is, byte[] buffer) throws IOException {
+      int length = 0;
+      int read;
+      while (length < buffer.length
+          && (read = is.read(buffer, length, buffer.length - length)) != -1) {
+        length += read;
+      }
+      return length;
+    }
+
+    int write(Future<byte[]> future, OutputStream os) throws IOException {
+      byte[] bytes;
+      try {
+        bytes = future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      }
+      os.write(bytes);
+      return bytes.length;
+    }
+  }
+
+  /**
+   * corant-shared
+   *
+   * @author bingo 下午5:02:16
+   *
+   */
+  static class CountingOutputStream extends FilterOutputStream {
+
+    long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * Parallel zip writer, the small files are deflated concurrently as a whole with a bounded look
+   * ahead, the large files are deflated block by block by the {@link ParallelDeflater} and written
+   * with the data descriptors, the entries are written in order.
+   *
+   * @author bingo 下午5:02:16
+   *
+   */
+  static class ParallelZipWriter {
+
+    static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    static final int ZIP64_ENTRIES_MAGIC = 0xFFFF;
+    static final int LARGE_FILE_SIZE = 4 * ParallelDeflater.DFLT_BLOCK_SIZE;
+    // the headroom for the deflate overhead of the incompressible data
+    static final long ZIP64_STREAMED_SIZE = ZIP64_MAGIC - (ZIP64_MAGIC >>> 10);
+
+    final ParallelDeflater deflater;
+    final CountingOutputStream os;
+    final List<Pair<File, String>> sources = new ArrayList<>();
+    final List<ZipEntryInfo> entries = new ArrayList<>();
+
+    ParallelZipWriter(ParallelDeflater deflater, OutputStream os) {
+      this.deflater = deflater;
+      this.os = new CountingOutputStream(new BufferedOutputStream(os, 65536));
+    }
+
+    static int dosTime(long millis) {
+      LocalDateTime ldt =
+          LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+      if (ldt.getYear() < 1980) {
+        return 1 << 21 | 1 << 16;
+      }
+      return ldt.getYear() - 1980 << 25 | ldt.getMonthValue() << 21 | ldt.getDayOfMonth() << 16
+          | ldt.getHour() << 11 | ldt.getMinute() << 5 | ldt.getSecond() >> 1;
+    }
+
+    void collect(File file, String dir) {
+      LinkedList<Pair<File, String>> queue = linkedListOf(Pair.of(file, dir));
+      Pair<File, String> source;
+      while ((source = queue.poll()) != null) {
+        File curFile = source.left();
+        String parent = source.right();
+        String path = isBlank(parent) ? curFile.getName() : parent + "/" + curFile.getName();
+        if (curFile.isDirectory()) {
+          File[] subFiles = curFile.listFiles();
+          if (isNotEmpty(subFiles)) {
+            streamOf(subFiles).map(f -> Pair.of(f, path)).forEach(queue::offer);
+          } else {
+            sources.add(Pair.of(curFile, path + "/"));
+          }
+        } else {
+          sources.add(Pair.of(curFile, path));
+        }
+      }
+    }
+
+    void write() throws IOException {
+      final Map<Integer, Future<Pair<byte[], long[]>>> futures = new HashMap<>();
+      int submitted = 0;
+      try {
+        for (int i = 0; i < sources.size(); i++) {
+          // look ahead the small files
+          while (submitted < sources.size() && submitted < i + deflater.window) {
+            final File file = sources.get(submitted).left();
+            if (!file.isDirectory() && file.length() <= LARGE_FILE_SIZE) {
+              futures.put(submitted, deflater.executor.submit(() -> {
+                byte[] bytes = Files.readAllBytes(file.toPath());
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                return Pair.of(deflater.deflate(bytes, bytes.length, null, true),
+                    new long[] {crc.getValue(), bytes.length});
+              }));
+            }
+            submitted++;
+          }
+          final Pair<File, String> source = sources.get(i);
+          final File file = source.left();
+          final ZipEntryInfo entry = new ZipEntryInfo(source.right(), file.isDirectory(),
+              dosTime(file.lastModified()), os.count);
+          if (entry.directory) {
+            writeLocalHeader(entry, false);
+          } else if (futures.containsKey(i)) {
+            writeSmallEntry(entry, futures.remove(i));
+          } else {
+            writeLargeEntry(entry, file);
+          }
+          entries.add(entry);
+        }
+      } finally {
+        futures.values().forEach(f -> f.cancel(true));
+      }
+      writeCentralDirectory();
+      os.flush();
+    }
+
+    void writeCentralDirectory() throws IOException {
+      final long offset = os.count;
+      for (ZipEntryInfo entry : entries) {
+        List<Long> zip64 = new ArrayList<>(3);
+        if (entry.size >= ZIP64_MAGIC) {
+          zip64.add(entry.size);
+        }
+        if (entry.csize >= ZIP64_MAGIC) {
+          zip64.add(entry.csize);
+        }
+        if (entry.offset >= ZIP64_MAGIC) {
+          zip64.add(entry.offset);
+        }
+        int version = zip64.isEmpty() && !entry.zip64 ? 20 : 45;
+        writeInt(os, 0x02014b50);
+        writeShort(os, version);
+        writeShort(os, version);
+        writeShort(os, entry.flag);
+        writeShort(os, entry.method);
+        writeInt(os, entry.time);
+        writeInt(os, (int) entry.crc);
+        writeInt(os, (int) Math.min(entry.csize, ZIP64_MAGIC));
+        writeInt(os, (int) Math.min(entry.size, ZIP64_MAGIC));
+        writeShort(os, entry.name.length);
+        writeShort(os, zip64.isEmpty() ? 0 : 4 + zip64.size() * 8);
+        writeShort(os, 0);
+        writeShort(os, 0);
+        writeShort(os, 0);
+        writeInt(os, entry.directory ? 0x10 : 0);
+        writeInt(os, (int) Math.min(entry.offset, ZIP64_MAGIC));
+        os.write(entry.name);
+        if (!zip64.isEmpty()) {
+          writeShort(os, 0x0001);
+          writeShort(os, zip64.size() * 8);
+          for (long value : zip64) {
+            writeLong(os, value);
+          }
+        }
+      }
+      final long size = os.count - offset;
+      final int count = entries.size();
+      if (count >= ZIP64_ENTRIES_MAGIC || offset >= ZIP64_MAGIC || size >= ZIP64_MAGIC) {
+        final long zip64Offset = os.count;
+        writeInt(os, 0x06064b50);
+        writeLong(os, 44);
+        writeShort(os, 45);
+        writeShort(os, 45);
+        writeInt(os, 0);
+        writeInt(os, 0);
+        writeLong(os, count);
+        writeLong(os, count);
+        writeLong(os, size);
+        writeLong(os, offset);
+        writeInt(os, 0x07064b50);
+        writeInt(os, 0);
+        writeLong(os, zip64Offset);
+        writeInt(os, 1);
+      }
+      writeInt(os, 0x06054b50);
+      writeShort(os, 0);
+      writeShort(os, 0);
+      writeShort(os, Math.min(count, ZIP64_ENTRIES_MAGIC));
+      writeShort(os, Math.min(count, ZIP64_ENTRIES_MAGIC));
+      writeInt(os, (int) Math.min(size, ZIP64_MAGIC));
+      writeInt(os, (int) Math.min(offset, ZIP64_MAGIC));
+      writeShort(os, 0);
+    }
+
+    void writeLargeEntry(ZipEntryInfo entry, File file) throws IOException {
+      entry.method = ZipEntry.DEFLATED;
+      entry.flag |= 0x08;
+      // the sizes are unknown before streaming, the ZIP64 extra field of the local header tells
+      // the readers that the data descriptor contains the 8-byte sizes.
+      entry.zip64 = file.length() >= ZIP64_STREAMED_SIZE;
+      writeLocalHeader(entry, true);
+      long[] result;
+      try (InputStream is = new FileInputStream(file)) {
+        result = deflater.deflate(is, os);
+      }
+      entry.crc = result[0];
+      entry.size = result[1];
+      entry.csize = result[2];
+      writeInt(os, 0x08074b50);
+      writeInt(os, (int) entry.crc);
+      if (entry.zip64) {
+        writeLong(os, entry.csize);
+        writeLong(os, entry.size);
+      } else if (entry.size >= ZIP64_MAGIC || entry.csize >= ZIP64_MAGIC) {
+        throw new ZipException("The file size was changed while compressing " + file);
+      } else {
+        writeInt(os, (int) entry.csize);
+        writeInt(os, (int) entry.size);
+      }
+    }
+
+    void writeLocalHeader(ZipEntryInfo entry, boolean descriptor) throws IOException {
+      writeInt(os, 0x04034b50);
+      writeShort(os, entry.zip64 ? 45 : 20);
+      writeShort(os, entry.flag);
+      writeShort(os, entry.method);
+      writeInt(os, entry.time);
+      writeInt(os, descriptor ? 0 : (int) entry.crc);
+      if (entry.zip64) {
+        writeInt(os, (int) ZIP64_MAGIC);
+        writeInt(os, (int) ZIP64_MAGIC);
+      } else {
+        writeInt(os, descriptor ? 0 : (int) entry.csize);
+        writeInt(os, descriptor ? 0 : (int) entry.size);
+      }
+      writeShort(os, entry.name.length);
+      writeShort(os, entry.zip64 ? 20 : 0);
+      os.write(entry.name);
+      if (entry.zip64) {
+        // the real sizes are in the data descriptor
+        writeShort(os, 0x0001);
+        writeShort(os, 16);
+        writeLong(os, 0);
+        writeLong(os, 0);
+      }
+    }
+
+    void writeSmallEntry(ZipEntryInfo entry, Future<Pair<byte[], long[]>> future)
+        throws IOException {
+      Pair<byte[], long[]> result;
+      try {
+        result = future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      }
+      entry.method = ZipEntry.DEFLATED;
+      entry.crc = result.right()[0];
+      entry.size = result.right()[1];
+      entry.csize = result.left().length;
+      writeLocalHeader(entry, false);
+      os.write(result.left());
+    }
+  }
+
+  /**
+   * corant-shared
+   *
+   * @author bingo 下午5:02:16
+   *
+   */
+  static class ZipEntryInfo {
+    final byte[] name;
+    final boolean directory;
+    final int time;
+    final long offset;
+    int flag = 0x0800; // UTF-8 name
+    int method = ZipEntry.STORED;
+    long crc;
+    long size;
+    long csize;
+    boolean zip64;
+
+    ZipEntryInfo(String name, boolean directory, int time, long offset) {
+      this.name = name.getBytes(StandardCharsets.UTF_8);
+      this.directory = directory;
+      this.time = time;
+      this.offset = offset;
+    }
+  }
 }
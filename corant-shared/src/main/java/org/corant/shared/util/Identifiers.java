@@ -31,6 +31,7 @@ import java.util.Base64;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
@@ -228,6 +229,61 @@ public class Identifiers {
       }
     }
 
+    /**
+     * Generate a block of the given size ids at once, the ids are in ascending order and the ids
+     * generated in the same time unit are consecutive. The time generator is invoked once for each
+     * time unit that the block spans instead of once for each id, the clock rollback and the
+     * sequence overflow are handled the same as {@link #generate(Supplier)}.
+     *
+     * @param timeGener the time generator
+     * @param size the number of the ids to generate
+     * @return the generated ids
+     */
+    public synchronized long[] generate(Supplier<?> timeGener, int size) {
+      if (size < 0) {
+        throw new IllegalArgumentException("The size of the ids can't less than zero");
+      }
+      final long[] ids = new long[size];
+      int i = 0;
+      while (i < size) {
+        final long timestamp;
+        final long start;
+        if (delayedTimingMs > 0) {
+          resetSequenceIfNecessary();
+          start = sequence.get();
+          if (start == 0) {
+            lastTimestamp = Identifiers.tills(timeGener, lastTimestamp, false);
+            localLastTimestamp = System.currentTimeMillis();
+          }
+          timestamp = lastTimestamp;
+        } else {
+          long current = Identifiers.tills(timeGener, lastTimestamp, true);
+          long next = 0;
+          if (lastTimestamp == current) {
+            next = sequence.get() + 1;
+            if (next > sequenceMask) {
+              current = Identifiers.tills(timeGener, lastTimestamp, false);
+              next = 0;
+            }
+          }
+          timestamp = current;
+          start = next;
+        }
+        final int count = (int) Math.min(size - i, sequenceMask - start + 1);
+        for (int c = 0; c < count; c++) {
+          ids[i++] = nextId(timestamp, start + c);
+        }
+        if (delayedTimingMs > 0) {
+          sequence.set(start + count & sequenceMask);
+        } else {
+          sequence.set(start + count - 1);
+          lastTimestamp = timestamp;
+          localLastTimestamp = System.currentTimeMillis();
+        }
+      }
+      return ids;
+    }
+
     /**
      * Returns the expiration time of the generator, we use time increment as the prefix, and return
      * an unsigned long integer (64 bits), so there is a time point of failure.
@@ -394,6 +450,140 @@ public class Identifiers {
     }
   }
 
+  /**
+   * corant-shared
+   * <p>
+   * The snowflake UUID generator that leases a block of ids from the given generator to each
+   * thread, the threads take the ids from their own leases without contention and only synchronize
+   * on the given generator when their leases are used up. The ids generated by a thread are in
+   * ascending order, but the ids generated by different threads are not strictly ordered by the
+   * generating time since the leased ids are generated in advance.
+   *
+   * @author bingo 下午3:05:26
+   *
+   */
+  public static class LeasedSnowflakeUUIDGenerator implements IdentifierGenerator {
+
+    public static final long DEFAULT_MAX_LEASE_AGE_MS = 1000L;
+
+    protected final GeneralSnowflakeUUIDGenerator delegate;
+    protected final int leaseSize;
+    protected final long maxLeaseAgeNanos;
+    protected final ThreadLocal<Lease> leases = ThreadLocal.withInitial(Lease::new);
+
+    /**
+     * Construct a leased generator, the unused ids of a lease are discarded once the lease is older
+     * than {@link #DEFAULT_MAX_LEASE_AGE_MS} milliseconds.
+     *
+     * @param delegate the generator that generates the leased ids
+     * @param leaseSize the number of the ids leased to a thread at a time
+     */
+    public LeasedSnowflakeUUIDGenerator(GeneralSnowflakeUUIDGenerator delegate, int leaseSize) {
+      this(delegate, leaseSize, DEFAULT_MAX_LEASE_AGE_MS);
+    }
+
+    /**
+     * Construct a leased generator
+     *
+     * @param delegate the generator that generates the leased ids
+     * @param leaseSize the number of the ids leased to a thread at a time
+     * @param maxLeaseAgeMs the maximum age in milliseconds of a lease, the unused ids of an older
+     *        lease are discarded so that a thread that stays idle, such as a pooled thread, doesn't
+     *        hand out ids whose time lags far behind, zero or negative means no limit.
+     */
+    public LeasedSnowflakeUUIDGenerator(GeneralSnowflakeUUIDGenerator delegate, int leaseSize,
+        long maxLeaseAgeMs) {
+      if (leaseSize < 1) {
+        throw new IllegalArgumentException("The lease size must be greater than zero");
+      }
+      this.delegate = delegate;
+      this.leaseSize = leaseSize;
+      maxLeaseAgeNanos = maxLeaseAgeMs > 0 ? TimeUnit.MILLISECONDS.toNanos(maxLeaseAgeMs) : 0L;
+    }
+
+    @Override
+    public Long generate(Supplier<?> timeGener) {
+      final Lease lease = currentLease();
+      if (lease.cursor >= lease.ids.length) {
+        lease.lease(delegate.generate(timeGener, leaseSize));
+      }
+      return lease.ids[lease.cursor++];
+    }
+
+    public GeneralSnowflakeUUIDGenerator getDelegate() {
+      return delegate;
+    }
+
+    public int getLeaseSize() {
+      return leaseSize;
+    }
+
+    public long getMaxLeaseAgeMs() {
+      return TimeUnit.NANOSECONDS.toMillis(maxLeaseAgeNanos);
+    }
+
+    /**
+     * Lease at least the given number of ids to the current thread in one block, generally used
+     * before inserting a large number of entities in the current thread, the unused ids of the
+     * current lease are kept and used first if the lease is not expired.
+     *
+     * @param timeGener the time generator
+     * @param size the number of the ids that will be used by the current thread
+     */
+    public void preallocate(Supplier<?> timeGener, int size) {
+      final Lease lease = currentLease();
+      final int remaining = lease.ids.length - lease.cursor;
+      if (remaining < size) {
+        final long[] ids = delegate.generate(timeGener, size - remaining);
+        final long[] merged = new long[size];
+        System.arraycopy(lease.ids, lease.cursor, merged, 0, remaining);
+        System.arraycopy(ids, 0, merged, remaining, ids.length);
+        lease.lease(merged);
+      }
+    }
+
+    /**
+     * Returns the number of the unused leased ids of the current thread, the expired lease has no
+     * ids.
+     */
+    public int remaining() {
+      final Lease lease = currentLease();
+      return lease.ids.length - lease.cursor;
+    }
+
+    /**
+     * Discard the unused leased ids of the current thread.
+     */
+    public void release() {
+      leases.remove();
+    }
+
+    /**
+     * Returns the lease of the current thread, the unused ids of the lease are discarded if the
+     * lease is expired.
+     */
+    protected Lease currentLease() {
+      final Lease lease = leases.get();
+      if (maxLeaseAgeNanos > 0 && lease.cursor < lease.ids.length
+          && System.nanoTime() - lease.leasedNanos > maxLeaseAgeNanos) {
+        lease.lease(Primitives.EMPTY_LONG_ARRAY);
+      }
+      return lease;
+    }
+
+    static class Lease {
+      long[] ids = Primitives.EMPTY_LONG_ARRAY;
+      int cursor;
+      long leasedNanos;
+
+      void lease(long[] ids) {
+        this.ids = ids;
+        cursor = 0;
+        leasedNanos = System.nanoTime();
+      }
+    }
+  }
+
   /**
    * <pre>
    * 根据Twitter的算法实现的id生成器，同一个应用实例内只能单例使用。 当前的实现假设，
@@ -49,16 +49,22 @@ import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.normal.Defaults;
@@ -183,6 +189,77 @@ public class Texts {
     return new ByteArrayInputStream(shouldNotNull(data).getBytes(charset));
   }
 
+  /**
+   * Read the CSV file with the 'UTF-8' charset in parallel, the file is split into chunks that are
+   * aligned to the record boundaries and parsed concurrently.
+   *
+   * @see #asParallelCSVLines(File, Charset, long, int, boolean)
+   * @param file the CSV file
+   * @param skipBytes the record boundary offset from the beginning of the file to start reading,
+   *        usually the end position of the last read record.
+   * @param ordered whether the records are returned in the file order
+   * @return a LocableFileRecord object stream which contain the record fields and offset info.
+   */
+  @Experimental
+  public static Stream<LocableFileRecord> asParallelCSVLines(final File file,
+      final long skipBytes, final boolean ordered) {
+    return asParallelCSVLines(file, UTF_8, skipBytes, ChunkedRecordReader.DFLT_CHUNK_SIZE,
+        ordered);
+  }
+
+  /**
+   * Read the CSV file in parallel. The file is memory-mapped and split into chunks of the given
+   * size, the chunks are aligned to the record boundaries (the line breaks inside the quoted fields
+   * are not boundaries) and parsed concurrently, the records of a chunk are returned after the
+   * chunk was parsed, the number of the chunks parsed ahead is bounded by the available
+   * processors.
+   * <p>
+   * The begin and end positions of the records have the same semantics as
+   * {@link LocableFileLine}, the end position of a record can be used as the skip bytes to resume
+   * reading, if the records are not ordered, the resume position should be the end position of
+   * the record that all the previous records were processed.
+   * <p>
+   * Note: The caller must close the stream, the charset must be an ASCII compatible charset whose
+   * multibyte sequences don't contain the bytes of the line breaks and the quote, such as UTF-8,
+   * ISO-8859-1 and GBK.
+   *
+   * @param file the CSV file
+   * @param charset the charset, if null use default utf-8 charset
+   * @param skipBytes the record boundary offset from the beginning of the file to start reading
+   * @param chunkSize the chunk size in bytes
+   * @param ordered whether the records are returned in the file order
+   * @return a LocableFileRecord object stream which contain the record fields and offset info.
+   */
+  @Experimental
+  public static Stream<LocableFileRecord> asParallelCSVLines(final File file,
+      final Charset charset, final long skipBytes, final int chunkSize, final boolean ordered) {
+    final ChunkedRecordReader reader =
+        new ChunkedRecordReader(file, charset, skipBytes, chunkSize, null);
+    return streamOf(reader.iterator(ordered)).flatMap(List::stream).onClose(reader::tryClose);
+  }
+
+  /**
+   * Read the XSV file in parallel, the field value escape rules are same as
+   * {@link #asXSVLines(InputStream, Charset, int, BiPredicate, String)}.
+   *
+   * @see #asParallelCSVLines(File, Charset, long, int, boolean)
+   * @param file the XSV file
+   * @param charset the charset, if null use default utf-8 charset
+   * @param skipBytes the record boundary offset from the beginning of the file to start reading
+   * @param chunkSize the chunk size in bytes
+   * @param ordered whether the records are returned in the file order
+   * @param delimiter the field delimiter
+   * @return a LocableFileRecord object stream which contain the record fields and offset info.
+   */
+  @Experimental
+  public static Stream<LocableFileRecord> asParallelXSVLines(final File file,
+      final Charset charset, final long skipBytes, final int chunkSize, final boolean ordered,
+      final String delimiter) {
+    final ChunkedRecordReader reader = new ChunkedRecordReader(file, charset, skipBytes, chunkSize,
+        shouldNotEmpty(delimiter));
+    return streamOf(reader.iterator(ordered)).flatMap(List::stream).onClose(reader::tryClose);
+  }
+
   /**
    * Read text file by line and use any character string as a delimiter to split the line into a
    * field list, support delimiter escape line offset and limit.
@@ -245,18 +322,7 @@ public class Texts {
     shouldNoneNull(is, delimiter);
     final BufferedReader reader =
         new BufferedReader(new InputStreamReader(is, defaultObject(charset, UTF_8)));
-    final Pattern pattern = shouldNotNull(escapedPattern(Strings.BACK_SLASH, delimiter));
-    final String esacpedDelimiter = Strings.BACK_SLASH.concat(delimiter);
-    final Function<String, List<String>> converter = line -> {
-      ArrayList<String> list = new ArrayList<>(10);
-      for (String a : pattern.split(line)) {
-        list.add(
-            replace(replace(replace(a, esacpedDelimiter, delimiter), XSV_CR_REP, Strings.RETURN),
-                XSV_LF_REP, Strings.NEWLINE));
-      }
-      return list;
-    };
-    return lines(reader, offset, terminator, converter);
+    return lines(reader, offset, terminator, xsvConverter(delimiter));
   }
 
   /**
@@ -722,6 +788,56 @@ public class Texts {
     return Texts.lines(new File(path)).collect(Collectors.toList());
   }
 
+  /**
+   * Read the CSV file in parallel and pass the records to the given consumer in batches, a batch
+   * contains the records of a chunk. The batches are passed in the file order on the caller
+   * thread, while the following chunks are parsed concurrently, so the end position of the last
+   * record of a processed batch can be used as the skip bytes to resume reading.
+   *
+   * @see #asParallelCSVLines(File, Charset, long, int, boolean)
+   * @param file the CSV file
+   * @param charset the charset, if null use default utf-8 charset
+   * @param skipBytes the record boundary offset from the beginning of the file to start reading
+   * @param chunkSize the chunk size in bytes
+   * @param consumer the batch consumer
+   */
+  @Experimental
+  public static void readParallelCSVLines(final File file, final Charset charset,
+      final long skipBytes, final int chunkSize, final Consumer<List<LocableFileRecord>> consumer) {
+    readParallelXSVLines(file, charset, skipBytes, chunkSize, null, consumer);
+  }
+
+  /**
+   * Read the XSV file in parallel and pass the records to the given consumer in batches, if the
+   * given delimiter is null the file is read as a CSV file.
+   *
+   * @see #readParallelCSVLines(File, Charset, long, int, Consumer)
+   * @param file the XSV file
+   * @param charset the charset, if null use default utf-8 charset
+   * @param skipBytes the record boundary offset from the beginning of the file to start reading
+   * @param chunkSize the chunk size in bytes
+   * @param delimiter the field delimiter
+   * @param consumer the batch consumer
+   */
+  @Experimental
+  public static void readParallelXSVLines(final File file, final Charset charset,
+      final long skipBytes, final int chunkSize, final String delimiter,
+      final Consumer<List<LocableFileRecord>> consumer) {
+    shouldNotNull(consumer);
+    try (ChunkedRecordReader reader =
+        new ChunkedRecordReader(file, charset, skipBytes, chunkSize, delimiter)) {
+      Iterator<List<LocableFileRecord>> it = reader.iterator(true);
+      while (it.hasNext()) {
+        List<LocableFileRecord> records = it.next();
+        if (!records.isEmpty()) {
+          consumer.accept(records);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   /**
    * Format objects to CSV line string.
    *
@@ -886,6 +1002,20 @@ public class Texts {
         shouldNotNull(stream).map(s -> toXSVLine(s, delimiter)).iterator());
   }
 
+  static Function<String, List<String>> xsvConverter(final String delimiter) {
+    final Pattern pattern = shouldNotNull(escapedPattern(Strings.BACK_SLASH, delimiter));
+    final String esacpedDelimiter = Strings.BACK_SLASH.concat(delimiter);
+    return line -> {
+      ArrayList<String> list = new ArrayList<>(10);
+      for (String a : pattern.split(line)) {
+        list.add(
+            replace(replace(replace(a, esacpedDelimiter, delimiter), XSV_CR_REP, Strings.RETURN),
+                XSV_LF_REP, Strings.NEWLINE));
+      }
+      return list;
+    };
+  }
+
   /**
    * corant-shared
    *
@@ -932,6 +1062,347 @@ public class Texts {
 
   }
 
+  /**
+   * corant-shared
+   * <p>
+   * A record of the CSV or XSV file with the byte offset info, the positions have the same
+   * semantics as {@link LocableFileLine}.
+   *
+   * @author bingo 下午3:26:52
+   *
+   */
+  public static class LocableFileRecord implements Serializable {
+    private static final long serialVersionUID = 2870312577386290129L;
+    final long beginPosition;
+    final long endPosition;
+    final List<String> fields;
+
+    public LocableFileRecord(long beginPosition, long endPosition, List<String> fields) {
+      this.beginPosition = beginPosition;
+      this.endPosition = endPosition;
+      this.fields = fields;
+    }
+
+    /**
+     * Returns the offset from the beginning of the record in file, in bytes.
+     */
+    public long getBeginPosition() {
+      return beginPosition;
+    }
+
+    /**
+     * Returns the offset from the ending of the record (include the line break) in file, in bytes.
+     */
+    public long getEndPosition() {
+      return endPosition;
+    }
+
+    /**
+     * Returns the record fields
+     */
+    public List<String> getFields() {
+      return fields;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("[%d-%d] %s", beginPosition, endPosition, fields);
+    }
+
+  }
+
+  /**
+   * corant-shared
+   * <p>
+   * Memory-mapped chunked CSV/XSV reader. The file is split into chunks in two passes, the first
+   * pass scans the chunks in parallel to count the quotes and to find the first line break of each
+   * chunk in both the quoted and the unquoted states, then the quote state of each chunk start is
+   * resolved from the quote counts of the previous chunks, so the chunk boundaries can be aligned
+   * to the record boundaries. The second pass parses the aligned chunks concurrently, each chunk is
+   * parsed with one reusable field buffer.
+   *
+   * @author bingo 下午3:26:52
+   *
+   */
+  static class ChunkedRecordReader implements Closeable {
+
+    static final int DFLT_CHUNK_SIZE = (int) (32 * Defaults.ONE_MB);
+    static final byte QUOTE = (byte) CSV_FIELD_QUOTES;
+    static final byte DELIMITER = (byte) CSV_FIELD_DELIMITER;
+
+    final FileChannel channel;
+    final Charset charset;
+    final Function<String, List<String>> xsvConverter;
+    final long[] boundaries;
+    final int window = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+    final List<CompletableFuture<List<LocableFileRecord>>> pendings = new ArrayList<>();
+
+    ChunkedRecordReader(File file, Charset charset, long skipBytes, int chunkSize,
+        String delimiter) {
+      shouldBeTrue(chunkSize > 0, "The chunk size must greater than 0!");
+      this.charset = defaultObject(charset, UTF_8);
+      shouldBeTrue(
+          Arrays.equals("\r\n\",".getBytes(this.charset), new byte[] {CR, LF, QUOTE, DELIMITER}),
+          "The charset %s is not supported!", this.charset);
+      xsvConverter = delimiter == null ? null : xsvConverter(delimiter);
+      try {
+        channel = FileChannel.open(shouldNotNull(file).toPath(), StandardOpenOption.READ);
+      } catch (IOException e) {
+        throw new CorantRuntimeException(e);
+      }
+      try {
+        boundaries = split(Math.max(skipBytes, 0), chunkSize);
+      } catch (IOException | RuntimeException e) {
+        tryClose();
+        throw e instanceof IOException ? new CorantRuntimeException(e) : (RuntimeException) e;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      synchronized (pendings) {
+        pendings.forEach(f -> f.cancel(true));
+        pendings.clear();
+      }
+      if (channel != null) {
+        channel.close();
+      }
+    }
+
+    Iterator<List<LocableFileRecord>> iterator(boolean ordered) {
+      return new Iterator<>() {
+        int nextChunk = 0;
+
+        @Override
+        public boolean hasNext() {
+          fill();
+          return !pendings.isEmpty();
+        }
+
+        @Override
+        public List<LocableFileRecord> next() {
+          fill();
+          CompletableFuture<List<LocableFileRecord>> future;
+          synchronized (pendings) {
+            if (pendings.isEmpty()) {
+              throw new NoSuchElementException();
+            }
+            if (!ordered) {
+              CompletableFuture.anyOf(pendings.toArray(CompletableFuture[]::new))
+                  .handle((r, t) -> null).join();
+            }
+            int index = 0;
+            if (!ordered) {
+              while (!pendings.get(index).isDone()) {
+                index++;
+              }
+            }
+            future = pendings.remove(index);
+          }
+          try {
+            return future.join();
+          } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+              throw (RuntimeException) e.getCause();
+            }
+            throw new CorantRuntimeException(e.getCause());
+          }
+        }
+
+        private void fill() {
+          synchronized (pendings) {
+            while (pendings.size() < window && nextChunk < boundaries.length - 1) {
+              final int chunk = nextChunk++;
+              pendings.add(CompletableFuture.supplyAsync(() -> parse(chunk)));
+            }
+          }
+        }
+      };
+    }
+
+    ByteBuffer map(long from, long to) throws IOException {
+      if (to - from > Integer.MAX_VALUE) {
+        throw new CorantRuntimeException("The record at [%d] is too large!", from);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    }
+
+    List<LocableFileRecord> parse(int chunk) {
+      final long from = boundaries[chunk];
+      final long to = boundaries[chunk + 1];
+      try {
+        ByteBuffer buffer = map(from, to);
+        return xsvConverter == null ? parseCSV(buffer, from) : parseXSV(buffer, from);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    List<LocableFileRecord> parseCSV(ByteBuffer buffer, long from) {
+      final List<LocableFileRecord> records = new ArrayList<>();
+      final int length = buffer.limit();
+      byte[] field = new byte[256];
+      int fieldLength = 0;
+      List<String> fields = new ArrayList<>();
+      int begin = 0;
+      byte state = 0; // 0:start,1:in field,2:in field quote,3:end field quote
+      for (int i = 0; i < length; i++) {
+        byte b = buffer.get(i);
+        if (state == 2) {
+          if (b == QUOTE) {
+            state = 3;
+            continue;
+          }
+        } else if (b == DELIMITER) {
+          fields.add(new String(field, 0, fieldLength, charset));
+          fieldLength = 0;
+          state = 0;
+          continue;
+        } else if (b == QUOTE) {
+          if (state == 1) {
+            throw new IllegalArgumentException(
+                String.format("Unexpected csv quote, char at: [%d]", from + i));
+          }
+          if (state == 0) {
+            state = 2;
+            continue;
+          }
+          state = 2;
+        } else if (b == LF || b == CR) {
+          if (b == CR && i + 1 < length && buffer.get(i + 1) == LF) {
+            i++;
+          }
+          fields.add(new String(field, 0, fieldLength, charset));
+          records.add(new LocableFileRecord(from + begin, from + i + 1, fields));
+          fields = new ArrayList<>(fields.size());
+          fieldLength = 0;
+          state = 0;
+          begin = i + 1;
+          continue;
+        } else if (state == 3) {
+          throw new IllegalArgumentException(String
+              .format("Extra csv character after quoted string, char at: [%d]", from + i));
+        } else {
+          state = 1;
+        }
+        if (fieldLength == field.length) {
+          field = Arrays.copyOf(field, field.length << 1);
+        }
+        field[fieldLength++] = b;
+      }
+      if (begin < length) {
+        if (state == 2) {
+          throw new IllegalArgumentException(
+              String.format("Unclosed csv quote, record at: [%d]", from + begin));
+        }
+        fields.add(new String(field, 0, fieldLength, charset));
+        records.add(new LocableFileRecord(from + begin, from + length, fields));
+      }
+      return records;
+    }
+
+    List<LocableFileRecord> parseXSV(ByteBuffer buffer, long from) {
+      final List<LocableFileRecord> records = new ArrayList<>();
+      final int length = buffer.limit();
+      byte[] line = new byte[256];
+      int begin = 0;
+      while (begin < length) {
+        int end = begin;
+        byte b = 0;
+        while (end < length && (b = buffer.get(end)) != LF && b != CR) {
+          end++;
+        }
+        int next = end < length ? end + 1 : end;
+        if (b == CR && next < length && buffer.get(next) == LF) {
+          next++;
+        }
+        if (end - begin > line.length) {
+          line = new byte[Math.max(end - begin, line.length << 1)];
+        }
+        buffer.position(begin);
+        buffer.get(line, 0, end - begin);
+        records.add(new LocableFileRecord(from + begin, from + next,
+            xsvConverter.apply(new String(line, 0, end - begin, charset))));
+        begin = next;
+      }
+      return records;
+    }
+
+    /**
+     * Scan the chunk, returns an array contains the quote count parity and the positions after the
+     * first line break in the unquoted state and the quoted state, the position is -1 if not
+     * found.
+     */
+    long[] scan(long from, long to) throws IOException {
+      final long size = channel.size();
+      final ByteBuffer buffer = map(from, Math.min(to + 1, size));
+      final int length = (int) (to - from);
+      final boolean csv = xsvConverter == null;
+      long parity = 0;
+      long unquoted = -1;
+      long quoted = -1;
+      for (int i = 0; i < length; i++) {
+        byte b = buffer.get(i);
+        if (csv && b == QUOTE) {
+          parity ^= 1;
+        } else if (b == LF || b == CR) {
+          long after = from + i + 1;
+          if (b == CR && i + 1 < buffer.limit() && buffer.get(i + 1) == LF) {
+            after++;
+          }
+          if (parity == 0 && unquoted < 0) {
+            unquoted = after;
+          } else if (parity == 1 && quoted < 0) {
+            quoted = after;
+          }
+          if (!csv) {
+            break;
+          }
+        }
+      }
+      return new long[] {parity, unquoted, quoted};
+    }
+
+    long[] split(long start, int chunkSize) throws IOException {
+      final long size = channel.size();
+      if (start >= size) {
+        return new long[] {size};
+      }
+      final int chunks = (int) ((size - start + chunkSize - 1) / chunkSize);
+      final long[][] scans = IntStream.range(0, chunks).parallel().mapToObj(i -> {
+        try {
+          long from = start + (long) i * chunkSize;
+          return scan(from, Math.min(from + chunkSize, size));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }).toArray(long[][]::new);
+      final List<Long> positions = new ArrayList<>(chunks + 1);
+      positions.add(start);
+      long quoted = 0;
+      for (int i = 0; i < chunks; i++) {
+        if (i > 0) {
+          // the scan assumes the chunk start is unquoted, if it was quoted the states are inverse
+          long position = quoted == 0 ? scans[i][1] : scans[i][2];
+          if (position > positions.get(positions.size() - 1) && position < size) {
+            positions.add(position);
+          }
+        }
+        quoted ^= scans[i][0];
+      }
+      positions.add(size);
+      return positions.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    void tryClose() {
+      try {
+        close();
+      } catch (IOException e) {
+        throw new CorantRuntimeException(e);
+      }
+    }
+  }
+
   /**
    * corant-shared
    * <p>
@@ -24,6 +24,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -31,6 +33,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.normal.Names;
 import org.corant.shared.ubiquity.Throwing.ThrowingRunnable;
 
@@ -44,6 +47,7 @@ public class Threads {
 
   public static final String DAEMON_THREAD_NAME_PREFIX = Names.CORANT.concat("-daemon");
   static final AtomicLong DAEMON_THREAD_ID = new AtomicLong(0);
+  static final ThreadFactory VIRTUAL_THREAD_FACTORY_PROTOTYPE = resolveVirtualThreadFactory(null);
 
   /**
    * Run a Callable in a daemon thread and return the computed result.
@@ -283,6 +287,38 @@ public class Threads {
     return threadGroup;
   }
 
+  /**
+   * Returns whether the current JVM supports virtual threads (JDK 21+).
+   */
+  public static boolean isVirtualThreadSupported() {
+    return VIRTUAL_THREAD_FACTORY_PROTOTYPE != null;
+  }
+
+  /**
+   * Returns a new executor that starts a new virtual thread for each task, the virtual threads are
+   * named with the given name prefix and an increasing number.
+   * <p>
+   * Note: Since the codes are compiled with JDK 11, the virtual thread API is accessed reflectively,
+   * use {@link #isVirtualThreadSupported()} to check whether the current JVM supports it.
+   *
+   * @param namePrefix the virtual thread name prefix, can be null
+   * @return an executor service that creates a new virtual thread for each task
+   * @throws NotSupportedException if the current JVM doesn't support virtual threads
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+    if (!isVirtualThreadSupported()) {
+      throw new NotSupportedException("The virtual threads are not supported in java %s!",
+          Systems.getProperty("java.version"));
+    }
+    ThreadFactory factory = resolveVirtualThreadFactory(namePrefix);
+    try {
+      return (ExecutorService) Executors.class
+          .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+    } catch (ReflectiveOperationException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
   /**
    * Returns a periodic runner.
    * <p>
@@ -368,6 +404,20 @@ public class Threads {
     }
   }
 
+  static ThreadFactory resolveVirtualThreadFactory(String namePrefix) {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      if (namePrefix != null) {
+        builder = builderClass.getMethod("name", String.class, long.class).invoke(builder,
+            namePrefix.concat("-"), 0L);
+      }
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
   /**
    * corant-shared
    *
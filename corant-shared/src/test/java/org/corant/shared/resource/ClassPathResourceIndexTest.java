@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.resource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.junit.Test;
+
+/**
+ * corant-shared
+ *
+ * @author bingo 下午3:26:41
+ *
+ */
+public class ClassPathResourceIndexTest {
+
+  static File createJar(String... names) throws IOException {
+    File file = File.createTempFile("corant-index-", ".jar");
+    file.deleteOnExit();
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, "lib/a.jar");
+    try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(file), manifest)) {
+      for (String name : names) {
+        jos.putNextEntry(new JarEntry(name));
+        if (!name.endsWith("/")) {
+          jos.write(name.getBytes());
+        }
+        jos.closeEntry();
+      }
+    }
+    return file;
+  }
+
+  /**
+   * Create a jar that contains the given entries and a resource manifest generated from the given
+   * indexed entries, the manifest entries are added to both.
+   */
+  static File createIndexedJar(List<String> indexed, String... names) throws IOException {
+    List<String> entries = new ArrayList<>(indexed);
+    entries.add("META-INF/MANIFEST.MF");
+    entries.add(ClassPathResourceIndex.INDEX_RESOURCE);
+    File file = File.createTempFile("corant-index-", ".jar");
+    file.deleteOnExit();
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(file), manifest)) {
+      for (String name : names) {
+        jos.putNextEntry(new JarEntry(name));
+        jos.closeEntry();
+      }
+      jos.putNextEntry(new JarEntry(ClassPathResourceIndex.INDEX_RESOURCE));
+      ClassPathResourceIndex.write(jos, entries);
+      jos.closeEntry();
+    }
+    return file;
+  }
+
+  static String[] names(ClassPathResourceIndex index, String prefix) {
+    List<String> names = new ArrayList<>();
+    index.forEach(prefix, names::add);
+    return names.toArray(String[]::new);
+  }
+
+  @Test
+  public void testCacheInvalidation() throws Exception {
+    File file = createJar("a/x.txt");
+    ClassPathResourceIndex index = ClassPathResourceIndex.of(file);
+    assertSame(index, ClassPathResourceIndex.of(file));
+    File changed = createJar("a/x.txt", "a/y.txt");
+    assertTrue(file.delete() && changed.renameTo(file));
+    file.setLastModified(index.lastModified + 2000);
+    ClassPathResourceIndex rebuilt = ClassPathResourceIndex.of(file);
+    assertNotSame(index, rebuilt);
+    assertArrayEquals(new String[] {"a/x.txt", "a/y.txt"}, names(rebuilt, "a/"));
+    ClassPathResourceIndex.clear();
+    assertNotSame(rebuilt, ClassPathResourceIndex.of(file));
+  }
+
+  @Test
+  public void testForEachPrefix() throws Exception {
+    File file = createJar("META-INF/", "META-INF/a.xml", "org/", "org/corant/",
+        "org/corant/B.class", "org/corant/A.class", "org/corantx/C.class", "z.properties");
+    ClassPathResourceIndex index = ClassPathResourceIndex.build(file);
+    // the directories are excluded, the manifest entry is included
+    assertEquals(6, index.size());
+    assertArrayEquals(new String[] {"org/corant/A.class", "org/corant/B.class"},
+        names(index, "org/corant/"));
+    assertArrayEquals(new String[] {"org/corant/A.class", "org/corant/B.class",
+        "org/corantx/C.class"}, names(index, "org/corant"));
+    assertArrayEquals(new String[] {"META-INF/MANIFEST.MF", "META-INF/a.xml"},
+        names(index, "META-INF/"));
+    assertArrayEquals(new String[0], names(index, "com/"));
+    assertArrayEquals(new String[0], names(index, "zz"));
+    assertEquals(6, names(index, null).length);
+    assertEquals(6, names(index, "").length);
+    assertNotNull(index.getManifest());
+    assertEquals("lib/a.jar",
+        index.getManifest().getMainAttributes().getValue(Attributes.Name.CLASS_PATH));
+  }
+
+  @Test
+  public void testResourceManifest() throws Exception {
+    List<String> entries = Arrays.asList("META-INF/", "org/", "org/corant/", "org/corant/B.class",
+        "org/corant/A.class", "z.properties");
+    File file = createIndexedJar(entries, entries.toArray(String[]::new));
+    String[] expected = {"META-INF/MANIFEST.MF", ClassPathResourceIndex.INDEX_RESOURCE,
+        "org/corant/A.class", "org/corant/B.class", "z.properties"};
+    try (JarFile jarFile = new JarFile(file)) {
+      assertArrayEquals(expected, ClassPathResourceIndex.read(jarFile));
+    }
+    ClassPathResourceIndex index = ClassPathResourceIndex.build(file);
+    assertArrayEquals(expected, names(index, null));
+    assertArrayEquals(new String[] {"org/corant/A.class", "org/corant/B.class"},
+        names(index, "org/corant/"));
+  }
+
+  @Test
+  public void testStaleResourceManifest() throws Exception {
+    List<String> entries = Arrays.asList("org/", "org/corant/", "org/corant/A.class");
+    // the relocated entry with the same number of entries
+    File relocated = createIndexedJar(entries, "org/", "org/shaded/", "org/shaded/A.class");
+    try (JarFile jarFile = new JarFile(relocated)) {
+      assertNull(ClassPathResourceIndex.read(jarFile));
+    }
+    assertArrayEquals(new String[] {"META-INF/MANIFEST.MF", ClassPathResourceIndex.INDEX_RESOURCE,
+        "org/shaded/A.class"}, names(ClassPathResourceIndex.build(relocated), null));
+    // the added entry
+    File added = createIndexedJar(entries, "org/", "org/corant/", "org/corant/A.class", "b.txt");
+    try (JarFile jarFile = new JarFile(added)) {
+      assertNull(ClassPathResourceIndex.read(jarFile));
+    }
+    assertArrayEquals(new String[] {"META-INF/MANIFEST.MF", ClassPathResourceIndex.INDEX_RESOURCE,
+        "b.txt", "org/corant/A.class"}, names(ClassPathResourceIndex.build(added), null));
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.resource.watch;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.corant.shared.resource.watch.SharedWatchService.Handle;
+import org.corant.shared.resource.watch.SharedWatchService.Registration;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-shared
+ *
+ * @author bingo 下午3:26:47
+ *
+ */
+public class SharedWatchServiceTest extends TestCase {
+
+  SharedWatchService service;
+  Path dir;
+
+  @Test
+  public void testMinDeliveryInterval() throws Exception {
+    Path file = Files.write(dir.resolve("a.txt"), bytes("0"));
+    List<Long> deliveries = new CopyOnWriteArrayList<>();
+    CountDownLatch first = new CountDownLatch(1);
+    CountDownLatch second = new CountDownLatch(2);
+    service.watch(file, false, null, 500, e -> {
+      deliveries.add(System.nanoTime());
+      first.countDown();
+      second.countDown();
+    });
+    Files.write(file, bytes("1"));
+    assertTrue(first.await(5, TimeUnit.SECONDS));
+    // the changes within the interval are coalesced into one delivery
+    Files.write(file, bytes("2"));
+    Thread.sleep(100);
+    Files.write(file, bytes("3"));
+    assertTrue(second.await(5, TimeUnit.SECONDS));
+    Thread.sleep(700);
+    assertEquals(2, deliveries.size());
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(deliveries.get(1) - deliveries.get(0)) >= 450);
+  }
+
+  @Test
+  public void testMultiplexedDelivery() throws Exception {
+    List<FileChangeEvent> eventsA = new CopyOnWriteArrayList<>();
+    List<FileChangeEvent> eventsB = new CopyOnWriteArrayList<>();
+    List<FileChangeEvent> eventsC = new CopyOnWriteArrayList<>();
+    CountDownLatch latch = new CountDownLatch(3);
+    service.watch(dir, false, null, e -> {
+      eventsA.add(e);
+      latch.countDown();
+    }, e -> {
+      eventsB.add(e);
+      latch.countDown();
+    });
+    service.watch(dir, false, p -> p.toString().endsWith(".txt"), e -> {
+      eventsC.add(e);
+      latch.countDown();
+    });
+    // the handles of the same directory share one registration and one watch key
+    assertEquals(1, service.registrations.size());
+    assertEquals(2, service.registrations.get(dir).handles.size());
+    Files.write(dir.resolve("a.bin"), bytes("a"));
+    Files.write(dir.resolve("b.txt"), bytes("b"));
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    Thread.sleep(200);
+    assertEquals(2, eventsA.size());
+    assertEquals(2, eventsB.size());
+    assertEquals(1, eventsC.size());
+    assertEquals(FileChangeType.CREATE, eventsC.get(0).getType());
+    assertEquals(dir.resolve("b.txt").toFile(), eventsC.get(0).getFile());
+  }
+
+  @Test
+  public void testRegistration() throws Exception {
+    Path sub = Files.createDirectories(dir.resolve("sub"));
+    Path file = Files.write(dir.resolve("a.txt"), bytes("a"));
+    Handle recursive = service.watch(dir, true, null, e -> {
+    });
+    Handle single = service.watch(file, false, null, e -> {
+    });
+    assertEquals(2, service.registrations.size());
+    assertTrue(recursive.dirs.contains(dir));
+    assertTrue(recursive.dirs.contains(sub));
+    // the file is watched through its parent directory
+    assertEquals(1, single.dirs.size());
+    assertTrue(single.dirs.contains(dir));
+    assertEquals(2, service.registrations.get(dir).handles.size());
+    Registration registration = service.registrations.get(sub);
+    assertEquals(1, registration.handles.size());
+    if (registration.key != null) {
+      assertSame(registration, service.keys.get(registration.key));
+    }
+    // the directory created later is registered to the recursive handle
+    CountDownLatch latch = new CountDownLatch(1);
+    Path nested = Files.createDirectories(sub.resolve("nested"));
+    recursive.registerListener(e -> latch.countDown());
+    Files.write(nested.resolve("b.txt"), bytes("b"));
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertTrue(recursive.dirs.contains(nested));
+  }
+
+  @Test
+  public void testUnregistration() throws Exception {
+    List<FileChangeEvent> eventsA = new CopyOnWriteArrayList<>();
+    List<FileChangeEvent> eventsB = new CopyOnWriteArrayList<>();
+    Handle handleA = service.watch(dir, false, null, eventsA::add);
+    Handle handleB = service.watch(dir, false, null, eventsB::add);
+    Registration registration = service.registrations.get(dir);
+    handleA.close();
+    assertFalse(handleA.isRunning());
+    assertTrue(handleA.dirs.isEmpty());
+    assertSame(registration, service.registrations.get(dir));
+    assertEquals(1, registration.handles.size());
+    Files.write(dir.resolve("a.txt"), bytes("a"));
+    Thread.sleep(500);
+    assertTrue(eventsA.isEmpty());
+    assertEquals(1, eventsB.size());
+    handleB.close();
+    assertTrue(service.registrations.isEmpty());
+    assertTrue(service.keys.isEmpty());
+    if (registration.key != null) {
+      assertFalse(registration.key.isValid());
+    }
+    Files.write(dir.resolve("b.txt"), bytes("b"));
+    Thread.sleep(500);
+    assertEquals(1, eventsB.size());
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    service = new SharedWatchService();
+    dir = Files.createTempDirectory("corant-watch-").toRealPath();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    service.executor.shutdownNow();
+    for (Optional<WatchService> watchService : service.services.values()) {
+      if (watchService.isPresent()) {
+        watchService.get().close();
+      }
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+    super.tearDown();
+  }
+
+  byte[] bytes(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.ubiquity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * corant-shared
+ *
+ * @author bingo 下午3:40:16
+ *
+ */
+public class TimeHistogramTest {
+
+  @Test
+  public void testBuckets() {
+    for (long v : new long[] {0, 1, 7, 8, 15, 16, 17, 100, 1000, 123456789L, Long.MAX_VALUE}) {
+      int index = TimeHistogram.indexOf(v);
+      assertTrue(TimeHistogram.upperBoundOf(index) >= v);
+      if (index > 0) {
+        assertTrue(TimeHistogram.upperBoundOf(index - 1) < v);
+      }
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    TimeHistogram histogram = new TimeHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i, TimeUnit.MILLISECONDS);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000, histogram.getMax(TimeUnit.MILLISECONDS));
+    assertEquals(500.5, histogram.getMeanMillis(), 0.001);
+    double p50 = histogram.getPercentileMillis(0.5);
+    double p99 = histogram.getPercentileMillis(0.99);
+    assertTrue(p50 >= 500 && p50 <= 500 * 1.125);
+    assertTrue(p99 >= 990 && p99 <= 1000);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentileNanos(0.99));
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-shared
+ *
+ * @author bingo 下午4:36:18
+ *
+ */
+public class CompressorsTest extends TestCase {
+
+  static final int BLOCK_SIZE = 128 * 1024;
+
+  File dir;
+
+  static byte[] bytes(int size, long seed) {
+    // compressible but not trivial
+    Random random = new Random(seed);
+    byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte) ('a' + random.nextInt(random.nextBoolean() ? 4 : 26));
+    }
+    return bytes;
+  }
+
+  static byte[] readAll(InputStream is) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int n;
+    while ((n = is.read(buffer)) != -1) {
+      os.write(buffer, 0, n);
+    }
+    return os.toByteArray();
+  }
+
+  @Test
+  public void testParallelGzip() throws IOException {
+    for (int size : new int[] {0, 1000, BLOCK_SIZE, 5 * BLOCK_SIZE + 17}) {
+      byte[] data = bytes(size, size);
+      for (boolean prime : new boolean[] {true, false}) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Compressors.parallelGzip(new ByteArrayInputStream(data), os,
+            Deflater.DEFAULT_COMPRESSION, BLOCK_SIZE, prime, 4);
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(os.toByteArray()))) {
+          assertTrue("size " + size, Arrays.equals(data, readAll(is)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testParallelZip() throws IOException {
+    Map<String, byte[]> expected = new HashMap<>();
+    File root = new File(dir, "root");
+    expected.put("root/empty.txt", write(root, "empty.txt", 0));
+    expected.put("root/small.txt", write(root, "small.txt", 1000));
+    // the large files are streamed with the data descriptors
+    expected.put("root/large.txt", write(root, "large.txt", 4 * BLOCK_SIZE + 1));
+    expected.put("root/sub/larger.txt", write(new File(root, "sub"), "larger.txt",
+        9 * BLOCK_SIZE + 3));
+    assertTrue(new File(root, "none").mkdirs());
+    for (int i = 0; i < 1000; i++) {
+      expected.put("root/many/" + i + ".txt", write(new File(root, "many"), i + ".txt", i % 300));
+    }
+    File zipFile = new File(dir, "test.zip");
+    Compressors.parallelZip(Arrays.asList(root), zipFile);
+
+    Map<String, byte[]> actual = new HashMap<>();
+    try (ZipFile zip = new ZipFile(zipFile)) {
+      assertEquals(expected.size() + 1, zip.size());
+      assertTrue(zip.getEntry("root/none/").isDirectory());
+      for (ZipEntry entry : Collections.list(zip.entries())) {
+        if (!entry.isDirectory()) {
+          try (InputStream is = zip.getInputStream(entry)) {
+            actual.put(entry.getName(), readAll(is));
+          }
+        }
+      }
+    }
+    assertContents(expected, actual);
+
+    actual.clear();
+    try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zipFile.toPath()))) {
+      ZipEntry entry;
+      while ((entry = zis.getNextEntry()) != null) {
+        if (!entry.isDirectory()) {
+          actual.put(entry.getName(), readAll(zis));
+        }
+      }
+    }
+    assertContents(expected, actual);
+  }
+
+  @Test
+  public void testParallelZipEmpty() throws IOException {
+    File zipFile = new File(dir, "empty.zip");
+    File empty = new File(dir, "empty");
+    assertTrue(empty.mkdirs());
+    Compressors.parallelZip(Arrays.asList(empty), zipFile);
+    try (ZipFile zip = new ZipFile(zipFile)) {
+      assertEquals(1, zip.size());
+      assertTrue(zip.getEntry("empty/").isDirectory());
+    }
+  }
+
+  void assertContents(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+    assertEquals(expected.keySet(), actual.keySet());
+    expected.forEach((k, v) -> assertTrue(k, Arrays.equals(v, actual.get(k))));
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    dir = Files.createTempDirectory("corant-compressors-").toFile();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try (Stream<File> files = Files.walk(dir.toPath()).map(Path::toFile)) {
+      files.sorted(Comparator.reverseOrder()).forEach(File::delete);
+    }
+  }
+
+  byte[] write(File parent, String name, int size) throws IOException {
+    byte[] data = bytes(size, name.hashCode());
+    parent.mkdirs();
+    Files.write(new File(parent, name).toPath(), data);
+    return data;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.corant.shared.util.Identifiers.GeneralSnowflakeUUIDGenerator;
+import org.corant.shared.util.Identifiers.LeasedSnowflakeUUIDGenerator;
+import org.corant.shared.util.Identifiers.SnowflakeW10S12UUIDGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-shared
+ *
+ * <p>
+ * Micro-benchmarks of the snowflake id generating with 32 threads, compares the per id generating
+ * against the block generating and the per-thread leased generating, all the benchmarks are
+ * measured in ids per microsecond. Note that the millisecond generators can't generate more than
+ * 4096 ids per millisecond, so the results are bounded by the sequence bits.
+ *
+ * @author bingo 下午3:32:14
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class IdentifiersBenchmark {
+
+  static final int BLOCK_SIZE = 64;
+
+  final Supplier<Long> timer = System::currentTimeMillis;
+  GeneralSnowflakeUUIDGenerator generator;
+  GeneralSnowflakeUUIDGenerator delayedGenerator;
+  LeasedSnowflakeUUIDGenerator leasedGenerator;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(IdentifiersBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BLOCK_SIZE)
+  public long[] block() {
+    return generator.generate(timer, BLOCK_SIZE);
+  }
+
+  @Benchmark
+  public long delayed() {
+    return delayedGenerator.generate(timer);
+  }
+
+  @Benchmark
+  public long leased() {
+    return leasedGenerator.generate(timer);
+  }
+
+  @Setup
+  public void setup() {
+    generator = new SnowflakeW10S12UUIDGenerator(1L);
+    delayedGenerator = new SnowflakeW10S12UUIDGenerator(2L, 16000L);
+    leasedGenerator =
+        new LeasedSnowflakeUUIDGenerator(new SnowflakeW10S12UUIDGenerator(3L), BLOCK_SIZE);
+  }
+
+  @Benchmark
+  public long single() {
+    return generator.generate(timer);
+  }
+}
@@ -24,9 +24,12 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.corant.shared.ubiquity.Tuple.Pair;
 import org.corant.shared.util.Identifiers.GeneralSnowflakeUUIDGenerator;
+import org.corant.shared.util.Identifiers.LeasedSnowflakeUUIDGenerator;
 import org.corant.shared.util.Identifiers.SnowflakeIpv4HostUUIDGenerator;
+import org.corant.shared.util.Identifiers.SnowflakeW10S12UUIDGenerator;
 import org.junit.Test;
 import junit.framework.TestCase;
 
@@ -96,4 +99,75 @@ public class IdentifiersTest extends TestCase {
     System.out.println("Completed: " + set.size());
 
   }
+
+  @Test
+  public void testBlockGenerate() {
+    for (long delayed : new long[] {-1L, 16000L}) {
+      GeneralSnowflakeUUIDGenerator generator = new SnowflakeW10S12UUIDGenerator(1L, delayed);
+      long last = generator.generate(System::currentTimeMillis);
+      for (int size : new int[] {0, 1, 100, 4096, 10000}) {
+        long[] ids = generator.generate(System::currentTimeMillis, size);
+        assertEquals(size, ids.length);
+        for (long id : ids) {
+          assertTrue(id > last);
+          assertEquals(1L, generator.parseGeneratedWorkersId(id));
+          last = id;
+        }
+      }
+      assertTrue(generator.generate(System::currentTimeMillis) > last);
+    }
+  }
+
+  @Test
+  public void testLeasedGenerate() throws InterruptedException {
+    final int threads = 8, times = 50000;
+    final LeasedSnowflakeUUIDGenerator generator =
+        new LeasedSnowflakeUUIDGenerator(new SnowflakeW10S12UUIDGenerator(2L), 256);
+    final long[][] arr = new long[threads][times];
+    ExecutorService es = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      es.submit(() -> {
+        if (thread % 2 == 0) {
+          generator.preallocate(System::currentTimeMillis, times / 2);
+        }
+        for (int i = 0; i < times; i++) {
+          arr[thread][i] = generator.generate(System::currentTimeMillis);
+        }
+      });
+    }
+    es.shutdown();
+    assertTrue(es.awaitTermination(1, TimeUnit.MINUTES));
+    Set<Long> set = new HashSet<>();
+    for (long[] ids : arr) {
+      for (int i = 0; i < ids.length; i++) {
+        assertTrue(i == 0 || ids[i] > ids[i - 1]);
+        set.add(ids[i]);
+      }
+    }
+    assertEquals(threads * times, set.size());
+  }
+
+  @Test
+  public void testLeaseMaxAge() throws InterruptedException {
+    final LeasedSnowflakeUUIDGenerator generator =
+        new LeasedSnowflakeUUIDGenerator(new SnowflakeW10S12UUIDGenerator(2L), 16, 20L);
+    final long first = generator.generate(System::currentTimeMillis);
+    assertEquals(15, generator.remaining());
+    generator.preallocate(System::currentTimeMillis, 32);
+    assertEquals(32, generator.remaining());
+    Thread.sleep(50);
+    // the expired lease is discarded and a new one is leased
+    assertEquals(0, generator.remaining());
+    final long renewed = generator.generate(System::currentTimeMillis);
+    assertTrue(renewed > first);
+    assertEquals(15, generator.remaining());
+    generator.release();
+    assertEquals(0, generator.remaining());
+    final LeasedSnowflakeUUIDGenerator unbounded =
+        new LeasedSnowflakeUUIDGenerator(new SnowflakeW10S12UUIDGenerator(3L), 16, 0L);
+    unbounded.generate(System::currentTimeMillis);
+    Thread.sleep(50);
+    assertEquals(15, unbounded.remaining());
+  }
 }
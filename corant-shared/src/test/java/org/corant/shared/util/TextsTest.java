@@ -18,8 +18,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.corant.shared.util.Texts.LocableFileRecord;
 import org.junit.Test;
 import junit.framework.TestCase;
 
@@ -31,6 +34,61 @@ import junit.framework.TestCase;
  */
 public class TextsTest extends TestCase {
 
+  @Test
+  public void testParallelCSVRows() throws IOException {
+    File testFile = FileUtils.createTempFile("corant-testing-parallel-csv-rows", ".csv");
+    List<String> datLine = listOf("1", "", "\"", ",", "厦门China", "\r\n", "\r\r", "\n\n\r", "5");
+    int size = 100;
+    StringBuilder context = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      context.append(Texts.toCSVLine(datLine)).append(i % 2 == 0 ? "\r\n" : "\n");
+    }
+    Texts.tryWriteToFile(testFile, false, context.toString());
+    List<List<String>> expected = Texts.asCSVLines(testFile).collect(Collectors.toList());
+    for (int chunkSize : new int[] {1, 7, 64, 1 << 20}) {
+      List<LocableFileRecord> records;
+      try (Stream<LocableFileRecord> stream =
+          Texts.asParallelCSVLines(testFile, null, 0, chunkSize, true)) {
+        records = stream.collect(Collectors.toList());
+      }
+      assertEquals(expected,
+          records.stream().map(LocableFileRecord::getFields).collect(Collectors.toList()));
+      for (int i = 1; i < records.size(); i++) {
+        assertEquals(records.get(i - 1).getEndPosition(), records.get(i).getBeginPosition());
+      }
+      assertEquals(testFile.length(), records.get(records.size() - 1).getEndPosition());
+      try (Stream<LocableFileRecord> stream = Texts.asParallelCSVLines(testFile, null,
+          records.get(49).getEndPosition(), chunkSize, false)) {
+        assertEquals(expected.subList(50, size),
+            stream.sorted(Comparator.comparingLong(LocableFileRecord::getBeginPosition))
+                .map(LocableFileRecord::getFields).collect(Collectors.toList()));
+      }
+      List<List<String>> batches = new ArrayList<>();
+      Texts.readParallelCSVLines(testFile, null, 0, chunkSize,
+          b -> b.forEach(r -> batches.add(r.getFields())));
+      assertEquals(expected, batches);
+    }
+  }
+
+  @Test
+  public void testParallelXSVRows() throws IOException {
+    File testFile = FileUtils.createTempFile("corant-testing-parallel-xsv-rows", ".xsv");
+    List<String> datLine = listOf("1", "", "\\t2", "\"", "厦门\tChina", "\r\n", "\n\n\r", "5");
+    String delimiter = "\t";
+    List<List<String>> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      expected.add(datLine);
+    }
+    Texts.writeXSVFile(testFile, false, null, delimiter, expected);
+    for (int chunkSize : new int[] {1, 7, 1 << 20}) {
+      try (Stream<LocableFileRecord> stream =
+          Texts.asParallelXSVLines(testFile, null, 0, chunkSize, true, delimiter)) {
+        assertEquals(expected,
+            stream.map(LocableFileRecord::getFields).collect(Collectors.toList()));
+      }
+    }
+  }
+
   @Test
   public void testStreamCSVRows() throws IOException {
     File testFile = FileUtils.createTempFile("corant-testing-csv-rows", ".csv");